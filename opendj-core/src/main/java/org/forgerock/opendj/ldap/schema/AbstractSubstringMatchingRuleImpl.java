@@ -45,6 +45,13 @@ abstract class AbstractSubstringMatchingRuleImpl extends AbstractMatchingRuleImp
     /** The backslash character. */
     private static final int BACKSLASH = 0x5C;
 
+    /** Prefix of the n-gram keys which may start at any position of a value. */
+    private static final byte NGRAM_ANY = 0x00;
+    /** Prefix of the n-gram keys anchored at the start of a value. */
+    private static final byte NGRAM_INITIAL = 0x01;
+    /** Prefix of the n-gram keys anchored at the end of a value, whose bytes are stored in reverse order. */
+    private static final byte NGRAM_FINAL = 0x02;
+
     /**
      * Default assertion implementation for substring matching rules.
      * For example, with the assertion value "initial*any1*any2*any3*final",
@@ -138,6 +145,9 @@ abstract class AbstractSubstringMatchingRuleImpl extends AbstractMatchingRuleImp
                 // Can happen with a filter like "cn:en.6:=*", just return an empty record
                 return factory.createMatchAllQuery();
             }
+            if (factory.getIndexingOptions().substringPositionalNGrams()) {
+                return createNGramIndexQuery(factory);
+            }
 
             final Collection<T> subqueries = new LinkedList<>();
             if (normInitial != null) {
@@ -160,6 +170,60 @@ abstract class AbstractSubstringMatchingRuleImpl extends AbstractMatchingRuleImp
             return factory.createIntersectionQuery(subqueries);
         }
 
+        /**
+         * Intersects the n-grams of all the assertion components. The initial and final components are matched
+         * against the n-grams anchored at the start and at the end of the values, and components shorter than the
+         * n-grams are matched against all the keys starting with them.
+         */
+        private <T> T createNGramIndexQuery(final IndexQueryFactory<T> factory) {
+            final int n = factory.getIndexingOptions().substringKeySize();
+            final String indexId = nGramIndexId(n);
+
+            final Collection<T> subqueries = new LinkedList<>();
+            // Eliminate duplicates by putting the keys into a set.
+            final TreeSet<ByteString> keys = new TreeSet<>();
+            if (normInitial != null) {
+                nGramMatch(factory, indexId, initialNGram(normInitial, n), normInitial.length() >= n, keys,
+                        subqueries);
+                anyNGramsMatch(factory, indexId, normInitial, n, keys, subqueries);
+            }
+            if (normAnys != null) {
+                for (ByteString normAny : normAnys) {
+                    anyNGramsMatch(factory, indexId, normAny, n, keys, subqueries);
+                }
+            }
+            if (normFinal != null) {
+                nGramMatch(factory, indexId, finalNGram(normFinal, n), normFinal.length() >= n, keys, subqueries);
+                anyNGramsMatch(factory, indexId, normFinal, n, keys, subqueries);
+            }
+            for (ByteString key : keys) {
+                subqueries.add(factory.createExactMatchQuery(indexId, key));
+            }
+            return factory.createIntersectionQuery(subqueries);
+        }
+
+        private <T> void anyNGramsMatch(final IndexQueryFactory<T> factory, final String indexId,
+                final ByteString normSubstring, final int n, final Collection<ByteString> keys,
+                final Collection<T> subqueries) {
+            if (normSubstring.length() < n) {
+                nGramMatch(factory, indexId, nGramKey(NGRAM_ANY, normSubstring), false, keys, subqueries);
+                return;
+            }
+            for (int first = 0; first + n <= normSubstring.length(); first++) {
+                keys.add(nGramKey(NGRAM_ANY, normSubstring.subSequence(first, first + n)));
+            }
+        }
+
+        private <T> void nGramMatch(final IndexQueryFactory<T> factory, final String indexId, final ByteString key,
+                final boolean isComplete, final Collection<ByteString> keys, final Collection<T> subqueries) {
+            if (isComplete) {
+                keys.add(key);
+            } else {
+                // The component is shorter than the n-grams: read all the n-grams starting with it
+                subqueries.add(rangeMatch(factory, indexId, key));
+            }
+        }
+
         private <T> T rangeMatch(IndexQueryFactory<T> factory, String indexID, ByteSequence lower) {
             // Iterate through all the keys that have this value as the prefix.
 
@@ -250,6 +314,57 @@ abstract class AbstractSubstringMatchingRuleImpl extends AbstractMatchingRuleImp
         }
     }
 
+    /**
+     * Indexes the positional n-grams of the values. Each n-gram of a value is stored with a prefix indicating whether
+     * it may be found anywhere in a value, or whether it is anchored at the start or at the end of the value.
+     */
+    private final class NGramSubstringIndexer implements Indexer {
+
+        private final String indexID;
+        private final int n;
+
+        private NGramSubstringIndexer(int n) {
+            this.n = n;
+            this.indexID = nGramIndexId(n);
+        }
+
+        @Override
+        public void createKeys(Schema schema, ByteSequence value, Collection<ByteString> keys) throws DecodeException {
+            final ByteString normValue = normalizeAttributeValue(schema, value);
+            if (normValue.isEmpty()) {
+                return;
+            }
+
+            // Example: The value is ABCDE and n is 3.
+            // We produce the keys ABC BCD CDE DE E, along with the anchored keys ^ABC and CDE$.
+            // As with substring keys, the shorter keys at the end of the value allow to find
+            // values containing a substring shorter than the n-grams, such as DE.
+            for (int i = 0, remain = normValue.length(); remain > 0; i++, remain--) {
+                keys.add(nGramKey(NGRAM_ANY, normValue.subSequence(i, i + Math.min(n, remain))));
+            }
+            keys.add(initialNGram(normValue, n));
+            keys.add(finalNGram(normValue, n));
+        }
+
+        @Override
+        public String keyToHumanReadableString(ByteSequence key) {
+            final ByteSequence nGram = key.subSequence(1, key.length());
+            switch (key.byteAt(0)) {
+            case NGRAM_INITIAL:
+                return "^" + AbstractSubstringMatchingRuleImpl.this.keyToHumanReadableString(nGram);
+            case NGRAM_FINAL:
+                return AbstractSubstringMatchingRuleImpl.this.keyToHumanReadableString(reverse(nGram)) + "$";
+            default:
+                return AbstractSubstringMatchingRuleImpl.this.keyToHumanReadableString(nGram);
+            }
+        }
+
+        @Override
+        public String getIndexID() {
+            return indexID;
+        }
+    }
+
     /** Identifier of the substring index. */
     private final String substringIndexId;
 
@@ -527,6 +642,34 @@ abstract class AbstractSubstringMatchingRuleImpl extends AbstractMatchingRuleImp
 
     @Override
     public final Collection<? extends Indexer> createIndexers(IndexingOptions options) {
+        if (options.substringPositionalNGrams()) {
+            return Collections.singleton(new NGramSubstringIndexer(options.substringKeySize()));
+        }
         return Collections.singleton(new SubstringIndexer(options.substringKeySize()));
     }
+
+    private String nGramIndexId(int n) {
+        return substringIndexId + ":ngram:" + n;
+    }
+
+    private static ByteString initialNGram(ByteString normValue, int n) {
+        return nGramKey(NGRAM_INITIAL, normValue.subSequence(0, Math.min(n, normValue.length())));
+    }
+
+    private static ByteString finalNGram(ByteString normValue, int n) {
+        final int length = normValue.length();
+        return nGramKey(NGRAM_FINAL, reverse(normValue.subSequence(length - Math.min(n, length), length)));
+    }
+
+    private static ByteString nGramKey(byte position, ByteSequence nGram) {
+        return new ByteStringBuilder(nGram.length() + 1).appendByte(position).appendBytes(nGram).toByteString();
+    }
+
+    private static ByteString reverse(ByteSequence bytes) {
+        final ByteStringBuilder builder = new ByteStringBuilder(bytes.length());
+        for (int i = bytes.length() - 1; i >= 0; i--) {
+            builder.appendByte(bytes.byteAt(i));
+        }
+        return builder.toByteString();
+    }
 }
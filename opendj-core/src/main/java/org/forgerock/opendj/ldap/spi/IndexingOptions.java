@@ -29,5 +29,22 @@ public interface IndexingOptions {
      */
     int substringKeySize();
 
+    /**
+     * Indicates whether the "substring" index must be built from positional
+     * n-grams rather than from substring keys.
+     * <p>
+     * A positional n-gram index stores every n-gram of a value, where n is the
+     * {@link #substringKeySize() substring key size}, along with the n-grams
+     * anchored at the start and at the end of the value. Substring assertions
+     * are then evaluated by intersecting the n-grams of all their components,
+     * without relying on the "equality" index for the initial component.
+     *
+     * @return {@code true} if the "substring" index must be built from
+     *         positional n-grams. The default implementation returns
+     *         {@code false}.
+     */
+    default boolean substringPositionalNGrams() {
+        return false;
+    }
 
 }
@@ -138,6 +138,12 @@ public class AbstractSubstringMatchingRuleImplTest extends AbstractSchemaTestCas
         return options;
     }
 
+    static IndexingOptions newNGramIndexingOptions(int subStringLength) {
+        final IndexingOptions options = newIndexingOptions(subStringLength);
+        when(options.substringPositionalNGrams()).thenReturn(true);
+        return options;
+    }
+
     @DataProvider
     public Object[][] invalidAssertions() {
         return new Object[][] {
@@ -271,6 +277,39 @@ public class AbstractSubstringMatchingRuleImplTest extends AbstractSchemaTestCas
         Assertions.assertThat(keys).containsOnly((Object[]) toByteStrings("ABC", "BCD", "CDE", "DE", "E"));
     }
 
+    @Test
+    public void testNGramIndexer() throws Exception {
+        final IndexingOptions options = newNGramIndexingOptions(3);
+        final Indexer indexer = getRule().createIndexers(options).iterator().next();
+        Assertions.assertThat(indexer.getIndexID()).isEqualTo(SMR_CASE_EXACT_OID + ":ngram:3");
+
+        final TreeSet<ByteString> keys = new TreeSet<>();
+        indexer.createKeys(Schema.getCoreSchema(), valueOfUtf8("ABCDE"), keys);
+        Assertions.assertThat(keys).containsOnly((Object[]) toByteStrings(
+                "\u0000ABC", "\u0000BCD", "\u0000CDE", "\u0000DE", "\u0000E", "\u0001ABC", "\u0002EDC"));
+        Assertions.assertThat(indexer.keyToHumanReadableString(valueOfUtf8("\u0001ABC"))).isEqualTo("^ABC");
+        Assertions.assertThat(indexer.keyToHumanReadableString(valueOfUtf8("\u0002EDC"))).isEqualTo("CDE$");
+        Assertions.assertThat(indexer.keyToHumanReadableString(valueOfUtf8("\u0000BCD"))).isEqualTo("BCD");
+    }
+
+    @Test
+    public void testNGramCreateIndexQuery() throws Exception {
+        Assertion assertion = getRule().getSubstringAssertion(
+            null, valueOfUtf8("abcd"), Arrays.asList(toByteStrings("xy")), valueOfUtf8("fg"));
+
+        final String indexID = SMR_CASE_EXACT_OID + ":ngram:3";
+        assertEquals(
+            assertion.createIndexQuery(new FakeIndexQueryFactory(newNGramIndexingOptions(3))),
+            "intersect["
+                    + "rangeMatch(" + indexID + ", '\u0000xy' <= value < '\u0000xz'), "
+                    + "rangeMatch(" + indexID + ", '\u0002gf' <= value < '\u0002gg'), "
+                    + "rangeMatch(" + indexID + ", '\u0000fg' <= value < '\u0000fh'), "
+                    + "exactMatch(" + indexID + ", value=='\u0000abc'), "
+                    + "exactMatch(" + indexID + ", value=='\u0000bcd'), "
+                    + "exactMatch(" + indexID + ", value=='\u0001abc')"
+                    + "]");
+    }
+
     private ByteString[] toByteStrings(String... strings) {
         final ByteString[] results = new ByteString[strings.length];
         for (int i = 0; i < strings.length; i++) {
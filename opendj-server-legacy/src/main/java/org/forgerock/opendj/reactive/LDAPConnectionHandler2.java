@@ -41,6 +41,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -74,6 +75,7 @@ import org.opends.server.api.DirectoryThread;
 import org.opends.server.api.KeyManagerProvider;
 import org.opends.server.api.ServerShutdownListener;
 import org.opends.server.api.plugin.PluginResult;
+import org.opends.server.core.AdaptiveWorkQueueStrategy;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.PluginConfigManager;
 import org.opends.server.core.QueueingStrategy;
@@ -181,6 +183,12 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
     /** Queueing strategy. */
     private final QueueingStrategy queueingStrategy;
 
+    /**
+     * The queueing strategy adapting the concurrency to the latency of the operations, used instead of the work queue
+     * strategy when enabled. Created on first use, since connection handlers are initialized before the work queue.
+     */
+    private final AtomicReference<AdaptiveWorkQueueStrategy> adaptiveQueueingStrategy = new AtomicReference<>();
+
     /**
      * The condition variable that will be used by the start method to wait for the socket port to be opened and ready
      * to process requests before returning.
@@ -283,6 +291,9 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
         enabled = config.isEnabled();
         allowedClients = config.getAllowedClient();
         deniedClients = config.getDeniedClient();
+        if (!config.isAdaptiveConcurrencyLimit()) {
+            adaptiveQueueingStrategy.set(null);
+        }
 
         // Reconfigure SSL if needed.
         try {
@@ -444,6 +455,32 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
         return protocol;
     }
 
+    /**
+     * Get the queueing strategy.
+     *
+     * @return The queueing strategy.
+     */
+    public QueueingStrategy getQueueingStrategy() {
+        if (!currentConfig.isAdaptiveConcurrencyLimit() || !(queueingStrategy instanceof WorkQueueStrategy)) {
+            return queueingStrategy;
+        }
+        AdaptiveWorkQueueStrategy strategy = adaptiveQueueingStrategy.get();
+        if (strategy == null) {
+            adaptiveQueueingStrategy.compareAndSet(null, new AdaptiveWorkQueueStrategy());
+            strategy = adaptiveQueueingStrategy.get();
+        }
+        return strategy != null ? strategy : queueingStrategy;
+    }
+
+    /**
+     * Get the queueing strategy adapting the concurrency to the latency of the operations.
+     *
+     * @return The adaptive queueing strategy, or {@code null} if it is disabled or has not processed any operation yet.
+     */
+    public AdaptiveWorkQueueStrategy getAdaptiveQueueingStrategy() {
+        return adaptiveQueueingStrategy.get();
+    }
+
     @Override
     public String getShutdownListenerName() {
         return handlerName;
@@ -479,6 +516,9 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
         enabled = config.isEnabled();
         allowedClients = config.getAllowedClient();
         deniedClients = config.getDeniedClient();
+        if (config.getEncodedEntryCacheSize() > 0) {
+            logger.warn(WARN_LDAP_CONNHANDLER_ENCODED_ENTRY_CACHE_IGNORED, config.dn(), getClassName());
+        }
 
         // Configure SSL if needed.
         try {
@@ -556,6 +596,13 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
             List<LocalizableMessage> unacceptableReasons) {
         LDAPConnectionHandlerCfg config = (LDAPConnectionHandlerCfg) configuration;
 
+        // The responses are encoded by the SDK, which cannot reuse the encoded entries
+        if (config.getEncodedEntryCacheSize() > 0) {
+            unacceptableReasons.add(ERR_LDAP_CONNHANDLER_ENCODED_ENTRY_CACHE_NOT_SUPPORTED.get(config.dn(),
+                    getClassName()));
+            return false;
+        }
+
         if (currentConfig == null || (!currentConfig.isEnabled() && config.isEnabled())) {
             // Attempt to bind to the listen port on all configured addresses to
             // verify whether the connection handler will be able to start.
@@ -666,7 +713,7 @@ public final class LDAPConnectionHandler2 extends ConnectionHandler<LDAPConnecti
                             @Override
                             public Stream<Response> handle(final LDAPClientContext context,
                                     final LdapRequestEnvelope request) throws Exception {
-                                return conn.handle(queueingStrategy, request);
+                                return conn.handle(getQueueingStrategy(), request);
                             }
                         };
                     }
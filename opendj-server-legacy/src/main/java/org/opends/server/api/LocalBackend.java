@@ -739,6 +739,17 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
     this.backendMonitor = backendMonitor;
   }
 
+  /**
+   * Adds the monitoring information which is specific to this backend to the
+   * data reported by its backend monitor. By default, nothing is added.
+   *
+   * @param  monitorData  The monitor data reported by the backend monitor.
+   */
+  public void addBackendMonitorData(MonitorData monitorData)
+  {
+    // no backend specific monitoring information
+  }
+
   /**
    * Indicates whether this backend supports the specified control.
    *
@@ -13,6 +13,7 @@
  *
  * Copyright 2006-2008 Sun Microsystems, Inc.
  * Portions Copyright 2014-2016 ForgeRock AS.
+ * Portions Copyright 2026 Open Identity Platform Community.
  */
 package org.opends.server.backends;
 
@@ -21,22 +22,30 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.server.config.server.MemoryBackendCfg;
 import org.opends.server.api.LocalBackend;
 import org.opends.server.controls.SubtreeDeleteControl;
@@ -48,6 +57,7 @@ import org.opends.server.core.ModifyOperation;
 import org.opends.server.core.SearchOperation;
 import org.opends.server.core.ServerContext;
 import org.opends.server.types.BackupConfig;
+import org.opends.server.types.Attribute;
 import org.opends.server.types.BackupDirectory;
 import org.opends.server.types.Control;
 import org.opends.server.types.DirectoryException;
@@ -65,31 +75,28 @@ import org.opends.server.util.LDIFReader;
 import org.opends.server.util.LDIFWriter;
 
 /**
- * This class defines a very simple backend that stores its information in
- * memory.  This is primarily intended for testing purposes with small data
- * sets, as it does not have any indexing mechanism such as would be required to
- * achieve high performance with large data sets.  It is also heavily
- * synchronized for simplicity at the expense of performance, rather than
- * providing a more fine-grained locking mechanism.
+ * This class defines a simple backend that stores its information in memory.
+ * It is intended for testing purposes and for small scratch data sets.
  * <BR><BR>
  * Entries stored in this backend are held in a
- * <CODE>LinkedHashMap&lt;DN,Entry&gt;</CODE> object, which ensures that the
- * order in which you iterate over the entries is the same as the order in which
- * they were inserted.  By combining this with the constraint that no entry can
- * be added before its parent, you can ensure that iterating through the entries
- * will always process the parent entries before their children, which is
- * important for both search result processing and LDIF exports.
+ * <CODE>ConcurrentHashMap&lt;DN,Entry&gt;</CODE> object.  Read operations do
+ * not take any lock, so they run concurrently with each other and with write
+ * operations, which are serialized by synchronizing on the backend.  The stored
+ * entries are never modified in place: updates replace them, and read
+ * operations return copies.
  * <BR><BR>
- * As mentioned above, no data indexing is performed, so all non-baseObject
- * searches require iteration through the entire data set.  If this is to become
- * a more general-purpose backend, then additional
- * <CODE>HashMap&lt;ByteString,Set&lt;DN&gt;&gt;</CODE> objects could be used
- * to provide that capability.
+ * A mapping between the DN of an entry and the DNs of its immediate children is
+ * maintained.  It is needed to efficiently determine whether an entry has any
+ * children (which must not be the case for delete operations), and it is used
+ * to walk the entries in the scope of a search or of an LDIF export, always
+ * processing the parent entries before their children.
  * <BR><BR>
- * There is actually one index that does get maintained within this backend,
- * which is a mapping between the DN of an entry and the DNs of any immediate
- * children of that entry.  This is needed to efficiently determine whether an
- * entry has any children (which must not be the case for delete operations).
+ * In addition, an equality index
+ * <CODE>Map&lt;ByteString,Set&lt;DN&gt;&gt;</CODE> is maintained for each
+ * attribute listed in the configuration.  When the filter of a search contains
+ * equality components on indexed attributes, only the entries having the
+ * asserted values are evaluated.  Otherwise all the entries in the search scope
+ * are evaluated.
  */
 public class MemoryBackend
        extends LocalBackend<MemoryBackendCfg>
@@ -102,9 +109,13 @@ public class MemoryBackend
   /** The base DNs for this backend. */
   private Set<DN> baseDNs;
   /** The mapping between parent DNs and their immediate children. */
-  private Map<DN, HashSet<DN>> childDNs;
+  private final ConcurrentMap<DN, ConcurrentSkipListSet<DN>> childDNs = new ConcurrentHashMap<>();
   /** The mapping between entry DNs and the corresponding entries. */
-  private LinkedHashMap<DN,Entry> entryMap;
+  private final ConcurrentMap<DN, Entry> entryMap = new ConcurrentHashMap<>();
+  /** The equality indexes, mapping normalized attribute values to the DNs of the entries containing them. */
+  private volatile Map<AttributeType, ConcurrentMap<ByteString, Set<DN>>> attributeIndexes = Collections.emptyMap();
+  /** Whether the backend is open. */
+  private volatile boolean isOpen;
   /** The server context. */
   private ServerContext serverContext;
 
@@ -138,6 +149,31 @@ public class MemoryBackend
     if (config != null)
     {
       this.baseDNs = config.getBaseDN();
+      setIndexedAttributes(config.getIndexedAttribute());
+    }
+  }
+
+  /**
+   * Set the attributes for which an equality index is maintained.  This is used
+   * by the unit tests to define the indexes without having to provide a
+   * configuration object when initializing the backend.  Attributes without an
+   * equality matching rule are ignored.
+   * @param attributeTypes The attributes to index.
+   */
+  public synchronized void setIndexedAttributes(Set<AttributeType> attributeTypes)
+  {
+    Map<AttributeType, ConcurrentMap<ByteString, Set<DN>>> indexes = new HashMap<>();
+    for (AttributeType attributeType : attributeTypes)
+    {
+      if (attributeType.getEqualityMatchingRule() != null)
+      {
+        indexes.put(attributeType, new ConcurrentHashMap<ByteString, Set<DN>>());
+      }
+    }
+    attributeIndexes = indexes;
+    for (Entry entry : entryMap.values())
+    {
+      indexEntry(entry, true);
     }
   }
 
@@ -153,8 +189,7 @@ public class MemoryBackend
       throw new ConfigException(ERR_MEMORYBACKEND_REQUIRE_EXACTLY_ONE_BASE.get());
     }
 
-    entryMap = new LinkedHashMap<>();
-    childDNs = new HashMap<>();
+    clearMemoryBackend();
 
     for (DN dn : baseDNs)
     {
@@ -171,6 +206,7 @@ public class MemoryBackend
         throw new InitializationException(message, e);
       }
     }
+    isOpen = true;
   }
 
   /** Removes any data that may have been stored in this backend. */
@@ -178,11 +214,16 @@ public class MemoryBackend
   {
     entryMap.clear();
     childDNs.clear();
+    for (Map<ByteString, Set<DN>> index : attributeIndexes.values())
+    {
+      index.clear();
+    }
   }
 
   @Override
   public synchronized void closeBackend()
   {
+    isOpen = false;
     clearMemoryBackend();
 
     for (DN dn : baseDNs)
@@ -205,9 +246,9 @@ public class MemoryBackend
   }
 
   @Override
-  public synchronized long getEntryCount()
+  public long getEntryCount()
   {
-    if (entryMap != null)
+    if (isOpen)
     {
       return entryMap.size();
     }
@@ -223,7 +264,7 @@ public class MemoryBackend
   }
 
   @Override
-  public synchronized ConditionResult hasSubordinates(DN entryDN)
+  public ConditionResult hasSubordinates(DN entryDN)
          throws DirectoryException
   {
     long ret = getNumberOfSubordinates(entryDN, false);
@@ -246,7 +287,7 @@ public class MemoryBackend
     return getNumberOfSubordinates(parentDN, false);
   }
 
-  private synchronized long getNumberOfSubordinates(DN entryDN, boolean includeSubtree) throws DirectoryException
+  private long getNumberOfSubordinates(DN entryDN, boolean includeSubtree) throws DirectoryException
   {
     // Try to look up the immediate children for the DN
     final Set<DN> children = childDNs.get(entryDN);
@@ -274,7 +315,7 @@ public class MemoryBackend
   }
 
   @Override
-  public synchronized Entry getEntry(DN entryDN)
+  public Entry getEntry(DN entryDN)
   {
     Entry entry = entryMap.get(entryDN);
     if (entry != null)
@@ -286,7 +327,7 @@ public class MemoryBackend
   }
 
   @Override
-  public synchronized boolean entryExists(DN entryDN)
+  public boolean entryExists(DN entryDN)
   {
     return entryMap.containsKey(entryDN);
   }
@@ -309,6 +350,7 @@ public class MemoryBackend
     if (baseDNs.contains(entryDN))
     {
       entryMap.put(entryDN, e);
+      indexEntry(e, true);
       return;
     }
 
@@ -326,14 +368,15 @@ public class MemoryBackend
     }
 
     entryMap.put(entryDN, e);
-    HashSet<DN> children = childDNs.get(parentDN);
+    ConcurrentSkipListSet<DN> children = childDNs.get(parentDN);
     if (children == null)
     {
-      children = new HashSet<>();
+      children = new ConcurrentSkipListSet<>();
       childDNs.put(parentDN, children);
     }
 
     children.add(entryDN);
+    indexEntry(e, true);
   }
 
   @Override
@@ -382,12 +425,12 @@ public class MemoryBackend
     // Remove the entry from the backend.  Also remove the reference to it from
     // its parent, if applicable.
     childDNs.remove(entryDN);
-    entryMap.remove(entryDN);
+    indexEntry(entryMap.remove(entryDN), false);
 
     DN parentDN = serverContext.getBackendConfigManager().getParentDNInSuffix(entryDN);
     if (parentDN != null)
     {
-      HashSet<DN> parentsChildren = childDNs.get(parentDN);
+      Set<DN> parentsChildren = childDNs.get(parentDN);
       if (parentsChildren != null)
       {
         parentsChildren.remove(entryDN);
@@ -407,14 +450,18 @@ public class MemoryBackend
 
     // Make sure the entry exists.  If not, then throw an exception.
     DN entryDN = e.getName();
-    if (! entryMap.containsKey(entryDN))
+    Entry storedEntry = entryMap.get(entryDN);
+    if (storedEntry == null)
     {
       throw new DirectoryException(ResultCode.NO_SUCH_OBJECT,
           ERR_BACKEND_ENTRY_DOESNT_EXIST.get(entryDN, getBackendID()));
     }
 
-    // Replace the old entry with the new one.
+    // Replace the old entry with the new one.  Index the new values before
+    // removing the old ones so that concurrent searches never miss the entry.
     entryMap.put(entryDN, e);
+    indexEntry(e, true);
+    unindexRemovedValues(storedEntry, e);
   }
 
   @Override
@@ -486,7 +533,7 @@ public class MemoryBackend
   }
 
   @Override
-  public synchronized void search(SearchOperation searchOperation)
+  public void search(SearchOperation searchOperation)
          throws DirectoryException
   {
     // Get the base DN, scope, and filter for the search.
@@ -531,16 +578,216 @@ public class MemoryBackend
     }
     else
     {
-      // Walk through all entries and send the ones that match.
-      for (Entry e : entryMap.values())
+      Set<DN> candidates = getCandidates(filter);
+      if (candidates != null)
+      {
+        // Only evaluate the entries having the asserted values,
+        // in DN order so that parents are returned before their children as in the walk below.
+        for (DN dn : new TreeSet<>(candidates))
+        {
+          Entry e = entryMap.get(dn);
+          if (e != null && e.matchesBaseAndScope(baseDN, scope)
+              && !returnIfMatches(searchOperation, filter, e))
+          {
+            return;
+          }
+        }
+        return;
+      }
+
+      // Walk through all entries in scope and send the ones that match.
+      Deque<DN> dnsToVisit = new ArrayDeque<>();
+      if (scope == SearchScope.WHOLE_SUBTREE)
+      {
+        dnsToVisit.push(baseDN);
+      }
+      else
+      {
+        pushChildren(dnsToVisit, baseDN);
+      }
+      while (!dnsToVisit.isEmpty())
+      {
+        DN dn = dnsToVisit.pop();
+        Entry e = entryMap.get(dn);
+        if (e != null && !returnIfMatches(searchOperation, filter, e))
+        {
+          return;
+        }
+        if (scope != SearchScope.SINGLE_LEVEL)
+        {
+          pushChildren(dnsToVisit, dn);
+        }
+      }
+    }
+  }
+
+  /** Returns {@code false} if the search must stop because no more entries can be returned. */
+  private boolean returnIfMatches(SearchOperation searchOperation, SearchFilter filter, Entry e)
+      throws DirectoryException
+  {
+    // Match the copy, which holds the virtual attributes
+    Entry entry = e.duplicate(true);
+    if (filter.matchesEntry(entry))
+    {
+      return searchOperation.returnEntry(entry, new LinkedList<Control>());
+    }
+    return true;
+  }
+
+  /** Pushes the children of the provided entry so that they are popped in DN order. */
+  private void pushChildren(Deque<DN> dnsToVisit, DN parentDN)
+  {
+    ConcurrentSkipListSet<DN> children = childDNs.get(parentDN);
+    if (children != null)
+    {
+      for (DN childDN : children.descendingSet())
+      {
+        dnsToVisit.push(childDN);
+      }
+    }
+  }
+
+  /**
+   * Returns the DNs of the entries which may match the provided filter according
+   * to the attribute indexes, or {@code null} if the indexes cannot be used to
+   * evaluate the filter.
+   */
+  private Set<DN> getCandidates(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+    case EQUALITY:
+      Map<ByteString, Set<DN>> index = attributeIndexes.get(filter.getAttributeType());
+      if (index == null)
+      {
+        return null;
+      }
+      try
+      {
+        MatchingRule rule = filter.getAttributeType().getEqualityMatchingRule();
+        Set<DN> dns = index.get(rule.normalizeAttributeValue(filter.getAssertionValue()));
+        return dns != null ? dns : Collections.<DN> emptySet();
+      }
+      catch (DecodeException e)
+      {
+        logger.traceException(e);
+        return null;
+      }
+
+    case AND:
+      // Use the smallest candidate set: the filter is evaluated on each candidate anyway.
+      Set<DN> smallest = null;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        Set<DN> candidates = getCandidates(component);
+        if (candidates != null && (smallest == null || candidates.size() < smallest.size()))
+        {
+          smallest = candidates;
+        }
+      }
+      return smallest;
+
+    case OR:
+      Set<DN> union = new HashSet<>();
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        Set<DN> candidates = getCandidates(component);
+        if (candidates == null)
+        {
+          return null;
+        }
+        union.addAll(candidates);
+      }
+      return union;
+
+    default:
+      return null;
+    }
+  }
+
+  /** Adds or removes all the values of the indexed attributes of the provided entry to or from the indexes. */
+  private void indexEntry(Entry entry, boolean add)
+  {
+    if (entry == null)
+    {
+      return;
+    }
+    for (Map.Entry<AttributeType, ConcurrentMap<ByteString, Set<DN>>> mapEntry : attributeIndexes.entrySet())
+    {
+      for (ByteString key : getIndexKeys(entry, mapEntry.getKey()))
+      {
+        if (add)
+        {
+          addToIndex(mapEntry.getValue(), key, entry.getName());
+        }
+        else
+        {
+          removeFromIndex(mapEntry.getValue(), key, entry.getName());
+        }
+      }
+    }
+  }
+
+  /** Removes from the indexes the values of the old entry which are no longer present in the new entry. */
+  private void unindexRemovedValues(Entry oldEntry, Entry newEntry)
+  {
+    for (Map.Entry<AttributeType, ConcurrentMap<ByteString, Set<DN>>> mapEntry : attributeIndexes.entrySet())
+    {
+      Set<ByteString> newKeys = getIndexKeys(newEntry, mapEntry.getKey());
+      for (ByteString key : getIndexKeys(oldEntry, mapEntry.getKey()))
       {
-        e = e.duplicate(true);
-        if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
+        if (!newKeys.contains(key))
+        {
+          removeFromIndex(mapEntry.getValue(), key, oldEntry.getName());
+        }
+      }
+    }
+  }
+
+  private Set<ByteString> getIndexKeys(Entry entry, AttributeType attributeType)
+  {
+    MatchingRule rule = attributeType.getEqualityMatchingRule();
+    Set<ByteString> keys = new HashSet<>();
+    for (Attribute attribute : entry.getAllAttributes(attributeType))
+    {
+      for (ByteString value : attribute)
+      {
+        try
+        {
+          keys.add(rule.normalizeAttributeValue(value));
+        }
+        catch (DecodeException e)
         {
-          searchOperation.returnEntry(e, new LinkedList<Control>());
+          // Such a value cannot match any equality assertion.
+          logger.traceException(e);
         }
       }
     }
+    return keys;
+  }
+
+  private void addToIndex(ConcurrentMap<ByteString, Set<DN>> index, ByteString key, DN dn)
+  {
+    Set<DN> dns = index.get(key);
+    if (dns == null)
+    {
+      dns = ConcurrentHashMap.newKeySet();
+      index.put(key, dns);
+    }
+    dns.add(dn);
+  }
+
+  private void removeFromIndex(ConcurrentMap<ByteString, Set<DN>> index, ByteString key, DN dn)
+  {
+    Set<DN> dns = index.get(key);
+    if (dns != null)
+    {
+      dns.remove(dn);
+      if (dns.isEmpty())
+      {
+        index.remove(key);
+      }
+    }
   }
 
   @Override
@@ -587,14 +834,20 @@ public class MemoryBackend
           ERR_MEMORYBACKEND_CANNOT_CREATE_LDIF_WRITER.get(e), e);
     }
 
-    // Walk through all the entries and write them to LDIF.
+    // Walk through all the entries, parents first, and write them to LDIF.
     DN entryDN = null;
     try
     {
-      for (Entry entry : entryMap.values())
+      Deque<DN> dnsToVisit = new ArrayDeque<>(baseDNs);
+      while (!dnsToVisit.isEmpty())
       {
-        entryDN = entry.getName();
-        ldifWriter.writeEntry(entry);
+        entryDN = dnsToVisit.pop();
+        Entry entry = entryMap.get(entryDN);
+        if (entry != null)
+        {
+          ldifWriter.writeEntry(entry);
+        }
+        pushChildren(dnsToVisit, entryDN);
       }
     }
     catch (Exception e)
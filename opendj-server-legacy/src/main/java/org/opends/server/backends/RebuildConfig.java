@@ -42,6 +42,8 @@ public class RebuildConfig
   private final List<String> rebuildList = new ArrayList<>();
   private String tmpDirectory;
   private boolean isClearDegradedState;
+  private boolean online;
+  private int maxEntriesPerSecond;
 
   /**
    * Get the base DN to rebuild.
@@ -228,4 +230,52 @@ public class RebuildConfig
     this.isClearDegradedState = isClearDegradedState;
   }
 
+  /**
+   * Returns {@code true} if the indexes should be rebuilt while the backend
+   * remains online, by scanning the entries in the background.
+   *
+   * @return {@code true} if the indexes should be rebuilt online.
+   */
+  public boolean isOnline()
+  {
+    return online;
+  }
+
+  /**
+   * Sets whether the indexes should be rebuilt while the backend remains
+   * online. Only attribute indexes can be rebuilt online.
+   *
+   * @param online
+   *          {@code true} if the indexes should be rebuilt online.
+   */
+  public void setOnline(boolean online)
+  {
+    this.online = online;
+  }
+
+  /**
+   * Returns the maximum number of entries indexed per second by an online
+   * rebuild.
+   *
+   * @return The maximum number of entries indexed per second, or a value less
+   *         than or equal to zero if the rebuild is not rate limited.
+   */
+  public int getMaxEntriesPerSecond()
+  {
+    return maxEntriesPerSecond;
+  }
+
+  /**
+   * Sets the maximum number of entries indexed per second by an online
+   * rebuild, which limits its impact on the operations processed by the
+   * backend.
+   *
+   * @param maxEntriesPerSecond
+   *          The maximum number of entries indexed per second, or a value less
+   *          than or equal to zero if the rebuild is not rate limited.
+   */
+  public void setMaxEntriesPerSecond(int maxEntriesPerSecond)
+  {
+    this.maxEntriesPerSecond = maxEntriesPerSecond;
+  }
 }
@@ -33,6 +33,8 @@ public class VerifyConfig
   private ArrayList<String> completeList = new ArrayList<>();
   /** The names of indexes to be verified for cleanliness. */
   private ArrayList<String> cleanList = new ArrayList<>();
+  /** The number of threads verifying the indexes. */
+  private int threadCount;
 
   /**
    * Get the base DN to be verified.
@@ -89,4 +91,25 @@ public class VerifyConfig
     Reject.ifNull(index);
     cleanList.add(index);
   }
+
+  /**
+   * Get the number of threads that should be used to verify the indexes.
+   * @return The number of threads that should be used to verify the indexes,
+   *         or a value less than or equal to one to indicate that the indexes
+   *         should be verified by a single thread.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /**
+   * Set the number of threads that should be used to verify the indexes.
+   * Backends which cannot verify their indexes in parallel ignore it.
+   * @param threadCount The number of threads that should be used to verify the indexes.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    this.threadCount = threadCount;
+  }
 }
@@ -0,0 +1,42 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.inmemory;
+
+import java.util.List;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.InMemoryBackendCfg;
+import org.opends.server.backends.pluggable.BackendImpl;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.core.ServerContext;
+
+/** Class defined in the configuration for this backend type. */
+public final class InMemoryBackend extends BackendImpl<InMemoryBackendCfg>
+{
+  @Override
+  public boolean isConfigurationAcceptable(InMemoryBackendCfg cfg, List<LocalizableMessage> unacceptableReasons,
+      ServerContext serverContext)
+  {
+    return InMemoryStorage.isConfigurationAcceptable(cfg, unacceptableReasons);
+  }
+
+  @Override
+  protected Storage configureStorage(InMemoryBackendCfg cfg, ServerContext serverContext) throws ConfigException
+  {
+    return new InMemoryStorage(cfg);
+  }
+}
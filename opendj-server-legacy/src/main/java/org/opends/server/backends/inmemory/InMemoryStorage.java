@@ -0,0 +1,905 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.inmemory;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.InMemoryBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+
+/**
+ * In-memory implementation of the {@link Storage} engine, keeping each tree in a concurrent sorted skip-list.
+ * <p>
+ * Read operations do not take any lock and scale with the number of processors. Write operations are serialized and
+ * keep their changes aside until they complete successfully, so that other operations never see the changes of a
+ * write operation which is still running or which failed. The changes are then applied to the trees one record at a
+ * time, hence a read operation running at that moment may observe only part of them.
+ * <p>
+ * The contents of the storage are lost when the server stops, unless it is configured to save them in a snapshot
+ * file on shutdown. The snapshot is loaded the next time the storage is opened.
+ */
+public final class InMemoryStorage implements Storage, ConfigurationChangeListener<InMemoryBackendCfg>
+{
+  private static final String SNAPSHOT_FILE_NAME = "dj.snapshot";
+  private static final long SNAPSHOT_MAGIC = 0x4f444a4d454d3031L;
+  private static final int END_OF_TREE = -1;
+
+  /** A sorted tree of records, which maintains its record count since the skip-list cannot compute it cheaply. */
+  private static final class Tree
+  {
+    private final ConcurrentSkipListMap<ByteString, ByteString> records = new ConcurrentSkipListMap<>();
+    private final AtomicLong count = new AtomicLong();
+
+    private void put(ByteString key, ByteString value)
+    {
+      if (records.put(key, value) == null)
+      {
+        count.incrementAndGet();
+      }
+    }
+
+    private void remove(ByteString key)
+    {
+      if (records.remove(key) != null)
+      {
+        count.decrementAndGet();
+      }
+    }
+
+    /** Applies the changes of a committed transaction to this tree. */
+    private void apply(PendingTree pending)
+    {
+      for (Map.Entry<ByteString, ByteString> record : pending.records.entrySet())
+      {
+        if (record.getValue() != DELETED)
+        {
+          put(record.getKey(), record.getValue());
+        }
+        else
+        {
+          remove(record.getKey());
+        }
+      }
+    }
+  }
+
+  /** The changes made to a tree by a write transaction, which are only applied to the tree when it commits. */
+  private static final class PendingTree
+  {
+    /** The new values of the records, or {@link #DELETED} for the records which are removed. */
+    private final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+    /** Whether the tree has been deleted by the transaction, hence its committed records are not visible anymore. */
+    private boolean cleared;
+    /** Whether the tree exists at the end of the transaction. */
+    private boolean exists;
+    /** The number of records added by the transaction, minus the number of records it removed. */
+    private long countDelta;
+
+    private PendingTree(boolean exists)
+    {
+      this.exists = exists;
+    }
+  }
+
+  /**
+   * Implementation of the {@link WriteableTransaction} interface, which is read-only when it has no pending trees.
+   * <p>
+   * The changes of a write transaction are kept in its pending trees, and merged with the committed records when it
+   * reads them. No other transaction can see them until they are published by {@link InMemoryStorage#commit}.
+   */
+  private final class TransactionImpl implements WriteableTransaction
+  {
+    private final Map<TreeName, PendingTree> pendingTrees;
+
+    private TransactionImpl(Map<TreeName, PendingTree> pendingTrees)
+    {
+      this.pendingTrees = pendingTrees;
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final ByteString k = key.toByteString();
+      final PendingTree pending = getPendingTree(treeName);
+      if (pending != null)
+      {
+        final ByteString value = pending.records.get(k);
+        if (value != null)
+        {
+          return value != DELETED ? value : null;
+        }
+      }
+      return committedRecords(treeName, pending).get(k);
+    }
+
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      final List<ByteString> results = new ArrayList<>(sortedKeys.size());
+      for (ByteSequence key : sortedKeys)
+      {
+        results.add(read(treeName, key));
+      }
+      return results;
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(treeName, this);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      final PendingTree pending = getPendingTree(treeName);
+      if (pending == null)
+      {
+        final Tree tree = trees.get(treeName);
+        return tree != null ? tree.count.get() : 0;
+      }
+      if (!pending.exists)
+      {
+        return 0;
+      }
+      final Tree tree = pending.cleared ? null : trees.get(treeName);
+      return (tree != null ? tree.count.get() : 0) + pending.countDelta;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        pendingTree(treeName).exists = true;
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      final PendingTree pending = pendingTree(treeName);
+      pending.records.clear();
+      pending.cleared = true;
+      pending.exists = false;
+      pending.countDelta = 0;
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      final PendingTree pending = pendingTree(treeName);
+      final ByteString k = key.toByteString();
+      if (read(treeName, k) == null)
+      {
+        pending.countDelta++;
+      }
+      pending.records.put(k, value.toByteString());
+      pending.exists = true;
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      checkWriteable();
+      final ByteSequence oldValue = read(treeName, key);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (Objects.equals(newValue, oldValue))
+      {
+        return false;
+      }
+      if (newValue == null)
+      {
+        delete(treeName, key);
+      }
+      else
+      {
+        put(treeName, key, newValue);
+      }
+      return true;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      checkWriteable();
+      final ByteString k = key.toByteString();
+      if (read(treeName, k) == null)
+      {
+        return false;
+      }
+      final PendingTree pending = pendingTree(treeName);
+      pending.records.put(k, DELETED);
+      pending.countDelta--;
+      return true;
+    }
+
+    /**
+     * Returns the record with the lowest key after the provided key, or the first record when the key is
+     * {@code null}. The changes of this transaction hide the committed records having the same key.
+     */
+    private Map.Entry<ByteString, ByteString> nextEntry(TreeName treeName, ByteString key, boolean inclusive)
+    {
+      final PendingTree pending = getPendingTree(treeName);
+      final NavigableMap<ByteString, ByteString> committed = committedRecords(treeName, pending);
+      if (pending == null)
+      {
+        return next(committed, key, inclusive);
+      }
+      ByteString from = key;
+      boolean fromInclusive = inclusive;
+      while (true)
+      {
+        final Map.Entry<ByteString, ByteString> committedEntry = next(committed, from, fromInclusive);
+        final Map.Entry<ByteString, ByteString> pendingEntry = next(pending.records, from, fromInclusive);
+        if (pendingEntry == null
+            || (committedEntry != null && committedEntry.getKey().compareTo(pendingEntry.getKey()) < 0))
+        {
+          return committedEntry;
+        }
+        if (pendingEntry.getValue() != DELETED)
+        {
+          return pendingEntry;
+        }
+        from = pendingEntry.getKey();
+        fromInclusive = false;
+      }
+    }
+
+    /** Returns the record with the highest key, taking into account the changes of this transaction. */
+    private Map.Entry<ByteString, ByteString> lastEntry(TreeName treeName)
+    {
+      final PendingTree pending = getPendingTree(treeName);
+      final NavigableMap<ByteString, ByteString> committed = committedRecords(treeName, pending);
+      if (pending == null)
+      {
+        return committed.lastEntry();
+      }
+      ByteString to = null;
+      while (true)
+      {
+        final Map.Entry<ByteString, ByteString> committedEntry = to != null ? committed.lowerEntry(to)
+                                                                            : committed.lastEntry();
+        final Map.Entry<ByteString, ByteString> pendingEntry = to != null ? pending.records.lowerEntry(to)
+                                                                          : pending.records.lastEntry();
+        if (pendingEntry == null
+            || (committedEntry != null && committedEntry.getKey().compareTo(pendingEntry.getKey()) > 0))
+        {
+          return committedEntry;
+        }
+        if (pendingEntry.getValue() != DELETED)
+        {
+          return pendingEntry;
+        }
+        to = pendingEntry.getKey();
+      }
+    }
+
+    /** Returns the committed records of a tree, as seen by this transaction. */
+    private NavigableMap<ByteString, ByteString> committedRecords(TreeName treeName, PendingTree pending)
+    {
+      final Tree tree = pending == null || !pending.cleared ? trees.get(treeName) : null;
+      return tree != null ? tree.records : EMPTY_RECORDS;
+    }
+
+    private PendingTree getPendingTree(TreeName treeName)
+    {
+      return pendingTrees != null ? pendingTrees.get(treeName) : null;
+    }
+
+    private PendingTree pendingTree(TreeName treeName)
+    {
+      checkWriteable();
+      PendingTree pending = pendingTrees.get(treeName);
+      if (pending == null)
+      {
+        pending = new PendingTree(trees.containsKey(treeName));
+        pendingTrees.put(treeName, pending);
+      }
+      return pending;
+    }
+
+    private void checkWriteable()
+    {
+      if (pendingTrees == null)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+  }
+
+  private static Map.Entry<ByteString, ByteString> next(NavigableMap<ByteString, ByteString> records, ByteString key,
+      boolean inclusive)
+  {
+    if (key == null)
+    {
+      return records.firstEntry();
+    }
+    return inclusive ? records.ceilingEntry(key) : records.higherEntry(key);
+  }
+
+  /**
+   * Implementation of the {@link Cursor} interface, which navigates the contents of a tree as seen by a transaction. It
+   * remembers the key it is positioned on, so that it remains valid when records are concurrently added or removed.
+   */
+  private final class CursorImpl implements Cursor<ByteString, ByteString>
+  {
+    private final TreeName treeName;
+    private final TransactionImpl txn;
+    private Map.Entry<ByteString, ByteString> current;
+    /** The key searched by the last unsuccessful positioning, from which {@link #next()} resumes. */
+    private ByteString searchedKey;
+
+    private CursorImpl(TreeName treeName, TransactionImpl txn)
+    {
+      this.treeName = treeName;
+      this.txn = txn;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (current != null)
+      {
+        current = txn.nextEntry(treeName, current.getKey(), false);
+      }
+      else
+      {
+        current = txn.nextEntry(treeName, searchedKey, true);
+      }
+      searchedKey = null;
+      return current != null;
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return current != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      return current().getKey();
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      return current().getValue();
+    }
+
+    @Override
+    public void delete()
+    {
+      txn.delete(treeName, current().getKey());
+    }
+
+    @Override
+    public void close()
+    {
+      current = null;
+      searchedKey = null;
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      final ByteString k = key.toByteString();
+      final ByteString value = txn.read(treeName, k);
+      current = value != null ? new AbstractMap.SimpleImmutableEntry<>(k, value) : null;
+      searchedKey = value != null ? null : k;
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      current = txn.nextEntry(treeName, key.toByteString(), true);
+      searchedKey = null;
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      current = txn.lastEntry(treeName);
+      searchedKey = null;
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      current = null;
+      searchedKey = null;
+      for (int i = 0; i <= index; i++)
+      {
+        if (!next())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private Map.Entry<ByteString, ByteString> current()
+    {
+      if (current == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return current;
+    }
+  }
+
+  /** Implementation of the {@link Importer} interface, writing directly to the trees without any transaction. */
+  private final class ImporterImpl implements Importer
+  {
+    @Override
+    public void close()
+    {
+      InMemoryStorage.this.close();
+    }
+
+    @Override
+    public void clearTree(TreeName treeName)
+    {
+      trees.put(treeName, new Tree());
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      Tree tree = trees.get(treeName);
+      if (tree == null)
+      {
+        final Tree newTree = new Tree();
+        tree = trees.putIfAbsent(treeName, newTree);
+        tree = tree != null ? tree : newTree;
+      }
+      tree.put(key.toByteString(), value.toByteString());
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final Tree tree = trees.get(treeName);
+      return tree != null ? tree.records.get(key.toByteString()) : null;
+    }
+
+    @Override
+    public SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new CursorImpl(treeName, new TransactionImpl(null));
+    }
+  }
+
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+  private static final ConcurrentSkipListMap<ByteString, ByteString> EMPTY_RECORDS = new ConcurrentSkipListMap<>();
+  /** Marks the records removed by a transaction, compared by identity. */
+  private static final ByteString DELETED = ByteString.wrap(new byte[0]);
+
+  private final ConcurrentMap<TreeName, Tree> trees = new ConcurrentHashMap<>();
+  /** Serializes the write transactions. */
+  private final ReentrantLock writeLock = new ReentrantLock();
+  /** The write transaction of the thread holding {@link #writeLock}. */
+  private TransactionImpl currentTransaction;
+  private AccessMode accessMode;
+  private boolean isOpen;
+  private InMemoryBackendCfg config;
+
+  /**
+   * Creates a new in-memory storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   */
+  public InMemoryStorage(final InMemoryBackendCfg cfg)
+  {
+    config = cfg;
+    cfg.addInMemoryChangeListener(this);
+  }
+
+  @Override
+  public void close()
+  {
+    if (isOpen)
+    {
+      isOpen = false;
+      if (config.isSnapshotOnShutdown() && accessMode.isWriteable())
+      {
+        saveSnapshot();
+      }
+    }
+    config.removeInMemoryChangeListener(this);
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    open0(accessMode);
+  }
+
+  private void open0(AccessMode accessMode) throws ConfigException
+  {
+    if (isOpen)
+    {
+      throw new IllegalStateException(
+          "Database is already open, either the backend is enabled or an import is currently running.");
+    }
+    if (config.isSnapshotOnShutdown())
+    {
+      if (accessMode.isWriteable())
+      {
+        setupStorageFiles(getDirectory(), config.getDBDirectoryPermissions(), config.dn());
+      }
+      if (trees.isEmpty() && getSnapshotFile().isFile())
+      {
+        loadSnapshot();
+      }
+    }
+    this.accessMode = accessMode;
+    isOpen = true;
+  }
+
+  private File getDirectory()
+  {
+    return getDBDirectory(config.getDBDirectory(), config.getBackendId());
+  }
+
+  private File getSnapshotFile()
+  {
+    return new File(getDirectory(), SNAPSHOT_FILE_NAME);
+  }
+
+  private void loadSnapshot()
+  {
+    final File snapshotFile = getSnapshotFile();
+    long recordCount = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile))))
+    {
+      if (in.readLong() != SNAPSHOT_MAGIC)
+      {
+        logger.error(ERR_INMEMORY_SNAPSHOT_INVALID, snapshotFile.getPath(), config.getBackendId());
+        return;
+      }
+      while (in.readBoolean())
+      {
+        final Tree tree = new Tree();
+        trees.put(TreeName.valueOf(in.readUTF()), tree);
+        for (ByteString key = readBytes(in); key != null; key = readBytes(in))
+        {
+          tree.put(key, readBytes(in));
+          recordCount++;
+        }
+      }
+      logger.info(NOTE_INMEMORY_SNAPSHOT_LOADED, config.getBackendId(), recordCount, snapshotFile.getPath());
+    }
+    catch (IOException | RuntimeException e)
+    {
+      logger.traceException(e);
+      trees.clear();
+      logger.error(ERR_INMEMORY_SNAPSHOT_INVALID, snapshotFile.getPath(), config.getBackendId());
+    }
+  }
+
+  private static ByteString readBytes(DataInputStream in) throws IOException
+  {
+    final int length = in.readInt();
+    if (length == END_OF_TREE)
+    {
+      return null;
+    }
+    if (length < 0)
+    {
+      throw new EOFException();
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return ByteString.wrap(bytes);
+  }
+
+  /** Writes the snapshot to a temporary file first, so that a failure does not destroy the previous snapshot. */
+  private void saveSnapshot()
+  {
+    final File snapshotFile = getSnapshotFile();
+    final File tmpFile = new File(getDirectory(), SNAPSHOT_FILE_NAME + ".tmp");
+    writeLock.lock();
+    try
+    {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))))
+      {
+        out.writeLong(SNAPSHOT_MAGIC);
+        for (Map.Entry<TreeName, Tree> tree : trees.entrySet())
+        {
+          out.writeBoolean(true);
+          out.writeUTF(tree.getKey().toString());
+          for (Map.Entry<ByteString, ByteString> record : tree.getValue().records.entrySet())
+          {
+            writeBytes(out, record.getKey());
+            writeBytes(out, record.getValue());
+          }
+          out.writeInt(END_OF_TREE);
+        }
+        out.writeBoolean(false);
+      }
+      Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_INMEMORY_CANNOT_SAVE_SNAPSHOT, config.getBackendId(), snapshotFile.getPath(),
+          stackTraceToSingleLineString(e));
+      tmpFile.delete();
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, ByteString bytes) throws IOException
+  {
+    out.writeInt(bytes.length());
+    bytes.copyTo(out);
+  }
+
+  @Override
+  public <T> T read(final ReadOperation<T> operation) throws Exception
+  {
+    return operation.run(new TransactionImpl(null));
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    open0(AccessMode.READ_WRITE);
+    return new ImporterImpl();
+  }
+
+  @Override
+  public void write(final WriteOperation operation) throws Exception
+  {
+    if (accessMode == null || !accessMode.isWriteable())
+    {
+      operation.run(new TransactionImpl(null));
+      return;
+    }
+    writeLock.lock();
+    try
+    {
+      if (writeLock.getHoldCount() > 1)
+      {
+        // nested write operations join the enclosing transaction
+        operation.run(currentTransaction);
+        return;
+      }
+      final TransactionImpl txn = new TransactionImpl(new LinkedHashMap<TreeName, PendingTree>());
+      currentTransaction = txn;
+      try
+      {
+        // the changes of a failed operation are simply discarded
+        operation.run(txn);
+        commit(txn);
+      }
+      finally
+      {
+        currentTransaction = null;
+      }
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /** Publishes the changes of a write transaction. New or recreated trees are filled before they become visible. */
+  private void commit(TransactionImpl txn)
+  {
+    for (Map.Entry<TreeName, PendingTree> entry : txn.pendingTrees.entrySet())
+    {
+      final TreeName treeName = entry.getKey();
+      final PendingTree pending = entry.getValue();
+      final Tree tree = pending.cleared ? null : trees.get(treeName);
+      if (tree != null)
+      {
+        tree.apply(pending);
+      }
+      else if (pending.exists)
+      {
+        final Tree newTree = new Tree();
+        newTree.apply(pending);
+        trees.put(treeName, newTree);
+      }
+      else if (pending.cleared)
+      {
+        trees.remove(treeName);
+      }
+    }
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return false;
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM,
+        ERR_BACKEND_BACKUP_AND_RESTORE_NOT_SUPPORTED.get(config.getBackendId()));
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM,
+        ERR_BACKEND_BACKUP_AND_RESTORE_NOT_SUPPORTED.get(config.getBackendId()));
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM,
+        ERR_BACKEND_BACKUP_AND_RESTORE_NOT_SUPPORTED.get(config.getBackendId()));
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    return new HashSet<>(trees.keySet());
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(InMemoryBackendCfg newCfg,
+      List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(newCfg, unacceptableReasons);
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(InMemoryBackendCfg cfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(cfg, unacceptableReasons);
+  }
+
+  /** The directory is only used to store the snapshot, hence it is only checked when snapshots are enabled. */
+  private static boolean checkConfigurationDirectories(InMemoryBackendCfg cfg,
+    List<LocalizableMessage> unacceptableReasons)
+  {
+    if (!cfg.isSnapshotOnShutdown())
+    {
+      return true;
+    }
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    checkDBDirExistsOrCanCreate(getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId()), ccr, true);
+    checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(InMemoryBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+
+    try
+    {
+      if (cfg.isSnapshotOnShutdown())
+      {
+        final File newBackendDirectory = getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId());
+        checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, false);
+        checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+        setDBDirPermissions(newBackendDirectory, cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+      }
+      config = cfg;
+    }
+    catch (Exception e)
+    {
+      addErrorMessage(ccr, LocalizableMessage.raw(stackTraceToSingleLineString(e)));
+    }
+    return ccr;
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    trees.clear();
+    StorageUtils.removeStorageFiles(getDirectory());
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return StorageStatus.working();
+  }
+}
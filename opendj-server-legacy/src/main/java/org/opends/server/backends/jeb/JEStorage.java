@@ -59,6 +59,7 @@ import org.opends.server.api.DiskSpaceMonitorHandler;
 import org.opends.server.backends.pluggable.spi.EmptyCursor;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.GroupCommit;
 import org.opends.server.backends.pluggable.spi.Importer;
 import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -454,6 +455,15 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       }
     }
 
+    @Override
+    public List<ByteString> read(final TreeName treeName, final List<? extends ByteSequence> sortedKeys)
+    {
+      try (final Cursor<ByteString, ByteString> cursor = openCursor(treeName))
+      {
+        return readSortedKeys(cursor, sortedKeys);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -537,6 +547,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return delegate.read(treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -626,6 +642,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return null;
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return Collections.nCopies(sortedKeys.size(), (ByteString) null);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -671,6 +693,8 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
   private DiskSpaceMonitor diskMonitor;
   private StorageStatus storageStatus = StorageStatus.working();
   private final ConcurrentMap<TreeName, Database> trees = new ConcurrentHashMap<>();
+  /** It is NULL when commits are not grouped. */
+  private volatile GroupCommit groupCommit;
 
   /**
    * Creates a new JE storage with the provided configuration.
@@ -766,6 +790,7 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     {
       DirectoryServer.deregisterMonitorProvider(monitor);
       monitor = null;
+      groupCommit = null;
       try
       {
         env.close();
@@ -848,6 +873,33 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       throw new StorageRuntimeException(e);
     }
     registerMonitoredDirectory(config);
+    configureGroupCommit(config);
+  }
+
+  private void configureGroupCommit(JEBackendCfg cfg)
+  {
+    final Durability durability = envConfig.getDurability();
+    final boolean syncOnCommit = envConfig.getTransactional()
+        && (durability == null || durability.getLocalSync() == Durability.SyncPolicy.SYNC);
+    if (!cfg.isGroupCommitEnabled() || !syncOnCommit)
+    {
+      groupCommit = null;
+    }
+    else if (groupCommit != null)
+    {
+      groupCommit.setLimits(cfg.getGroupCommitMaxBatchSize(), cfg.getGroupCommitMaxDelay());
+    }
+    else
+    {
+      groupCommit = new GroupCommit(new GroupCommit.LogSynchronizer()
+      {
+        @Override
+        public void synchronize()
+        {
+          env.flushLog(true);
+        }
+      }, cfg.getGroupCommitMaxBatchSize(), cfg.getGroupCommitMaxDelay());
+    }
   }
 
   @Override
@@ -883,11 +935,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
   @Override
   public void write(final WriteOperation operation) throws Exception
   {
+    final GroupCommit groupCommit = this.groupCommit;
     final Transaction txn = beginTransaction();
     try
     {
       operation.run(newWriteableTransaction(txn));
-      commit(txn);
+      commit(txn, groupCommit != null);
     }
     catch (final StorageRuntimeException e)
     {
@@ -901,6 +954,17 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     {
       abort(txn);
     }
+    if (groupCommit != null)
+    {
+      // Locks have been released by the commit: wait for the log to be synchronized with the other commits
+      groupCommit.awaitDurable();
+    }
+  }
+
+  @Override
+  public GroupCommit getGroupCommit()
+  {
+    return groupCommit;
   }
 
   private Transaction beginTransaction()
@@ -914,11 +978,18 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
     return null;
   }
 
-  private void commit(final Transaction txn)
+  private void commit(final Transaction txn, final boolean noSync)
   {
     if (txn != null)
     {
-      txn.commit();
+      if (noSync)
+      {
+        txn.commit(Durability.COMMIT_NO_SYNC);
+      }
+      else
+      {
+        txn.commit();
+      }
       logger.trace("commit txnid=%d", txn.getId());
     }
   }
@@ -1288,6 +1359,10 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       }
       registerMonitoredDirectory(cfg);
       config = cfg;
+      if (env != null)
+      {
+        configureGroupCommit(cfg);
+      }
     }
     catch (Exception e)
     {
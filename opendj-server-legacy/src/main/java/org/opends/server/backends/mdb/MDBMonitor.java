@@ -0,0 +1,51 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+
+/** Monitoring class for MDB, populating cn=monitor statistics from the database file. */
+class MDBMonitor extends MonitorProvider<MonitorProviderCfg>
+{
+  private final String name;
+  private final PageFile file;
+
+  MDBMonitor(String name, PageFile file)
+  {
+    this.name = name;
+    this.file = file;
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return name;
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    final MonitorData monitorAttrs = new MonitorData(5);
+    monitorAttrs.add("MDBPageSize", PageFile.PAGE_SIZE);
+    monitorAttrs.add("MDBFileSize", file.getLength());
+    monitorAttrs.add("MDBFreePages", file.getFreePageCount());
+    monitorAttrs.add("MDBLastCommittedTransaction", file.getMeta().txnId());
+    monitorAttrs.add("MDBActiveReaders", file.getActiveReaderCount());
+    return monitorAttrs;
+  }
+}
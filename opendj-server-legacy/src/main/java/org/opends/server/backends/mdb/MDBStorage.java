@@ -0,0 +1,689 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.messages.UtilityMessages.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MDBBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
+import org.opends.server.api.DiskSpaceMonitorHandler;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.EmptyCursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+import org.opends.server.util.BackupManager;
+
+/**
+ * Memory-mapped, copy-on-write B+tree implementation of the {@link Storage} engine.
+ * <p>
+ * All the trees are stored in a single file mapped in memory. Read operations run against the last committed state
+ * of the file without taking any lock and read the pages in place, so that they scale with the number of processors.
+ * Write operations are serialized: they copy the pages they modify to free pages and make them visible by writing a
+ * new meta record when they commit. The pages released by a write operation are only reused once no read operation
+ * can access them anymore.
+ */
+public final class MDBStorage implements Storage, Backupable, ConfigurationChangeListener<MDBBackendCfg>,
+  DiskSpaceMonitorHandler
+{
+  private static final String DB_FILE_NAME = "dj.mdb";
+  /** Number of modified pages after which the importer commits its changes to bound its memory usage. */
+  private static final int IMPORT_MAX_DIRTY_PAGES = 4096;
+
+  /**
+   * Implementation of the {@link WriteableTransaction} interface, which is read-only when it is not provided with a
+   * write transaction.
+   */
+  private final class TransactionImpl implements WriteableTransaction
+  {
+    /** It is NULL when opening the storage READ-ONLY and no files have been created yet. */
+    private final TreeReader txn;
+    private final WriteTxn writeTxn;
+
+    private TransactionImpl(TreeReader txn, WriteTxn writeTxn)
+    {
+      this.txn = txn;
+      this.writeTxn = writeTxn;
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      if (txn == null)
+      {
+        return null;
+      }
+      final byte[] value = txn.get(txn.root(treeName.toString()), key.toByteArray());
+      return value != null ? ByteString.wrap(value) : null;
+    }
+
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      try (final Cursor<ByteString, ByteString> cursor = openCursor(treeName))
+      {
+        return readSortedKeys(cursor, sortedKeys);
+      }
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      if (txn == null)
+      {
+        return new EmptyCursor<>();
+      }
+      return new TreeCursor(txn, treeName.toString(), null);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      return txn != null ? txn.count(txn.root(treeName.toString())) : 0;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        writeTxn().createTree(treeName.toString());
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      writeTxn().deleteTree(treeName.toString());
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      writeTxn().put(treeName.toString(), key.toByteArray(), value.toByteArray());
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      final WriteTxn writer = writeTxn();
+      final ByteSequence oldValue = read(treeName, key);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (Objects.equals(newValue, oldValue))
+      {
+        return false;
+      }
+      if (newValue == null)
+      {
+        writer.delete(treeName.toString(), key.toByteArray());
+      }
+      else
+      {
+        writer.put(treeName.toString(), key.toByteArray(), newValue.toByteArray());
+      }
+      return true;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      return writeTxn().delete(treeName.toString(), key.toByteArray());
+    }
+
+    private WriteTxn writeTxn()
+    {
+      if (writeTxn == null)
+      {
+        throw new ReadOnlyStorageException();
+      }
+      return writeTxn;
+    }
+  }
+
+  /**
+   * Implementation of the {@link Importer} interface, running a single write transaction which is committed
+   * whenever it holds too many modified pages, and before opening cursors.
+   */
+  private final class ImporterImpl implements Importer
+  {
+    private final WriteTxn txn = new WriteTxn(pageFile);
+
+    @Override
+    public synchronized void close()
+    {
+      try
+      {
+        txn.commit(true);
+      }
+      finally
+      {
+        MDBStorage.this.close();
+      }
+    }
+
+    @Override
+    public synchronized void clearTree(TreeName treeName)
+    {
+      txn.deleteTree(treeName.toString());
+      txn.createTree(treeName.toString());
+    }
+
+    @Override
+    public synchronized void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      txn.put(treeName.toString(), key.toByteArray(), value.toByteArray());
+      if (txn.getDirtyPageCount() >= IMPORT_MAX_DIRTY_PAGES)
+      {
+        txn.commit(false);
+      }
+    }
+
+    @Override
+    public synchronized ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final byte[] value = txn.get(txn.root(treeName.toString()), key.toByteArray());
+      return value != null ? ByteString.wrap(value) : null;
+    }
+
+    @Override
+    public synchronized SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      txn.commit(false);
+      final ReadTxn readTxn = new ReadTxn(pageFile);
+      return new TreeCursor(readTxn, treeName.toString(), readTxn);
+    }
+  }
+
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private final ServerContext serverContext;
+  private final File backendDirectory;
+  /** Serializes the write transactions. */
+  private final ReentrantLock writeLock = new ReentrantLock();
+  /** The write transaction of the thread holding {@link #writeLock}. */
+  private WriteTxn currentWriteTxn;
+  private AccessMode accessMode;
+  /** It is NULL when the storage is closed, or opened READ-ONLY and no files have been created yet. */
+  private PageFile pageFile;
+  private MDBBackendCfg config;
+  private DiskSpaceMonitor diskMonitor;
+  private MDBMonitor monitor;
+  private StorageStatus storageStatus = StorageStatus.working();
+
+  /**
+   * Creates a new memory-mapped storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   * @param serverContext
+   *          This server instance context
+   * @throws ConfigException
+   *           if the configuration is not valid
+   */
+  public MDBStorage(final MDBBackendCfg cfg, ServerContext serverContext) throws ConfigException
+  {
+    this.serverContext = serverContext;
+    backendDirectory = getBackendDirectory(cfg);
+    config = cfg;
+    cfg.addMDBChangeListener(this);
+  }
+
+  @Override
+  public void close()
+  {
+    if (pageFile != null)
+    {
+      DirectoryServer.deregisterMonitorProvider(monitor);
+      monitor = null;
+      try
+      {
+        pageFile.close();
+      }
+      catch (final IOException e)
+      {
+        throw new IllegalStateException(e);
+      }
+      finally
+      {
+        pageFile = null;
+      }
+    }
+    config.removeMDBChangeListener(this);
+    if (diskMonitor != null)
+    {
+      diskMonitor.deregisterMonitoredDirectory(getDirectory(), this);
+    }
+  }
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    this.accessMode = accessMode;
+    if (!accessMode.isWriteable() && !getDatabaseFile().isFile())
+    {
+      // Do not create the database file
+      return;
+    }
+    open0(accessMode);
+  }
+
+  private void open0(AccessMode accessMode) throws ConfigException
+  {
+    setupStorageFiles(backendDirectory, config.getDBDirectoryPermissions(), config.dn());
+    if (pageFile != null)
+    {
+      throw new IllegalStateException(
+          "Database is already open, either the backend is enabled or an import is currently running.");
+    }
+    this.accessMode = accessMode;
+    final File databaseFile = getDatabaseFile();
+    try
+    {
+      pageFile = new PageFile(databaseFile, accessMode.isWriteable());
+    }
+    catch (final IOException e)
+    {
+      throw new StorageRuntimeException(e);
+    }
+    logger.info(NOTE_MDB_OPENED, config.getBackendId(), databaseFile.getPath(),
+        pageFile.getLength() / PageFile.PAGE_SIZE, PageFile.PAGE_SIZE, pageFile.getMeta().txnId());
+    monitor = new MDBMonitor(config.getBackendId() + " MDB Database", pageFile);
+    DirectoryServer.registerMonitorProvider(monitor);
+    diskMonitor = serverContext.getDiskSpaceMonitor();
+    registerMonitoredDirectory(config);
+  }
+
+  private File getDatabaseFile()
+  {
+    return new File(backendDirectory, DB_FILE_NAME);
+  }
+
+  @Override
+  public <T> T read(final ReadOperation<T> operation) throws Exception
+  {
+    try
+    {
+      if (pageFile == null)
+      {
+        return operation.run(new TransactionImpl(null, null));
+      }
+      try (final ReadTxn txn = new ReadTxn(pageFile))
+      {
+        return operation.run(new TransactionImpl(txn, null));
+      }
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    open0(AccessMode.READ_WRITE);
+    return new ImporterImpl();
+  }
+
+  @Override
+  public void write(final WriteOperation operation) throws Exception
+  {
+    if (pageFile == null || !accessMode.isWriteable())
+    {
+      writeReadOnly(operation);
+      return;
+    }
+    writeLock.lock();
+    try
+    {
+      if (writeLock.getHoldCount() > 1)
+      {
+        // nested write operations join the enclosing transaction
+        operation.run(new TransactionImpl(currentWriteTxn, currentWriteTxn));
+        return;
+      }
+      final WriteTxn txn = new WriteTxn(pageFile);
+      currentWriteTxn = txn;
+      try
+      {
+        operation.run(new TransactionImpl(txn, txn));
+        txn.commit(!config.isDBTxnNoSync());
+      }
+      catch (final Exception e)
+      {
+        txn.abort();
+        throw e;
+      }
+      finally
+      {
+        currentWriteTxn = null;
+      }
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /** Runs a write operation on a read-only transaction, on which any update fails. */
+  private void writeReadOnly(final WriteOperation operation) throws Exception
+  {
+    try
+    {
+      if (pageFile == null)
+      {
+        operation.run(new TransactionImpl(null, null));
+        return;
+      }
+      try (final ReadTxn txn = new ReadTxn(pageFile))
+      {
+        operation.run(new TransactionImpl(txn, null));
+      }
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  private Exception unwrap(StorageRuntimeException e) throws Exception
+  {
+    if (e.getCause() != null)
+    {
+      throw (Exception) e.getCause();
+    }
+    throw e;
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return true;
+  }
+
+  @Override
+  public File getDirectory()
+  {
+    return getBackendDirectory(config);
+  }
+
+  private static File getBackendDirectory(MDBBackendCfg cfg)
+  {
+    return getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId());
+  }
+
+  @Override
+  public ListIterator<Path> getFilesToBackup() throws DirectoryException
+  {
+    return BackupManager.getFiles(getDirectory(), BACKUP_FILES_FILTER, config.getBackendId()).listIterator();
+  }
+
+  /** Filter to retrieve the database files to backup. */
+  private static final FileFilter BACKUP_FILES_FILTER = new FileFilter()
+  {
+    @Override
+    public boolean accept(File file)
+    {
+      return DB_FILE_NAME.equals(file.getName());
+    }
+  };
+
+  @Override
+  public Path beforeRestore() throws DirectoryException
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isDirectRestore()
+  {
+    // restore is done in an intermediate directory
+    return false;
+  }
+
+  @Override
+  public void afterRestore(Path restoreDirectory, Path saveDirectory) throws DirectoryException
+  {
+    // intermediate directory content is moved to database directory
+    File targetDirectory = getDirectory();
+    recursiveDelete(targetDirectory);
+    try
+    {
+      Files.move(restoreDirectory, targetDirectory.toPath());
+    }
+    catch(IOException e)
+    {
+      LocalizableMessage msg = ERR_CANNOT_RENAME_RESTORE_DIRECTORY.get(restoreDirectory, targetDirectory.getPath());
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), msg);
+    }
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    // Readers never modify the file: blocking the writer is enough to copy a consistent database file
+    writeLock.lock();
+    try
+    {
+      if (pageFile != null)
+      {
+        pageFile.force();
+      }
+      new BackupManager(config.getBackendId()).createBackup(this, backupConfig);
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).restoreBackup(this, restoreConfig);
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    if (pageFile == null)
+    {
+      return Collections.<TreeName>emptySet();
+    }
+    final List<String> treeNames = new ArrayList<>();
+    try (final ReadTxn txn = new ReadTxn(pageFile))
+    {
+      txn.listTrees(txn.catalogRoot(), treeNames);
+    }
+    final Set<TreeName> results = new HashSet<>(treeNames.size());
+    for (String treeName : treeNames)
+    {
+      results.add(TreeName.valueOf(treeName));
+    }
+    return results;
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(MDBBackendCfg newCfg,
+      List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(newCfg, unacceptableReasons);
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(MDBBackendCfg cfg, List<LocalizableMessage> unacceptableReasons)
+  {
+    return checkConfigurationDirectories(cfg, unacceptableReasons);
+  }
+
+  private static boolean checkConfigurationDirectories(MDBBackendCfg cfg,
+    List<LocalizableMessage> unacceptableReasons)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    File newBackendDirectory = getBackendDirectory(cfg);
+
+    checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, true);
+    checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(MDBBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+
+    try
+    {
+      File newBackendDirectory = getBackendDirectory(cfg);
+
+      // Create the directory if it doesn't exist.
+      if(!cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, false);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        ccr.setAdminActionRequired(true);
+        ccr.addMessage(NOTE_CONFIG_DB_DIR_REQUIRES_RESTART.get(config.getDBDirectory(), cfg.getDBDirectory()));
+      }
+
+      if (!cfg.getDBDirectoryPermissions().equalsIgnoreCase(config.getDBDirectoryPermissions())
+          || !cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        setDBDirPermissions(newBackendDirectory, cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+      }
+      registerMonitoredDirectory(cfg);
+      config = cfg;
+    }
+    catch (Exception e)
+    {
+      addErrorMessage(ccr, LocalizableMessage.raw(stackTraceToSingleLineString(e)));
+    }
+    return ccr;
+  }
+
+  private void registerMonitoredDirectory(MDBBackendCfg cfg)
+  {
+    diskMonitor.registerMonitoredDirectory(
+      cfg.getBackendId() + " backend",
+      getDirectory(),
+      cfg.getDiskLowThreshold(),
+      cfg.getDiskFullThreshold(),
+      this);
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    StorageUtils.removeStorageFiles(backendDirectory);
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return storageStatus;
+  }
+
+  @Override
+  public void diskFullThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskLowThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceLow(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskSpaceRestored(File directory, long lowThresholdInBytes, long fullThresholdInBytes) {
+    storageStatus = StorageStatus.working();
+  }
+}
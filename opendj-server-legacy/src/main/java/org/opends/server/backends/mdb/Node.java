@@ -0,0 +1,436 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.server.backends.mdb.Page.*;
+import static org.opends.server.backends.mdb.PageFile.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * A B+tree node modified by a write transaction. The node is copied from its committed page the first time the
+ * transaction modifies it, and written to a newly allocated page when the transaction commits.
+ */
+final class Node implements NodeView
+{
+  /** Maximum size of a key, which guarantees that a branch page can always hold several cells. */
+  static final int MAX_KEY_SIZE = 2048;
+  /** Maximum size of a value stored in the leaf page, larger values are stored in overflow pages. */
+  static final int MAX_INLINE_VALUE_SIZE = 6000;
+  private static final int LEAF_CELL_OVERHEAD = SLOT_SIZE + 7;
+  private static final int BRANCH_CELL_OVERHEAD = SLOT_SIZE + 18;
+
+  /** A leaf value, either held in memory or stored in overflow pages. */
+  static final class Value
+  {
+    private final byte[] bytes;
+    private final long overflowPage;
+    private final int length;
+
+    Value(byte[] bytes)
+    {
+      this(bytes, NO_PAGE, bytes.length);
+    }
+
+    Value(long overflowPage, int length)
+    {
+      this(null, overflowPage, length);
+    }
+
+    private Value(byte[] bytes, long overflowPage, int length)
+    {
+      this.bytes = bytes;
+      this.overflowPage = overflowPage;
+      this.length = length;
+    }
+
+    long overflowPage()
+    {
+      return overflowPage;
+    }
+
+    int length()
+    {
+      return length;
+    }
+
+    private int encodedLength()
+    {
+      return bytes != null ? length : 8;
+    }
+  }
+
+  private final PageFile file;
+  private final long page;
+  private final boolean leaf;
+  private final ArrayList<byte[]> keys = new ArrayList<>();
+  private final ArrayList<Value> values;
+  private final ArrayList<long[]> children;
+  private int usedBytes = HEADER_SIZE;
+
+  Node(PageFile file, long page, boolean leaf)
+  {
+    this.file = file;
+    this.page = page;
+    this.leaf = leaf;
+    this.values = leaf ? new ArrayList<Value>() : null;
+    this.children = leaf ? null : new ArrayList<long[]>();
+  }
+
+  /**
+   * Returns a modifiable copy of a node.
+   *
+   * @param file
+   *          the database file
+   * @param view
+   *          the node to copy
+   * @param page
+   *          the page where the copy will be written
+   * @return a modifiable copy of the node
+   */
+  static Node copyOf(PageFile file, NodeView view, long page)
+  {
+    final Node node = new Node(file, page, view.isLeaf());
+    for (int i = 0; i < view.size(); i++)
+    {
+      if (node.leaf)
+      {
+        final long overflowPage = view.overflowPage(i);
+        node.insertRecord(i, view.key(i),
+            overflowPage != NO_PAGE ? new Value(overflowPage, view.valueLength(i)) : new Value(view.value(i)));
+      }
+      else
+      {
+        node.insertChild(i, view.key(i), view.child(i), view.childCount(i));
+      }
+    }
+    return node;
+  }
+
+  long page()
+  {
+    return page;
+  }
+
+  @Override
+  public boolean isLeaf()
+  {
+    return leaf;
+  }
+
+  @Override
+  public int size()
+  {
+    return keys.size();
+  }
+
+  @Override
+  public int usedBytes()
+  {
+    return usedBytes;
+  }
+
+  @Override
+  public int compareKey(int index, byte[] key)
+  {
+    return compare(keys.get(index), key);
+  }
+
+  @Override
+  public byte[] key(int index)
+  {
+    return keys.get(index);
+  }
+
+  @Override
+  public byte[] value(int index)
+  {
+    final Value value = values.get(index);
+    if (value.bytes != null)
+    {
+      return value.bytes;
+    }
+    final byte[] bytes = new byte[value.length];
+    file.read(value.overflowPage, bytes);
+    return bytes;
+  }
+
+  @Override
+  public int valueLength(int index)
+  {
+    return values.get(index).length;
+  }
+
+  @Override
+  public long overflowPage(int index)
+  {
+    return values.get(index).overflowPage;
+  }
+
+  @Override
+  public long child(int index)
+  {
+    return children.get(index)[0];
+  }
+
+  @Override
+  public long childCount(int index)
+  {
+    return children.get(index)[1];
+  }
+
+  void insertRecord(int index, byte[] key, Value value)
+  {
+    keys.add(index, key);
+    values.add(index, value);
+    usedBytes += LEAF_CELL_OVERHEAD + key.length + value.encodedLength();
+  }
+
+  Value setValue(int index, Value value)
+  {
+    final Value oldValue = values.set(index, value);
+    usedBytes += value.encodedLength() - oldValue.encodedLength();
+    return oldValue;
+  }
+
+  Value removeRecord(int index)
+  {
+    final byte[] key = keys.remove(index);
+    final Value value = values.remove(index);
+    usedBytes -= LEAF_CELL_OVERHEAD + key.length + value.encodedLength();
+    return value;
+  }
+
+  void insertChild(int index, byte[] key, long child, long count)
+  {
+    keys.add(index, key);
+    children.add(index, new long[] { child, count });
+    usedBytes += BRANCH_CELL_OVERHEAD + key.length;
+  }
+
+  void setChild(int index, long child, long count)
+  {
+    final long[] cell = children.get(index);
+    cell[0] = child;
+    cell[1] = count;
+  }
+
+  void removeChild(int index)
+  {
+    final byte[] key = keys.remove(index);
+    children.remove(index);
+    usedBytes -= BRANCH_CELL_OVERHEAD + key.length;
+  }
+
+  boolean fits()
+  {
+    return usedBytes <= PAGE_SIZE;
+  }
+
+  boolean isUnderfull()
+  {
+    return usedBytes < PAGE_SIZE / 4;
+  }
+
+  /**
+   * Returns the index where this overfull node should be split so that both halves fit in a page.
+   * <p>
+   * Nodes growing by their end, which is the case when records are added in key order, keep all their records but
+   * the last one so that sequentially filled trees are made of full pages. Other nodes are split in their middle.
+   *
+   * @param insertedIndex
+   *          the index of the cell whose insertion or growth caused this node to overflow
+   * @return the index of the first cell of the right half
+   */
+  int splitIndex(int insertedIndex)
+  {
+    final int size = size();
+    final int lastCellBytes = cellBytes(size - 1);
+    if (insertedIndex == size - 1 && usedBytes - lastCellBytes <= PAGE_SIZE)
+    {
+      return size - 1;
+    }
+    final int total = usedBytes - HEADER_SIZE;
+    int leftBytes = 0;
+    int index = 0;
+    while (index < size - 1 && leftBytes + cellBytes(index) <= total / 2)
+    {
+      leftBytes += cellBytes(index++);
+    }
+    // take the straddling cell on the left too if it makes the halves more balanced
+    if (index < size - 1 && leftBytes + cellBytes(index) - total / 2 < total / 2 - leftBytes)
+    {
+      index++;
+    }
+    return Math.max(index, 1);
+  }
+
+  /**
+   * Moves the cells starting at the provided index into a new node.
+   *
+   * @param index
+   *          the index of the first cell to move
+   * @param rightPage
+   *          the page of the new node
+   * @return the new node holding the moved cells
+   */
+  Node split(int index, long rightPage)
+  {
+    final Node right = new Node(file, rightPage, leaf);
+    for (int i = index; i < size(); i++)
+    {
+      if (leaf)
+      {
+        right.insertRecord(right.size(), keys.get(i), values.get(i));
+      }
+      else
+      {
+        right.insertChild(right.size(), keys.get(i), child(i), childCount(i));
+      }
+    }
+    usedBytes -= right.usedBytes - HEADER_SIZE;
+    final int size = size();
+    keys.subList(index, size).clear();
+    if (leaf)
+    {
+      values.subList(index, size).clear();
+    }
+    else
+    {
+      children.subList(index, size).clear();
+    }
+    return right;
+  }
+
+  /**
+   * Returns the number of bytes that a node would occupy after appending the cells of its right sibling.
+   *
+   * @param left
+   *          the node
+   * @param right
+   *          the right sibling of this node
+   * @param separator
+   *          the key separating the two nodes in their parent
+   * @return the number of bytes that the merged node would occupy
+   */
+  static int mergedBytes(NodeView left, NodeView right, byte[] separator)
+  {
+    final int bytes = left.usedBytes() + right.usedBytes() - HEADER_SIZE;
+    return left.isLeaf() ? bytes : bytes + separator.length - right.key(0).length;
+  }
+
+  /**
+   * Appends the cells of the right sibling of this node.
+   *
+   * @param right
+   *          the right sibling of this node
+   * @param separator
+   *          the key separating the two nodes in their parent, which replaces the unused first key of the right
+   *          sibling when merging branches
+   */
+  void merge(Node right, byte[] separator)
+  {
+    for (int i = 0; i < right.size(); i++)
+    {
+      if (leaf)
+      {
+        insertRecord(size(), right.keys.get(i), right.values.get(i));
+      }
+      else
+      {
+        insertChild(size(), i == 0 ? separator : right.keys.get(i), right.child(i), right.childCount(i));
+      }
+    }
+  }
+
+  /**
+   * Encodes this node in the provided page buffer.
+   *
+   * @param buffer
+   *          the buffer holding the page
+   * @param base
+   *          the position of the page in the buffer
+   */
+  void writeTo(ByteBuffer buffer, int base)
+  {
+    final ByteBuffer out = buffer.duplicate();
+    out.put(base, leaf ? LEAF : BRANCH);
+    out.put(base + 1, (byte) 0);
+    out.putChar(base + 2, (char) size());
+    out.putInt(base + 4, usedBytes);
+    int end = base + PAGE_SIZE;
+    for (int i = 0; i < size(); i++)
+    {
+      final byte[] key = keys.get(i);
+      end -= cellBytes(i) - SLOT_SIZE;
+      out.putChar(base + HEADER_SIZE + i * SLOT_SIZE, (char) (end - base));
+      out.position(end);
+      out.putChar((char) key.length);
+      out.put(key);
+      if (leaf)
+      {
+        final Value value = values.get(i);
+        out.put(value.bytes != null ? INLINE : OVERFLOW);
+        out.putInt(value.length);
+        if (value.bytes != null)
+        {
+          out.put(value.bytes);
+        }
+        else
+        {
+          out.putLong(value.overflowPage);
+        }
+      }
+      else
+      {
+        out.putLong(child(i));
+        out.putLong(childCount(i));
+      }
+    }
+  }
+
+  private int cellBytes(int index)
+  {
+    final int keyLength = keys.get(index).length;
+    return leaf ? LEAF_CELL_OVERHEAD + keyLength + values.get(index).encodedLength()
+                : BRANCH_CELL_OVERHEAD + keyLength;
+  }
+
+  /**
+   * Compares two keys using unsigned lexicographic ordering.
+   *
+   * @param key1
+   *          the first key
+   * @param key2
+   *          the second key
+   * @return a negative integer, zero, or a positive integer as the first key is less than, equal to, or greater
+   *         than the second key
+   */
+  static int compare(byte[] key1, byte[] key2)
+  {
+    final int min = Math.min(key1.length, key2.length);
+    for (int i = 0; i < min; i++)
+    {
+      final int cmp = (key1[i] & 0xff) - (key2[i] & 0xff);
+      if (cmp != 0)
+      {
+        return cmp;
+      }
+    }
+    return key1.length - key2.length;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+/**
+ * Read access to a B+tree node, which is either a page of the database file or a node modified by the
+ * current write transaction.
+ * <p>
+ * Leaf nodes hold the records of the tree sorted by key. Branch nodes hold one cell per child, the key of each
+ * cell being the lowest key of the child sub-tree, except for the first cell whose key is never compared.
+ */
+interface NodeView
+{
+  /**
+   * Returns whether this node is a leaf.
+   *
+   * @return {@code true} if this node is a leaf, {@code false} if it is a branch
+   */
+  boolean isLeaf();
+
+  /**
+   * Returns the number of cells in this node.
+   *
+   * @return the number of cells in this node
+   */
+  int size();
+
+  /**
+   * Returns the number of bytes that this node occupies once written to a page.
+   *
+   * @return the number of bytes that this node occupies once written to a page
+   */
+  int usedBytes();
+
+  /**
+   * Compares the key of a cell with the provided key using unsigned lexicographic ordering.
+   *
+   * @param index
+   *          the index of the cell
+   * @param key
+   *          the key to compare with
+   * @return a negative integer, zero, or a positive integer as the key of the cell is less than, equal to, or
+   *         greater than the provided key
+   */
+  int compareKey(int index, byte[] key);
+
+  /**
+   * Returns the key of a cell. The returned array must not be modified.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the key of the cell
+   */
+  byte[] key(int index);
+
+  /**
+   * Returns the value of a leaf cell. The returned array must not be modified.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the value of the cell
+   */
+  byte[] value(int index);
+
+  /**
+   * Returns the length of the value of a leaf cell.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the length of the value of the cell
+   */
+  int valueLength(int index);
+
+  /**
+   * Returns the first page of the overflow pages holding the value of a leaf cell.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the first overflow page, or {@link PageFile#NO_PAGE} if the value is stored in the leaf
+   */
+  long overflowPage(int index);
+
+  /**
+   * Returns the child page of a branch cell.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the child page of the cell
+   */
+  long child(int index);
+
+  /**
+   * Returns the number of records in the sub-tree of a branch cell.
+   *
+   * @param index
+   *          the index of the cell
+   * @return the number of records in the sub-tree of the cell
+   */
+  long childCount(int index);
+}
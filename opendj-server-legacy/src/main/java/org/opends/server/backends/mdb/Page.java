@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.server.backends.mdb.PageFile.*;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only view of a B+tree page, decoding the cells directly from the memory-mapped file.
+ * <p>
+ * A page starts with a header made of the page type, the number of cells and the number of bytes used. The header
+ * is followed by a directory holding the offset of each cell within the page, while the cells themselves are packed
+ * from the end of the page:
+ * <ul>
+ * <li>leaf cells hold the key length, the key, the value kind, the value length and either the value itself or
+ * the first page of the contiguous overflow pages holding the value,</li>
+ * <li>branch cells hold the key length, the key, the child page and the number of records in the child
+ * sub-tree.</li>
+ * </ul>
+ */
+final class Page implements NodeView
+{
+  /** Type of the pages holding leaf nodes. */
+  static final byte LEAF = 1;
+  /** Type of the pages holding branch nodes. */
+  static final byte BRANCH = 2;
+  /** Kind of the leaf values stored in the leaf page. */
+  static final byte INLINE = 0;
+  /** Kind of the leaf values stored in overflow pages. */
+  static final byte OVERFLOW = 1;
+  /** Size of the page header. */
+  static final int HEADER_SIZE = 8;
+  /** Size of a cell directory entry. */
+  static final int SLOT_SIZE = 2;
+
+  private final PageFile file;
+  private final ByteBuffer buffer;
+  private final int base;
+
+  Page(PageFile file, long page)
+  {
+    this.file = file;
+    this.buffer = file.region(page);
+    this.base = offsetInRegion(page);
+  }
+
+  @Override
+  public boolean isLeaf()
+  {
+    return buffer.get(base) == LEAF;
+  }
+
+  @Override
+  public int size()
+  {
+    return buffer.getChar(base + 2);
+  }
+
+  @Override
+  public int usedBytes()
+  {
+    return buffer.getInt(base + 4);
+  }
+
+  @Override
+  public int compareKey(int index, byte[] key)
+  {
+    final int cell = cell(index);
+    final int length = buffer.getChar(cell);
+    final int min = Math.min(length, key.length);
+    for (int i = 0; i < min; i++)
+    {
+      final int cmp = (buffer.get(cell + 2 + i) & 0xff) - (key[i] & 0xff);
+      if (cmp != 0)
+      {
+        return cmp;
+      }
+    }
+    return length - key.length;
+  }
+
+  @Override
+  public byte[] key(int index)
+  {
+    final int cell = cell(index);
+    return copy(cell + 2, buffer.getChar(cell));
+  }
+
+  @Override
+  public byte[] value(int index)
+  {
+    final int position = valuePosition(index);
+    final int length = buffer.getInt(position + 1);
+    if (buffer.get(position) == OVERFLOW)
+    {
+      final byte[] value = new byte[length];
+      file.read(buffer.getLong(position + 5), value);
+      return value;
+    }
+    return copy(position + 5, length);
+  }
+
+  @Override
+  public int valueLength(int index)
+  {
+    return buffer.getInt(valuePosition(index) + 1);
+  }
+
+  @Override
+  public long overflowPage(int index)
+  {
+    final int position = valuePosition(index);
+    return buffer.get(position) == OVERFLOW ? buffer.getLong(position + 5) : NO_PAGE;
+  }
+
+  @Override
+  public long child(int index)
+  {
+    final int cell = cell(index);
+    return buffer.getLong(cell + 2 + buffer.getChar(cell));
+  }
+
+  @Override
+  public long childCount(int index)
+  {
+    final int cell = cell(index);
+    return buffer.getLong(cell + 10 + buffer.getChar(cell));
+  }
+
+  private int cell(int index)
+  {
+    return base + buffer.getChar(base + HEADER_SIZE + index * SLOT_SIZE);
+  }
+
+  private int valuePosition(int index)
+  {
+    final int cell = cell(index);
+    return cell + 2 + buffer.getChar(cell);
+  }
+
+  private byte[] copy(int position, int length)
+  {
+    final byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++)
+    {
+      bytes[i] = buffer.get(position + i);
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,662 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+
+import org.opends.server.backends.pluggable.spi.StorageInUseException;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * The memory-mapped file holding all the trees of a {@link MDBStorage}.
+ * <p>
+ * The file is a sequence of fixed size pages. The first two pages hold alternating meta records, each of them
+ * describing a complete committed state of the storage. Transactions never modify the pages reachable from the last
+ * committed meta record: they write their changes to free pages, force them to disk, then overwrite the oldest meta
+ * record. A crash therefore leaves the file in the state of one of the last two commits and never requires any
+ * recovery, even when the new meta record itself is not forced to disk.
+ * <p>
+ * Readers only access the mapped memory and never take any lock. They pin the meta record they started from in a
+ * per-thread slot so that the single writer does not reuse the pages this meta record references. The slots of the
+ * threads which have terminated are discarded by the writer.
+ */
+final class PageFile implements Closeable
+{
+  /** Size of a page in bytes. */
+  static final int PAGE_SIZE = 16 * 1024;
+  /** Page number denoting the absence of a page: page 0 holds a meta record and is never part of a tree. */
+  static final long NO_PAGE = 0;
+
+  private static final int META_PAGES = 2;
+  private static final int META_SIZE = 36;
+  private static final int MAGIC = 0x4d444231;
+  private static final int VERSION = 1;
+  private static final int PAGES_PER_REGION = 64 * 1024;
+  private static final long REGION_SIZE = (long) PAGES_PER_REGION * PAGE_SIZE;
+  private static final long MIN_GROWTH = 64L * 1024 * 1024;
+
+  /** A committed state of the storage. */
+  static final class Meta
+  {
+    private final long txnId;
+    private final long catalogRoot;
+    private final long highWater;
+
+    private Meta(long txnId, long catalogRoot, long highWater)
+    {
+      this.txnId = txnId;
+      this.catalogRoot = catalogRoot;
+      this.highWater = highWater;
+    }
+
+    long txnId()
+    {
+      return txnId;
+    }
+
+    long catalogRoot()
+    {
+      return catalogRoot;
+    }
+  }
+
+  /** Per-thread slot pinning the meta record used by the read transactions of a thread. */
+  static final class ReaderSlot
+  {
+    private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+    private volatile long txnId = Long.MAX_VALUE;
+    private int depth;
+
+    private boolean isAbandoned()
+    {
+      final Thread thread = owner.get();
+      return thread == null || !thread.isAlive();
+    }
+  }
+
+  private final File file;
+  private final RandomAccessFile raf;
+  private final FileChannel channel;
+  private final FileLock lock;
+  private final MapMode mapMode;
+  private volatile MappedByteBuffer[] regions = new MappedByteBuffer[0];
+  private volatile long length;
+  private volatile Meta meta;
+
+  private final ConcurrentLinkedQueue<ReaderSlot> readerSlots = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<ReaderSlot> readerSlot = new ThreadLocal<ReaderSlot>()
+  {
+    @Override
+    protected ReaderSlot initialValue()
+    {
+      final ReaderSlot slot = new ReaderSlot();
+      readerSlots.add(slot);
+      return slot;
+    }
+  };
+
+  /** Pages which the writer may reuse. Only accessed by the writer. */
+  private final BitSet freePages = new BitSet();
+  /** Pages released by committed transactions which may still be referenced by readers, keyed by transaction. */
+  private final TreeMap<Long, List<Long>> pendingFreePages = new TreeMap<>();
+  private long highWater;
+  private volatile int freePageCount;
+
+  /**
+   * Opens the provided database file, creating it if needed when it is opened for writing.
+   *
+   * @param file
+   *          the database file
+   * @param writeable
+   *          whether the file is opened for writing
+   * @throws IOException
+   *           if the file cannot be opened or is not a valid database file
+   * @throws StorageInUseException
+   *           if the file is opened for writing by another process
+   */
+  PageFile(File file, boolean writeable) throws IOException
+  {
+    this.file = file;
+    this.mapMode = writeable ? MapMode.READ_WRITE : MapMode.READ_ONLY;
+    final boolean exists = file.length() >= META_PAGES * PAGE_SIZE;
+    raf = new RandomAccessFile(file, writeable ? "rw" : "r");
+    channel = raf.getChannel();
+    try
+    {
+      lock = writeable ? lock() : null;
+      if (exists)
+      {
+        length = channel.size();
+        regions = map(regions);
+        open(writeable);
+      }
+      else
+      {
+        create();
+      }
+    }
+    catch (IOException | RuntimeException e)
+    {
+      raf.close();
+      throw e;
+    }
+  }
+
+  private FileLock lock() throws IOException
+  {
+    try
+    {
+      final FileLock fileLock = channel.tryLock();
+      if (fileLock != null)
+      {
+        return fileLock;
+      }
+      throw new StorageInUseException(file.getPath());
+    }
+    catch (OverlappingFileLockException e)
+    {
+      throw new StorageInUseException(file.getPath(), e);
+    }
+  }
+
+  private void create() throws IOException
+  {
+    highWater = META_PAGES;
+    ensureCapacity(highWater);
+    meta = new Meta(0, NO_PAGE, highWater);
+    writeMeta(meta);
+    force();
+  }
+
+  private void open(boolean writeable) throws IOException
+  {
+    final Meta meta0 = readMeta(0);
+    final Meta meta1 = readMeta(1);
+    if (meta0 == null && meta1 == null)
+    {
+      throw new IOException(ERR_MDB_INVALID_FILE.get(file.getPath()).toString());
+    }
+    final boolean useMeta0 = meta1 == null || (meta0 != null && meta0.txnId > meta1.txnId);
+    meta = useMeta0 ? meta0 : meta1;
+    highWater = meta.highWater;
+    if (writeable)
+    {
+      recoverFreePages(useMeta0 ? meta1 : meta0);
+    }
+  }
+
+  /**
+   * Rebuilds the free page set which is not persisted: pages which are not reachable from the last two committed
+   * meta records are free, while pages only reachable from the previous meta record will be free once the next
+   * transaction commits.
+   */
+  private void recoverFreePages(Meta previousMeta)
+  {
+    final BitSet reachable = new BitSet();
+    markTree(meta.catalogRoot, true, reachable);
+    final BitSet previouslyReachable = new BitSet();
+    if (previousMeta != null && previousMeta.txnId == meta.txnId - 1)
+    {
+      markTree(previousMeta.catalogRoot, true, previouslyReachable);
+    }
+    final List<Long> pending = new ArrayList<>();
+    for (int page = META_PAGES; page < highWater; page++)
+    {
+      if (previouslyReachable.get(page) && !reachable.get(page))
+      {
+        pending.add((long) page);
+      }
+      else if (!previouslyReachable.get(page) && !reachable.get(page))
+      {
+        freePages.set(page);
+      }
+    }
+    if (!pending.isEmpty())
+    {
+      pendingFreePages.put(meta.txnId, pending);
+    }
+    freePageCount = freePages.cardinality();
+  }
+
+  private void markTree(long root, boolean catalog, BitSet marks)
+  {
+    if (root == NO_PAGE)
+    {
+      return;
+    }
+    marks.set(toIndex(root));
+    final Page page = new Page(this, root);
+    for (int i = 0; i < page.size(); i++)
+    {
+      if (!page.isLeaf())
+      {
+        markTree(page.child(i), catalog, marks);
+      }
+      else if (catalog)
+      {
+        markTree(TreeReader.decodeRoot(page.value(i)), false, marks);
+      }
+      else if (page.overflowPage(i) != NO_PAGE)
+      {
+        final int first = toIndex(page.overflowPage(i));
+        marks.set(first, first + overflowPageCount(page.valueLength(i)));
+      }
+    }
+  }
+
+  /**
+   * Returns the number of contiguous overflow pages needed to store a value.
+   *
+   * @param valueLength
+   *          the length of the value
+   * @return the number of contiguous overflow pages needed to store the value
+   */
+  static int overflowPageCount(int valueLength)
+  {
+    return (valueLength + PAGE_SIZE - 1) / PAGE_SIZE;
+  }
+
+  private static int toIndex(long page)
+  {
+    if (page > Integer.MAX_VALUE)
+    {
+      throw new StorageRuntimeException("Page number out of range: " + page);
+    }
+    return (int) page;
+  }
+
+  /**
+   * Returns the last committed meta record.
+   *
+   * @return the last committed meta record
+   */
+  Meta getMeta()
+  {
+    return meta;
+  }
+
+  /**
+   * Pins the last committed meta record for the current thread, unless the thread already pinned one. Once pinned,
+   * the pages reachable from this meta record or from any more recent one are not reused by the writer.
+   *
+   * @return the slot of the current thread, to be provided to {@link #endRead(ReaderSlot)}
+   */
+  ReaderSlot beginRead()
+  {
+    final ReaderSlot slot = readerSlot.get();
+    if (slot.depth++ == 0)
+    {
+      Meta current;
+      do
+      {
+        current = meta;
+        slot.txnId = current.txnId;
+      }
+      while (current != meta);
+    }
+    return slot;
+  }
+
+  /**
+   * Releases the meta record pinned by {@link #beginRead()}.
+   *
+   * @param slot
+   *          the slot returned by {@link #beginRead()}
+   */
+  void endRead(ReaderSlot slot)
+  {
+    if (--slot.depth == 0)
+    {
+      slot.txnId = Long.MAX_VALUE;
+    }
+  }
+
+  int getActiveReaderCount()
+  {
+    int count = 0;
+    for (ReaderSlot slot : readerSlots)
+    {
+      if (slot.txnId != Long.MAX_VALUE && !slot.isAbandoned())
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int getReaderSlotCount()
+  {
+    return readerSlots.size();
+  }
+
+  int getFreePageCount()
+  {
+    return freePageCount;
+  }
+
+  long getLength()
+  {
+    return length;
+  }
+
+  /**
+   * Makes the pages released by committed transactions available for reuse once neither the readers nor the
+   * previous meta record can reference them anymore. Discards the slots of the reader threads which have terminated.
+   */
+  void reclaimPendingFreePages()
+  {
+    long limit = meta.txnId - 1;
+    for (Iterator<ReaderSlot> it = readerSlots.iterator(); it.hasNext();)
+    {
+      final ReaderSlot slot = it.next();
+      if (slot.isAbandoned())
+      {
+        // A terminated thread does not read anymore
+        it.remove();
+      }
+      else
+      {
+        limit = Math.min(limit, slot.txnId);
+      }
+    }
+    final Iterator<Map.Entry<Long, List<Long>>> it = pendingFreePages.headMap(limit, true).entrySet().iterator();
+    while (it.hasNext())
+    {
+      for (long page : it.next().getValue())
+      {
+        freePages.set(toIndex(page));
+      }
+      it.remove();
+    }
+  }
+
+  /**
+   * Allocates contiguous pages, reusing free pages if possible.
+   *
+   * @param count
+   *          the number of contiguous pages to allocate
+   * @return the first allocated page
+   */
+  long allocate(int count)
+  {
+    int first = freePages.nextSetBit(0);
+    while (first >= 0)
+    {
+      final int end = freePages.nextClearBit(first);
+      if (end - first >= count)
+      {
+        freePages.clear(first, first + count);
+        return first;
+      }
+      first = freePages.nextSetBit(end);
+    }
+    final long page = highWater;
+    highWater += count;
+    try
+    {
+      ensureCapacity(highWater);
+    }
+    catch (IOException e)
+    {
+      highWater -= count;
+      throw new StorageRuntimeException(e);
+    }
+    return page;
+  }
+
+  /**
+   * Makes a page allocated by the current transaction available again.
+   *
+   * @param page
+   *          the page to release
+   */
+  void release(long page)
+  {
+    freePages.set(toIndex(page));
+  }
+
+  /**
+   * Writes a node to its page.
+   *
+   * @param node
+   *          the node to write
+   */
+  void write(Node node)
+  {
+    node.writeTo(region(node.page()), offsetInRegion(node.page()));
+  }
+
+  /**
+   * Writes a value to contiguous overflow pages.
+   *
+   * @param page
+   *          the first overflow page
+   * @param value
+   *          the value to write
+   */
+  void write(long page, byte[] value)
+  {
+    long position = page * PAGE_SIZE;
+    int offset = 0;
+    while (offset < value.length)
+    {
+      final ByteBuffer buffer = regions[(int) (position / REGION_SIZE)].duplicate();
+      buffer.position((int) (position % REGION_SIZE));
+      final int chunk = Math.min(value.length - offset, buffer.remaining());
+      buffer.put(value, offset, chunk);
+      offset += chunk;
+      position += chunk;
+    }
+  }
+
+  /**
+   * Reads a value from contiguous overflow pages.
+   *
+   * @param page
+   *          the first overflow page
+   * @param value
+   *          the array where to read the value
+   */
+  void read(long page, byte[] value)
+  {
+    final MappedByteBuffer[] mappedRegions = regions;
+    long position = page * PAGE_SIZE;
+    int offset = 0;
+    while (offset < value.length)
+    {
+      final ByteBuffer buffer = mappedRegions[(int) (position / REGION_SIZE)].duplicate();
+      buffer.position((int) (position % REGION_SIZE));
+      final int chunk = Math.min(value.length - offset, buffer.remaining());
+      buffer.get(value, offset, chunk);
+      offset += chunk;
+      position += chunk;
+    }
+  }
+
+  /**
+   * Returns the mapped region holding a page.
+   *
+   * @param page
+   *          the page
+   * @return the mapped region holding the page
+   */
+  ByteBuffer region(long page)
+  {
+    return regions[(int) (page / PAGES_PER_REGION)];
+  }
+
+  /**
+   * Returns the position of a page within its mapped region.
+   *
+   * @param page
+   *          the page
+   * @return the position of the page within its mapped region
+   */
+  static int offsetInRegion(long page)
+  {
+    return (int) (page % PAGES_PER_REGION) * PAGE_SIZE;
+  }
+
+  /**
+   * Makes the pages written by the current transaction visible by publishing a new meta record.
+   *
+   * @param catalogRoot
+   *          the root page of the catalog tree
+   * @param releasedPages
+   *          the committed pages that the transaction does not reference anymore
+   * @param sync
+   *          whether the new meta record must be forced to disk before returning. The pages it references are always
+   *          forced to disk first, so that the file remains consistent after a crash.
+   */
+  void commit(long catalogRoot, List<Long> releasedPages, boolean sync)
+  {
+    final Meta next = new Meta(meta.txnId + 1, catalogRoot, highWater);
+    // Also forces the previous meta record: the pages released since the one before are not referenced anymore
+    force();
+    writeMeta(next);
+    if (sync)
+    {
+      regions[0].force();
+    }
+    meta = next;
+    if (!releasedPages.isEmpty())
+    {
+      pendingFreePages.put(next.txnId, releasedPages);
+    }
+    freePageCount = freePages.cardinality();
+  }
+
+  /** Forces all the changes made to the mapped memory to disk. */
+  void force()
+  {
+    for (MappedByteBuffer region : regions)
+    {
+      region.force();
+    }
+  }
+
+  private Meta readMeta(int slot)
+  {
+    final ByteBuffer buffer = regions[0];
+    final int base = slot * PAGE_SIZE;
+    if (buffer.getInt(base) != MAGIC
+        || buffer.getInt(base + 4) != VERSION
+        || buffer.getInt(base + 8) != PAGE_SIZE
+        || buffer.getLong(base + META_SIZE) != checksum(buffer, base))
+    {
+      return null;
+    }
+    return new Meta(buffer.getLong(base + 12), buffer.getLong(base + 20), buffer.getLong(base + 28));
+  }
+
+  private void writeMeta(Meta newMeta)
+  {
+    final ByteBuffer buffer = regions[0];
+    final int base = (int) (newMeta.txnId % META_PAGES) * PAGE_SIZE;
+    buffer.putInt(base, MAGIC);
+    buffer.putInt(base + 4, VERSION);
+    buffer.putInt(base + 8, PAGE_SIZE);
+    buffer.putLong(base + 12, newMeta.txnId);
+    buffer.putLong(base + 20, newMeta.catalogRoot);
+    buffer.putLong(base + 28, newMeta.highWater);
+    buffer.putLong(base + META_SIZE, checksum(buffer, base));
+  }
+
+  private static long checksum(ByteBuffer buffer, int base)
+  {
+    final byte[] bytes = new byte[META_SIZE];
+    for (int i = 0; i < META_SIZE; i++)
+    {
+      bytes[i] = buffer.get(base + i);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(bytes);
+    return crc.getValue();
+  }
+
+  private void ensureCapacity(long pages) throws IOException
+  {
+    final long requiredLength = pages * PAGE_SIZE;
+    if (requiredLength > length)
+    {
+      long newLength = Math.max(requiredLength, length + Math.max(MIN_GROWTH, length / 8));
+      newLength = (newLength + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+      raf.setLength(newLength);
+      length = newLength;
+      regions = map(regions);
+    }
+  }
+
+  /**
+   * Maps the file, reusing the already mapped regions that do not need to be extended: readers may keep using
+   * the previous regions, which remain valid until they are garbage collected.
+   */
+  private MappedByteBuffer[] map(MappedByteBuffer[] oldRegions) throws IOException
+  {
+    final MappedByteBuffer[] newRegions = new MappedByteBuffer[(int) ((length + REGION_SIZE - 1) / REGION_SIZE)];
+    for (int i = 0; i < newRegions.length; i++)
+    {
+      final long position = i * REGION_SIZE;
+      final long size = Math.min(REGION_SIZE, length - position);
+      if (i < oldRegions.length && oldRegions[i].capacity() == size)
+      {
+        newRegions[i] = oldRegions[i];
+      }
+      else
+      {
+        newRegions[i] = channel.map(mapMode, position, size);
+      }
+    }
+    return newRegions;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    regions = null;
+    try
+    {
+      if (lock != null)
+      {
+        lock.release();
+      }
+    }
+    finally
+    {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.opends.server.backends.mdb.PageFile.ReaderSlot;
+
+/**
+ * A read transaction, reading the committed state of the storage at the time it started without taking any lock.
+ * The pages are read in place from the mapped file, only the returned keys and values are copied.
+ */
+final class ReadTxn extends TreeReader implements Closeable
+{
+  private final ReaderSlot slot;
+  private final long catalogRoot;
+  private final Map<String, Long> roots = new HashMap<>();
+  private boolean closed;
+
+  ReadTxn(PageFile file)
+  {
+    super(file);
+    this.slot = file.beginRead();
+    this.catalogRoot = file.getMeta().catalogRoot();
+  }
+
+  @Override
+  NodeView node(long page)
+  {
+    return new Page(file, page);
+  }
+
+  @Override
+  long root(String treeName)
+  {
+    Long root = roots.get(treeName);
+    if (root == null)
+    {
+      root = lookupRoot(catalogRoot, treeName);
+      roots.put(treeName, root);
+    }
+    return root;
+  }
+
+  long catalogRoot()
+  {
+    return catalogRoot;
+  }
+
+  @Override
+  public void close()
+  {
+    if (!closed)
+    {
+      closed = true;
+      file.endRead(slot);
+    }
+  }
+}
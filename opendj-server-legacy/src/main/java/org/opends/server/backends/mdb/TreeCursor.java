@@ -0,0 +1,332 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.server.backends.mdb.TreeReader.*;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.util.StaticUtils;
+
+/**
+ * {@link Cursor} over the records of a tree, keeping the path from the root to the current leaf.
+ * <p>
+ * When the cursor is used by a write transaction which modifies the trees, the path is looked up again from the
+ * current key before moving the cursor.
+ */
+final class TreeCursor implements Cursor<ByteString, ByteString>
+{
+  private final TreeReader txn;
+  private final String treeName;
+  /** Closed with the cursor, may be null. */
+  private final Closeable resource;
+  private NodeView[] nodes = new NodeView[8];
+  private int[] indexes = new int[8];
+  private int depth;
+  private int modificationCount;
+  /** Key of the current record, or key after which {@link #next()} must move when the cursor is undefined. */
+  private byte[] key;
+  private boolean defined;
+  /** Whether {@link #next()} cannot move anymore. */
+  private boolean exhausted;
+  private ByteString currentKey;
+  private ByteString currentValue;
+
+  TreeCursor(TreeReader txn, String treeName, Closeable resource)
+  {
+    this.txn = txn;
+    this.treeName = treeName;
+    this.resource = resource;
+  }
+
+  @Override
+  public boolean next()
+  {
+    clearCurrentKeyAndValue();
+    if (defined && modificationCount == txn.modificationCount())
+    {
+      indexes[depth - 1]++;
+      return position(moveToNextLeafIfNeeded());
+    }
+    else if (exhausted)
+    {
+      return false;
+    }
+    else if (key == null)
+    {
+      return position(descendToFirst());
+    }
+    return position(seek(key, true));
+  }
+
+  @Override
+  public boolean positionToKey(ByteSequence key)
+  {
+    clearCurrentKeyAndValue();
+    final byte[] searchedKey = key.toByteArray();
+    final boolean found = seek(searchedKey, false) && nodes[depth - 1].compareKey(indexes[depth - 1], searchedKey) == 0;
+    if (!found)
+    {
+      // next() moves to the record following the searched key
+      defined = false;
+      exhausted = false;
+      this.key = searchedKey;
+      return false;
+    }
+    return position(true);
+  }
+
+  @Override
+  public boolean positionToKeyOrNext(ByteSequence key)
+  {
+    clearCurrentKeyAndValue();
+    return position(seek(key.toByteArray(), false));
+  }
+
+  @Override
+  public boolean positionToLastKey()
+  {
+    clearCurrentKeyAndValue();
+    return position(descendToLast());
+  }
+
+  @Override
+  public boolean positionToIndex(int index)
+  {
+    clearCurrentKeyAndValue();
+    return position(index >= 0 && descendToIndex(index));
+  }
+
+  @Override
+  public boolean isDefined()
+  {
+    return defined;
+  }
+
+  @Override
+  public ByteString getKey()
+  {
+    if (currentKey == null)
+    {
+      throwIfUndefined();
+      currentKey = ByteString.wrap(key);
+    }
+    return currentKey;
+  }
+
+  @Override
+  public ByteString getValue()
+  {
+    if (currentValue == null)
+    {
+      throwIfUndefined();
+      final byte[] value = modificationCount == txn.modificationCount()
+          ? nodes[depth - 1].value(indexes[depth - 1])
+          : txn.get(txn.root(treeName), key);
+      currentValue = ByteString.wrap(value);
+    }
+    return currentValue;
+  }
+
+  @Override
+  public void delete()
+  {
+    throwIfUndefined();
+    if (!(txn instanceof WriteTxn))
+    {
+      throw new UnsupportedOperationException();
+    }
+    ((WriteTxn) txn).delete(treeName, key);
+  }
+
+  @Override
+  public void close()
+  {
+    StaticUtils.close(resource);
+  }
+
+  /** Updates the cursor state after moving to a record, or failing to. */
+  private boolean position(boolean found)
+  {
+    defined = found;
+    exhausted = !found;
+    key = found ? nodes[depth - 1].key(indexes[depth - 1]) : null;
+    return found;
+  }
+
+  /** Moves the path to the first record of the next leaf when it is positioned after the end of its leaf. */
+  private boolean moveToNextLeafIfNeeded()
+  {
+    if (indexes[depth - 1] < nodes[depth - 1].size())
+    {
+      return true;
+    }
+    // climb up to the first ancestor having a next child, then down to the leftmost leaf of this child
+    int level = depth - 2;
+    while (level >= 0 && indexes[level] + 1 >= nodes[level].size())
+    {
+      level--;
+    }
+    if (level < 0)
+    {
+      return false;
+    }
+    indexes[level]++;
+    depth = level + 1;
+    NodeView node = txn.node(nodes[level].child(indexes[level]));
+    while (!node.isLeaf())
+    {
+      push(node, 0);
+      node = txn.node(node.child(0));
+    }
+    push(node, 0);
+    return true;
+  }
+
+  /**
+   * Positions the path on the first record whose key is greater than or equal to the provided key, or strictly
+   * greater when {@code after} is true.
+   */
+  private boolean seek(byte[] searchedKey, boolean after)
+  {
+    final NodeView root = resetPath();
+    if (root == null)
+    {
+      return false;
+    }
+    NodeView node = root;
+    while (!node.isLeaf())
+    {
+      final int index = childIndex(node, searchedKey);
+      push(node, index);
+      node = txn.node(node.child(index));
+    }
+    int index = search(node, searchedKey);
+    if (index < 0)
+    {
+      index = -index - 1;
+    }
+    else if (after)
+    {
+      index++;
+    }
+    push(node, index);
+    return moveToNextLeafIfNeeded();
+  }
+
+  private boolean descendToFirst()
+  {
+    NodeView node = resetPath();
+    if (node == null)
+    {
+      return false;
+    }
+    while (!node.isLeaf())
+    {
+      push(node, 0);
+      node = txn.node(node.child(0));
+    }
+    push(node, 0);
+    return true;
+  }
+
+  private boolean descendToLast()
+  {
+    NodeView node = resetPath();
+    if (node == null)
+    {
+      return false;
+    }
+    while (!node.isLeaf())
+    {
+      push(node, node.size() - 1);
+      node = txn.node(node.child(node.size() - 1));
+    }
+    push(node, node.size() - 1);
+    return true;
+  }
+
+  /** Descends to the record at the provided index, skipping whole sub-trees thanks to the branch counts. */
+  private boolean descendToIndex(long index)
+  {
+    NodeView node = resetPath();
+    if (node == null)
+    {
+      return false;
+    }
+    long remaining = index;
+    while (!node.isLeaf())
+    {
+      int i = 0;
+      while (i < node.size() && remaining >= node.childCount(i))
+      {
+        remaining -= node.childCount(i++);
+      }
+      if (i == node.size())
+      {
+        return false;
+      }
+      push(node, i);
+      node = txn.node(node.child(i));
+    }
+    if (remaining >= node.size())
+    {
+      return false;
+    }
+    push(node, (int) remaining);
+    return true;
+  }
+
+  /** Clears the path and returns the root of the tree, or null if the tree is empty or does not exist. */
+  private NodeView resetPath()
+  {
+    depth = 0;
+    modificationCount = txn.modificationCount();
+    final long root = txn.root(treeName);
+    return root > PageFile.NO_PAGE ? txn.node(root) : null;
+  }
+
+  private void push(NodeView node, int index)
+  {
+    if (depth == nodes.length)
+    {
+      nodes = Arrays.copyOf(nodes, depth * 2);
+      indexes = Arrays.copyOf(indexes, depth * 2);
+    }
+    nodes[depth] = node;
+    indexes[depth] = index;
+    depth++;
+  }
+
+  private void clearCurrentKeyAndValue()
+  {
+    currentKey = null;
+    currentValue = null;
+  }
+
+  private void throwIfUndefined()
+  {
+    if (!defined)
+    {
+      throw new NoSuchElementException();
+    }
+  }
+}
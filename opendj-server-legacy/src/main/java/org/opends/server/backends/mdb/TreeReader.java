@@ -0,0 +1,248 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.server.backends.mdb.PageFile.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Base class of the transactions, implementing the read operations on the trees of a {@link PageFile}.
+ * <p>
+ * The trees are located through the catalog tree, whose records map the name of each tree to its root page.
+ */
+abstract class TreeReader
+{
+  /** Root of the trees which do not exist, while empty trees have the {@link PageFile#NO_PAGE} root. */
+  static final long NO_TREE = -1;
+
+  final PageFile file;
+
+  TreeReader(PageFile file)
+  {
+    this.file = file;
+  }
+
+  /**
+   * Returns a view of the node held by a page.
+   *
+   * @param page
+   *          the page
+   * @return a view of the node held by the page
+   */
+  abstract NodeView node(long page);
+
+  /**
+   * Returns the root page of a tree.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @return the root page of the tree, {@link PageFile#NO_PAGE} if the tree is empty, or {@link #NO_TREE} if the
+   *         tree does not exist
+   */
+  abstract long root(String treeName);
+
+  /**
+   * Returns a counter incremented each time this transaction modifies a tree, allowing cursors to detect that
+   * their position must be looked up again.
+   *
+   * @return the modification counter of this transaction
+   */
+  int modificationCount()
+  {
+    return 0;
+  }
+
+  /**
+   * Returns the value of a record.
+   *
+   * @param root
+   *          the root page of the tree
+   * @param key
+   *          the key of the record
+   * @return the value of the record, or {@code null} if it does not exist
+   */
+  final byte[] get(long root, byte[] key)
+  {
+    if (root <= NO_PAGE)
+    {
+      return null;
+    }
+    NodeView node = node(root);
+    while (!node.isLeaf())
+    {
+      node = node(node.child(childIndex(node, key)));
+    }
+    final int index = search(node, key);
+    return index >= 0 ? node.value(index) : null;
+  }
+
+  /**
+   * Returns the number of records in a tree, in constant time thanks to the counts held by the branch cells.
+   *
+   * @param root
+   *          the root page of the tree
+   * @return the number of records in the tree
+   */
+  final long count(long root)
+  {
+    return root <= NO_PAGE ? 0 : subtreeCount(node(root));
+  }
+
+  /**
+   * Looks up the root page of a tree in the catalog.
+   *
+   * @param catalogRoot
+   *          the root page of the catalog
+   * @param treeName
+   *          the name of the tree
+   * @return the root page of the tree, or {@link #NO_TREE} if the tree does not exist
+   */
+  final long lookupRoot(long catalogRoot, String treeName)
+  {
+    final byte[] root = get(catalogRoot, catalogKey(treeName));
+    return root != null ? decodeRoot(root) : NO_TREE;
+  }
+
+  /**
+   * Adds the name of all the trees in the catalog to the provided collection.
+   *
+   * @param catalogRoot
+   *          the root page of the catalog
+   * @param treeNames
+   *          the collection where to add the tree names
+   */
+  final void listTrees(long catalogRoot, Collection<String> treeNames)
+  {
+    if (catalogRoot == NO_PAGE)
+    {
+      return;
+    }
+    final NodeView node = node(catalogRoot);
+    for (int i = 0; i < node.size(); i++)
+    {
+      if (node.isLeaf())
+      {
+        treeNames.add(new String(node.key(i), StandardCharsets.UTF_8));
+      }
+      else
+      {
+        listTrees(node.child(i), treeNames);
+      }
+    }
+  }
+
+  /**
+   * Binary searches a key in a leaf.
+   *
+   * @param node
+   *          the leaf
+   * @param key
+   *          the key to search
+   * @return the index of the key if it is found, otherwise {@code (-(insertion point) - 1)}
+   */
+  static int search(NodeView node, byte[] key)
+  {
+    int low = 0;
+    int high = node.size() - 1;
+    while (low <= high)
+    {
+      final int middle = (low + high) >>> 1;
+      final int cmp = node.compareKey(middle, key);
+      if (cmp < 0)
+      {
+        low = middle + 1;
+      }
+      else if (cmp > 0)
+      {
+        high = middle - 1;
+      }
+      else
+      {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Returns the index of the branch cell whose sub-tree may contain a key.
+   *
+   * @param node
+   *          the branch
+   * @param key
+   *          the key
+   * @return the index of the last cell whose key is lower than or equal to the provided key, or 0 if there is none
+   */
+  static int childIndex(NodeView node, byte[] key)
+  {
+    int index = 0;
+    int low = 1;
+    int high = node.size() - 1;
+    while (low <= high)
+    {
+      final int middle = (low + high) >>> 1;
+      if (node.compareKey(middle, key) <= 0)
+      {
+        index = middle;
+        low = middle + 1;
+      }
+      else
+      {
+        high = middle - 1;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Returns the number of records in the sub-tree of a node.
+   *
+   * @param node
+   *          the node
+   * @return the number of records in the sub-tree of the node
+   */
+  static long subtreeCount(NodeView node)
+  {
+    if (node.isLeaf())
+    {
+      return node.size();
+    }
+    long count = 0;
+    for (int i = 0; i < node.size(); i++)
+    {
+      count += node.childCount(i);
+    }
+    return count;
+  }
+
+  static byte[] catalogKey(String treeName)
+  {
+    return treeName.getBytes(StandardCharsets.UTF_8);
+  }
+
+  static byte[] encodeRoot(long root)
+  {
+    return ByteBuffer.allocate(8).putLong(0, root).array();
+  }
+
+  static long decodeRoot(byte[] root)
+  {
+    return ByteBuffer.wrap(root).getLong(0);
+  }
+}
@@ -0,0 +1,419 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.backends.mdb.PageFile.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.opends.server.backends.mdb.Node.Value;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * A write transaction. There is at most one write transaction at a time, which must be guaranteed by the caller.
+ * <p>
+ * The transaction never modifies the committed pages. The first time a node is modified, it is copied into a
+ * {@link Node} bound to a newly allocated page, its committed page being released once the transaction commits.
+ * All the modified nodes are written to their page when the transaction commits, followed by a new meta record.
+ * Once committed, the transaction may be used for further changes.
+ */
+final class WriteTxn extends TreeReader
+{
+  private final Map<Long, Node> dirtyNodes = new HashMap<>();
+  /** Pages allocated by this transaction, released if it is aborted. */
+  private final Set<Long> allocatedPages = new HashSet<>();
+  /** Committed pages which are not referenced anymore, released once the transaction commits. */
+  private List<Long> releasedPages = new ArrayList<>();
+  private final Map<String, Long> roots = new HashMap<>();
+  private final Set<String> modifiedTrees = new HashSet<>();
+  private long catalogRoot;
+  private int modificationCount;
+
+  WriteTxn(PageFile file)
+  {
+    super(file);
+    file.reclaimPendingFreePages();
+    this.catalogRoot = file.getMeta().catalogRoot();
+  }
+
+  @Override
+  NodeView node(long page)
+  {
+    final Node node = dirtyNodes.get(page);
+    return node != null ? node : new Page(file, page);
+  }
+
+  @Override
+  long root(String treeName)
+  {
+    Long root = roots.get(treeName);
+    if (root == null)
+    {
+      root = lookupRoot(catalogRoot, treeName);
+      roots.put(treeName, root);
+    }
+    return root;
+  }
+
+  @Override
+  int modificationCount()
+  {
+    return modificationCount;
+  }
+
+  int getDirtyPageCount()
+  {
+    return dirtyNodes.size();
+  }
+
+  /**
+   * Creates a tree if it does not exist.
+   *
+   * @param treeName
+   *          the name of the tree
+   */
+  void createTree(String treeName)
+  {
+    if (root(treeName) == NO_TREE)
+    {
+      setRoot(treeName, NO_PAGE);
+    }
+  }
+
+  /**
+   * Deletes a tree and all its records.
+   *
+   * @param treeName
+   *          the name of the tree
+   */
+  void deleteTree(String treeName)
+  {
+    final long root = root(treeName);
+    if (root != NO_TREE)
+    {
+      releaseTree(root);
+      setRoot(treeName, NO_TREE);
+    }
+  }
+
+  /**
+   * Adds or replaces a record, creating the tree if it does not exist.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param key
+   *          the key of the record
+   * @param value
+   *          the value of the record
+   */
+  void put(String treeName, byte[] key, byte[] value)
+  {
+    if (key.length > Node.MAX_KEY_SIZE)
+    {
+      throw new StorageRuntimeException(ERR_MDB_KEY_TOO_LARGE.get(key.length, Node.MAX_KEY_SIZE).toString());
+    }
+    setRoot(treeName, put(Math.max(root(treeName), NO_PAGE), key, value));
+  }
+
+  /**
+   * Deletes a record.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @param key
+   *          the key of the record
+   * @return {@code true} if the record existed
+   */
+  boolean delete(String treeName, byte[] key)
+  {
+    final long root = root(treeName);
+    if (get(root, key) == null)
+    {
+      return false;
+    }
+    setRoot(treeName, delete(root, key));
+    return true;
+  }
+
+  private void setRoot(String treeName, long root)
+  {
+    roots.put(treeName, root);
+    modifiedTrees.add(treeName);
+    modificationCount++;
+  }
+
+  /**
+   * Commits the changes made by this transaction.
+   *
+   * @param sync
+   *          whether the changes must be forced to disk before returning
+   */
+  void commit(boolean sync)
+  {
+    for (String treeName : modifiedTrees)
+    {
+      final long root = roots.get(treeName);
+      final byte[] key = catalogKey(treeName);
+      if (root != NO_TREE)
+      {
+        catalogRoot = put(catalogRoot, key, encodeRoot(root));
+      }
+      else if (get(catalogRoot, key) != null)
+      {
+        catalogRoot = delete(catalogRoot, key);
+      }
+    }
+    modifiedTrees.clear();
+    if (dirtyNodes.isEmpty() && releasedPages.isEmpty())
+    {
+      return;
+    }
+    for (Node node : dirtyNodes.values())
+    {
+      file.write(node);
+    }
+    file.commit(catalogRoot, releasedPages, sync);
+    dirtyNodes.clear();
+    allocatedPages.clear();
+    releasedPages = new ArrayList<>();
+    modificationCount++;
+    file.reclaimPendingFreePages();
+  }
+
+  /** Discards the changes made by this transaction, which must not be used anymore. */
+  void abort()
+  {
+    for (long page : allocatedPages)
+    {
+      file.release(page);
+    }
+    dirtyNodes.clear();
+    allocatedPages.clear();
+    releasedPages.clear();
+  }
+
+  private long put(long root, byte[] key, byte[] value)
+  {
+    final Node node = root != NO_PAGE ? modify(root) : newNode(true);
+    final Node right = insert(node, key, value);
+    if (right == null)
+    {
+      return node.page();
+    }
+    final Node newRoot = newNode(false);
+    newRoot.insertChild(0, node.key(0), node.page(), subtreeCount(node));
+    newRoot.insertChild(1, right.key(0), right.page(), subtreeCount(right));
+    return newRoot.page();
+  }
+
+  /** Inserts a record in the sub-tree of a node, returning the new right sibling of the node if it was split. */
+  private Node insert(Node node, byte[] key, byte[] value)
+  {
+    int index;
+    if (node.isLeaf())
+    {
+      index = search(node, key);
+      if (index >= 0)
+      {
+        release(node.setValue(index, newValue(value)));
+      }
+      else
+      {
+        index = -index - 1;
+        node.insertRecord(index, key, newValue(value));
+      }
+    }
+    else
+    {
+      index = childIndex(node, key);
+      final Node child = modify(node.child(index));
+      final Node right = insert(child, key, value);
+      node.setChild(index, child.page(), subtreeCount(child));
+      if (right != null)
+      {
+        node.insertChild(++index, right.key(0), right.page(), subtreeCount(right));
+      }
+    }
+    return node.fits() ? null : split(node, index);
+  }
+
+  private Node split(Node node, int insertedIndex)
+  {
+    final Node right = node.split(node.splitIndex(insertedIndex), allocate(1));
+    dirtyNodes.put(right.page(), right);
+    return right;
+  }
+
+  private long delete(long root, byte[] key)
+  {
+    final Node node = modify(root);
+    remove(node, key);
+    if (node.size() == 0)
+    {
+      releaseNode(node.page());
+      return NO_PAGE;
+    }
+    // collapse the branches left with a single child
+    long newRoot = node.page();
+    NodeView view = node;
+    while (!view.isLeaf() && view.size() == 1)
+    {
+      final long child = view.child(0);
+      releaseNode(newRoot);
+      newRoot = child;
+      view = node(newRoot);
+    }
+    return newRoot;
+  }
+
+  /** Removes an existing record from the sub-tree of a node, merging the nodes left underfull when possible. */
+  private void remove(Node node, byte[] key)
+  {
+    if (node.isLeaf())
+    {
+      release(node.removeRecord(search(node, key)));
+      return;
+    }
+    final int index = childIndex(node, key);
+    final Node child = modify(node.child(index));
+    remove(child, key);
+    if (child.size() == 0)
+    {
+      releaseNode(child.page());
+      node.removeChild(index);
+      return;
+    }
+    node.setChild(index, child.page(), subtreeCount(child));
+    if (child.isUnderfull() && node.size() > 1)
+    {
+      final int leftIndex = index + 1 < node.size() ? index : index - 1;
+      final byte[] separator = node.key(leftIndex + 1);
+      if (Node.mergedBytes(node(node.child(leftIndex)), node(node.child(leftIndex + 1)), separator) <= PAGE_SIZE)
+      {
+        merge(node, leftIndex, separator);
+      }
+    }
+  }
+
+  private void merge(Node parent, int leftIndex, byte[] separator)
+  {
+    final Node left = modify(parent.child(leftIndex));
+    final Node right = modify(parent.child(leftIndex + 1));
+    left.merge(right, separator);
+    releaseNode(right.page());
+    parent.removeChild(leftIndex + 1);
+    parent.setChild(leftIndex, left.page(), subtreeCount(left));
+  }
+
+  /** Releases all the pages of a sub-tree. */
+  private void releaseTree(long page)
+  {
+    if (page == NO_PAGE)
+    {
+      return;
+    }
+    final NodeView node = node(page);
+    for (int i = 0; i < node.size(); i++)
+    {
+      if (!node.isLeaf())
+      {
+        releaseTree(node.child(i));
+      }
+      else if (node.overflowPage(i) != NO_PAGE)
+      {
+        release(new Value(node.overflowPage(i), node.valueLength(i)));
+      }
+    }
+    releaseNode(page);
+  }
+
+  /** Returns the modifiable copy of the node held by a page, copying the node if it was not modified yet. */
+  private Node modify(long page)
+  {
+    Node node = dirtyNodes.get(page);
+    if (node == null)
+    {
+      node = Node.copyOf(file, new Page(file, page), allocate(1));
+      release(page);
+      dirtyNodes.put(node.page(), node);
+    }
+    return node;
+  }
+
+  private Node newNode(boolean leaf)
+  {
+    final Node node = new Node(file, allocate(1), leaf);
+    dirtyNodes.put(node.page(), node);
+    return node;
+  }
+
+  private void releaseNode(long page)
+  {
+    dirtyNodes.remove(page);
+    release(page);
+  }
+
+  private Value newValue(byte[] value)
+  {
+    if (value.length <= Node.MAX_INLINE_VALUE_SIZE)
+    {
+      return new Value(value);
+    }
+    final long page = allocate(overflowPageCount(value.length));
+    file.write(page, value);
+    return new Value(page, value.length);
+  }
+
+  private void release(Value value)
+  {
+    if (value.overflowPage() != NO_PAGE)
+    {
+      for (int i = 0; i < overflowPageCount(value.length()); i++)
+      {
+        release(value.overflowPage() + i);
+      }
+    }
+  }
+
+  private long allocate(int count)
+  {
+    final long page = file.allocate(count);
+    for (int i = 0; i < count; i++)
+    {
+      allocatedPages.add(page + i);
+    }
+    return page;
+  }
+
+  private void release(long page)
+  {
+    if (allocatedPages.remove(page))
+    {
+      // never committed: no reader can reference it
+      file.release(page);
+    }
+    else
+    {
+      releasedPages.add(page);
+    }
+  }
+}
@@ -56,6 +56,7 @@ import org.opends.server.api.DiskSpaceMonitorHandler;
 import org.opends.server.backends.pluggable.spi.EmptyCursor;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.GroupCommit;
 import org.opends.server.backends.pluggable.spi.Importer;
 import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -520,6 +521,15 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       }
     }
 
+    @Override
+    public List<ByteString> read(final TreeName treeName, final List<? extends ByteSequence> sortedKeys)
+    {
+      try (final Cursor<ByteString, ByteString> cursor = openCursor(treeName))
+      {
+        return readSortedKeys(cursor, sortedKeys);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -626,6 +636,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     @Override
     public void write(WriteOperation operation) throws Exception
     {
+      final GroupCommit groupCommit = PDBStorage.this.groupCommit;
       final Transaction txn = db.getTransaction();
       for (;;)
       {
@@ -635,8 +646,8 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
           try
           {
             operation.run(this);
-            txn.commit(commitPolicy);
-            return;
+            txn.commit(groupCommit != null ? SOFT : commitPolicy);
+            break;
           }
           catch (final StorageRuntimeException e)
           {
@@ -658,6 +669,11 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
           txn.end();
         }
       }
+      if (groupCommit != null)
+      {
+        // The transaction has ended: wait for the journal to be synchronized with the other commits
+        groupCommit.awaitDurable();
+      }
     }
   }
 
@@ -676,6 +692,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return delegate.read(treeName, sortedKeys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -805,6 +827,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return null;
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      return Collections.nCopies(sortedKeys.size(), (ByteString) null);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -863,6 +891,8 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
   private final ServerContext serverContext;
   private final File backendDirectory;
   private CommitPolicy commitPolicy;
+  /** It is NULL when commits are not grouped. */
+  private volatile GroupCommit groupCommit;
   private AccessMode accessMode;
   /** It is NULL when opening the storage READ-ONLY and no files have been created yet. */
   private Persistit db;
@@ -938,6 +968,7 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
     {
       DirectoryServer.deregisterMonitorProvider(monitor);
       monitor = null;
+      groupCommit = null;
       try
       {
         db.close();
@@ -1030,6 +1061,36 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       throw new StorageRuntimeException(e);
     }
     registerMonitoredDirectory(config);
+    configureGroupCommit(config);
+  }
+
+  private void configureGroupCommit(PDBBackendCfg cfg)
+  {
+    if (!cfg.isGroupCommitEnabled() || commitPolicy == SOFT)
+    {
+      groupCommit = null;
+    }
+    else if (groupCommit != null)
+    {
+      groupCommit.setLimits(cfg.getGroupCommitMaxBatchSize(), cfg.getGroupCommitMaxDelay());
+    }
+    else
+    {
+      groupCommit = new GroupCommit(new GroupCommit.LogSynchronizer()
+      {
+        @Override
+        public void synchronize() throws PersistitException
+        {
+          db.force();
+        }
+      }, cfg.getGroupCommitMaxBatchSize(), cfg.getGroupCommitMaxDelay());
+    }
+  }
+
+  @Override
+  public GroupCommit getGroupCommit()
+  {
+    return groupCommit;
   }
 
   @Override
@@ -1394,6 +1455,10 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       registerMonitoredDirectory(cfg);
       config = cfg;
       commitPolicy = config.isDBTxnNoSync() ? SOFT : GROUP;
+      if (db != null)
+      {
+        configureGroupCommit(cfg);
+      }
     }
     catch (Exception e)
     {
@@ -299,7 +299,7 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     this.config = config;
     this.state = state;
     this.cryptoSuite = cryptoSuite;
-    this.indexingOptions = new IndexingOptionsImpl(config.getSubstringLength());
+    this.indexingOptions = new IndexingOptionsImpl(config);
     this.indexIdToIndexes = Collections.unmodifiableMap(buildIndexes(entryContainer, state, config, cryptoSuite));
   }
 
@@ -308,9 +308,10 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
   {
     final AttributeType attributeType = config.getAttribute();
     final int indexEntryLimit = config.getIndexEntryLimit();
-    final IndexingOptions indexingOptions = new IndexingOptionsImpl(config.getSubstringLength());
+    final IndexingOptions indexingOptions = new IndexingOptionsImpl(config);
 
     Map<Indexer, Boolean> indexers = new HashMap<>();
+    Map<Indexer, Boolean> substringIndexers = new HashMap<>();
     for(IndexType indexType : config.getIndexType()) {
       switch (indexType)
       {
@@ -326,7 +327,7 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
             indexingOptions));
         break;
       case SUBSTRING:
-        indexers.putAll(buildBaseIndexers(false, config.isConfidentialityEnabled(), indexType, attributeType,
+        substringIndexers.putAll(buildBaseIndexers(false, config.isConfidentialityEnabled(), indexType, attributeType,
             indexingOptions));
         break;
       case APPROXIMATE:
@@ -337,7 +338,12 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
         throw noMatchingRuleForIndexType(attributeType, indexType);
       }
     }
-    return buildIndexesForIndexers(entryContainer, attributeType, state, indexEntryLimit, indexers, cryptoSuite);
+    final Integer substringIndexEntryLimit = config.getSubstringIndexEntryLimit();
+    final Map<String, MatchingRuleIndex> indexes =
+        buildIndexesForIndexers(entryContainer, attributeType, state, indexEntryLimit, indexers, cryptoSuite);
+    indexes.putAll(buildIndexesForIndexers(entryContainer, attributeType, state,
+        substringIndexEntryLimit != null ? substringIndexEntryLimit : indexEntryLimit, substringIndexers, cryptoSuite));
+    return indexes;
   }
 
   private Map<Indexer, Boolean> buildBaseIndexers(boolean protectIndexKeys, boolean protectIndexValues,
@@ -765,6 +771,29 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
+  /**
+   * Estimates the number of entry IDs that might match a filter without reading the indexes.
+   *
+   * @param indexQueryFactory the index query factory to use for the estimation
+   * @param indexFilterType the index type filter
+   * @param filter The filter.
+   * @return The estimated number of candidate entry IDs, as returned by {@link IndexQuery#estimateSize()}.
+   */
+  static long estimateFilter(IndexQueryFactory<IndexQuery> indexQueryFactory, IndexFilterType indexFilterType,
+      SearchFilter filter)
+  {
+    try
+    {
+      return getIndexQuery(indexQueryFactory, indexFilterType, filter).estimateSize();
+    }
+    catch (DecodeException e)
+    {
+      // The filter will be evaluated to an empty set
+      logger.traceException(e);
+      return 0;
+    }
+  }
+
   private static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
       IndexFilterType indexFilterType, SearchFilter filter) throws DecodeException
   {
@@ -905,7 +934,7 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
   public synchronized ConfigChangeResult applyConfigurationChange(final BackendIndexCfg newConfiguration)
   {
     final ConfigChangeResult ccr = new ConfigChangeResult();
-    final IndexingOptions newIndexingOptions = new IndexingOptionsImpl(newConfiguration.getSubstringLength());
+    final IndexingOptions newIndexingOptions = new IndexingOptionsImpl(newConfiguration);
     try
     {
       final Map<String, MatchingRuleIndex> newIndexIdToIndexes = buildIndexes(entryContainer, state, newConfiguration,
@@ -920,6 +949,13 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
       final Map<String, MatchingRuleIndex> updatedIndexes = new HashMap<>(indexIdToIndexes);
       updatedIndexes.keySet().retainAll(newIndexIdToIndexes.keySet());
 
+      // Each updated index takes the index entry limit of its newly built counterpart
+      final Map<String, Integer> newIndexEntryLimits = new HashMap<>();
+      for (String indexId : updatedIndexes.keySet())
+      {
+        newIndexEntryLimits.put(indexId, newIndexIdToIndexes.get(indexId).getIndexEntryLimit());
+      }
+
       // Replace instances of Index created by buildIndexes() with the one already opened and present in the actual
       // indexIdToIndexes
       newIndexIdToIndexes.putAll(updatedIndexes);
@@ -967,12 +1003,14 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
         @Override
         public void run(WriteableTransaction txn) throws Exception
         {
-          for (final Index updatedIndex : updatedIndexes.values())
+          for (final Map.Entry<String, MatchingRuleIndex> updatedIndex : updatedIndexes.entrySet())
           {
-            updateIndex(updatedIndex, newConfiguration, ccr, txn);
+            updateIndex(updatedIndex.getValue(), newIndexEntryLimits.get(updatedIndex.getKey()), newConfiguration, ccr,
+                txn);
           }
         }
       });
+      entryContainer.clearSearchResultCache();
     }
     catch (Exception e)
     {
@@ -993,11 +1031,11 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static void updateIndex(Index updatedIndex, BackendIndexCfg newConfig, ConfigChangeResult ccr,
-      WriteableTransaction txn)
+  private static void updateIndex(Index updatedIndex, int newIndexEntryLimit, BackendIndexCfg newConfig,
+      ConfigChangeResult ccr, WriteableTransaction txn)
   {
     // This index could still be used since a new smaller index size limit doesn't impact validity of the results.
-    boolean newLimitRequiresRebuild = updatedIndex.setIndexEntryLimit(newConfig.getIndexEntryLimit());
+    boolean newLimitRequiresRebuild = updatedIndex.setIndexEntryLimit(newIndexEntryLimit);
     if (newLimitRequiresRebuild)
     {
       ccr.setAdminActionRequired(true);
@@ -1155,10 +1193,13 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
   {
     /** The length of substring keys used in substring indexes. */
     private int substringKeySize;
+    /** Whether substring indexes store positional n-grams. */
+    private boolean substringPositionalNGrams;
 
-    private IndexingOptionsImpl(int substringKeySize)
+    private IndexingOptionsImpl(BackendIndexCfg config)
     {
-      this.substringKeySize = substringKeySize;
+      this.substringKeySize = config.getSubstringLength();
+      this.substringPositionalNGrams = config.isSubstringNgramIndexEnabled();
     }
 
     @Override
@@ -1166,6 +1207,12 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     {
       return substringKeySize;
     }
+
+    @Override
+    public boolean substringPositionalNGrams()
+    {
+      return substringPositionalNGrams;
+    }
   }
 
   void closeAndDelete(WriteableTransaction txn)
@@ -21,6 +21,7 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.ServerConstants.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
@@ -42,11 +43,14 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
 import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
 import org.opends.server.api.LocalBackend;
+import org.opends.server.api.MonitorData;
 import org.opends.server.api.MonitorProvider;
 import org.opends.server.backends.RebuildConfig;
 import org.opends.server.backends.VerifyConfig;
 import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.GroupCommit;
 import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageInUseException;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
@@ -87,6 +91,9 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The file, in the directory of the storage, where the preload snapshot of the backend is saved. */
+  private static final String PRELOAD_SNAPSHOT_FILE = "preload.snapshot";
+
   /** The configuration of this backend. */
   private PluggableBackendCfg cfg;
   /** The root container to use for this backend. */
@@ -102,6 +109,13 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
 
   /** The underlying storage engine. */
   private Storage storage;
+  /**
+   * The keys read from the storage, preloaded when the backend is opened again. {@code null} if the storage has no
+   * directory where to save them.
+   */
+  private PreloadSnapshot preloadSnapshot;
+  /** The metrics of the trees of the storage. */
+  private StorageMetrics storageMetrics;
 
   /** The controls supported by this backend. */
   private static final Set<String> supportedControls = CollectionUtils.newHashSet(
@@ -168,7 +182,14 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     this.cfg = cfg;
     this.serverContext = serverContext;
     baseDNs = new HashSet<>(cfg.getBaseDN());
-    storage = new TracedStorage(configureStorage(cfg, serverContext), cfg.getBackendId());
+    final Storage configuredStorage = configureStorage(cfg, serverContext);
+    preloadSnapshot = configuredStorage instanceof Backupable
+        ? new PreloadSnapshot(cfg.getBackendId(),
+            new File(((Backupable) configuredStorage).getDirectory(), PRELOAD_SNAPSHOT_FILE))
+        : null;
+    storageMetrics = new StorageMetrics();
+    storageMetrics.setEnabled(cfg.isStorageMetricsEnabled());
+    storage = new TracedStorage(configuredStorage, cfg.getBackendId(), preloadSnapshot, storageMetrics);
   }
 
   @Override
@@ -180,7 +201,12 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     }
 
     // Preload the tree cache.
-    rootContainer.preload(cfg.getPreloadTimeLimit());
+    rootContainer.preload(cfg.getPreloadTimeLimit(), preloadSnapshot);
+    if (preloadSnapshot != null)
+    {
+      preloadSnapshot.setRootContainer(rootContainer);
+      preloadSnapshot.start(cfg.getPreloadSnapshotInterval());
+    }
 
     try
     {
@@ -206,7 +232,9 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     }
 
     // Register a monitor provider for the environment.
-    rootContainerMonitor = rootContainer.getMonitorProvider();
+    final BackendMonitor backendMonitor = rootContainer.getMonitorProvider();
+    backendMonitor.setStorageMetrics(storageMetrics);
+    rootContainerMonitor = backendMonitor;
     DirectoryServer.registerMonitorProvider(rootContainerMonitor);
 
     // Register this backend as a change listener.
@@ -237,6 +265,11 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     // backend, but there may be existing operations already in the
     // backend. We need to wait for them to finish.
     waitUntilQuiescent();
+    if (preloadSnapshot != null)
+    {
+      preloadSnapshot.stop();
+      preloadSnapshot.setRootContainer(null);
+    }
 
     // Close RootContainer and Storage.
     try
@@ -288,6 +321,33 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
     }
   }
 
+  @Override
+  public void addBackendMonitorData(MonitorData monitorData)
+  {
+    final GroupCommit groupCommit = storage != null ? storage.getGroupCommit() : null;
+    if (groupCommit != null)
+    {
+      monitorData.add(ATTR_MONITOR_BACKEND_GROUP_COMMIT_BATCH_SIZE, groupCommit.getBatchSizeHistogram());
+      monitorData.add(ATTR_MONITOR_BACKEND_GROUP_COMMIT_LATENCY, groupCommit.getCommitLatencyHistogram());
+    }
+    if (rootContainer != null && cfg.getSearchResultCacheSize() > 0)
+    {
+      long hitCount = 0;
+      long missCount = 0;
+      long invalidationCount = 0;
+      for (EntryContainer ec : rootContainer.getEntryContainers())
+      {
+        final SearchResultCache searchResultCache = ec.getSearchResultCache();
+        hitCount += searchResultCache.getHitCount();
+        missCount += searchResultCache.getMissCount();
+        invalidationCount += searchResultCache.getInvalidationCount();
+      }
+      monitorData.add(ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_HITS, hitCount);
+      monitorData.add(ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_MISSES, missCount);
+      monitorData.add(ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_INVALIDATIONS, invalidationCount);
+    }
+  }
+
   @Override
   public Set<String> getSupportedFeatures()
   {
@@ -846,6 +906,12 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
 
             baseDNs = new HashSet<>(newBaseDNs);
 
+            if (preloadSnapshot != null && newCfg.getPreloadSnapshotInterval() != cfg.getPreloadSnapshotInterval())
+            {
+              preloadSnapshot.start(newCfg.getPreloadSnapshotInterval());
+            }
+            storageMetrics.setEnabled(newCfg.isStorageMetricsEnabled());
+
             // Put the new configuration in place.
             cfg = newCfg;
           }
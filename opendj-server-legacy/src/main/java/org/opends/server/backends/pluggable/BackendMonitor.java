@@ -80,6 +80,8 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
   private final HashMap<SearchFilter, FilterStats> filterToStats = new HashMap<>();
   private final AtomicInteger indexedSearchCount = new AtomicInteger();
   private final AtomicInteger unindexedSearchCount = new AtomicInteger();
+  /** The metrics of the trees of the storage, or null if they are not available. */
+  private StorageMetrics storageMetrics;
 
   /**
    * Creates a new backend monitor.
@@ -118,6 +120,12 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
       monitorAttrs.add("filter-use-unindexed", unindexedSearchCount);
     }
 
+    if (storageMetrics != null && storageMetrics.isEnabled())
+    {
+      monitorAttrs.add("storage-metrics-startTime", storageMetrics.getStartTime());
+      monitorAttrs.add("storage-metrics", storageMetrics.toMonitorValues());
+    }
+
     return monitorAttrs;
   }
 
@@ -253,6 +261,16 @@ class BackendMonitor extends MonitorProvider<MonitorProviderCfg>
     return filterUseEnabled;
   }
 
+  /**
+   * Sets the metrics of the trees of the storage to report.
+   *
+   * @param storageMetrics The metrics of the trees of the storage.
+   */
+  void setStorageMetrics(StorageMetrics storageMetrics)
+  {
+    this.storageMetrics = storageMetrics;
+  }
+
   /**
    * Sets the maximum number of search filters statistics entries to keep
    * before ones with the least hits will be removed.
@@ -0,0 +1,200 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Trains a preset dictionary for the deflate compression of entries from a sample of encoded entries.
+ * <p>
+ * Entries are too small to compress well on their own, but entries of a backend have a lot in common:
+ * attribute descriptions, object classes, DN suffixes or value prefixes. The trainer finds the byte
+ * sequences which are shared by the most sampled entries and concatenates them, so that deflate can
+ * refer to them instead of encoding them in each entry. The most frequent sequences are put at the end
+ * of the dictionary where they can be referred to with the shortest distances.
+ * <p>
+ * This class is thread safe.
+ */
+final class CompressionDictionaryTrainer
+{
+  /** The maximum size of a dictionary, which is the size of the deflate window. */
+  static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+  /** Number of entries sampled before the dictionary is trained. */
+  static final int SAMPLE_COUNT = 1000;
+  /** The minimum number of sampled entries needed to train a useful dictionary. */
+  static final int MIN_SAMPLE_COUNT = 100;
+  /** The maximum number of bytes sampled from each entry. */
+  private static final int MAX_SAMPLE_SIZE = 4096;
+  /** Length of the byte sequences counted across the samples. */
+  private static final int SEGMENT_LENGTH = 8;
+  /** Number of bits of the hash of the segments, sized so that few distinct segments share the same counter. */
+  private static final int FREQUENCY_TABLE_BITS = 20;
+
+  private final List<byte[]> samples = new ArrayList<>(SAMPLE_COUNT);
+
+  /**
+   * Adds an encoded entry to the sample.
+   *
+   * @param encodedEntry
+   *          the encoded entry, before compression
+   * @return {@code true} if enough entries have been sampled to train the dictionary
+   */
+  synchronized boolean addSample(ByteSequence encodedEntry)
+  {
+    if (samples.size() < SAMPLE_COUNT)
+    {
+      samples.add(encodedEntry.subSequence(0, Math.min(encodedEntry.length(), MAX_SAMPLE_SIZE)).toByteArray());
+    }
+    return samples.size() >= SAMPLE_COUNT;
+  }
+
+  /**
+   * Returns the number of entries sampled so far.
+   *
+   * @return the number of entries sampled so far
+   */
+  synchronized int getSampleCount()
+  {
+    return samples.size();
+  }
+
+  /**
+   * Trains a dictionary from the sampled entries.
+   *
+   * @return the dictionary, which is empty if the sampled entries do not have anything in common
+   */
+  synchronized ByteString train()
+  {
+    final int[] segmentFrequencies = countSegments();
+    // Ignore the segments only found in a few entries, they would waste space in the dictionary.
+    final int minFrequency = Math.max(2, samples.size() / 100);
+
+    // Collect the runs of bytes which are shared with other sampled entries, scored by how much they are shared.
+    final Map<ByteString, long[]> runScores = new HashMap<>();
+    for (byte[] sample : samples)
+    {
+      int runStart = -1;
+      long runScore = 0;
+      for (int i = 0; i + SEGMENT_LENGTH <= sample.length; i++)
+      {
+        final int frequency = segmentFrequencies[hashSegmentAt(sample, i)];
+        if (frequency >= minFrequency)
+        {
+          if (runStart < 0)
+          {
+            runStart = i;
+            runScore = 0;
+          }
+          runScore += frequency;
+        }
+        else if (runStart >= 0)
+        {
+          addRun(runScores, sample, runStart, i - 1 + SEGMENT_LENGTH, runScore);
+          runStart = -1;
+        }
+      }
+      if (runStart >= 0)
+      {
+        addRun(runScores, sample, runStart, sample.length, runScore);
+      }
+    }
+
+    final List<Map.Entry<ByteString, long[]>> runs = new ArrayList<>(runScores.entrySet());
+    Collections.sort(runs, new Comparator<Map.Entry<ByteString, long[]>>()
+    {
+      @Override
+      public int compare(Map.Entry<ByteString, long[]> r1, Map.Entry<ByteString, long[]> r2)
+      {
+        return Long.compare(r2.getValue()[0], r1.getValue()[0]);
+      }
+    });
+
+    final List<ByteString> selectedRuns = new ArrayList<>();
+    int dictionarySize = 0;
+    for (Map.Entry<ByteString, long[]> run : runs)
+    {
+      final int length = run.getKey().length();
+      if (dictionarySize + length <= MAX_DICTIONARY_SIZE)
+      {
+        selectedRuns.add(run.getKey());
+        dictionarySize += length;
+      }
+    }
+
+    final ByteStringBuilder dictionary = new ByteStringBuilder(dictionarySize);
+    for (int i = selectedRuns.size() - 1; i >= 0; i--)
+    {
+      dictionary.appendBytes(selectedRuns.get(i));
+    }
+    return dictionary.toByteString();
+  }
+
+  /**
+   * Counts, for each segment, the number of sampled entries containing it. Segments are identified by their
+   * hash in order to bound the memory used: collisions only make some segments look more frequent than they are.
+   */
+  private int[] countSegments()
+  {
+    final int[] segmentFrequencies = new int[1 << FREQUENCY_TABLE_BITS];
+    // Index of the last sample in which each segment was seen, so that segments are only counted once per sample
+    final int[] lastSamples = new int[1 << FREQUENCY_TABLE_BITS];
+    for (int sampleIndex = 0; sampleIndex < samples.size(); sampleIndex++)
+    {
+      final byte[] sample = samples.get(sampleIndex);
+      for (int i = 0; i + SEGMENT_LENGTH <= sample.length; i++)
+      {
+        final int segment = hashSegmentAt(sample, i);
+        if (lastSamples[segment] != sampleIndex + 1)
+        {
+          segmentFrequencies[segment]++;
+          lastSamples[segment] = sampleIndex + 1;
+        }
+      }
+    }
+    return segmentFrequencies;
+  }
+
+  private static void addRun(Map<ByteString, long[]> runScores, byte[] sample, int start, int end, long score)
+  {
+    final ByteString run = ByteString.wrap(sample, start, end - start);
+    long[] runScore = runScores.get(run);
+    if (runScore == null)
+    {
+      runScore = new long[1];
+      runScores.put(run, runScore);
+    }
+    runScore[0] += score;
+  }
+
+  private static int hashSegmentAt(byte[] sample, int offset)
+  {
+    long segment = 0;
+    for (int i = offset; i < offset + SEGMENT_LENGTH; i++)
+    {
+      segment = (segment << 8) | (sample[i] & 0xff);
+    }
+    return (int) ((segment * 0x9e3779b97f4a7c15L) >>> (Long.SIZE - FREQUENCY_TABLE_BITS));
+  }
+}
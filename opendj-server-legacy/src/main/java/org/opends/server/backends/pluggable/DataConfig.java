@@ -33,6 +33,7 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private boolean compressionDictionary;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +56,12 @@ final class DataConfig
       return this;
     }
 
+    public Builder compressionDictionary(boolean enabled)
+    {
+      this.compressionDictionary = enabled;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -81,6 +88,9 @@ final class DataConfig
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
 
+  /** Indicates whether compressed data should be compressed against a dictionary shared by the tree records. */
+  private final boolean compressionDictionary;
+
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
 
@@ -95,6 +105,7 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.compressionDictionary = builder.compressionDictionary;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +126,11 @@ final class DataConfig
     return compressed;
   }
 
+  boolean isCompressedWithDictionary()
+  {
+    return compressed && compressionDictionary;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +152,8 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    builder.append(", compressionDictionary=");
+    builder.append(compressionDictionary);
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -54,6 +54,8 @@ class DefaultIndex extends AbstractTree implements Index
 
   private EntryIDSetCodec codec;
   private CryptoSuite cryptoSuite;
+  /** Estimated number of entry IDs referenced by each key, used to plan index queries. */
+  private final IndexStatistics statistics = new IndexStatistics();
 
   /**
    * A flag to indicate if this index should be trusted to be consistent with the entries tree.
@@ -66,6 +68,12 @@ class DefaultIndex extends AbstractTree implements Index
    * </ul>
    */
   private volatile boolean trusted;
+  /**
+   * Indicates whether this index is being built while the backend is online. The index is not trusted until the
+   * build completes, but updates are applied as if it was, so that the changes made to entries already indexed by
+   * the builder are not lost.
+   */
+  private volatile boolean building;
 
   /**
    * Create a new index object.
@@ -95,12 +103,15 @@ class DefaultIndex extends AbstractTree implements Index
   @Override
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
-    final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
-    codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
-    if (cryptoSuite.isEncrypted())
+    EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
+    if (createOnDemand && entryContainer.isIndexBitmapEncodingEnabled()
+        && flags.contains(COMPACTED) && !flags.contains(BITMAP))
     {
-      codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
+      // The bitmap codec reads compacted records: they will be converted as they get updated.
+      state.addFlagsToIndex(txn, getName(), BITMAP);
+      flags = state.getIndexFlags(txn, getName());
     }
+    setCodec(flags);
     trusted = flags.contains(TRUSTED);
     if (createOnDemand && !trusted && entryContainer.isEmpty(txn))
     {
@@ -110,6 +121,45 @@ class DefaultIndex extends AbstractTree implements Index
     }
   }
 
+  private void setCodec(EnumSet<IndexFlag> flags)
+  {
+    if (flags.contains(BITMAP))
+    {
+      codec = CODEC_V4;
+    }
+    else
+    {
+      codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    }
+    if (cryptoSuite.isEncrypted())
+    {
+      codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
+    }
+  }
+
+  @Override
+  final void beforeDelete(WriteableTransaction txn)
+  {
+    // The index is about to be emptied (e.g. by rebuild-index or import): switch it to the configured encoding,
+    // which is the only way to convert legacy records or to go back from bitmap to compacted records.
+    statistics.clear();
+    final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
+    final boolean bitmapEncoding = entryContainer.isIndexBitmapEncodingEnabled();
+    if (bitmapEncoding && !flags.containsAll(EnumSet.of(COMPACTED, BITMAP)))
+    {
+      state.addFlagsToIndex(txn, getName(), COMPACTED, BITMAP);
+    }
+    else if (!bitmapEncoding && flags.contains(BITMAP))
+    {
+      state.removeFlagsFromIndex(txn, getName(), BITMAP);
+    }
+    else
+    {
+      return;
+    }
+    setCodec(state.getIndexFlags(txn, getName()));
+  }
+
   @Override
   public String valueToString(ByteString value)
   {
@@ -179,7 +229,7 @@ class DefaultIndex extends AbstractTree implements Index
      * Avoid taking a write lock on a record which has hit all IDs because it is likely to be a
      * point of contention.
      */
-    if (!get(txn, key).isDefined())
+    if (!building && !get(txn, key).isDefined())
     {
       return;
     }
@@ -200,9 +250,9 @@ class DefaultIndex extends AbstractTree implements Index
            */
           return entryIDSet.size() == 0 ? null : toValue(entryIDSet);
         }
-        else if (trusted)
+        else if (trusted || building)
         {
-          if (deletedIDs != null)
+          if (deletedIDs != null && trusted)
           {
             logIndexCorruptError(txn, key);
           }
@@ -216,6 +266,12 @@ class DefaultIndex extends AbstractTree implements Index
     });
   }
 
+  @Override
+  public final void updateStatistics(ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs)
+  {
+    statistics.add(key, (addedIDs != null ? addedIDs.size() : 0) - (deletedIDs != null ? deletedIDs.size() : 0));
+  }
+
   private static boolean isNullOrEmpty(EntryIDSet entryIDSet)
   {
     return entryIDSet == null || entryIDSet.size() == 0;
@@ -274,7 +330,9 @@ class DefaultIndex extends AbstractTree implements Index
       ByteString value = txn.read(getName(), key);
       if (value != null)
       {
-        return decodeValue(key, value);
+        final EntryIDSet entryIDSet = decodeValue(key, value);
+        statistics.observe(key, entryIDSet.isDefined() ? entryIDSet.size() : indexEntryLimit);
+        return entryIDSet;
       }
       return trusted ? newDefinedSet() : newUndefinedSet();
     }
@@ -285,6 +343,28 @@ class DefaultIndex extends AbstractTree implements Index
     }
   }
 
+  /**
+   * Returns the estimated number of entry IDs referenced by the provided key.
+   * <p>
+   * The estimate is capped to the index entry limit rather than reported as
+   * {@link IndexQuery#UNDEFINED_ESTIMATE}: the statistics overestimate the counts of keys sharing
+   * their counters with larger keys, so the query must not be skipped on the basis of this estimate.
+   *
+   * @param key
+   *          the index key
+   * @return the estimated number of entry IDs
+   */
+  final long estimateSize(ByteSequence key)
+  {
+    final long estimate = statistics.estimate(key);
+    return indexEntryLimit > 0 ? Math.min(estimate, indexEntryLimit) : estimate;
+  }
+
+  final IndexStatistics getStatistics()
+  {
+    return statistics;
+  }
+
   @Override
   public final boolean setIndexEntryLimit(int indexEntryLimit)
   {
@@ -325,6 +405,23 @@ class DefaultIndex extends AbstractTree implements Index
     return trusted;
   }
 
+  /**
+   * Specifies whether this index is being built while the backend is online. Keys missing from an index being built
+   * are created by updates, and missing deleted keys are ignored, since the builder may not have reached them yet.
+   *
+   * @param building
+   *          {@code true} while the index is being built
+   */
+  final void setBuilding(boolean building)
+  {
+    this.building = building;
+  }
+
+  final boolean isBuilding()
+  {
+    return building;
+  }
+
   final boolean isEncrypted()
   {
     return cryptoSuite.isEncrypted();
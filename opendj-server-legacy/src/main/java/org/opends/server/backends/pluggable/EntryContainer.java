@@ -29,14 +29,21 @@ import static org.opends.server.util.StaticUtils.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -48,6 +55,7 @@ import org.forgerock.opendj.config.server.ConfigException;
 import org.forgerock.opendj.config.server.ConfigurationAddListener;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.config.server.ConfigurationDeleteListener;
+import org.forgerock.opendj.ldap.AttributeDescription;
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -56,6 +64,8 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.SortKey;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.spi.Indexer;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
@@ -125,6 +135,32 @@ public class EntryContainer
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
 
+  /**
+   * The number of candidate entries first fetched together by an indexed search. The batch size then doubles up to
+   * {@link #MAX_SEARCH_FETCH_BATCH_SIZE} so that small and paged searches do not read many entries they will not
+   * return.
+   */
+  private static final int MIN_SEARCH_FETCH_BATCH_SIZE = 8;
+  /** The maximum number of candidate entries fetched together by an indexed search. */
+  private static final int MAX_SEARCH_FETCH_BATCH_SIZE = 256;
+  /** The maximum number of candidate entries fetched together by an indexed search evaluated in parallel. */
+  private static final int MAX_PARALLEL_SEARCH_FETCH_BATCH_SIZE = 1024;
+  /** The minimum number of candidate entries decoded and filtered by each task of a parallel search evaluation. */
+  private static final int MIN_PARALLEL_SEARCH_TASK_SIZE = 16;
+  /**
+   * The minimum number of candidate entries of a sorted search for which walking an ordering index is cheaper than
+   * reading and sorting all the candidate entries.
+   */
+  private static final int MIN_ORDERING_INDEX_SORT_CANDIDATES = 1024;
+  /**
+   * The maximum number of ordering index keys walked per candidate entry of a sorted search, before sorting the
+   * candidate entries in memory instead: walking an ordering index whose keys mostly belong to other entries costs
+   * more than reading the candidate entries.
+   */
+  private static final int MAX_ORDERING_INDEX_KEYS_PER_CANDIDATE = 2;
+  /** The maximum number of entries sorted by walking an ordering index when the candidate entries are undefined. */
+  private static final int MAX_ORDERING_INDEX_SORT_CANDIDATES = 1 << 24;
+
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
   /** The vlv index configuration manager. */
@@ -158,6 +194,8 @@ public class EntryContainer
   private final Map<AttributeType, CryptoSuite> attrCryptoMap = new HashMap<>();
   /** The set of VLV (Virtual List View) indexes. */
   private final Map<String, VLVIndex> vlvIndexMap = new HashMap<>();
+  /** The candidate entry IDs cached for the search filters. */
+  private final SearchResultCache searchResultCache;
 
   /**
    * Prevents name clashes for common indexes (like id2entry) across multiple suffixes.
@@ -213,6 +251,7 @@ public class EntryContainer
             attrCryptoMap.put(cfg.getAttribute(), cryptoSuite);
           }
         });
+        clearSearchResultCache();
       }
       catch(Exception e)
       {
@@ -247,6 +286,7 @@ public class EntryContainer
             attrCryptoMap.remove(cfg.getAttribute());
           }
         });
+        clearSearchResultCache();
       }
       catch (Exception de)
       {
@@ -361,6 +401,8 @@ public class EntryContainer
     this.dn2id = new DN2ID(getIndexName(DN2ID_TREE_NAME), baseDN);
     this.dn2uri = new DN2URI(getIndexName(REFERRAL_TREE_NAME), this);
     this.state = new State(getIndexName(STATE_TREE_NAME));
+    this.searchResultCache =
+        new SearchResultCache(config.getSearchResultCacheSize(), getSearchResultCacheMaxCandidates(config));
 
     config.addPluggableChangeListener(this);
 
@@ -388,6 +430,7 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .compressionDictionary(config.isEntriesCompressionDictionaryEnabled())
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -414,11 +457,12 @@ public class EntryContainer
     boolean shouldCreate = accessMode.isWriteable();
     try
     {
-      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config));
+      // The state tree holds the compression dictionaries of id2entry
+      state.open(txn, shouldCreate);
+      id2entry = new ID2Entry(getIndexName(ID2ENTRY_TREE_NAME), newDataConfig(config), state);
       id2entry.open(txn, shouldCreate);
       id2childrenCount.open(txn, shouldCreate);
       dn2id.open(txn, shouldCreate);
-      state.open(txn, shouldCreate);
       dn2uri.open(txn, shouldCreate);
 
       final boolean isNotEmpty = !isEmpty(txn);
@@ -517,6 +561,16 @@ public class EntryContainer
     return id2entry;
   }
 
+  /**
+   * Get the state tree used by this entry container.
+   *
+   * @return The state tree.
+   */
+  State getState()
+  {
+    return state;
+  }
+
   /**
    * Get the referral tree used by this entry container.
    * The entryContainer must have been opened.
@@ -667,6 +721,8 @@ public class EntryContainer
   void search(final SearchOperation searchOperation)
   throws DirectoryException, StorageRuntimeException, CanceledOperationException
   {
+    // Read before the indexes so that candidates read before a concurrent update are not cached after it
+    final long searchResultCacheVersion = searchResultCache.getVersion();
     try
     {
       storage.read(new ReadOperation<Void>()
@@ -759,7 +815,7 @@ public class EntryContainer
           // Combining server-side sort with paged result controls
           // requires us to use an entryIDSet where the entryIDs are ordered
           // so further paging can restart where it previously stopped
-          long[] reorderedCandidateEntryIDs;
+          SearchCandidates candidates;
           if (candidateEntryIDs == null)
           {
             if (processSearchWithVirtualAttributeRule(searchOperation, true))
@@ -767,12 +823,8 @@ public class EntryContainer
               return null;
             }
 
-            // Create an index filter to get the search result candidate entries
-            IndexFilter indexFilter = new IndexFilter(
-                EntryContainer.this, txn, searchOperation, debugBuffer, rootContainer.getMonitorProvider());
-
             // Evaluate the filter against the attribute indexes.
-            candidateEntryIDs = indexFilter.evaluate();
+            candidateEntryIDs = evaluateIndexFilter(txn, searchOperation, debugBuffer);
             if (!isBelowFilterThreshold(candidateEntryIDs))
             {
               final int idSetLimit = getEntryIDSetLimit(searchOperation);
@@ -798,11 +850,11 @@ public class EntryContainer
               try
               {
                 List<SortKey> sortKeys = sortRequest.getSortKeys();
-                reorderedCandidateEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
+                candidates = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest, pageRequest);
               }
               catch (DirectoryException de)
               {
-                reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
+                candidates = orderedCandidates(candidateEntryIDs);
                 serverSideSortControlError(searchOperation, sortRequest, de);
               }
               try
@@ -830,12 +882,13 @@ public class EntryContainer
             }
             else
             {
-              reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
+              candidates = orderedCandidates(candidateEntryIDs);
             }
           }
           else
           {
-            reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
+            // VLV indexes return the candidates in sort order, not in ID order
+            candidates = reorderedCandidates(candidateEntryIDs.toLongArray());
           }
 
           // If requested, construct and return a fictitious entry containing
@@ -850,10 +903,19 @@ public class EntryContainer
             return null;
           }
 
-          if (reorderedCandidateEntryIDs != null)
+          if (candidates != null)
           {
-            rootContainer.getMonitorProvider().incrementIndexedSearchCount();
-            searchIndexed(txn, reorderedCandidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
+            if (candidateEntryIDs.isDefined())
+            {
+              rootContainer.getMonitorProvider().incrementIndexedSearchCount();
+            }
+            else
+            {
+              // The candidates have been found by walking an ordering index, which is as costly as an unindexed search
+              rootContainer.getMonitorProvider().incrementUnindexedSearchCount();
+              searchOperation.addAdditionalLogItem(keyOnly(getClass(), "unindexed"));
+            }
+            searchIndexed(txn, candidates, candidatesAreInScope, searchOperation, pageRequest);
           }
           else
           {
@@ -889,6 +951,31 @@ public class EntryContainer
           return null;
         }
 
+        /** Returns the candidate entries matching the search filter, regardless of the search base and scope. */
+        private EntryIDSet evaluateIndexFilter(ReadableTransaction txn, SearchOperation searchOperation,
+            StringBuilder debugBuffer)
+        {
+          // Debug searches report how the indexes are used, hence always read them.
+          final boolean useCache = debugBuffer == null && searchResultCache.isEnabled();
+          if (useCache)
+          {
+            final EntryIDSet cachedCandidates = searchResultCache.get(searchOperation.getFilter());
+            if (cachedCandidates != null)
+            {
+              return cachedCandidates;
+            }
+          }
+
+          final SearchResultCache.Dependencies dependencies = useCache ? new SearchResultCache.Dependencies() : null;
+          final EntryIDSet candidates = new IndexFilter(EntryContainer.this, txn, searchOperation, debugBuffer,
+              rootContainer.getMonitorProvider(), dependencies).evaluate();
+          if (useCache)
+          {
+            searchResultCache.put(searchOperation.getFilter(), candidates, dependencies, searchResultCacheVersion);
+          }
+          return candidates;
+        }
+
         private int getEntryIDSetLimit(final SearchOperation searchOperation)
         {
           final int lookThroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
@@ -976,6 +1063,99 @@ public class EntryContainer
     }
   }
 
+  /** The candidate entries of an indexed search, in the order they must be returned. */
+  private interface SearchCandidates
+  {
+    /** Returns the number of candidates. */
+    long size();
+
+    /**
+     * Returns an iterator positioned on the candidate to return first when resuming a paged search, or on the first
+     * candidate when beginEntryID is null.
+     */
+    Iterator<EntryID> iterator(Long beginEntryID);
+  }
+
+  /**
+   * Returns the candidates held by a defined set, which are streamed in ID order directly from the set: they are
+   * neither copied nor scanned to resume a paged search. Returns null if the set is undefined.
+   */
+  private static SearchCandidates orderedCandidates(final EntryIDSet entryIDs)
+  {
+    if (!entryIDs.isDefined())
+    {
+      return null;
+    }
+    return new SearchCandidates()
+    {
+      @Override
+      public long size()
+      {
+        return entryIDs.size();
+      }
+
+      @Override
+      public Iterator<EntryID> iterator(Long beginEntryID)
+      {
+        // Entries may have been removed since the previous page: resume from the following one.
+        return beginEntryID != null ? entryIDs.iterator(new EntryID(beginEntryID)) : entryIDs.iterator();
+      }
+    };
+  }
+
+  /** Returns the candidates held by an array in an arbitrary order, or null if the array is null. */
+  private static SearchCandidates reorderedCandidates(final long[] entryIDs)
+  {
+    return entryIDs != null ? reorderedCandidates(entryIDs, entryIDs.length) : null;
+  }
+
+  /**
+   * Returns the candidates held by an array in an arbitrary order. The array may only hold the first candidates to
+   * return, in which case size is the total number of candidates.
+   */
+  private static SearchCandidates reorderedCandidates(final long[] entryIDs, final long size)
+  {
+    return new SearchCandidates()
+    {
+      @Override
+      public long size()
+      {
+        return size;
+      }
+
+      @Override
+      public Iterator<EntryID> iterator(Long beginEntryID)
+      {
+        return new Iterator<EntryID>()
+        {
+          private int index = findStartIndex(beginEntryID, entryIDs);
+
+          @Override
+          public boolean hasNext()
+          {
+            return index < entryIDs.length;
+          }
+
+          @Override
+          public EntryID next()
+          {
+            if (!hasNext())
+            {
+              throw new NoSuchElementException();
+            }
+            return new EntryID(entryIDs[index++]);
+          }
+
+          @Override
+          public void remove()
+          {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
   private static EntryIDSet newIDSetFromCursor(SequentialCursor<?, EntryID> cursor, boolean includeCurrent,
       int idSetLimit)
   {
@@ -1251,19 +1431,257 @@ public class EntryContainer
     return entry;
   }
 
+  /**
+   * Fetches a batch of entries by ID, from the entry cache or else from id2entry with a single sorted multi-get, so
+   * that the entries missing from the cache are read with an ordered sweep of the tree rather than one random lookup
+   * each. Entries which do not exist or cannot be read are returned as null.
+   */
+  private Entry[] getEntries(ReadableTransaction txn, List<EntryID> entryIDs)
+  {
+    final EntryCache<?> entryCache = getEntryCache();
+    final Entry[] entries = new Entry[entryIDs.size()];
+    final List<EntryID> missingIDs = new ArrayList<>();
+    for (int i = 0; i < entries.length; i++)
+    {
+      entries[i] = entryCache.getEntry(backendID, entryIDs.get(i).longValue());
+      if (entries[i] == null)
+      {
+        missingIDs.add(entryIDs.get(i));
+      }
+    }
+    if (missingIDs.isEmpty())
+    {
+      return entries;
+    }
+
+    // Candidates are usually already in ID order, except for sorted searches.
+    Collections.sort(missingIDs);
+    final List<Entry> missingEntries;
+    try
+    {
+      missingEntries = id2entry.get(txn, missingIDs);
+    }
+    catch (Exception e)
+    {
+      // Keep failures local to the entries which cannot be read
+      logger.traceException(e);
+      return getEntriesOneByOne(txn, entryIDs, entries);
+    }
+
+    for (int i = 0; i < entries.length; i++)
+    {
+      if (entries[i] == null)
+      {
+        final EntryID entryID = entryIDs.get(i);
+        final Entry entry = missingEntries.get(Collections.binarySearch(missingIDs, entryID));
+        if (entry != null)
+        {
+          // Put the entry in the cache making sure not to overwrite a newer copy
+          // that may have been inserted since the time we read the cache.
+          entryCache.putEntryIfAbsent(entry, backendID, entryID.longValue());
+          entries[i] = entry;
+        }
+      }
+    }
+    return entries;
+  }
+
+  /** Reads the entries which are not in the cache one at a time, leaving null the ones which cannot be read. */
+  private Entry[] getEntriesOneByOne(ReadableTransaction txn, List<EntryID> entryIDs, Entry[] entries)
+  {
+    for (int i = 0; i < entries.length; i++)
+    {
+      if (entries[i] == null)
+      {
+        try
+        {
+          entries[i] = getEntry(txn, entryIDs.get(i));
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+        }
+      }
+    }
+    return entries;
+  }
+
+  /** Reads the encoded entries which are not in the cache one at a time, leaving null the ones which cannot be read. */
+  private void getEncodedEntriesOneByOne(ReadableTransaction txn, List<EntryID> entryIDs, Entry[] entries,
+      ByteString[] encodedEntries)
+  {
+    for (int i = 0; i < entries.length; i++)
+    {
+      if (entries[i] == null)
+      {
+        try
+        {
+          encodedEntries[i] = id2entry.getEncoded(txn, Collections.singletonList(entryIDs.get(i))).get(0);
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Fetches a batch of candidate entries like {@link #getEntries(ReadableTransaction, List)}, but decodes them and
+   * evaluates the search against them in parallel with the provided pool. Returns the entries to return, in candidate
+   * order, with a null element for each candidate which must not be returned.
+   */
+  private Entry[] getMatchingEntries(ReadableTransaction txn, List<EntryID> entryIDs, final CandidateMatcher matcher,
+      ForkJoinPool pool) throws DirectoryException
+  {
+    // Storage transactions are not thread-safe: read everything from this thread
+    final EntryCache<?> entryCache = getEntryCache();
+    final Entry[] entries = new Entry[entryIDs.size()];
+    final ByteString[] encodedEntries = new ByteString[entries.length];
+    final List<EntryID> missingIDs = new ArrayList<>();
+    for (int i = 0; i < entries.length; i++)
+    {
+      entries[i] = entryCache.getEntry(backendID, entryIDs.get(i).longValue());
+      if (entries[i] == null)
+      {
+        missingIDs.add(entryIDs.get(i));
+      }
+    }
+    if (!missingIDs.isEmpty())
+    {
+      Collections.sort(missingIDs);
+      try
+      {
+        final List<ByteString> missingValues = id2entry.getEncoded(txn, missingIDs);
+        for (int i = 0; i < entries.length; i++)
+        {
+          if (entries[i] == null)
+          {
+            encodedEntries[i] = missingValues.get(Collections.binarySearch(missingIDs, entryIDs.get(i)));
+          }
+        }
+      }
+      catch (Exception e)
+      {
+        // Keep failures local to the entries which cannot be read
+        logger.traceException(e);
+        getEncodedEntriesOneByOne(txn, entryIDs, entries, encodedEntries);
+      }
+    }
+
+    final Entry[] matchingEntries = new Entry[entries.length];
+    final int taskSize = Math.max(MIN_PARALLEL_SEARCH_TASK_SIZE, entries.length / pool.getParallelism() + 1);
+    final List<Callable<Void>> tasks = new ArrayList<>();
+    for (int from = 0; from < entries.length; from += taskSize)
+    {
+      final int start = from;
+      final int end = Math.min(from + taskSize, entries.length);
+      tasks.add(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws DirectoryException
+        {
+          evaluateCandidates(entries, encodedEntries, matchingEntries, start, end, matcher);
+          return null;
+        }
+      });
+    }
+    try
+    {
+      for (Future<Void> task : pool.invokeAll(tasks))
+      {
+        task.get();
+      }
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The pool has been shutdown by a configuration change
+      evaluateCandidates(entries, encodedEntries, matchingEntries, 0, entries.length, matcher);
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof DirectoryException)
+      {
+        throw (DirectoryException) e.getCause();
+      }
+      throw new StorageRuntimeException(e.getCause());
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new StorageRuntimeException(e);
+    }
+
+    for (int i = 0; i < entries.length; i++)
+    {
+      if (encodedEntries[i] != null && entries[i] != null)
+      {
+        // Put the entry in the cache making sure not to overwrite a newer copy
+        // that may have been inserted since the time we read the cache.
+        entryCache.putEntryIfAbsent(entries[i], backendID, entryIDs.get(i).longValue());
+      }
+    }
+    return matchingEntries;
+  }
+
+  /** Decodes the candidates from the provided range which are not decoded yet, and keeps the matching ones. */
+  private void evaluateCandidates(Entry[] entries, ByteString[] encodedEntries, Entry[] matchingEntries, int from,
+      int to, CandidateMatcher matcher) throws DirectoryException
+  {
+    for (int i = from; i < to; i++)
+    {
+      if (entries[i] == null && encodedEntries[i] != null)
+      {
+        entries[i] = id2entry.decodeOrNull(encodedEntries[i]);
+      }
+      if (matcher.matches(entries[i]))
+      {
+        matchingEntries[i] = entries[i];
+      }
+    }
+  }
+
+  /** Decides whether the candidate entries of an indexed search must be returned. This class is thread-safe. */
+  private final class CandidateMatcher
+  {
+    private final boolean candidatesAreInScope;
+    private final SearchScope searchScope;
+    private final DN baseDN;
+    private final boolean manageDsaIT;
+    private final SearchFilter filter;
+
+    private CandidateMatcher(boolean candidatesAreInScope, SearchScope searchScope, DN baseDN, boolean manageDsaIT,
+        SearchFilter filter)
+    {
+      this.candidatesAreInScope = candidatesAreInScope;
+      this.searchScope = searchScope;
+      this.baseDN = baseDN;
+      this.manageDsaIT = manageDsaIT;
+      this.filter = filter;
+    }
+
+    private boolean matches(Entry entry) throws DirectoryException
+    {
+      return entry != null
+          && isInScope(candidatesAreInScope, searchScope, baseDN, entry)
+          && (manageDsaIT || entry.getReferralURLs() == null)
+          && filter.matchesEntry(entry);
+    }
+  }
+
   /**
    * We were able to obtain a set of candidate entry IDs for the search from the indexes.
    * <p>
    * Here we are relying on ID order to ensure children are returned after their parents.
    * <ul>
    * <li>Iterate through the candidate IDs
-   * <li>fetch entry by ID from cache or id2entry
+   * <li>fetch entries by ID in batches, from cache or with a sorted multi-get on id2entry
    * <li>put the entry in the cache if not present
    * <li>discard entries that are not in scope
    * <li>return entry if it matches the filter
    * </ul>
    *
-   * @param entryIDReorderedSet
+   * @param candidates
    *          The candidate entry IDs.
    * @param candidatesAreInScope
    *          true if it is certain that every candidate entry is in the search scope.
@@ -1274,7 +1692,7 @@ public class EntryContainer
    * @throws DirectoryException
    *           If an error prevented the search from being processed.
    */
-  private void searchIndexed(ReadableTransaction txn, long[] entryIDReorderedSet, boolean candidatesAreInScope,
+  private void searchIndexed(ReadableTransaction txn, SearchCandidates candidates, boolean candidatesAreInScope,
       SearchOperation searchOperation, PagedResultsControl pageRequest) throws DirectoryException,
       CanceledOperationException
   {
@@ -1307,7 +1725,7 @@ public class EntryContainer
     // Make sure the candidate list is smaller than the lookthrough limit
     int lookthroughLimit =
       searchOperation.getClientConnection().getLookthroughLimit();
-    if (lookthroughLimit > 0 && entryIDReorderedSet.length > lookthroughLimit)
+    if (lookthroughLimit > 0 && candidates.size() > lookthroughLimit)
     {
       //Lookthrough limit exceeded
       searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
@@ -1318,26 +1736,34 @@ public class EntryContainer
     // Iterate through the index candidates.
     if (continueSearch)
     {
-      final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      final CandidateMatcher matcher =
+          new CandidateMatcher(candidatesAreInScope, searchScope, aBaseDN, manageDsaIT, searchOperation.getFilter());
+      final ForkJoinPool evaluationPool = rootContainer.getSearchEvaluationPool();
+      final int maxBatchSize =
+          evaluationPool != null ? MAX_PARALLEL_SEARCH_FETCH_BATCH_SIZE : MAX_SEARCH_FETCH_BATCH_SIZE;
+      final Iterator<EntryID> candidateIterator = candidates.iterator(beginEntryID);
+      final List<EntryID> batchIDs = new ArrayList<>();
+      int batchSize = MIN_SEARCH_FETCH_BATCH_SIZE;
+      while (continueSearch && candidateIterator.hasNext())
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
-        Entry entry;
-        try
+        batchIDs.clear();
+        while (batchIDs.size() < batchSize && candidateIterator.hasNext())
         {
-          entry = getEntry(txn, entryID);
+          batchIDs.add(candidateIterator.next());
         }
-        catch (Exception e)
+        batchSize = Math.min(batchSize * 2, maxBatchSize);
+
+        // Small batches are not worth handing over to the pool
+        final boolean evaluated = evaluationPool != null && batchIDs.size() >= 2 * MIN_PARALLEL_SEARCH_TASK_SIZE;
+        final Entry[] entries =
+            evaluated ? getMatchingEntries(txn, batchIDs, matcher, evaluationPool) : getEntries(txn, batchIDs);
+        for (int i = 0; i < entries.length && continueSearch; i++)
         {
-          logger.traceException(e);
-          continue;
-        }
+          final EntryID entryID = batchIDs.get(i);
+          final Entry entry = entries[i];
 
-        // Process the candidate entry.
-        if (entry != null
-              && isInScope(candidatesAreInScope, searchScope, aBaseDN, entry)
-              && (manageDsaIT || entry.getReferralURLs() == null)
-              && filter.matchesEntry(entry))
+          // Process the candidate entry.
+          if (evaluated ? entry != null : matcher.matches(entry))
           {
             if (isPageFull(searchOperation, pageRequest))
             {
@@ -1350,11 +1776,12 @@ public class EntryContainer
             {
               // We have been told to discontinue processing of the search.
               // This could be due to size limit exceeded or operation cancelled
-              break;
+              continueSearch = false;
             }
           }
+        }
+        searchOperation.checkIfCanceled(false);
       }
-      searchOperation.checkIfCanceled(false);
     }
 
     // Before we return success from the search we must ensure the base entry
@@ -1374,7 +1801,7 @@ public class EntryContainer
     addPagedResultsControl(searchOperation, pageRequest, null);
   }
 
-  private int findStartIndex(Long beginEntryID, long[] entryIDReorderedSet)
+  private static int findStartIndex(Long beginEntryID, long[] entryIDReorderedSet)
   {
     if (beginEntryID == null)
     {
@@ -1510,6 +1937,8 @@ public class EntryContainer
           }
         }
       });
+      indexBuffer.invalidate(searchResultCache);
+      indexBuffer.updateStatistics();
     }
     catch (Exception e)
     {
@@ -1552,7 +1981,7 @@ public class EntryContainer
     final IndexBuffer indexBuffer = IndexBuffer.newImportIndexBuffer(txn, entryID);
     insertEntryIntoIndexes(indexBuffer, entry, entryID);
     dn2id.put(txn, entry.getName(), entryID);
-    id2entry.put(txn, entryID, id2entry.encode(entry));
+    id2entry.importPut(txn, entryID, entry);
     dn2uri.addEntry(txn, entry);
     indexBuffer.flush(txn);
   }
@@ -1723,6 +2152,8 @@ public class EntryContainer
           }
         }
       });
+      indexBuffer.invalidate(searchResultCache);
+      indexBuffer.updateStatistics();
     }
     catch (Exception e)
     {
@@ -1920,6 +2351,8 @@ public class EntryContainer
           }
         }
       });
+      indexBuffer.invalidate(searchResultCache);
+      indexBuffer.updateStatistics();
     }
     catch (Exception e)
     {
@@ -2162,6 +2595,8 @@ public class EntryContainer
           return modifications;
         }
       });
+      indexBuffer.invalidate(searchResultCache);
+      indexBuffer.updateStatistics();
     }
     catch (Exception e)
     {
@@ -2304,10 +2739,14 @@ public class EntryContainer
    */
   void delete(WriteableTransaction txn) throws StorageRuntimeException
   {
+    // Clear the state first too, so that the other trees find no state records to delete: importers cannot delete
+    // records.
+    state.delete(txn);
     for (Tree tree : listTrees())
     {
       tree.delete(txn);
     }
+    searchResultCache.clear();
   }
 
   /**
@@ -2423,6 +2862,7 @@ public class EntryContainer
           EntryContainer.this.config = cfg;
         }
       });
+      searchResultCache.setLimits(cfg.getSearchResultCacheSize(), getSearchResultCacheMaxCandidates(cfg));
       for (CryptoSuite indexCrypto : attrCryptoMap.values())
       {
         indexCrypto.newParameters(cfg.getCipherTransformation(), cfg.getCipherKeyLength(), indexCrypto.isEncrypted());
@@ -2462,6 +2902,7 @@ public class EntryContainer
           }
         }
       });
+      searchResultCache.clear();
     }
     catch (Exception e)
     {
@@ -2514,6 +2955,11 @@ public class EntryContainer
     return config.isConfidentialityEnabled();
   }
 
+  boolean isIndexBitmapEncodingEnabled()
+  {
+    return config.isIndexBitmapEncodingEnabled();
+  }
+
   /**
    * Fetch the base Entry of the EntryContainer.
    * @param searchBaseDN the DN for the base entry
@@ -2536,9 +2982,24 @@ public class EntryContainer
     return baseEntry;
   }
 
-  private long[] sort(ReadableTransaction txn, EntryIDSet entryIDSet, SearchOperation searchOperation,
-      List<SortKey> sortKeys, VLVRequestControl vlvRequest) throws DirectoryException
+  /**
+   * Sorts the candidates of a search which cannot be processed by a VLV index. Returns null if the candidates are
+   * undefined and cannot be found by walking an ordering index either. Since walking an ordering index in place of
+   * undefined candidates reads as many entries as an unindexed search, it is only done for clients having the
+   * privilege to perform unindexed searches.
+   */
+  private SearchCandidates sort(ReadableTransaction txn, EntryIDSet entryIDSet, SearchOperation searchOperation,
+      List<SortKey> sortKeys, VLVRequestControl vlvRequest, PagedResultsControl pageRequest) throws DirectoryException
   {
+    if (vlvRequest == null && (entryIDSet.isDefined() || canSearchUnindexed(searchOperation)))
+    {
+      // VLV requests need the exact number of matching entries, which only the candidate entries can tell.
+      final long[] sortedIDs = sortWithOrderingIndex(txn, entryIDSet, searchOperation.getFilter(), sortKeys);
+      if (sortedIDs != null)
+      {
+        return reorderedCandidates(sortedIDs);
+      }
+    }
     if (!entryIDSet.isDefined())
     {
       return null;
@@ -2548,7 +3009,12 @@ public class EntryContainer
     final SearchScope scope = searchOperation.getScope();
     final SearchFilter filter = searchOperation.getFilter();
 
+    // Only keep the entries which can be returned when the search is limited by a size limit or by paged results.
+    final int maxSortedIDs = vlvRequest == null ? getMaxSortedIDs(searchOperation, pageRequest) : 0;
+    final ByteString firstSortKey = maxSortedIDs > 0 ? getPagedResultsSortKey(txn, sortKeys, pageRequest) : null;
+
     final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
+    long matchingCount = 0;
     for (EntryID id : entryIDSet)
     {
       try
@@ -2556,7 +3022,16 @@ public class EntryContainer
         Entry e = getEntry(txn, id);
         if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
         {
-          sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          matchingCount++;
+          final ByteString sortKey = encodeVLVKey(sortKeys, e, id.longValue());
+          if (firstSortKey == null || sortKey.compareTo(firstSortKey) >= 0)
+          {
+            sortMap.put(sortKey, id);
+            if (maxSortedIDs > 0 && sortMap.size() > maxSortedIDs)
+            {
+              sortMap.pollLastEntry();
+            }
+          }
         }
       }
       catch (Exception e)
@@ -2570,14 +3045,340 @@ public class EntryContainer
     // processed by offset or assertion value.
     if (vlvRequest == null)
     {
-      return toArray(sortMap.values());
+      // Report all the matching entries so that the lookthrough limit still applies to them.
+      return reorderedCandidates(toArray(sortMap.values()), matchingCount);
     }
 
     if (vlvRequest.getTargetType() == VLVRequestControl.TYPE_TARGET_BYOFFSET)
     {
-      return sortByOffset(searchOperation, vlvRequest, sortMap);
+      return reorderedCandidates(sortByOffset(searchOperation, vlvRequest, sortMap));
+    }
+    return reorderedCandidates(sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap));
+  }
+
+  private static boolean canSearchUnindexed(SearchOperation searchOperation)
+  {
+    return searchOperation.getClientConnection().hasPrivilege(Privilege.UNINDEXED_SEARCH, searchOperation);
+  }
+
+  /**
+   * Returns the maximum number of sorted entries the search can return, plus one so that exceeding the size limit or
+   * filling the page can still be detected. Returns 0 if the search is not limited.
+   */
+  private static int getMaxSortedIDs(SearchOperation searchOperation, PagedResultsControl pageRequest)
+  {
+    long maxSortedIDs = Long.MAX_VALUE;
+    if (searchOperation.getSizeLimit() > 0)
+    {
+      maxSortedIDs = searchOperation.getSizeLimit() + 1L;
+    }
+    if (pageRequest != null && pageRequest.getSize() > 0)
+    {
+      maxSortedIDs = Math.min(maxSortedIDs, pageRequest.getSize() + 1L);
+    }
+    return maxSortedIDs <= Integer.MAX_VALUE ? (int) maxSortedIDs : 0;
+  }
+
+  /**
+   * Returns the sort key of the entry a paged search resumes from, or null if the search is not resuming. Entries
+   * sorted before it have been returned with the previous pages.
+   */
+  private ByteString getPagedResultsSortKey(ReadableTransaction txn, List<SortKey> sortKeys,
+      PagedResultsControl pageRequest) throws DirectoryException
+  {
+    if (pageRequest == null || pageRequest.getCookie().length() == 0)
+    {
+      return null;
+    }
+    final long beginEntryID;
+    try
+    {
+      beginEntryID = pageRequest.getCookie().toLong();
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM,
+          ERR_INVALID_PAGED_RESULTS_COOKIE.get(pageRequest.getCookie().toHexString()), e);
+    }
+    final Entry beginEntry = getEntry(txn, new EntryID(beginEntryID));
+    // If the entry has been removed meanwhile, the page restarts from the first entry as for unsorted searches.
+    return beginEntry != null ? encodeVLVKey(sortKeys, beginEntry, beginEntryID) : null;
+  }
+
+  /**
+   * Sorts the candidates by walking the ordering index of the primary sort key, which does not require reading the
+   * candidate entries. Returns null if no ordering index can be used, or if the candidates would be better sorted
+   * in memory, which is found out once the walk reads more keys than the candidates would allow.
+   * <p>
+   * The returned candidates still have to be checked against the search base, scope and filter. When the candidates
+   * are undefined, only the filters which can only match entries having the primary sort key can be sorted, since
+   * the ordering index does not hold the entries which do not have it.
+   */
+  private long[] sortWithOrderingIndex(ReadableTransaction txn, EntryIDSet entryIDSet, SearchFilter filter,
+      List<SortKey> sortKeys) throws DirectoryException
+  {
+    if (sortKeys.isEmpty())
+    {
+      return null;
+    }
+    final SortKey primarySortKey = sortKeys.get(0);
+    final AttributeType attributeType =
+        AttributeDescription.valueOf(primarySortKey.getAttributeDescription()).getAttributeType();
+    if (entryIDSet.isDefined()
+        ? entryIDSet.size() < MIN_ORDERING_INDEX_SORT_CANDIDATES
+        : !filterRequiresAttribute(filter, attributeType))
+    {
+      return null;
+    }
+    final MatchingRuleIndex index = getOrderingIndex(attributeType, getEffectiveOrderingRule(primarySortKey));
+    if (index == null || !index.isTrusted())
+    {
+      return null;
+    }
+
+    final SortedIDs sortedIDs = entryIDSet.isDefined() ? new SortedIDs(entryIDSet.toLongArray()) : new SortedIDs();
+    long maxKeys = entryIDSet.isDefined() ? entryIDSet.size() * MAX_ORDERING_INDEX_KEYS_PER_CANDIDATE : Long.MAX_VALUE;
+    try (Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn))
+    {
+      // Walking the index in ascending order, each candidate is first found under its lowest value, which is the one
+      // it is sorted on, even in reverse order.
+      while (!sortedIDs.isComplete() && cursor.next())
+      {
+        if (--maxKeys < 0)
+        {
+          // The candidates are a small part of the entries in the index.
+          return null;
+        }
+        final EntryIDSet keyIDs = cursor.getValue();
+        if (!keyIDs.isDefined() || !sortedIDs.addGroup(keyIDs))
+        {
+          // Index entry limit exceeded, or the candidates are too many to be sorted.
+          return null;
+        }
+      }
+    }
+    // Entries without the primary sort key sort after the other ones in ascending order, and before in reverse order.
+    sortedIDs.addRemainingGroup();
+    return sortedIDs.toArray(txn, sortKeys, primarySortKey.isReverseOrder());
+  }
+
+  private MatchingRuleIndex getOrderingIndex(AttributeType attributeType, MatchingRule orderingRule)
+  {
+    final AttributeIndex attributeIndex = getAttributeIndex(attributeType);
+    if (attributeIndex == null || orderingRule == null)
+    {
+      return null;
+    }
+    // The ordering index may be shared with the equality index, its keys are ordered alike anyway.
+    for (Indexer indexer : orderingRule.createIndexers(attributeIndex.getIndexingOptions()))
+    {
+      final MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(indexer.getIndexID());
+      if (index != null)
+      {
+        return index;
+      }
+    }
+    return null;
+  }
+
+  /** Indicates whether the provided filter can only match entries having the provided attribute. */
+  private static boolean filterRequiresAttribute(SearchFilter filter, AttributeType attributeType)
+  {
+    switch (filter.getFilterType())
+    {
+    case AND:
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        if (filterRequiresAttribute(component, attributeType))
+        {
+          return true;
+        }
+      }
+      return false;
+    case OR:
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        if (!filterRequiresAttribute(component, attributeType))
+        {
+          return false;
+        }
+      }
+      return !filter.getFilterComponents().isEmpty();
+    case EQUALITY:
+    case SUBSTRING:
+    case GREATER_OR_EQUAL:
+    case LESS_OR_EQUAL:
+    case PRESENT:
+    case APPROXIMATE_MATCH:
+      return filter.getAttributeType().equals(attributeType);
+    default:
+      // NOT and EXTENSIBLE_MATCH filters may match entries without the attribute
+      return false;
+    }
+  }
+
+  /**
+   * The candidates of a search grouped by the lowest value of their primary sort key, in the order of the ordering
+   * index.
+   */
+  final class SortedIDs
+  {
+    /** The candidates, or null if all the entries are candidates. */
+    private final long[] candidateIDs;
+    /** Whether each candidate has already been added to a group. */
+    private final boolean[] grouped;
+    /** The entries which have already been added to a group when all the entries are candidates. */
+    private final BitSet groupedIDs;
+    private long[] ids = new long[16];
+    private int size;
+    /** The end index in ids of each group. */
+    private final List<Integer> groupEnds = new ArrayList<>();
+
+    /** Groups the provided candidates. */
+    SortedIDs(long[] candidateIDs)
+    {
+      this.candidateIDs = candidateIDs;
+      this.grouped = new boolean[candidateIDs.length];
+      this.groupedIDs = null;
+    }
+
+    /** Groups all the entries. */
+    SortedIDs()
+    {
+      this.candidateIDs = null;
+      this.grouped = null;
+      this.groupedIDs = new BitSet();
+    }
+
+    boolean isComplete()
+    {
+      return candidateIDs != null && size == candidateIDs.length;
+    }
+
+    /** Adds the candidates not grouped yet as a new group. Returns false if they cannot be sorted. */
+    boolean addGroup(EntryIDSet keyIDs)
+    {
+      for (EntryID entryID : keyIDs)
+      {
+        final long id = entryID.longValue();
+        if (candidateIDs != null)
+        {
+          final int pos = Arrays.binarySearch(candidateIDs, id);
+          if (pos >= 0 && !grouped[pos])
+          {
+            grouped[pos] = true;
+            add(id);
+          }
+        }
+        else if (id > Integer.MAX_VALUE || size == MAX_ORDERING_INDEX_SORT_CANDIDATES)
+        {
+          return false;
+        }
+        else if (!groupedIDs.get((int) id))
+        {
+          groupedIDs.set((int) id);
+          add(id);
+        }
+      }
+      endGroup();
+      return true;
+    }
+
+    /** Adds the candidates not grouped yet as a last group. */
+    void addRemainingGroup()
+    {
+      if (candidateIDs != null)
+      {
+        for (int i = 0; i < candidateIDs.length; i++)
+        {
+          if (!grouped[i])
+          {
+            add(candidateIDs[i]);
+          }
+        }
+      }
+      endGroup();
+    }
+
+    private void add(long id)
+    {
+      if (size == ids.length)
+      {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    private void endGroup()
+    {
+      final int start = groupEnds.isEmpty() ? 0 : groupEnds.get(groupEnds.size() - 1);
+      if (size > start)
+      {
+        groupEnds.add(size);
+      }
+    }
+
+    /**
+     * Returns the sorted candidates. Within a group, candidates are sorted on the secondary sort keys, which requires
+     * reading their entries, or else on their ID.
+     */
+    long[] toArray(ReadableTransaction txn, List<SortKey> sortKeys, boolean reverseOrder) throws DirectoryException
+    {
+      final long[] sorted = new long[size];
+      int pos = 0;
+      for (int i = 0; i < groupEnds.size(); i++)
+      {
+        final int group = reverseOrder ? groupEnds.size() - 1 - i : i;
+        final int start = group == 0 ? 0 : groupEnds.get(group - 1);
+        final int end = groupEnds.get(group);
+        System.arraycopy(ids, start, sorted, pos, end - start);
+        if (sortKeys.size() > 1 && end - start > 1)
+        {
+          sortGroup(txn, sorted, pos, pos + end - start, sortKeys);
+        }
+        pos += end - start;
+      }
+      return sorted;
+    }
+
+    private void sortGroup(ReadableTransaction txn, long[] sorted, int start, int end, List<SortKey> sortKeys)
+        throws DirectoryException
+    {
+      final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
+      final List<EntryID> removedIDs = new ArrayList<>();
+      for (int i = start; i < end; i++)
+      {
+        final EntryID id = new EntryID(sorted[i]);
+        try
+        {
+          final Entry e = getEntry(txn, id);
+          if (e != null)
+          {
+            sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
+          }
+          else
+          {
+            removedIDs.add(id);
+          }
+        }
+        catch (Exception e)
+        {
+          LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(id, getExceptionMessage(e));
+          throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+        }
+      }
+      int pos = start;
+      for (EntryID id : sortMap.values())
+      {
+        sorted[pos++] = id.longValue();
+      }
+      // Entries removed meanwhile are put at the end of the group: they will be skipped anyway.
+      for (EntryID id : removedIDs)
+      {
+        sorted[pos++] = id.longValue();
+      }
     }
-    return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
   }
 
   private static final long[] toArray(Collection<EntryID> entryIDs)
@@ -2722,6 +3523,30 @@ public class EntryContainer
     searchOp.addResponseControl(new VLVResponseControl(targetPosition, contentCount, vlvResultCode));
   }
 
+  /**
+   * Returns the cache of the candidate entry IDs of the search filters.
+   *
+   * @return the search result cache of this entry container
+   */
+  SearchResultCache getSearchResultCache()
+  {
+    return searchResultCache;
+  }
+
+  /**
+   * Invalidates all the cached search candidates. This must be called after any change affecting the indexes as a
+   * whole, such as rebuilding them or changing their configuration.
+   */
+  void clearSearchResultCache()
+  {
+    searchResultCache.clear();
+  }
+
+  private static int getSearchResultCacheMaxCandidates(PluggableBackendCfg cfg)
+  {
+    return cfg.getIndexEntryLimit() == 0 ? CURSOR_ENTRY_LIMIT : cfg.getIndexEntryLimit();
+  }
+
   /** Get the exclusive lock. */
   void lock()
   {
@@ -0,0 +1,1035 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static com.forgerock.opendj.util.PackedLong.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compressed bitmap of entry IDs, organized like a Roaring bitmap.
+ * <p>
+ * The entry ID space is split in chunks of 2<sup>16</sup> IDs sharing the same high bits. Each chunk
+ * is stored either as a sorted array of its low bits when it is sparse, or as a plain bitmap of 1024
+ * words when it is dense. Intersections, unions and differences are computed chunk by chunk and use
+ * word-level operations whenever both chunks are dense.
+ * <p>
+ * The serialized form additionally supports run-length encoded chunks, which makes the long ranges
+ * of consecutive IDs produced by bulk imports very cheap to store.
+ */
+final class EntryIDBitmap
+{
+  /** Number of low bits of an entry ID stored inside a chunk. */
+  private static final int CHUNK_BITS = 16;
+  private static final int LOW_MASK = (1 << CHUNK_BITS) - 1;
+  /** Number of 64-bit words of a dense chunk. */
+  private static final int CHUNK_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+  /** Cardinality above which a sorted array of chars takes more room than a dense chunk. */
+  private static final int ARRAY_MAX_CARDINALITY = 4096;
+
+  private static final byte ARRAY_CHUNK = 0x00;
+  private static final byte BITMAP_CHUNK = 0x01;
+  private static final byte RUN_CHUNK = 0x02;
+
+  /** Sorted high bits of the non empty chunks. */
+  private long[] highs;
+  private Chunk[] chunks;
+  private int nbChunks;
+  private long cardinality;
+
+  EntryIDBitmap()
+  {
+    this(4);
+  }
+
+  private EntryIDBitmap(int initialCapacity)
+  {
+    highs = new long[Math.max(initialCapacity, 1)];
+    chunks = new Chunk[highs.length];
+  }
+
+  /**
+   * Creates a new bitmap from an array of entry IDs.
+   *
+   * @param sortedIDs
+   *          the entry IDs, sorted in ascending order and without duplicates
+   * @return a new bitmap containing the provided entry IDs
+   */
+  static EntryIDBitmap valueOf(long[] sortedIDs)
+  {
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    int start = 0;
+    while (start < sortedIDs.length)
+    {
+      final long high = sortedIDs[start] >>> CHUNK_BITS;
+      int end = start + 1;
+      while (end < sortedIDs.length && (sortedIDs[end] >>> CHUNK_BITS) == high)
+      {
+        end++;
+      }
+      final int count = end - start;
+      if (count <= ARRAY_MAX_CARDINALITY)
+      {
+        final char[] values = new char[count];
+        for (int i = 0; i < count; i++)
+        {
+          values[i] = (char) (sortedIDs[start + i] & LOW_MASK);
+        }
+        bitmap.appendChunk(high, new ArrayChunk(values, count));
+      }
+      else
+      {
+        final long[] words = new long[CHUNK_WORDS];
+        for (int i = start; i < end; i++)
+        {
+          final int low = (int) (sortedIDs[i] & LOW_MASK);
+          words[low >>> 6] |= 1L << low;
+        }
+        bitmap.appendChunk(high, new BitmapChunk(words, count));
+      }
+      start = end;
+    }
+    return bitmap;
+  }
+
+  long cardinality()
+  {
+    return cardinality;
+  }
+
+  boolean isEmpty()
+  {
+    return cardinality == 0;
+  }
+
+  /**
+   * Returns the smallest entry ID of this bitmap.
+   *
+   * @return the smallest entry ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long first()
+  {
+    if (nbChunks == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return toID(highs[0], chunks[0].first());
+  }
+
+  /**
+   * Returns the largest entry ID of this bitmap.
+   *
+   * @return the largest entry ID of this bitmap
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long last()
+  {
+    if (nbChunks == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return toID(highs[nbChunks - 1], chunks[nbChunks - 1].last());
+  }
+
+  boolean contains(long id)
+  {
+    final int pos = indexOfChunk(id >>> CHUNK_BITS);
+    return pos >= 0 && chunks[pos].contains((int) (id & LOW_MASK));
+  }
+
+  boolean add(long id)
+  {
+    final long high = id >>> CHUNK_BITS;
+    final int low = (int) (id & LOW_MASK);
+    final int pos = indexOfChunk(high);
+    if (pos >= 0)
+    {
+      if (chunks[pos].contains(low))
+      {
+        return false;
+      }
+      chunks[pos] = chunks[pos].add(low);
+      cardinality++;
+    }
+    else
+    {
+      insertChunk(-(pos + 1), high, new ArrayChunk(new char[] { (char) low }, 1));
+    }
+    return true;
+  }
+
+  boolean remove(long id)
+  {
+    final int pos = indexOfChunk(id >>> CHUNK_BITS);
+    final int low = (int) (id & LOW_MASK);
+    if (pos < 0 || !chunks[pos].contains(low))
+    {
+      return false;
+    }
+    chunks[pos] = chunks[pos].remove(low);
+    if (chunks[pos].cardinality() == 0)
+    {
+      removeChunk(pos);
+    }
+    cardinality--;
+    return true;
+  }
+
+  /**
+   * Computes the intersection of this bitmap with another one.
+   *
+   * @param other
+   *          the other bitmap
+   * @return a new bitmap containing the IDs present in both bitmaps
+   */
+  EntryIDBitmap and(EntryIDBitmap other)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(Math.min(nbChunks, other.nbChunks));
+    int i = 0, j = 0;
+    while (i < nbChunks && j < other.nbChunks)
+    {
+      if (highs[i] < other.highs[j])
+      {
+        i++;
+      }
+      else if (highs[i] > other.highs[j])
+      {
+        j++;
+      }
+      else
+      {
+        result.appendChunkIfNotEmpty(highs[i], chunks[i].and(other.chunks[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the union of this bitmap with another one.
+   *
+   * @param other
+   *          the other bitmap
+   * @return a new bitmap containing the IDs present in either bitmap
+   */
+  EntryIDBitmap or(EntryIDBitmap other)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbChunks + other.nbChunks);
+    int i = 0, j = 0;
+    while (i < nbChunks || j < other.nbChunks)
+    {
+      if (j == other.nbChunks || (i < nbChunks && highs[i] < other.highs[j]))
+      {
+        result.appendChunk(highs[i], chunks[i].copy());
+        i++;
+      }
+      else if (i == nbChunks || highs[i] > other.highs[j])
+      {
+        result.appendChunk(other.highs[j], other.chunks[j].copy());
+        j++;
+      }
+      else
+      {
+        result.appendChunk(highs[i], chunks[i].or(other.chunks[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the difference of this bitmap with another one.
+   *
+   * @param other
+   *          the bitmap containing the IDs to remove
+   * @return a new bitmap containing the IDs of this bitmap which are not present in the other one
+   */
+  EntryIDBitmap andNot(EntryIDBitmap other)
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbChunks);
+    int j = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      while (j < other.nbChunks && other.highs[j] < highs[i])
+      {
+        j++;
+      }
+      if (j < other.nbChunks && other.highs[j] == highs[i])
+      {
+        result.appendChunkIfNotEmpty(highs[i], chunks[i].andNot(other.chunks[j]));
+      }
+      else
+      {
+        result.appendChunk(highs[i], chunks[i].copy());
+      }
+    }
+    return result;
+  }
+
+  EntryIDBitmap copy()
+  {
+    final EntryIDBitmap result = new EntryIDBitmap(nbChunks);
+    for (int i = 0; i < nbChunks; i++)
+    {
+      result.appendChunk(highs[i], chunks[i].copy());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the IDs of this bitmap as a sorted array.
+   *
+   * @return a new array containing all the IDs of this bitmap, sorted in ascending order
+   */
+  long[] toArray()
+  {
+    final long[] ids = new long[(int) cardinality];
+    int offset = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      offset = chunks[i].toArray(highs[i] << CHUNK_BITS, ids, offset);
+    }
+    return ids;
+  }
+
+  Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator(0, nbChunks > 0 ? chunks[0].first() : -1);
+  }
+
+  /**
+   * Returns an iterator over the IDs of this bitmap which are greater than or equal to the provided one.
+   *
+   * @param begin
+   *          the smallest ID to be returned by the iterator
+   * @return an iterator positioned on the first ID greater than or equal to begin
+   */
+  Iterator<EntryID> iterator(long begin)
+  {
+    int pos = indexOfChunk(begin >>> CHUNK_BITS);
+    if (pos >= 0)
+    {
+      final int low = chunks[pos].nextValue((int) (begin & LOW_MASK));
+      if (low >= 0)
+      {
+        return new BitmapIterator(pos, low);
+      }
+      pos++;
+    }
+    else
+    {
+      pos = -(pos + 1);
+    }
+    return new BitmapIterator(pos, pos < nbChunks ? chunks[pos].first() : -1);
+  }
+
+  /**
+   * Appends the serialized form of this bitmap to the provided builder.
+   *
+   * @param builder
+   *          the builder where to append this bitmap
+   * @return the provided builder
+   */
+  ByteStringBuilder encode(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbChunks);
+    long previousHigh = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      builder.appendCompactUnsigned(highs[i] - previousHigh);
+      previousHigh = highs[i];
+      chunks[i].encode(builder);
+    }
+    return builder;
+  }
+
+  /**
+   * Reads a bitmap previously serialized with {@link #encode(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader positioned on the serialized bitmap
+   * @return the decoded bitmap
+   */
+  static EntryIDBitmap decode(ByteSequenceReader reader)
+  {
+    final int nbChunks = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(nbChunks);
+    long high = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      high += reader.readCompactUnsignedLong();
+      bitmap.appendChunk(high, decodeChunk(reader));
+    }
+    return bitmap;
+  }
+
+  private static Chunk decodeChunk(ByteSequenceReader reader)
+  {
+    final byte type = reader.readByte();
+    switch (type)
+    {
+    case ARRAY_CHUNK:
+      return decodeArrayChunk(reader);
+    case BITMAP_CHUNK:
+      return decodeBitmapChunk(reader);
+    case RUN_CHUNK:
+      return decodeRunChunk(reader);
+    default:
+      throw new IllegalArgumentException("Unknown entry ID bitmap chunk type " + type);
+    }
+  }
+
+  private static Chunk decodeArrayChunk(ByteSequenceReader reader)
+  {
+    final int count = reader.readCompactUnsignedInt() + 1;
+    final char[] values = new char[count];
+    int value = 0;
+    for (int i = 0; i < count; i++)
+    {
+      value += reader.readCompactUnsignedInt();
+      values[i] = (char) value;
+    }
+    return new ArrayChunk(values, count);
+  }
+
+  private static Chunk decodeBitmapChunk(ByteSequenceReader reader)
+  {
+    final long[] words = new long[CHUNK_WORDS];
+    int cardinality = 0;
+    for (int i = 0; i < CHUNK_WORDS; i++)
+    {
+      words[i] = reader.readLong();
+      cardinality += Long.bitCount(words[i]);
+    }
+    return new BitmapChunk(words, cardinality).optimize();
+  }
+
+  private static Chunk decodeRunChunk(ByteSequenceReader reader)
+  {
+    final int nbRuns = reader.readCompactUnsignedInt() + 1;
+    final long[] words = new long[CHUNK_WORDS];
+    int cardinality = 0;
+    int previousEnd = 0;
+    for (int i = 0; i < nbRuns; i++)
+    {
+      final int start = previousEnd + reader.readCompactUnsignedInt();
+      final int end = start + reader.readCompactUnsignedInt();
+      for (int low = start; low <= end; low++)
+      {
+        words[low >>> 6] |= 1L << low;
+      }
+      cardinality += end - start + 1;
+      previousEnd = end;
+    }
+    return new BitmapChunk(words, cardinality).optimize();
+  }
+
+  private static long toID(long high, int low)
+  {
+    return (high << CHUNK_BITS) | low;
+  }
+
+  private int indexOfChunk(long high)
+  {
+    return Arrays.binarySearch(highs, 0, nbChunks, high);
+  }
+
+  private void appendChunkIfNotEmpty(long high, Chunk chunk)
+  {
+    if (chunk.cardinality() > 0)
+    {
+      appendChunk(high, chunk);
+    }
+  }
+
+  private void appendChunk(long high, Chunk chunk)
+  {
+    insertChunk(nbChunks, high, chunk);
+  }
+
+  private void insertChunk(int pos, long high, Chunk chunk)
+  {
+    if (nbChunks == highs.length)
+    {
+      highs = Arrays.copyOf(highs, nbChunks * 2);
+      chunks = Arrays.copyOf(chunks, nbChunks * 2);
+    }
+    System.arraycopy(highs, pos, highs, pos + 1, nbChunks - pos);
+    System.arraycopy(chunks, pos, chunks, pos + 1, nbChunks - pos);
+    highs[pos] = high;
+    chunks[pos] = chunk;
+    nbChunks++;
+    cardinality += chunk.cardinality();
+  }
+
+  private void removeChunk(int pos)
+  {
+    System.arraycopy(highs, pos + 1, highs, pos, nbChunks - pos - 1);
+    System.arraycopy(chunks, pos + 1, chunks, pos, nbChunks - pos - 1);
+    nbChunks--;
+    chunks[nbChunks] = null;
+  }
+
+  /** Iterator over the IDs of the bitmap, in ascending order. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private int chunkIndex;
+    private int nextLow;
+
+    BitmapIterator(int chunkIndex, int nextLow)
+    {
+      this.chunkIndex = chunkIndex;
+      this.nextLow = nextLow;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return chunkIndex < nbChunks && nextLow >= 0;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final long id = toID(highs[chunkIndex], nextLow);
+      nextLow = chunks[chunkIndex].nextValue(nextLow + 1);
+      if (nextLow < 0 && ++chunkIndex < nbChunks)
+      {
+        nextLow = chunks[chunkIndex].first();
+      }
+      return new EntryID(id);
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** The low bits of the IDs sharing the same high bits. A chunk is never empty once added to a bitmap. */
+  private abstract static class Chunk
+  {
+    abstract int cardinality();
+
+    abstract boolean contains(int low);
+
+    /** Adds a value which is known to be absent and returns the chunk now holding the values. */
+    abstract Chunk add(int low);
+
+    /** Removes a value which is known to be present and returns the chunk now holding the values. */
+    abstract Chunk remove(int low);
+
+    abstract Chunk and(Chunk other);
+
+    abstract Chunk or(Chunk other);
+
+    abstract Chunk andNot(Chunk other);
+
+    abstract int first();
+
+    abstract int last();
+
+    /** Returns the smallest value greater than or equal to the provided one, or -1 if there is none. */
+    abstract int nextValue(int low);
+
+    abstract int toArray(long base, long[] ids, int offset);
+
+    abstract long[] toWords();
+
+    abstract Chunk copy();
+
+    /** Writes the chunk using whichever of the array, run or bitmap form is the most compact. */
+    final void encode(ByteStringBuilder builder)
+    {
+      int arraySize = getEncodedSize(cardinality() - 1);
+      int[] runs = new int[16];
+      int nbRuns = 0;
+      int previous = -1;
+      for (int value = first(); value >= 0; value = nextValue(value + 1))
+      {
+        arraySize += getEncodedSize(previous < 0 ? value : value - previous);
+        if (previous < 0 || value != previous + 1)
+        {
+          if (nbRuns * 2 == runs.length)
+          {
+            runs = Arrays.copyOf(runs, runs.length * 2);
+          }
+          runs[nbRuns * 2] = value;
+          nbRuns++;
+        }
+        runs[nbRuns * 2 - 1] = value;
+        previous = value;
+      }
+
+      int runsSize = getEncodedSize(nbRuns - 1);
+      int previousEnd = 0;
+      for (int i = 0; i < nbRuns; i++)
+      {
+        runsSize += getEncodedSize(runs[i * 2] - previousEnd) + getEncodedSize(runs[i * 2 + 1] - runs[i * 2]);
+        previousEnd = runs[i * 2 + 1];
+      }
+
+      final int bitmapSize = CHUNK_WORDS * Long.BYTES;
+      if (runsSize <= arraySize && runsSize <= bitmapSize)
+      {
+        builder.appendByte(RUN_CHUNK);
+        builder.appendCompactUnsigned(nbRuns - 1);
+        previousEnd = 0;
+        for (int i = 0; i < nbRuns; i++)
+        {
+          builder.appendCompactUnsigned(runs[i * 2] - previousEnd);
+          builder.appendCompactUnsigned(runs[i * 2 + 1] - runs[i * 2]);
+          previousEnd = runs[i * 2 + 1];
+        }
+      }
+      else if (arraySize <= bitmapSize)
+      {
+        builder.appendByte(ARRAY_CHUNK);
+        builder.appendCompactUnsigned(cardinality() - 1);
+        previous = 0;
+        for (int value = first(); value >= 0; value = nextValue(value + 1))
+        {
+          builder.appendCompactUnsigned(value - previous);
+          previous = value;
+        }
+      }
+      else
+      {
+        builder.appendByte(BITMAP_CHUNK);
+        for (long word : toWords())
+        {
+          builder.appendLong(word);
+        }
+      }
+    }
+  }
+
+  /** Sparse chunk: the low bits are stored in a sorted array. */
+  private static final class ArrayChunk extends Chunk
+  {
+    private char[] values;
+    private int cardinality;
+
+    ArrayChunk(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return indexOf(low) >= 0;
+    }
+
+    private int indexOf(int low)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, (char) low);
+    }
+
+    @Override
+    Chunk add(int low)
+    {
+      if (cardinality == ARRAY_MAX_CARDINALITY)
+      {
+        return toBitmap().add(low);
+      }
+      final int pos = -(indexOf(low) + 1);
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX_CARDINALITY, Math.max(4, cardinality * 2)));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = (char) low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Chunk remove(int low)
+    {
+      final int pos = indexOf(low);
+      System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    Chunk and(Chunk other)
+    {
+      final char[] result = new char[Math.min(cardinality, other.cardinality())];
+      int count = 0;
+      if (other instanceof ArrayChunk)
+      {
+        final ArrayChunk that = (ArrayChunk) other;
+        int i = 0, j = 0;
+        while (i < cardinality && j < that.cardinality)
+        {
+          if (values[i] < that.values[j])
+          {
+            i++;
+          }
+          else if (values[i] > that.values[j])
+          {
+            j++;
+          }
+          else
+          {
+            result[count++] = values[i];
+            i++;
+            j++;
+          }
+        }
+      }
+      else
+      {
+        for (int i = 0; i < cardinality; i++)
+        {
+          if (other.contains(values[i]))
+          {
+            result[count++] = values[i];
+          }
+        }
+      }
+      return new ArrayChunk(result, count);
+    }
+
+    @Override
+    Chunk or(Chunk other)
+    {
+      if (other instanceof ArrayChunk && cardinality + other.cardinality() <= ARRAY_MAX_CARDINALITY)
+      {
+        final ArrayChunk that = (ArrayChunk) other;
+        final char[] result = new char[cardinality + that.cardinality];
+        int i = 0, j = 0, count = 0;
+        while (i < cardinality || j < that.cardinality)
+        {
+          if (j == that.cardinality || (i < cardinality && values[i] < that.values[j]))
+          {
+            result[count++] = values[i++];
+          }
+          else if (i == cardinality || values[i] > that.values[j])
+          {
+            result[count++] = that.values[j++];
+          }
+          else
+          {
+            result[count++] = values[i];
+            i++;
+            j++;
+          }
+        }
+        return new ArrayChunk(result, count);
+      }
+      return toBitmap().or(other);
+    }
+
+    @Override
+    Chunk andNot(Chunk other)
+    {
+      final char[] result = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < cardinality; i++)
+      {
+        if (!other.contains(values[i]))
+        {
+          result[count++] = values[i];
+        }
+      }
+      return new ArrayChunk(result, count);
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    int nextValue(int low)
+    {
+      if (low > LOW_MASK)
+      {
+        return -1;
+      }
+      int pos = indexOf(low);
+      if (pos < 0)
+      {
+        pos = -(pos + 1);
+      }
+      return pos < cardinality ? values[pos] : -1;
+    }
+
+    @Override
+    int toArray(long base, long[] ids, int offset)
+    {
+      for (int i = 0; i < cardinality; i++)
+      {
+        ids[offset++] = base | values[i];
+      }
+      return offset;
+    }
+
+    @Override
+    long[] toWords()
+    {
+      final long[] words = new long[CHUNK_WORDS];
+      for (int i = 0; i < cardinality; i++)
+      {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return words;
+    }
+
+    private BitmapChunk toBitmap()
+    {
+      return new BitmapChunk(toWords(), cardinality);
+    }
+
+    @Override
+    Chunk copy()
+    {
+      return new ArrayChunk(Arrays.copyOf(values, cardinality), cardinality);
+    }
+  }
+
+  /** Dense chunk: the low bits are stored as a plain bitmap. */
+  private static final class BitmapChunk extends Chunk
+  {
+    private final long[] words;
+    private int cardinality;
+
+    BitmapChunk(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality()
+    {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Chunk add(int low)
+    {
+      words[low >>> 6] |= 1L << low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Chunk remove(int low)
+    {
+      words[low >>> 6] &= ~(1L << low);
+      cardinality--;
+      return optimize();
+    }
+
+    @Override
+    Chunk and(Chunk other)
+    {
+      if (other instanceof BitmapChunk)
+      {
+        final long[] otherWords = ((BitmapChunk) other).words;
+        final long[] result = new long[CHUNK_WORDS];
+        int count = 0;
+        for (int i = 0; i < CHUNK_WORDS; i++)
+        {
+          result[i] = words[i] & otherWords[i];
+          count += Long.bitCount(result[i]);
+        }
+        return new BitmapChunk(result, count).optimize();
+      }
+      return other.and(this);
+    }
+
+    @Override
+    Chunk or(Chunk other)
+    {
+      final long[] result = Arrays.copyOf(words, CHUNK_WORDS);
+      if (other instanceof BitmapChunk)
+      {
+        final long[] otherWords = ((BitmapChunk) other).words;
+        for (int i = 0; i < CHUNK_WORDS; i++)
+        {
+          result[i] |= otherWords[i];
+        }
+      }
+      else
+      {
+        for (int low = other.first(); low >= 0; low = other.nextValue(low + 1))
+        {
+          result[low >>> 6] |= 1L << low;
+        }
+      }
+      return new BitmapChunk(result, bitCount(result));
+    }
+
+    @Override
+    Chunk andNot(Chunk other)
+    {
+      final long[] result = Arrays.copyOf(words, CHUNK_WORDS);
+      if (other instanceof BitmapChunk)
+      {
+        final long[] otherWords = ((BitmapChunk) other).words;
+        for (int i = 0; i < CHUNK_WORDS; i++)
+        {
+          result[i] &= ~otherWords[i];
+        }
+      }
+      else
+      {
+        for (int low = other.first(); low >= 0; low = other.nextValue(low + 1))
+        {
+          result[low >>> 6] &= ~(1L << low);
+        }
+      }
+      return new BitmapChunk(result, bitCount(result)).optimize();
+    }
+
+    private static int bitCount(long[] words)
+    {
+      int count = 0;
+      for (long word : words)
+      {
+        count += Long.bitCount(word);
+      }
+      return count;
+    }
+
+    @Override
+    int first()
+    {
+      return nextValue(0);
+    }
+
+    @Override
+    int last()
+    {
+      for (int i = CHUNK_WORDS - 1; i >= 0; i--)
+      {
+        if (words[i] != 0)
+        {
+          return (i << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    int nextValue(int low)
+    {
+      if (low > LOW_MASK)
+      {
+        return -1;
+      }
+      int i = low >>> 6;
+      long word = words[i] & (-1L << low);
+      while (word == 0)
+      {
+        if (++i == CHUNK_WORDS)
+        {
+          return -1;
+        }
+        word = words[i];
+      }
+      return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    int toArray(long base, long[] ids, int offset)
+    {
+      for (int i = 0; i < CHUNK_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          ids[offset++] = base | ((i << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return offset;
+    }
+
+    @Override
+    long[] toWords()
+    {
+      return words;
+    }
+
+    @Override
+    Chunk copy()
+    {
+      return new BitmapChunk(Arrays.copyOf(words, CHUNK_WORDS), cardinality);
+    }
+
+    /** Converts back to a sparse chunk when it would be more compact. */
+    Chunk optimize()
+    {
+      if (cardinality > ARRAY_MAX_CARDINALITY)
+      {
+        return this;
+      }
+      final char[] values = new char[cardinality];
+      int count = 0;
+      for (int i = 0; i < CHUNK_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return new ArrayChunk(values, count);
+    }
+  }
+}
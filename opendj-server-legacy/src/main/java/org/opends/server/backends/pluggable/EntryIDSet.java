@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4();
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -73,6 +74,8 @@ final class EntryIDSet implements Iterable<EntryID>
 
     @Override
     Iterator<EntryID> iterator();
+
+    Iterator<EntryID> iterator(EntryID begin);
   }
 
   /** Define serialization contract for EntryIDSet. */
@@ -252,7 +255,14 @@ final class EntryIDSet implements Iterable<EntryID>
     @Override
     public Iterator<EntryID> iterator()
     {
-      return new IDSetIterator(entryIDs);
+      return new IDSetIterator(entryIDs, 0);
+    }
+
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      final int pos = Arrays.binarySearch(entryIDs, begin.longValue());
+      return new IDSetIterator(entryIDs, pos >= 0 ? pos : -(pos + 1));
     }
 
     @Override
@@ -272,6 +282,121 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs stored in a compressed bitmap. Intersections and unions
+   * involving such a set are computed with word-level bitmap operations rather than by merging arrays.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    private EntryIDBitmap bitmap;
+    /** Lazily computed array view of the bitmap, discarded whenever the bitmap changes. */
+    private long[] entryIDs;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      this.bitmap = checkNotNull(bitmap, "bitmap must not be null");
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      if (bitmap.add(entryID.longValue()))
+      {
+        entryIDs = null;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      if (bitmap.remove(entryID.longValue()))
+      {
+        entryIDs = null;
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      if (that.size() != 0)
+      {
+        bitmap = bitmap.or(toBitmap(that));
+        entryIDs = null;
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      if (that.size() != 0)
+      {
+        bitmap = bitmap.andNot(toBitmap(that));
+        entryIDs = null;
+      }
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return bitmap.iterator(begin.longValue());
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (!bitmap.isEmpty())
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    @Override
+    public long[] getIDs()
+    {
+      // The returned array is shared with the callers: it must never be modified in place.
+      if (entryIDs == null)
+      {
+        entryIDs = bitmap.toArray();
+      }
+      return entryIDs;
+    }
+  }
+
   /**
    * Concrete implementation where the EntryIDs are not defined, for example when the index entry
    * limit has been exceeded.
@@ -347,6 +472,12 @@ final class EntryIDSet implements Iterable<EntryID>
       return Iterators.emptyIterator();
     }
 
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return Iterators.emptyIterator();
+    }
+
     @Override
     public long[] getRange()
     {
@@ -366,9 +497,10 @@ final class EntryIDSet implements Iterable<EntryID>
     private final long[] entryIDSet;
     private int currentIndex;
 
-    IDSetIterator(long[] entryIDSet)
+    IDSetIterator(long[] entryIDSet, int startIndex)
     {
       this.entryIDSet = entryIDSet;
+      this.currentIndex = startIndex;
     }
 
     @Override
@@ -538,6 +670,48 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Compressed bitmap EntryIDSet codec implementation. Large sets are stored as an {@link EntryIDBitmap}, prefixed by a
+   * tag which can never start a V2 record, while small and undefined sets keep the V2 encoding which is already optimal
+   * for them. This codec is therefore able to read records written by the V2 codec, allowing compacted indexes to be
+   * converted lazily as their records get updated.
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    /** V2 records start with a compact encoded int, whose first byte is never greater than 0xF7. */
+    private static final byte BITMAP_SET = (byte) 0xFE;
+    /** Sets smaller than this are more compact when delta encoded. */
+    private static final int BITMAP_MIN_SIZE = 64;
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (!idSet.isDefined() || idSet.size() < BITMAP_MIN_SIZE)
+      {
+        return CODEC_V2.encode(idSet);
+      }
+      final ByteStringBuilder builder = new ByteStringBuilder();
+      builder.appendByte(BITMAP_SET);
+      toBitmap(idSet).encode(builder);
+      return builder.toByteString();
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == BITMAP_SET)
+      {
+        final ByteSequenceReader reader = value.asReader();
+        reader.skip(1);
+        return new EntryIDSet(new BitmapImpl(EntryIDBitmap.decode(reader)));
+      }
+      return CODEC_V2.decode(key, value);
+    }
+  }
+
   /**
    * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
@@ -628,6 +802,35 @@ final class EntryIDSet implements Iterable<EntryID>
     return new EntryIDSet(new DefinedImpl(entryIDs));
   }
 
+  /**
+   * Creates a new defined entry ID set with the specified sorted entryIDs, stored in a compressed bitmap.
+   *
+   * @param entryIDs
+   *          Sorted Entry IDs contained in the set.
+   * @return A new defined {@link EntryIDSet} containing the provided entryIDs
+   * @throws NullPointerException
+   *           if entryIDs is null
+   */
+  static EntryIDSet newBitmapSet(long... entryIDs)
+  {
+    checkNotNull(entryIDs, "ids must not be null");
+    return new EntryIDSet(new BitmapImpl(EntryIDBitmap.valueOf(entryIDs)));
+  }
+
+  private static EntryIDBitmap toBitmap(EntryIDSet set)
+  {
+    if (set.concreteImpl instanceof BitmapImpl)
+    {
+      return ((BitmapImpl) set.concreteImpl).bitmap;
+    }
+    return EntryIDBitmap.valueOf(set.getIDs());
+  }
+
+  private boolean isBitmap()
+  {
+    return concreteImpl instanceof BitmapImpl;
+  }
+
   private static long[] intersection(long[] set1, long[] set2)
   {
     long[] target = new long[Math.min(set1.length, set2.length)];
@@ -689,6 +892,19 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    if (containsBitmapSet(sets))
+    {
+      EntryIDBitmap union = new EntryIDBitmap();
+      for (EntryIDSet l : sets)
+      {
+        if (l.size() != 0)
+        {
+          union = union.or(toBitmap(l));
+        }
+      }
+      return new EntryIDSet(new BitmapImpl(union));
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +939,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static boolean containsBitmapSet(List<EntryIDSet> sets)
+  {
+    for (EntryIDSet l : sets)
+    {
+      if (l.isBitmap())
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -903,6 +1131,12 @@ final class EntryIDSet implements Iterable<EntryID>
       return;
     }
 
+    if (isBitmap() || that.isBitmap())
+    {
+      concreteImpl = new BitmapImpl(toBitmap(this).and(toBitmap(that)));
+      return;
+    }
+
     final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
     if (thatSetOverlap)
     {
@@ -942,6 +1176,23 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.iterator();
   }
 
+  /**
+   * Creates an iterator over the IDs of the set which are greater than or equal to the provided ID, or an empty
+   * iterator if the set is not defined. Unlike skipping elements of {@link #iterator()}, the iterator is directly
+   * positioned on the provided ID.
+   *
+   * @param begin
+   *          The smallest ID to be returned by the iterator.
+   * @return An EntryID iterator.
+   * @throws NullPointerException
+   *           if begin is null
+   */
+  public Iterator<EntryID> iterator(EntryID begin)
+  {
+    checkNotNull(begin, "begin must not be null");
+    return concreteImpl.iterator(begin);
+  }
+
   private long[] getIDs()
   {
     return concreteImpl.getIDs();
@@ -16,31 +16,57 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+
+import java.io.CharArrayWriter;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
-import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.Entry;
 import org.opends.server.types.LDIFExportConfig;
 import org.opends.server.util.LDIFException;
 import org.opends.server.util.StaticUtils;
 
-import static org.opends.messages.BackendMessages.*;
-
-/** Export a backend to LDIF. */
+/**
+ * Export a backend to LDIF.
+ * <p>
+ * When the export configuration requests more than one thread, the entry ID space of each entry container is split
+ * into ranges which are read, decoded and formatted as LDIF by worker threads. The formatted ranges are either written
+ * in order to the LDIF file, or each worker writes its own range to a separate LDIF file.
+ */
 class ExportJob
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  private static final String EXPORT_THREAD_NAME = "EXPORT-%d";
+  /** The number of entry IDs in each range formatted by a worker thread when the output is written in order. */
+  private static final long ORDERED_RANGE_SIZE = 1000;
+  /** The number of formatted ranges that each worker thread may produce ahead of the ordered output. */
+  private static final int ORDERED_RANGES_PER_THREAD = 2;
+
   /** The requested LDIF export configuration. */
   private final LDIFExportConfig exportConfig;
 
@@ -48,10 +74,16 @@ class ExportJob
   private final long progressInterval = 10000;
 
   /** The current number of entries exported. */
-  private long exportedCount;
+  private final AtomicLong exportedCount = new AtomicLong();
 
   /** The current number of entries skipped. */
-  private long skippedCount;
+  private final AtomicLong skippedCount = new AtomicLong();
+
+  /** The number of LDIF files written when the output is split. */
+  private int partCount;
+
+  /** Whether a parallel export failed, so that the threads still exporting stop at their next entry. */
+  private volatile boolean aborted;
 
   /**
    * Create a new export job.
@@ -111,31 +143,39 @@ class ExportJob
     // Iterate through the containers.
     try
     {
-      rootContainer.getStorage().read(new ReadOperation<Void>()
+      if (exportConfig.getThreadCount() > 1)
       {
-        @Override
-        public Void run(ReadableTransaction txn) throws Exception
+        logger.info(NOTE_EXPORT_PARALLEL_START, exportConfig.getThreadCount());
+        exportInParallel(rootContainer.getStorage(), exportContainers);
+      }
+      else
+      {
+        rootContainer.getStorage().read(new ReadOperation<Void>()
         {
-          for (EntryContainer exportContainer : exportContainers)
+          @Override
+          public Void run(ReadableTransaction txn) throws Exception
           {
-            if (exportConfig.isCancelled())
-            {
-              break;
-            }
-
-            exportContainer.sharedLock.lock();
-            try
-            {
-              exportContainer(txn, exportContainer);
-            }
-            finally
+            for (EntryContainer exportContainer : exportContainers)
             {
-              exportContainer.sharedLock.unlock();
+              if (exportConfig.isCancelled())
+              {
+                break;
+              }
+
+              exportContainer.sharedLock.lock();
+              try
+              {
+                exportRange(txn, exportContainer, 0, Long.MAX_VALUE, exportConfig);
+              }
+              finally
+              {
+                exportContainer.sharedLock.unlock();
+              }
             }
+            return null;
           }
-          return null;
-        }
-      });
+        });
+      }
     }
     catch (Exception e)
     {
@@ -152,31 +192,289 @@ class ExportJob
     float rate = 0;
     if (totalTime > 0)
     {
-      rate = 1000f*exportedCount / totalTime;
+      rate = 1000f*exportedCount.get() / totalTime;
     }
 
-    logger.info(NOTE_EXPORT_FINAL_STATUS, exportedCount, skippedCount, totalTime/1000, rate);
+    logger.info(NOTE_EXPORT_FINAL_STATUS, exportedCount.get(), skippedCount.get(), totalTime/1000, rate);
   }
 
   /**
-   * Export the entries in a single entry entryContainer, in other words from
-   * one of the base DNs.
+   * Export the entries of the provided entry containers using several threads. The shared lock of each entry container
+   * is held by the calling thread while its entries are exported.
+   */
+  private void exportInParallel(Storage storage, List<EntryContainer> exportContainers) throws Exception
+  {
+    final int threadCount = exportConfig.getThreadCount();
+    final boolean splitOutput = exportConfig.splitOutput() && exportConfig.getLDIFFile() != null;
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(threadCount, newThreadFactory(null, EXPORT_THREAD_NAME, true));
+    try
+    {
+      for (EntryContainer exportContainer : exportContainers)
+      {
+        if (exportConfig.isCancelled())
+        {
+          break;
+        }
+
+        exportContainer.sharedLock.lock();
+        try
+        {
+          final long[] bounds = getEntryIDBounds(storage, exportContainer);
+          if (bounds == null)
+          {
+            continue;
+          }
+          if (splitOutput)
+          {
+            exportToParts(storage, exportContainer, bounds[0], bounds[1], executor, threadCount);
+          }
+          else
+          {
+            exportInOrder(storage, exportContainer, bounds[0], bounds[1], executor, threadCount);
+          }
+        }
+        finally
+        {
+          exportContainer.sharedLock.unlock();
+        }
+      }
+    }
+    finally
+    {
+      // Never interrupt the threads: interrupting a read may invalidate the storage of the live backend
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the lowest entry ID and one more than the highest entry ID of the provided entry container, or
+   * {@code null} if it does not contain any entry.
+   */
+  private long[] getEntryIDBounds(Storage storage, final EntryContainer entryContainer) throws Exception
+  {
+    return storage.read(new ReadOperation<long[]>()
+    {
+      @Override
+      public long[] run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(entryContainer.getID2Entry().getName()))
+        {
+          if (!cursor.positionToLastKey())
+          {
+            return null;
+          }
+          final long highestID = new EntryID(cursor.getKey()).longValue();
+          if (!cursor.positionToKeyOrNext(new EntryID(1).toByteString()))
+          {
+            return null;
+          }
+          final long lowestID = new EntryID(cursor.getKey()).longValue();
+          return lowestID <= highestID ? new long[] { lowestID, highestID + 1 } : null;
+        }
+      }
+    });
+  }
+
+  /**
+   * Export the entries of an entry container to one LDIF file per thread, each thread exporting an equal part of the
+   * entry ID range.
+   */
+  private void exportToParts(final Storage storage, final EntryContainer entryContainer, long lowestID,
+      long highestID, ExecutorService executor, int threadCount) throws Exception
+  {
+    final long rangeSize = Math.max(1, (highestID - lowestID + threadCount - 1) / threadCount);
+    final List<Future<Void>> futures = new ArrayList<>();
+    for (long from = lowestID; from < highestID; from += rangeSize)
+    {
+      final long rangeStart = from;
+      final long rangeEnd = Math.min(from + rangeSize, highestID);
+      final String partFile = getPartFileName(exportConfig.getLDIFFile(), ++partCount);
+      futures.add(executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          final LDIFExportConfig partConfig = exportConfig.duplicate(partFile);
+          try
+          {
+            final long count = storage.read(new ReadOperation<Long>()
+            {
+              @Override
+              public Long run(ReadableTransaction txn) throws Exception
+              {
+                return exportRange(txn, entryContainer, rangeStart, rangeEnd, partConfig);
+              }
+            });
+            logger.info(NOTE_EXPORT_PART_WRITTEN, count, partFile);
+          }
+          finally
+          {
+            partConfig.close();
+          }
+          return null;
+        }
+      }));
+    }
+    try
+    {
+      for (Future<Void> future : futures)
+      {
+        getResult(future);
+      }
+    }
+    catch (Exception e)
+    {
+      abort(futures);
+      throw e;
+    }
+  }
+
+  /**
+   * Export the entries of an entry container in order to the LDIF file. Small ranges of entry IDs are formatted in
+   * memory by the worker threads, which may only run a bounded number of ranges ahead of the range being written.
+   */
+  private void exportInOrder(final Storage storage, final EntryContainer entryContainer, long lowestID,
+      long highestID, ExecutorService executor, int threadCount) throws Exception
+  {
+    final Deque<Future<CharArrayWriter>> pendingRanges = new ArrayDeque<>();
+    try
+    {
+      writeRangesInOrder(storage, entryContainer, lowestID, highestID, executor, threadCount, pendingRanges);
+    }
+    catch (Exception e)
+    {
+      abort(pendingRanges);
+      throw e;
+    }
+  }
+
+  private void writeRangesInOrder(final Storage storage, final EntryContainer entryContainer, long lowestID,
+      long highestID, ExecutorService executor, int threadCount, Deque<Future<CharArrayWriter>> pendingRanges)
+      throws Exception
+  {
+    long nextID = lowestID;
+    while (nextID < highestID || !pendingRanges.isEmpty())
+    {
+      while (nextID < highestID && pendingRanges.size() < threadCount * ORDERED_RANGES_PER_THREAD
+          && !exportConfig.isCancelled())
+      {
+        final long rangeStart = nextID;
+        final long rangeEnd = highestID - nextID > ORDERED_RANGE_SIZE ? nextID + ORDERED_RANGE_SIZE : highestID;
+        pendingRanges.add(executor.submit(new Callable<CharArrayWriter>()
+        {
+          @Override
+          public CharArrayWriter call() throws Exception
+          {
+            final CharArrayWriter buffer = new CharArrayWriter();
+            try (LDIFExportConfig rangeConfig = exportConfig.duplicate(buffer))
+            {
+              storage.read(new ReadOperation<Long>()
+              {
+                @Override
+                public Long run(ReadableTransaction txn) throws Exception
+                {
+                  return exportRange(txn, entryContainer, rangeStart, rangeEnd, rangeConfig);
+                }
+              });
+              rangeConfig.getWriter().flush();
+            }
+            return buffer;
+          }
+        }));
+        nextID = rangeEnd;
+      }
+      if (pendingRanges.isEmpty())
+      {
+        // cancelled
+        return;
+      }
+      getResult(pendingRanges.poll()).writeTo(exportConfig.getWriter());
+    }
+  }
+
+  /**
+   * Stops a parallel export after a failure. The running tasks stop at their next entry and are waited for, so that
+   * none of them is still reading the storage when the failure is reported.
+   */
+  private void abort(Collection<? extends Future<?>> futures)
+  {
+    aborted = true;
+    for (Future<?> future : futures)
+    {
+      future.cancel(false);
+      try
+      {
+        future.get();
+      }
+      catch (CancellationException | ExecutionException e)
+      {
+        // Only the first failure is reported
+        logger.traceException(e);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private static <T> T getResult(Future<T> future) throws Exception
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (ExecutionException e)
+    {
+      if (e.getCause() instanceof Exception)
+      {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the name of the LDIF file of a part of a split export: the number of the part is inserted before the
+   * extensions of the LDIF file name, so that for example "export.ldif.gz" becomes "export-1.ldif.gz".
+   */
+  static String getPartFileName(String ldifFile, int part)
+  {
+    final File file = new File(ldifFile);
+    final String name = file.getName();
+    final int dot = name.indexOf('.');
+    final String partName = dot > 0 ? name.substring(0, dot) + "-" + part + name.substring(dot) : name + "-" + part;
+    return new File(file.getParentFile(), partName).getPath();
+  }
+
+  /**
+   * Export the entries of an entry container whose ID is in the provided range.
+   * @param txn The transaction used to read the entries.
    * @param entryContainer The entry container that holds the entries to be
    *                       exported.
+   * @param lowestID The lowest entry ID to export, or 0 to export from the
+   *                 first record.
+   * @param highestID One more than the highest entry ID to export.
+   * @param config The export configuration used to write the entries.
+   * @return The number of entries exported.
    * @throws StorageRuntimeException If an error occurs in the storage.
    * @throws IOException If an error occurs while writing an entry.
    * @throws  LDIFException  If an error occurs while trying to determine
    *                         whether to write an entry.
    */
-  private void exportContainer(ReadableTransaction txn, EntryContainer entryContainer)
-       throws StorageRuntimeException, IOException, LDIFException
+  private long exportRange(ReadableTransaction txn, EntryContainer entryContainer, long lowestID, long highestID,
+      LDIFExportConfig config) throws StorageRuntimeException, IOException, LDIFException
   {
+    long count = 0;
     ID2Entry id2entry = entryContainer.getID2Entry();
     try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
     {
-      while (cursor.next())
+      boolean found = lowestID > 0 ? cursor.positionToKeyOrNext(new EntryID(lowestID).toByteString()) : cursor.next();
+      for (; found; found = cursor.next())
       {
-        if (exportConfig.isCancelled())
+        if (exportConfig.isCancelled() || aborted)
         {
           break;
         }
@@ -195,10 +493,14 @@ class ExportJob
 
             logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
           }
-          skippedCount++;
+          skippedCount.incrementAndGet();
           continue;
         }
 
+        if (entryID.longValue() >= highestID)
+        {
+          break;
+        }
         if (entryID.longValue() == 0)
         {
           // This is the stored entry count.
@@ -220,20 +522,22 @@ class ExportJob
             logger.trace("Malformed id2entry record for ID %d:%n%s%n",
                        entryID, StaticUtils.bytesToHex(value));
           }
-          skippedCount++;
+          skippedCount.incrementAndGet();
           continue;
         }
 
-        if (entry.toLDIF(exportConfig))
+        if (entry.toLDIF(config))
         {
-          exportedCount++;
+          exportedCount.incrementAndGet();
+          count++;
         }
         else
         {
-          skippedCount++;
+          skippedCount.incrementAndGet();
         }
       }
     }
+    return count;
   }
 
   /** This class reports progress of the export job at fixed intervals. */
@@ -255,7 +559,7 @@ class ExportJob
     @Override
     public void run()
     {
-      long latestCount = exportedCount;
+      long latestCount = exportedCount.get();
       long deltaCount = latestCount - previousCount;
       long latestTime = System.currentTimeMillis();
       long deltaTime = latestTime - previousTime;
@@ -267,7 +571,7 @@ class ExportJob
 
       float rate = 1000f*deltaCount / deltaTime;
 
-      logger.info(NOTE_EXPORT_PROGRESS_REPORT, latestCount, skippedCount, rate);
+      logger.info(NOTE_EXPORT_PROGRESS_REPORT, latestCount, skippedCount.get(), rate);
 
       previousCount = latestCount;
       previousTime = latestTime;
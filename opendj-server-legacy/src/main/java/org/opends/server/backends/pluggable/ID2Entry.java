@@ -26,8 +26,13 @@ import static org.opends.server.core.DirectoryServer.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.InflaterOutputStream;
 
@@ -82,6 +87,16 @@ class ID2Entry extends AbstractTree
   /** Parameters for compression and encryption. */
   private DataConfig dataConfig;
 
+  /** The tree storing the compression dictionaries, or null if dictionaries are not supported. */
+  private final State state;
+  /**
+   * The compression dictionaries, indexed by their identifier. The first element is always null since identifiers
+   * start at 1, and the last one is the dictionary used to compress new entries.
+   */
+  private volatile byte[][] dictionaries = { null };
+  /** Samples the imported entries until a compression dictionary can be trained, null when not sampling. */
+  private volatile CompressionDictionaryTrainer dictionaryTrainer;
+
   /** Cached encoding buffers. */
   private static final ThreadLocal<EntryCodec> ENTRY_CODEC_CACHE = new ThreadLocal<EntryCodec>()
   {
@@ -119,6 +134,7 @@ class ID2Entry extends AbstractTree
     private static final byte PLAIN_ENTRY = 0x00;
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
+    private static final byte DICTIONARY_COMPRESS_ENTRY = 0x04;
 
     /** The format version for entry encoding. */
     static final byte FORMAT_VERSION_V2 = 0x02;
@@ -127,6 +143,10 @@ class ID2Entry extends AbstractTree
     private final ByteStringBuilder entryBuffer = new ByteStringBuilder();
     private final ByteStringBuilder compressedEntryBuffer = new ByteStringBuilder();
     private final int maxBufferSize;
+    /** Lazily created, reused for all the entries compressed against a dictionary. */
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] deflatedBytes;
 
     private EntryCodec()
     {
@@ -140,7 +160,7 @@ class ID2Entry extends AbstractTree
       compressedEntryBuffer.clearAndTruncate(maxBufferSize, BUFFER_INIT_SIZE);
     }
 
-    private Entry decode(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decode(ByteString bytes, CompressedSchema compressedSchema, byte[][] dictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       final byte formatVersion = bytes.byteAt(0);
@@ -149,7 +169,7 @@ class ID2Entry extends AbstractTree
       case FORMAT_VERSION:
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
-        return decodeV2(bytes, compressedSchema);
+        return decodeV2(bytes, compressedSchema, dictionaries);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -234,18 +254,22 @@ class ID2Entry extends AbstractTree
      * ID2ENTRY_VALUE = encoding of Entry as in decodeV1()
      * VERSION_BYTE = 0x2
      * FLAG_BYTE = bit field of OR'ed values indicating post-encoding processing.
-     *     possible meaningful flags are COMPRESS_ENTRY and ENCRYPT_ENTRY.
+     *     possible meaningful flags are COMPRESS_ENTRY, DICTIONARY_COMPRESS_ENTRY and ENCRYPT_ENTRY.
      * COMPACT_INTEGER_LENGTH = length of ID2ENTRY_VALUE
      *
+     * When DICTIONARY_COMPRESS_ENTRY is set, COMPACT_INTEGER_LENGTH is followed by the compact
+     * integer identifier of the dictionary the entry has been compressed against.
+     *
      * @param bytes A byte array containing the encoded tree value.
      * @param compressedSchema The compressed schema manager to use when decoding.
+     * @param dictionaries The compression dictionaries indexed by their identifier.
      * @return The decoded entry.
      * @throws DecodeException If the data is not in the expected ASN.1 encoding
      * format or a decryption error occurs.
      * @throws DirectoryException If a Directory Server error occurs.
      * @throws IOException if an error occurs while reading the ASN1 sequence.
      */
-    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema)
+    private Entry decodeV2(ByteString bytes, CompressedSchema compressedSchema, byte[][] dictionaries)
         throws DirectoryException, DecodeException, IOException
     {
       ByteSequenceReader reader = bytes.asReader();
@@ -259,6 +283,23 @@ class ID2Entry extends AbstractTree
         {
           return Entry.decode(reader, compressedSchema);
         }
+        if ((format & DICTIONARY_COMPRESS_ENTRY) == DICTIONARY_COMPRESS_ENTRY)
+        {
+          final int dictionaryID = reader.readCompactUnsignedInt();
+          if (dictionaryID <= 0 || dictionaryID >= dictionaries.length)
+          {
+            throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+          }
+          if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
+          {
+            readFully(getCryptoManager().getCipherInputStream(reader.asInputStream()), compressedEntryBuffer);
+          }
+          else
+          {
+            compressedEntryBuffer.appendBytes(bytes.subSequence(reader.position(), bytes.length()));
+          }
+          return Entry.decode(inflate(dictionaries[dictionaryID], encodedEntryLen).asReader(), compressedSchema);
+        }
         InputStream is = reader.asInputStream();
         if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
         {
@@ -291,23 +332,97 @@ class ID2Entry extends AbstractTree
       }
     }
 
-    private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
+    /** Reads a whole stream into the provided buffer. */
+    private static void readFully(InputStream is, ByteStringBuilder buffer) throws IOException
+    {
+      final byte[] chunk = new byte[BUFFER_INIT_SIZE];
+      int readBytes;
+      while ((readBytes = is.read(chunk)) != -1)
+      {
+        buffer.appendBytes(chunk, 0, readBytes);
+      }
+    }
+
+    /** Deflates the content of the entry buffer against the provided dictionary. */
+    private void deflate(byte[] dictionary, OutputStream os) throws IOException
+    {
+      if (deflater == null)
+      {
+        deflater = new Deflater();
+      }
+      if (deflatedBytes == null)
+      {
+        deflatedBytes = new byte[BUFFER_INIT_SIZE];
+      }
+      deflater.reset();
+      deflater.setDictionary(dictionary);
+      deflater.setInput(entryBuffer.getBackingArray(), 0, entryBuffer.length());
+      deflater.finish();
+      while (!deflater.finished())
+      {
+        os.write(deflatedBytes, 0, deflater.deflate(deflatedBytes));
+      }
+    }
+
+    /** Inflates the content of the compressed entry buffer against the provided dictionary. */
+    private ByteString inflate(byte[] dictionary, int inflatedLength) throws DecodeException
     {
-      encodeVolatile(entry, dataConfig);
+      if (inflater == null)
+      {
+        inflater = new Inflater();
+      }
+      // The decoded entry keeps references to this array, which therefore cannot be reused for the next entry.
+      final byte[] inflatedBytes = new byte[inflatedLength];
+      inflater.reset();
+      inflater.setInput(compressedEntryBuffer.getBackingArray(), 0, compressedEntryBuffer.length());
+      try
+      {
+        int position = 0;
+        while (position < inflatedLength)
+        {
+          final int inflated = inflater.inflate(inflatedBytes, position, inflatedLength - position);
+          if (inflated == 0)
+          {
+            if (!inflater.needsDictionary())
+            {
+              throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+            }
+            inflater.setDictionary(dictionary);
+          }
+          position += inflated;
+        }
+      }
+      catch (DataFormatException | IllegalArgumentException e)
+      {
+        logger.traceException(e);
+        throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+      }
+      return ByteString.wrap(inflatedBytes);
+    }
+
+    private ByteString encode(Entry entry, DataConfig dataConfig, byte[][] dictionaries) throws DirectoryException
+    {
+      encodeVolatile(entry, dataConfig, dictionaries);
       return encodedBuffer.toByteString();
     }
 
-    private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
+    private void encodeVolatile(Entry entry, DataConfig dataConfig, byte[][] dictionaries) throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
 
+      final int dictionaryID = dataConfig.isCompressedWithDictionary() ? dictionaries.length - 1 : 0;
       OutputStream os = encodedBuffer.asOutputStream();
       try
       {
         byte[] formatFlags = { FORMAT_VERSION_V2, 0};
         os.write(formatFlags);
         encodedBuffer.appendCompactUnsigned(entryBuffer.length());
-        if (dataConfig.isCompressed())
+        if (dictionaryID > 0)
+        {
+          encodedBuffer.appendCompactUnsigned(dictionaryID);
+          formatFlags[1] = DICTIONARY_COMPRESS_ENTRY;
+        }
+        else if (dataConfig.isCompressed())
         {
           os = new DeflaterOutputStream(os);
           formatFlags[1] = COMPRESS_ENTRY;
@@ -319,7 +434,14 @@ class ID2Entry extends AbstractTree
         }
         encodedBuffer.setByte(1, formatFlags[1]);
 
-        entryBuffer.copyTo(os);
+        if (dictionaryID > 0)
+        {
+          deflate(dictionaries[dictionaryID], os);
+        }
+        else
+        {
+          entryBuffer.copyTo(os);
+        }
         os.flush();
       }
       catch(CryptoManagerException | IOException e)
@@ -350,9 +472,24 @@ class ID2Entry extends AbstractTree
    * @throws StorageRuntimeException If an error occurs in the storage.
    */
   ID2Entry(TreeName name, DataConfig dataConfig) throws StorageRuntimeException
+  {
+    this(name, dataConfig, null);
+  }
+
+  /**
+   * Create a new ID2Entry object.
+   *
+   * @param name The name of the entry tree.
+   * @param dataConfig The desired compression and encryption options for data
+   * stored in the entry tree.
+   * @param state The state tree storing the compression dictionaries, which must be opened before this tree.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  ID2Entry(TreeName name, DataConfig dataConfig, State state) throws StorageRuntimeException
   {
     super(name);
     this.dataConfig = dataConfig;
+    this.state = state;
   }
 
   @Override
@@ -360,9 +497,85 @@ class ID2Entry extends AbstractTree
   {
     // Make sure the tree is there and readable, even if the storage is READ_ONLY.
     // Would be nice if there were a better way...
+    final boolean isEmpty;
+    try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      isEmpty = !cursor.next();
+    }
+
+    if (state != null)
+    {
+      loadDictionaries(txn);
+      if (createOnDemand && !isEmpty && dictionaries.length == 1 && dataConfig.isCompressedWithDictionary())
+      {
+        trainDictionaryFromEntries(txn);
+      }
+    }
+  }
+
+  @Override
+  void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    // The entries are about to be imported again: sample them in order to train a new dictionary.
+    if (state != null)
+    {
+      state.deleteCompressionDictionaries(txn, getName());
+    }
+    dictionaries = new byte[][] { null };
+    dictionaryTrainer = state != null && dataConfig.isCompressedWithDictionary()
+        ? new CompressionDictionaryTrainer() : null;
+  }
+
+  private void loadDictionaries(ReadableTransaction txn)
+  {
+    final List<byte[]> loaded = new ArrayList<>();
+    loaded.add(null);
+    ByteString dictionary;
+    while ((dictionary = state.getCompressionDictionary(txn, getName(), loaded.size())) != null)
+    {
+      loaded.add(dictionary.toByteArray());
+    }
+    dictionaries = loaded.toArray(new byte[loaded.size()][]);
+  }
+
+  /** Trains a dictionary from the first entries of the tree, for backends populated before dictionaries were used. */
+  private void trainDictionaryFromEntries(WriteableTransaction txn)
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+    final ByteStringBuilder encodedEntry = new ByteStringBuilder();
     try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
     {
-      cursor.next();
+      boolean sampledEnough = false;
+      while (!sampledEnough && cursor.next())
+      {
+        encodedEntry.clear();
+        entryFromDatabase(cursor.getValue(), dataConfig.getEntryEncodeConfig().getCompressedSchema())
+            .encode(encodedEntry, dataConfig.getEntryEncodeConfig());
+        sampledEnough = trainer.addSample(encodedEntry);
+      }
+    }
+    catch (Exception e)
+    {
+      // The dictionary is only an optimization: keep compressing entries without dictionary.
+      logger.traceException(e);
+      return;
+    }
+    if (trainer.getSampleCount() >= CompressionDictionaryTrainer.MIN_SAMPLE_COUNT)
+    {
+      addDictionary(txn, trainer);
+    }
+  }
+
+  private synchronized void addDictionary(WriteableTransaction txn, CompressionDictionaryTrainer trainer)
+  {
+    final ByteString dictionary = trainer.train();
+    if (dictionary.length() > 0)
+    {
+      final byte[][] newDictionaries = Arrays.copyOf(dictionaries, dictionaries.length + 1);
+      state.putCompressionDictionary(txn, getName(), dictionaries.length, dictionary);
+      newDictionaries[dictionaries.length] = dictionary.toByteArray();
+      dictionaries = newDictionaries;
+      logger.info(NOTE_ID2ENTRY_DICTIONARY_TRAINED, dictionary.length(), trainer.getSampleCount(), getName());
     }
   }
 
@@ -388,7 +601,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.decode(bytes, compressedSchema);
+      return codec.decode(bytes, compressedSchema, dictionaries);
     }
     finally
     {
@@ -411,7 +624,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.encode(entry, dataConfig);
+      return codec.encode(entry, dataConfig, dictionaries);
     }
     finally
     {
@@ -419,6 +632,53 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Write a record in the entry tree while importing entries. The first imported entries are sampled
+   * in order to train the compression dictionary when the entries are compressed against a dictionary.
+   *
+   * @param txn a non null transaction
+   * @param entryID The entry ID which forms the key.
+   * @param entry The LDAP entry.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @throws  DirectoryException  If a problem occurs while attempting to encode
+   *                              the entry.
+   */
+  void importPut(WriteableTransaction txn, EntryID entryID, Entry entry)
+      throws StorageRuntimeException, DirectoryException
+  {
+    final CompressionDictionaryTrainer trainer = dictionaryTrainer;
+    if (trainer == null)
+    {
+      put(txn, entryID, encode(entry));
+      return;
+    }
+
+    final ByteString encodedEntry;
+    final boolean sampledEnough;
+    EntryCodec codec = acquireEntryCodec();
+    try
+    {
+      encodedEntry = codec.encode(entry, dataConfig, dictionaries);
+      sampledEnough = trainer.addSample(codec.entryBuffer);
+    }
+    finally
+    {
+      codec.release();
+    }
+    put(txn, entryID, encodedEntry);
+    if (sampledEnough)
+    {
+      synchronized (this)
+      {
+        if (dictionaryTrainer == trainer)
+        {
+          dictionaryTrainer = null;
+          addDictionary(txn, trainer);
+        }
+      }
+    }
+  }
+
   ByteString encode(Entry entry) throws DirectoryException {
     return entryToDatabase(entry, dataConfig);
   }
@@ -469,6 +729,65 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Fetch a batch of records from the entry tree with a single sorted multi-get.
+   *
+   * @param txn a non null transaction
+   * @param sortedEntryIDs The desired entry IDs, sorted in ascending order.
+   * @return The requested entries, in the same order as the provided entry IDs, with a null element for each record
+   *         which does not exist or cannot be decoded.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<Entry> get(ReadableTransaction txn, List<EntryID> sortedEntryIDs) throws StorageRuntimeException
+  {
+    final List<ByteString> values = getEncoded(txn, sortedEntryIDs);
+    final List<Entry> entries = new ArrayList<>(values.size());
+    for (ByteString value : values)
+    {
+      entries.add(decodeOrNull(value));
+    }
+    return entries;
+  }
+
+  /**
+   * Fetch a batch of encoded records from the entry tree with a single sorted multi-get, leaving their decoding to
+   * {@link #decodeOrNull(ByteString)}.
+   *
+   * @param txn a non null transaction
+   * @param sortedEntryIDs The desired entry IDs, sorted in ascending order.
+   * @return The encoded records, in the same order as the provided entry IDs, with a null element for each record
+   *         which does not exist.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<ByteString> getEncoded(ReadableTransaction txn, List<EntryID> sortedEntryIDs) throws StorageRuntimeException
+  {
+    final List<ByteString> keys = new ArrayList<>(sortedEntryIDs.size());
+    for (EntryID entryID : sortedEntryIDs)
+    {
+      keys.add(entryID.toByteString());
+    }
+    return txn.read(getName(), keys);
+  }
+
+  /**
+   * Decodes a record of the entry tree. This method is thread-safe.
+   *
+   * @param value The encoded record, may be null.
+   * @return The decoded entry, or null if the record is null or cannot be decoded.
+   */
+  Entry decodeOrNull(ByteString value)
+  {
+    try
+    {
+      return get0(value);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
   Cursor<EntryID, Entry> openCursor(ReadableTransaction txn)
   {
     return transformKeysAndValues(txn.openCursor(getName()), TO_ENTRY_ID, TO_ENTRY);
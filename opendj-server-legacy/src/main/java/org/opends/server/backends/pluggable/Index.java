@@ -44,4 +44,6 @@ interface Index extends Tree
   void setTrusted(WriteableTransaction txn, boolean trusted);
 
   void update(WriteableTransaction txn, ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs);
+
+  void updateStatistics(ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs);
 }
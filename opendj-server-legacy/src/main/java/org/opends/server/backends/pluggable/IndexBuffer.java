@@ -47,6 +47,10 @@ class IndexBuffer
 
     void writeTrustState(WriteableTransaction txn) throws StorageRuntimeException;
 
+    void invalidate(SearchResultCache searchResultCache);
+
+    void updateStatistics();
+
     void put(DefaultIndex index, ByteString key, EntryID entryID);
 
     void put(VLVIndex index, ByteString sortKey);
@@ -222,6 +226,29 @@ class IndexBuffer
       }
     }
 
+    @Override
+    public void invalidate(SearchResultCache searchResultCache)
+    {
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : bufferedIndexes.entrySet())
+      {
+        searchResultCache.invalidate(entry.getKey().getName(), entry.getValue().keySet());
+      }
+    }
+
+    @Override
+    public void updateStatistics()
+    {
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : bufferedIndexes.entrySet())
+      {
+        final Index index = entry.getKey();
+        for (Entry<ByteString, BufferedIndexValues> keyEntry : entry.getValue().entrySet())
+        {
+          final BufferedIndexValues values = keyEntry.getValue();
+          index.updateStatistics(keyEntry.getKey(), values.deletedEntryIDs, values.addedEntryIDs);
+        }
+      }
+    }
+
     @Override
     public void put(DefaultIndex index, ByteString key, EntryID entryID)
     {
@@ -284,6 +311,7 @@ class IndexBuffer
     {
       Reject.ifFalse(this.expectedEntryID.equals(entryID), "Unexpected entryID");
       txn.put(index.getName(), key, index.importToValue(entryID));
+      index.getStatistics().add(key, 1);
     }
 
     @Override
@@ -304,6 +332,18 @@ class IndexBuffer
       // Nothing to do
     }
 
+    @Override
+    public void invalidate(SearchResultCache searchResultCache)
+    {
+      // Imports clear the whole cache
+    }
+
+    @Override
+    public void updateStatistics()
+    {
+      // Imports update the statistics as the records are put
+    }
+
     @Override
     public void remove(VLVIndex index, ByteString sortKey)
     {
@@ -368,6 +408,27 @@ class IndexBuffer
     impl.writeTrustState(txn);
   }
 
+  /**
+   * Invalidates the search candidates cached for the index keys updated by this buffer. This must be called once the
+   * buffered changes have been committed.
+   *
+   * @param searchResultCache
+   *          the search result cache to invalidate
+   */
+  void invalidate(SearchResultCache searchResultCache)
+  {
+    impl.invalidate(searchResultCache);
+  }
+
+  /**
+   * Records the index changes of this buffer in the statistics of the indexes. This must be called once the buffered
+   * changes have been committed, so that a transaction which is retried does not count them several times.
+   */
+  void updateStatistics()
+  {
+    impl.updateStatistics();
+  }
+
   void put(DefaultIndex index, ByteString key, EntryID entryID)
   {
     impl.put(index, key, entryID);
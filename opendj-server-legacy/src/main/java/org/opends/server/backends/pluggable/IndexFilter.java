@@ -18,10 +18,15 @@ package org.opends.server.backends.pluggable;
 
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
+import static org.opends.server.backends.pluggable.IndexQuery.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
@@ -45,6 +50,27 @@ class IndexFilter
   /** Limit on the number of entry IDs that may be retrieved by cursoring through an index. */
   static final int CURSOR_ENTRY_LIMIT = 100000;
 
+  /**
+   * A step of the evaluation of a logical filter against the indexes: either a single filter
+   * component or a pair of range filters on the same attribute, along with its estimated size.
+   */
+  private final class PlanStep
+  {
+    private final List<SearchFilter> filters;
+    private final long estimate;
+
+    private PlanStep(List<SearchFilter> filters)
+    {
+      this.filters = filters;
+      long estimate = UNDEFINED_ESTIMATE;
+      for (SearchFilter filter : filters)
+      {
+        estimate = Math.min(estimate, estimateFilter(filter));
+      }
+      this.estimate = estimate;
+    }
+  }
+
   /** The entry container holding the attribute indexes. */
   private final EntryContainer entryContainer;
   private final ReadableTransaction txn;
@@ -61,6 +87,8 @@ class IndexFilter
    */
   private final StringBuilder buffer;
   private final BackendMonitor monitor;
+  /** Records the index records read by the evaluation, may be null. */
+  private final SearchResultCache.Dependencies dependencies;
 
   /**
    * Construct an index filter for a search operation.
@@ -72,15 +100,18 @@ class IndexFilter
    * @param debugBuilder If not null, a diagnostic string will be written
    *                     which will help determine how the indexes contributed
    *                     to this search.
+   * @param dependencies If not null, records the index records read to
+   *                     evaluate the search.
    */
   IndexFilter(EntryContainer entryContainer, ReadableTransaction txn, SearchOperation searchOp,
-      StringBuilder debugBuilder, BackendMonitor monitor)
+      StringBuilder debugBuilder, BackendMonitor monitor, SearchResultCache.Dependencies dependencies)
   {
     this.entryContainer = entryContainer;
     this.txn = txn;
     this.searchOp = searchOp;
     this.buffer = debugBuilder;
     this.monitor = monitor;
+    this.dependencies = dependencies;
   }
 
   /**
@@ -164,6 +195,9 @@ class IndexFilter
 
   /**
    * Evaluate a logical AND search filter against the indexes.
+   * <p>
+   * The filter components are evaluated by increasing estimated size, so that the most selective
+   * ones are read first and the evaluation can stop as soon as there are few enough candidates.
    *
    * @param andFilter The AND search filter to be evaluated.
    * @return A set of entry IDs representing candidate entries.
@@ -173,6 +207,7 @@ class IndexFilter
     // Put the slow range filters (greater-or-equal, less-or-equal)
     // into a hash map, the faster components (equality, presence, approx)
     // into one list and the remainder into another list.
+    // This order is kept for components having the same estimated size.
 
     ArrayList<SearchFilter> fastComps = new ArrayList<>();
     ArrayList<SearchFilter> otherComps = new ArrayList<>();
@@ -205,69 +240,170 @@ class IndexFilter
       }
     }
 
-    EntryIDSet results = newUndefinedSet();
-    // First, process the fast components.
-    results = applyFiltersUntilThreshold(results, fastComps);
-    // Next, process the other (non-range) components.
-    results = applyFiltersUntilThreshold(results, otherComps);
-
-    if ( isBelowFilterThreshold(results) || rangeComps.isEmpty() ) {
-      return results;
-    }
-
-    // Next, process range component pairs like (cn>=A)(cn<=B).
+    final List<PlanStep> plan = new ArrayList<>();
+    addPlanSteps(plan, fastComps);
+    addPlanSteps(plan, otherComps);
+    // Range component pairs like (cn>=A)(cn<=B) are evaluated together.
     ArrayList<SearchFilter> remainComps = new ArrayList<>();
-    for (Map.Entry<AttributeType, ArrayList<SearchFilter>> rangeEntry : rangeComps.entrySet())
+    for (ArrayList<SearchFilter> rangeList : rangeComps.values())
     {
-      ArrayList<SearchFilter> rangeList = rangeEntry.getValue();
       if (rangeList.size() == 2)
       {
-        SearchFilter filter1 = rangeList.get(0);
-        SearchFilter filter2 = rangeList.get(1);
-
-        AttributeIndex attributeIndex = entryContainer.getAttributeIndex(rangeEntry.getKey());
-        if (attributeIndex == null)
-        {
-          if(monitor.isFilterUseEnabled())
-          {
-            monitor.updateStats(SearchFilter.createANDFilter(rangeList),
-                INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", rangeEntry.getKey().getNameOrOID()));
-          }
-          continue;
-        }
-
-        final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
-        EntryIDSet set = attributeIndex.evaluateBoundedRange(indexQueryFactory, filter1, filter2, buffer, monitor);
-        if(monitor.isFilterUseEnabled() && set.isDefined())
-        {
-          monitor.updateStats(SearchFilter.createANDFilter(rangeList), set.size());
-        }
-        results.retainAll(set);
-        if (isBelowFilterThreshold(results))
-        {
-          return results;
-        }
+        plan.add(new PlanStep(rangeList));
       }
       else
       {
-        // Add to the remaining range components to be processed.
         remainComps.addAll(rangeList);
       }
     }
+    addPlanSteps(plan, remainComps);
+    sortPlan(plan, true);
 
-    // Finally, process the remaining slow range components.
-    return applyFiltersUntilThreshold(results, remainComps);
+    EntryIDSet results = newUndefinedSet();
+    for (PlanStep step : plan)
+    {
+      if (isBelowFilterThreshold(results))
+      {
+        return results;
+      }
+      appendEstimateToDebugBuffer(step.estimate);
+      if (step.estimate == UNDEFINED_ESTIMATE && results.isDefined())
+      {
+        // Components expected to return an undefined set cannot reduce the candidates.
+        skipPlanStep(step);
+      }
+      else if (step.filters.size() == 1)
+      {
+        results.retainAll(evaluateFilter(step.filters.get(0)));
+      }
+      else
+      {
+        results.retainAll(evaluateBoundedRange(step.filters.get(0), step.filters.get(1)));
+      }
+    }
+    return results;
   }
 
-  private EntryIDSet applyFiltersUntilThreshold(EntryIDSet results, ArrayList<SearchFilter> filters)
+  private EntryIDSet evaluateBoundedRange(SearchFilter filter1, SearchFilter filter2)
   {
-    for(SearchFilter filter : filters) {
-      if (isBelowFilterThreshold(results)) {
-        return results;
+    final AttributeType attributeType = filter1.getAttributeType();
+    AttributeIndex attributeIndex = entryContainer.getAttributeIndex(attributeType);
+    if (attributeIndex == null)
+    {
+      if(monitor.isFilterUseEnabled())
+      {
+        monitor.updateStats(SearchFilter.createANDFilter(Arrays.asList(filter1, filter2)),
+            INFO_INDEX_FILTER_INDEX_TYPE_DISABLED.get("ordering", attributeType.getNameOrOID()));
       }
-      results.retainAll(evaluateFilter(filter));
+      return newUndefinedSet();
     }
-    return results;
+
+    final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, dependencies);
+    EntryIDSet set = attributeIndex.evaluateBoundedRange(indexQueryFactory, filter1, filter2, buffer, monitor);
+    if(monitor.isFilterUseEnabled() && set.isDefined())
+    {
+      monitor.updateStats(SearchFilter.createANDFilter(Arrays.asList(filter1, filter2)), set.size());
+    }
+    return set;
+  }
+
+  private void addPlanSteps(List<PlanStep> plan, Collection<SearchFilter> filters)
+  {
+    for (SearchFilter filter : filters)
+    {
+      plan.add(new PlanStep(Collections.singletonList(filter)));
+    }
+  }
+
+  private static void sortPlan(List<PlanStep> plan, final boolean smallestFirst)
+  {
+    Collections.sort(plan, new Comparator<PlanStep>()
+    {
+      @Override
+      public int compare(PlanStep s1, PlanStep s2)
+      {
+        return smallestFirst ? Long.compare(s1.estimate, s2.estimate) : Long.compare(s2.estimate, s1.estimate);
+      }
+    });
+  }
+
+  private void skipPlanStep(PlanStep step)
+  {
+    for (SearchFilter filter : step.filters)
+    {
+      if (buffer != null)
+      {
+        filter.toString(buffer);
+        buffer.append("[SKIPPED]");
+      }
+      if (monitor.isFilterUseEnabled())
+      {
+        monitor.updateStats(filter, INFO_INDEX_FILTER_QUERY_SKIPPED.get());
+      }
+    }
+  }
+
+  /**
+   * Estimates the number of candidate entries of a search filter from the index statistics.
+   *
+   * @param filter The search filter to be estimated.
+   * @return The estimated number of candidate entries, as returned by {@link IndexQuery#estimateSize()}.
+   */
+  private long estimateFilter(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+    case AND:
+      long andEstimate = UNDEFINED_ESTIMATE;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        andEstimate = Math.min(andEstimate, estimateFilter(component));
+      }
+      return andEstimate;
+
+    case OR:
+      long orEstimate = 0;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        orEstimate = IndexQueryFactoryImpl.addEstimates(orEstimate, estimateFilter(component));
+      }
+      return orEstimate;
+
+    case EQUALITY:
+      return estimateFilter(IndexFilterType.EQUALITY, filter);
+
+    case GREATER_OR_EQUAL:
+      return estimateFilter(IndexFilterType.GREATER_OR_EQUAL, filter);
+
+    case SUBSTRING:
+      return estimateFilter(IndexFilterType.SUBSTRING, filter);
+
+    case LESS_OR_EQUAL:
+      return estimateFilter(IndexFilterType.LESS_OR_EQUAL, filter);
+
+    case PRESENT:
+      return estimateFilter(IndexFilterType.PRESENCE, filter);
+
+    case APPROXIMATE_MATCH:
+      return estimateFilter(IndexFilterType.APPROXIMATE, filter);
+
+    case EXTENSIBLE_MATCH:
+      return filter.getDNAttributes() ? UNDEFINED_ESTIMATE : UNKNOWN_ESTIMATE;
+
+    case NOT:
+    default:
+      return UNDEFINED_ESTIMATE;
+    }
+  }
+
+  private long estimateFilter(IndexFilterType indexFilterType, SearchFilter filter)
+  {
+    AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+    if (attributeIndex == null)
+    {
+      return UNDEFINED_ESTIMATE;
+    }
+    return AttributeIndex.estimateFilter(new IndexQueryFactoryImpl(txn, attributeIndex), indexFilterType, filter);
   }
 
   static boolean isBelowFilterThreshold(EntryIDSet set)
@@ -285,9 +421,13 @@ class IndexFilter
   {
     ArrayList<EntryIDSet> candidateSets = new ArrayList<>(orFilter.getFilterComponents().size());
 
-    for (SearchFilter filter : orFilter.getFilterComponents())
+    // Evaluate the least selective components first so that an undefined result is found as early as possible.
+    final List<PlanStep> plan = new ArrayList<>(orFilter.getFilterComponents().size());
+    addPlanSteps(plan, orFilter.getFilterComponents());
+    sortPlan(plan, false);
+    for (PlanStep step : plan)
     {
-      EntryIDSet set = evaluateFilter(filter);
+      EntryIDSet set = evaluateFilter(step.filters.get(0));
       if (!set.isDefined())
       {
         // There is no point continuing.
@@ -312,7 +452,7 @@ class IndexFilter
     AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
     if (attributeIndex != null)
     {
-      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, dependencies);
       return attributeIndex.evaluateFilter(indexQueryFactory, indexFilterType, filter, buffer, monitor);
     }
 
@@ -343,12 +483,33 @@ class IndexFilter
     AttributeIndex attributeIndex = entryContainer.getAttributeIndex(extensibleFilter.getAttributeType());
     if (attributeIndex != null)
     {
-      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex);
+      final IndexQueryFactoryImpl indexQueryFactory = new IndexQueryFactoryImpl(txn, attributeIndex, dependencies);
       return attributeIndex.evaluateExtensibleFilter(indexQueryFactory, extensibleFilter, buffer, monitor);
     }
     return IndexQueryFactoryImpl.createNullIndexQuery().evaluate(null, null);
   }
 
+  private void appendEstimateToDebugBuffer(long estimate)
+  {
+    if (buffer != null)
+    {
+      buffer.append("[ESTIMATE:");
+      if (estimate == UNDEFINED_ESTIMATE)
+      {
+        buffer.append("UNDEFINED");
+      }
+      else if (estimate == UNKNOWN_ESTIMATE)
+      {
+        buffer.append("UNKNOWN");
+      }
+      else
+      {
+        buffer.append(estimate);
+      }
+      buffer.append("]");
+    }
+  }
+
   private void appendToDebugBuffer(String content)
   {
     if (buffer != null)
@@ -22,6 +22,11 @@ import org.forgerock.i18n.LocalizableMessageBuilder;
 // @FunctionalInterface
 interface IndexQuery
 {
+  /** Estimated size of a query which is expected to return an undefined {@link EntryIDSet}. */
+  long UNDEFINED_ESTIMATE = Long.MAX_VALUE;
+  /** Estimated size of a query whose result size cannot be derived from the index statistics. */
+  long UNKNOWN_ESTIMATE = Long.MAX_VALUE - 1;
+
   /**
    * Evaluates the index query and returns the EntryIDSet.
    *
@@ -33,4 +38,12 @@ interface IndexQuery
    * @return The non null EntryIDSet as a result of evaluating this query
    */
   EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut);
+
+  /**
+   * Estimates the number of entry IDs returned by this query without reading the indexes.
+   *
+   * @return The estimated number of entry IDs, {@link #UNDEFINED_ESTIMATE} if the query is expected
+   *         to return an undefined EntryIDSet, or {@link #UNKNOWN_ESTIMATE} if it cannot be estimated
+   */
+  long estimateSize();
 }
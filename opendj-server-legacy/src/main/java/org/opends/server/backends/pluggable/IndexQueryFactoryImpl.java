@@ -19,9 +19,12 @@ package org.opends.server.backends.pluggable;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
 import static org.opends.server.backends.pluggable.IndexFilter.*;
+import static org.opends.server.backends.pluggable.IndexQuery.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -35,6 +38,7 @@ import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
 import org.forgerock.opendj.ldap.spi.IndexingOptions;
 import org.forgerock.util.Utils;
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
@@ -59,6 +63,12 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       return newUndefinedSet();
     }
 
+    @Override
+    public long estimateSize()
+    {
+      return UNDEFINED_ESTIMATE;
+    }
+
     @Override
     public String toString()
     {
@@ -66,6 +76,19 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
     }
   }
 
+  /** A sub-query of a composite query along with its estimated size. */
+  private static final class PlannedQuery
+  {
+    private final IndexQuery query;
+    private final long estimate;
+
+    private PlannedQuery(IndexQuery query)
+    {
+      this.query = query;
+      this.estimate = query.estimateSize();
+    }
+  }
+
   /** This class creates an intersection IndexQuery from a collection of IndexQuery objects. */
   private static final class IntersectionIndexQuery implements IndexQuery
   {
@@ -86,10 +109,16 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
     @Override
     public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
     {
+      // Read the most selective sub-queries first so that the threshold is reached as early as possible.
       final EntryIDSet entryIDs = newUndefinedSet();
-      for (IndexQuery query : subIndexQueries)
+      for (PlannedQuery planned : plan(subIndexQueries, true))
       {
-        entryIDs.retainAll(query.evaluate(debugMessage, indexNameOut));
+        if (planned.estimate == UNDEFINED_ESTIMATE && entryIDs.isDefined())
+        {
+          // Sub-queries without any index to read cannot reduce the candidates.
+          break;
+        }
+        entryIDs.retainAll(planned.query.evaluate(debugMessage, indexNameOut));
         if (isBelowFilterThreshold(entryIDs))
         {
           break;
@@ -98,6 +127,17 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       return entryIDs;
     }
 
+    @Override
+    public long estimateSize()
+    {
+      long estimate = UNDEFINED_ESTIMATE;
+      for (IndexQuery query : subIndexQueries)
+      {
+        estimate = Math.min(estimate, query.estimateSize());
+      }
+      return estimate;
+    }
+
     @Override
     public String toString()
     {
@@ -125,10 +165,11 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
     @Override
     public EntryIDSet evaluate(LocalizableMessageBuilder debugMessage, StringBuilder indexNameOut)
     {
+      // Read the least selective sub-queries first so that an undefined result is found as early as possible.
       final List<EntryIDSet> candidateSets = new ArrayList<>(subIndexQueries.size());
-      for (final IndexQuery query : subIndexQueries)
+      for (final PlannedQuery planned : plan(subIndexQueries, false))
       {
-        final EntryIDSet set = query.evaluate(debugMessage, indexNameOut);
+        final EntryIDSet set = planned.query.evaluate(debugMessage, indexNameOut);
         if (!set.isDefined())
         {
           // There is no point continuing.
@@ -139,6 +180,17 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       return newSetFromUnion(candidateSets);
     }
 
+    @Override
+    public long estimateSize()
+    {
+      long estimate = 0;
+      for (IndexQuery query : subIndexQueries)
+      {
+        estimate = addEstimates(estimate, query.estimateSize());
+      }
+      return estimate;
+    }
+
     @Override
     public String toString()
     {
@@ -154,6 +206,8 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
   private final ReadableTransaction txn;
   /** The Map containing the string type identifier and the corresponding index. */
   private final AttributeIndex attributeIndex;
+  /** Records the index records read by the queries, may be null. */
+  private final SearchResultCache.Dependencies dependencies;
 
   /**
    * Creates a new IndexQueryFactoryImpl object.
@@ -164,9 +218,26 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
    *          The targeted attribute index
    */
   IndexQueryFactoryImpl(ReadableTransaction txn, AttributeIndex attributeIndex)
+  {
+    this(txn, attributeIndex, null);
+  }
+
+  /**
+   * Creates a new IndexQueryFactoryImpl object recording the index records read by the queries.
+   *
+   * @param txn
+   *          The readable storage
+   * @param attributeIndex
+   *          The targeted attribute index
+   * @param dependencies
+   *          Records the index records read by the queries, may be null
+   */
+  IndexQueryFactoryImpl(ReadableTransaction txn, AttributeIndex attributeIndex,
+      SearchResultCache.Dependencies dependencies)
   {
     this.txn = txn;
     this.attributeIndex = attributeIndex;
+    this.dependencies = dependencies;
   }
 
   @Override
@@ -202,10 +273,35 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
           }
 
           final EntryIDSet entrySet = index.get(txn, indexKey);
+          recordKey(index, indexKey);
           updateStatsForUndefinedResults(debugMessage, entrySet, index);
           return entrySet;
         }
 
+        @Override
+        public long estimateSize()
+        {
+          MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(indexID);
+          ByteSequence indexKey = key;
+          if (index == null)
+          {
+            index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
+            if (index == null)
+            {
+              return createMatchAllQuery().estimateSize();
+            }
+            try
+            {
+              indexKey = attributeIndex.getCryptoSuite().hash48(key);
+            }
+            catch (DecodeException de)
+            {
+              return createMatchAllQuery().estimateSize();
+            }
+          }
+          return index.estimateSize(indexKey);
+        }
+
         @Override
         public String toString()
         {
@@ -231,6 +327,10 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
         }
 
         final EntryIDSet entrySet = readRange(index, txn, lowerBound, upperBound, includeLowerBound, includeUpperBound);
+        if (dependencies != null)
+        {
+          dependencies.addRange(index.getName(), lowerBound, upperBound);
+        }
         updateStatsForUndefinedResults(debugMessage, entrySet, index);
         return entrySet;
       }
@@ -313,6 +413,17 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
         }
       }
 
+      @Override
+      public long estimateSize()
+      {
+        if (attributeIndex.getNameToIndexes().get(indexID) == null)
+        {
+          return createMatchAllQuery().estimateSize();
+        }
+        // Statistics are kept per key: the number of keys within the range is unknown.
+        return UNKNOWN_ESTIMATE;
+      }
+
         @Override
         public String toString()
         {
@@ -363,6 +474,7 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
           }
 
           final EntryIDSet entrySet = index.get(txn, AttributeIndex.PRESENCE_KEY);
+          recordKey(index, AttributeIndex.PRESENCE_KEY);
           updateStatsForUndefinedResults(debugMessage, entrySet, index);
           if (indexNameOut != null)
           {
@@ -371,6 +483,13 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
           return entrySet;
         }
 
+        @Override
+        public long estimateSize()
+        {
+          final MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(PRESENCE_INDEX_KEY);
+          return index != null ? index.estimateSize(AttributeIndex.PRESENCE_KEY) : UNDEFINED_ESTIMATE;
+        }
+
         @Override
         public String toString()
         {
@@ -379,6 +498,61 @@ final class IndexQueryFactoryImpl implements IndexQueryFactory<IndexQuery>
       };
   }
 
+  /**
+   * Orders the provided sub-queries by their estimated size.
+   *
+   * @param subQueries
+   *          the sub-queries to order
+   * @param smallestFirst
+   *          whether the sub-queries with the smallest estimated size should come first
+   * @return the sub-queries along with their estimated size, sub-queries having the same estimated size
+   *         keeping their original order
+   */
+  private static List<PlannedQuery> plan(Collection<IndexQuery> subQueries, final boolean smallestFirst)
+  {
+    final List<PlannedQuery> plan = new ArrayList<>(subQueries.size());
+    for (IndexQuery query : subQueries)
+    {
+      plan.add(new PlannedQuery(query));
+    }
+    Collections.sort(plan, new Comparator<PlannedQuery>()
+    {
+      @Override
+      public int compare(PlannedQuery q1, PlannedQuery q2)
+      {
+        return smallestFirst ? Long.compare(q1.estimate, q2.estimate) : Long.compare(q2.estimate, q1.estimate);
+      }
+    });
+    return plan;
+  }
+
+  /**
+   * Adds two estimated sizes.
+   *
+   * @param estimate1
+   *          the first estimated size
+   * @param estimate2
+   *          the second estimated size
+   * @return the estimated size of the union of two queries
+   */
+  static long addEstimates(long estimate1, long estimate2)
+  {
+    if (estimate1 == UNDEFINED_ESTIMATE || estimate2 == UNDEFINED_ESTIMATE)
+    {
+      return UNDEFINED_ESTIMATE;
+    }
+    final long sum = estimate1 + estimate2;
+    return sum < 0 || sum > UNKNOWN_ESTIMATE ? UNKNOWN_ESTIMATE : sum;
+  }
+
+  private void recordKey(Index index, ByteSequence key)
+  {
+    if (dependencies != null)
+    {
+      dependencies.addKey(index.getName(), key);
+    }
+  }
+
   private static void appendExceptionError(LocalizableMessageBuilder debugMessage, LocalizableMessage msg)
   {
     if (debugMessage != null)
@@ -0,0 +1,205 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+
+/**
+ * Lightweight statistics on the number of entry IDs referenced by each key of an index.
+ * <p>
+ * The counts are kept in a count-min sketch. The statistics are not persisted: they are maintained
+ * as index records are imported, updated and read, and are only used to order index queries by
+ * their estimated cost. Estimates may therefore be inaccurate, but they are usually above the
+ * actual counts since a key can only share its counters with other keys.
+ * <p>
+ * The sketch starts small and grows with the number of distinct keys it has seen, up to a maximum
+ * size, so that the estimates of small indexes remain cheap and those of large indexes do not
+ * degrade into the sum of many unrelated keys. The counts are forgotten when the sketch grows,
+ * since they cannot be redistributed among the new counters.
+ */
+final class IndexStatistics
+{
+  /** Number of independent hash functions. */
+  private static final int DEPTH = 4;
+  /** Initial number of counters per hash function, must be a power of two. */
+  static final int INITIAL_WIDTH = 1024;
+  /** Maximum number of counters per hash function, must be a power of two. */
+  static final int MAX_WIDTH = 1 << 16;
+  /** Factor applied to the number of counters per hash function when the sketch grows. */
+  private static final int GROWTH_FACTOR = 4;
+  private static final int[] SEEDS = { 0x811c9dc5, 0x9e3779b9, 0x85ebca6b, 0xc2b2ae35 };
+
+  /** The counters of the sketch, which are replaced as a whole when the sketch grows. */
+  private static final class Sketch
+  {
+    private final int width;
+    private final AtomicLongArray counters;
+    /** Number of non zero counters of the first row, which approximates the number of distinct keys. */
+    private final AtomicInteger usedCounters = new AtomicInteger();
+
+    private Sketch(int width)
+    {
+      this.width = width;
+      this.counters = new AtomicLongArray(DEPTH * width);
+    }
+
+    private int indexOf(int row, ByteSequence key)
+    {
+      // FNV-1a seeded differently for each row
+      int hash = SEEDS[row];
+      for (int i = 0; i < key.length(); i++)
+      {
+        hash = (hash ^ (key.byteAt(i) & 0xff)) * 0x01000193;
+      }
+      hash ^= hash >>> 16;
+      return row * width + (hash & (width - 1));
+    }
+
+    /** Returns whether the first row has too few free counters to tell the keys apart. */
+    private boolean isFull()
+    {
+      return width < MAX_WIDTH && usedCounters.get() > width / 2;
+    }
+  }
+
+  private volatile Sketch sketch = new Sketch(INITIAL_WIDTH);
+
+  /**
+   * Returns the estimated number of entry IDs referenced by the provided key.
+   *
+   * @param key
+   *          the index key
+   * @return the estimated number of entry IDs, which is 0 for keys that have never been seen
+   */
+  long estimate(ByteSequence key)
+  {
+    final Sketch s = sketch;
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++)
+    {
+      estimate = Math.min(estimate, s.counters.get(s.indexOf(row, key)));
+    }
+    return estimate;
+  }
+
+  /**
+   * Adds the provided number of entry IDs to the count of a key.
+   *
+   * @param key
+   *          the index key
+   * @param delta
+   *          the number of entry IDs added to the key, negative when entry IDs have been removed
+   */
+  void add(ByteSequence key, long delta)
+  {
+    if (delta == 0)
+    {
+      return;
+    }
+    final Sketch s = sketch;
+    for (int row = 0; row < DEPTH; row++)
+    {
+      final int i = s.indexOf(row, key);
+      long current;
+      long updated;
+      do
+      {
+        current = s.counters.get(i);
+        updated = Math.max(0, current + delta);
+        if (delta > 0 && updated < current)
+        {
+          updated = Long.MAX_VALUE;
+        }
+      }
+      while (!s.counters.compareAndSet(i, current, updated));
+      if (row == 0)
+      {
+        countUsedCounter(s, current, updated);
+      }
+    }
+    growIfFull(s);
+  }
+
+  /**
+   * Records the number of entry IDs that have been read for a key. The counters of the key are
+   * raised so that its estimate is at least the observed count.
+   *
+   * @param key
+   *          the index key
+   * @param count
+   *          the number of entry IDs read for the key
+   */
+  void observe(ByteSequence key, long count)
+  {
+    final Sketch s = sketch;
+    for (int row = 0; row < DEPTH; row++)
+    {
+      final int i = s.indexOf(row, key);
+      long current;
+      do
+      {
+        current = s.counters.get(i);
+      }
+      while (current < count && !s.counters.compareAndSet(i, current, count));
+      if (row == 0 && current < count)
+      {
+        countUsedCounter(s, current, count);
+      }
+    }
+    growIfFull(s);
+  }
+
+  /** Forgets all the statistics, typically because the index is about to be emptied. */
+  void clear()
+  {
+    // Keep the current size: the index will most likely have as many keys once it is refilled
+    sketch = new Sketch(sketch.width);
+  }
+
+  /**
+   * Returns the number of counters per hash function of the sketch.
+   *
+   * @return the number of counters per hash function
+   */
+  int getWidth()
+  {
+    return sketch.width;
+  }
+
+  private static void countUsedCounter(Sketch s, long oldValue, long newValue)
+  {
+    if (oldValue == 0 && newValue != 0)
+    {
+      s.usedCounters.incrementAndGet();
+    }
+    else if (oldValue != 0 && newValue == 0)
+    {
+      s.usedCounters.decrementAndGet();
+    }
+  }
+
+  private void growIfFull(Sketch s)
+  {
+    if (s.isFull() && sketch == s)
+    {
+      // Concurrent updates of the replaced sketch are lost, which is acceptable for estimates
+      sketch = new Sketch(Math.min(s.width * GROWTH_FACTOR, MAX_WIDTH));
+    }
+  }
+}
@@ -314,12 +314,68 @@ final class OnDiskMergeImporter
         clearDegradedState(entryContainer, indexesToRebuild);
         logger.info(NOTE_REBUILD_CLEARDEGRADEDSTATE_FINAL_STATUS, rebuildConfig.getRebuildList());
       }
+      else if (rebuildConfig.isOnline())
+      {
+        rebuildIndexOnline(entryContainer, indexesToRebuild, rebuildConfig.getMaxEntriesPerSecond(), totalEntries);
+      }
       else
       {
         rebuildIndex(entryContainer, rebuildConfig.getTmpDirectory(), indexesToRebuild, totalEntries);
       }
     }
 
+    /**
+     * Rebuild attribute indexes without closing the storage, so that the backend keeps processing operations while
+     * the entries are indexed.
+     */
+    private void rebuildIndexOnline(EntryContainer entryContainer, Set<String> indexesToRebuild,
+        int maxEntriesPerSecond, long totalEntries)
+        throws InitializationException, InterruptedException, ExecutionException
+    {
+      if (indexesToRebuild.isEmpty())
+      {
+        logger.info(NOTE_REBUILD_NOTHING_TO_REBUILD);
+        return;
+      }
+
+      final Set<String> unsupportedIndexes = new HashSet<>(indexesToRebuild);
+      final List<MatchingRuleIndex> indexes = new ArrayList<>();
+      for (AttributeIndex attributeIndex : entryContainer.getAttributeIndexes())
+      {
+        for (MatchingRuleIndex index : attributeIndex.getNameToIndexes().values())
+        {
+          if (unsupportedIndexes.remove(index.getName().getIndexId()))
+          {
+            indexes.add(index);
+          }
+        }
+      }
+      if (!unsupportedIndexes.isEmpty())
+      {
+        throw new InitializationException(
+            ERR_REBUILD_ONLINE_UNSUPPORTED_INDEX.get(Utils.joinAsString(", ", unsupportedIndexes)));
+      }
+
+      final long startTime = System.currentTimeMillis();
+      final long indexedCount;
+      try
+      {
+        indexedCount = new OnlineIndexBuilder(rootContainer, entryContainer, indexes, maxEntriesPerSecond)
+            .build(totalEntries);
+      }
+      catch (InitializationException | InterruptedException e)
+      {
+        throw e;
+      }
+      catch (Exception e)
+      {
+        throw new ExecutionException(e);
+      }
+      final long totalTime = System.currentTimeMillis() - startTime;
+      final float rate = totalTime > 0 ? 1000f * indexedCount / totalTime : 0;
+      logger.info(NOTE_REBUILD_FINAL_STATUS, indexedCount, totalTime / 1000, rate);
+    }
+
     private void clearDegradedState(final EntryContainer entryContainer, final Set<String> indexIds)
         throws ExecutionException
     {
@@ -333,6 +389,7 @@ final class OnDiskMergeImporter
             visitIndexes(entryContainer, visitOnlyIndexes(indexIdIn(indexIds), setTrust(true, txn)));
           }
         });
+        entryContainer.clearSearchResultCache();
       }
       catch (Exception e)
       {
@@ -1111,6 +1168,7 @@ final class OnDiskMergeImporter
     void afterPhaseTwo(EntryContainer entryContainer)
     {
       visitIndexes(entryContainer, setTrust(true, importer));
+      entryContainer.clearSearchResultCache();
     }
 
     final Chunk newExternalSortChunk(TreeName treeName) throws Exception
@@ -1230,6 +1288,7 @@ final class OnDiskMergeImporter
     void afterPhaseTwo(EntryContainer entryContainer)
     {
       visitIndexes(entryContainer, visitOnlyIndexes(indexIdIn(indexesToRebuild), setTrust(true, importer)));
+      entryContainer.clearSearchResultCache();
     }
 
     @Override
@@ -1361,6 +1420,12 @@ final class OnDiskMergeImporter
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
     {
@@ -3127,7 +3192,8 @@ final class OnDiskMergeImporter
       // Detection of duplicate DN will be performed during phase 2 by the DNImporterTask
       return null;
     }
-    else if (isDN2URI(entryContainer, treeName) || isVLVIndex(entryContainer, treeName))
+    else if (isDN2URI(entryContainer, treeName) || isVLVIndex(entryContainer, treeName)
+        || isState(entryContainer, treeName))
     {
       // key conflicts == exception
       return UniqueValueCollector.getInstance();
@@ -3157,6 +3223,11 @@ final class OnDiskMergeImporter
     return entryContainer.getDN2URI().getName().equals(treeName);
   }
 
+  private static boolean isState(final EntryContainer entryContainer, final TreeName treeName)
+  {
+    return entryContainer.getState().getName().equals(treeName);
+  }
+
   private static boolean isID2Entry(final EntryContainer entryContainer, final TreeName treeName)
   {
     return entryContainer.getID2Entry().getName().equals(treeName);
@@ -3894,6 +3965,17 @@ final class OnDiskMergeImporter
       return importer.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+      for (ByteSequence key : sortedKeys)
+      {
+        values.add(importer.read(treeName, key));
+      }
+      return values;
+    }
+
     @Override
     public void put(TreeName treeName, ByteSequence key, ByteSequence value)
     {
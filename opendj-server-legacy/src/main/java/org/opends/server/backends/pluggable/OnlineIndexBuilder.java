@@ -0,0 +1,282 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.util.Utils;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+
+/**
+ * Rebuilds attribute indexes while the backend remains online.
+ * <p>
+ * The indexes are emptied and marked as being built, then the entries of id2entry are indexed in small batches.
+ * Meanwhile, the operations processed by the backend keep updating the indexes through their {@link IndexBuffer} as
+ * if the indexes were trusted, which preserves the changes made to the entries already indexed. Once all the entries
+ * have been indexed, the indexes are marked as trusted in a single transaction.
+ * <p>
+ * Each batch is a write transaction which reads the entries it indexes, then writes them back unchanged. Reading is
+ * not enough for an entry not to be modified before its keys are written: with storages providing snapshot isolation,
+ * a modify or delete may commit after the batch read the entry, and the batch would then write the keys of the old
+ * entry. Writing the entries back makes each batch conflict with the concurrent writes of the same entries, so that
+ * the storage serializes them: either the batch indexes the new entry, or the operation updates the keys written by
+ * the batch.
+ */
+final class OnlineIndexBuilder
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of entries indexed by a single write transaction. */
+  private static final int MAX_BATCH_SIZE = 500;
+  /** The number of milliseconds between progress reports. */
+  private static final long PROGRESS_INTERVAL = 10000;
+
+  private final RootContainer rootContainer;
+  private final EntryContainer entryContainer;
+  private final List<MatchingRuleIndex> indexes;
+  /** The maximum number of entries indexed per second, or zero if the build is not rate limited. */
+  private final int maxEntriesPerSecond;
+  /** The maximum number of entries indexed by a single write transaction. */
+  private final int batchSize;
+
+  /** The key of the next entry to index, or {@code null} once all the entries have been indexed. */
+  private ByteString nextKey;
+  /** The number of entries indexed by the last batch. */
+  private int batchCount;
+  /** The index changes of the last batch, recorded in the index statistics once committed. */
+  private IndexBuffer batchBuffer;
+
+  /**
+   * Creates a builder for the provided attribute indexes.
+   *
+   * @param rootContainer
+   *          The root container holding the entry container
+   * @param entryContainer
+   *          The entry container whose indexes are built
+   * @param indexes
+   *          The attribute indexes to build
+   * @param maxEntriesPerSecond
+   *          The maximum number of entries indexed per second, or a value less than or equal to zero if the build
+   *          must not be rate limited
+   */
+  OnlineIndexBuilder(RootContainer rootContainer, EntryContainer entryContainer, List<MatchingRuleIndex> indexes,
+      int maxEntriesPerSecond)
+  {
+    this.rootContainer = rootContainer;
+    this.entryContainer = entryContainer;
+    this.indexes = new ArrayList<>(indexes);
+    this.maxEntriesPerSecond = Math.max(0, maxEntriesPerSecond);
+    this.batchSize = maxEntriesPerSecond > 0 ? Math.min(MAX_BATCH_SIZE, maxEntriesPerSecond) : MAX_BATCH_SIZE;
+  }
+
+  /**
+   * Builds the indexes. The indexes are left degraded if the build fails.
+   *
+   * @param totalEntries
+   *          The number of entries to index, used by the progress reports
+   * @return The number of entries indexed
+   * @throws InitializationException
+   *           If one of the indexes is already being built
+   * @throws InterruptedException
+   *           If the build has been interrupted
+   * @throws Exception
+   *           If an error occurs while building the indexes
+   */
+  long build(long totalEntries) throws Exception
+  {
+    startBuild();
+    try
+    {
+      final long startTime = System.currentTimeMillis();
+      long indexedCount = 0;
+      long previousCount = 0;
+      long previousTime = startTime;
+      nextKey = ByteString.empty();
+      while (nextKey != null)
+      {
+        indexBatch(nextKey);
+        indexedCount += batchCount;
+
+        final long latestTime = System.currentTimeMillis();
+        if (latestTime - previousTime >= PROGRESS_INTERVAL)
+        {
+          final float progressPercent = totalEntries > 0 ? Math.round((100f * indexedCount) / totalEntries) : 0;
+          final float rate = 1000f * (indexedCount - previousCount) / (latestTime - previousTime);
+          logger.info(NOTE_REBUILD_PROGRESS_REPORT, progressPercent, indexedCount, totalEntries, rate);
+          previousCount = indexedCount;
+          previousTime = latestTime;
+        }
+        throttle(startTime, indexedCount);
+      }
+      finishBuild();
+      return indexedCount;
+    }
+    finally
+    {
+      for (MatchingRuleIndex index : indexes)
+      {
+        index.setBuilding(false);
+      }
+    }
+  }
+
+  /** Empties the indexes and switches them to the building mode, while no operation is updating them. */
+  private void startBuild() throws Exception
+  {
+    entryContainer.exclusiveLock.lock();
+    try
+    {
+      for (MatchingRuleIndex index : indexes)
+      {
+        if (index.isBuilding())
+        {
+          throw new InitializationException(ERR_REBUILD_ONLINE_ALREADY_RUNNING.get(index.getName()));
+        }
+      }
+      getStorage().write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (MatchingRuleIndex index : indexes)
+          {
+            index.setTrusted(txn, false);
+            index.delete(txn);
+            index.open(txn, true);
+          }
+        }
+      });
+      entryContainer.clearSearchResultCache();
+      for (MatchingRuleIndex index : indexes)
+      {
+        index.setBuilding(true);
+      }
+    }
+    finally
+    {
+      entryContainer.exclusiveLock.unlock();
+    }
+  }
+
+  /** Indexes the entries following the provided key, up to the batch size, in a single write transaction. */
+  private void indexBatch(final ByteString startKey) throws Exception
+  {
+    entryContainer.sharedLock.lock();
+    try
+    {
+      getStorage().write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          final ID2Entry id2entry = entryContainer.getID2Entry();
+          final IndexBuffer buffer = new IndexBuffer();
+          final List<ByteString> entryKeys = new ArrayList<>(batchSize);
+          final List<ByteString> entryValues = new ArrayList<>(batchSize);
+          try (Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+          {
+            boolean found = cursor.positionToKeyOrNext(startKey);
+            for (; found && entryKeys.size() < batchSize; found = cursor.next())
+            {
+              final ByteString entryKey = ByteString.wrap(cursor.getKey().toByteArray());
+              final ByteString entryValue = ByteString.wrap(cursor.getValue().toByteArray());
+              final EntryID entryID = new EntryID(entryKey);
+              final Entry entry = id2entry.entryFromDatabase(entryValue, rootContainer.getCompressedSchema());
+              for (MatchingRuleIndex index : indexes)
+              {
+                for (ByteString key : index.indexEntry(entry))
+                {
+                  buffer.put(index, key, entryID);
+                }
+              }
+              entryKeys.add(entryKey);
+              entryValues.add(entryValue);
+            }
+            nextKey = found ? ByteString.wrap(cursor.getKey().toByteArray()) : null;
+          }
+          // Conflict with the operations concurrently changing these entries, see the class documentation
+          for (int i = 0; i < entryKeys.size(); i++)
+          {
+            txn.put(id2entry.getName(), entryKeys.get(i), entryValues.get(i));
+          }
+          buffer.flush(txn);
+          batchCount = entryKeys.size();
+          batchBuffer = buffer;
+        }
+      });
+      batchBuffer.updateStatistics();
+    }
+    finally
+    {
+      entryContainer.sharedLock.unlock();
+    }
+  }
+
+  /** Sleeps as long as needed for the build not to index more entries per second than the configured maximum. */
+  private void throttle(long startTime, long indexedCount) throws InterruptedException
+  {
+    if (maxEntriesPerSecond > 0)
+    {
+      final long delay = startTime + 1000 * indexedCount / maxEntriesPerSecond - System.currentTimeMillis();
+      if (delay > 0)
+      {
+        Thread.sleep(delay);
+      }
+    }
+  }
+
+  /** Marks all the indexes as trusted at once, so that searches start using them together. */
+  private void finishBuild() throws Exception
+  {
+    entryContainer.exclusiveLock.lock();
+    try
+    {
+      getStorage().write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          for (MatchingRuleIndex index : indexes)
+          {
+            index.setTrusted(txn, true);
+          }
+        }
+      });
+      entryContainer.clearSearchResultCache();
+    }
+    finally
+    {
+      entryContainer.exclusiveLock.unlock();
+    }
+    logger.info(NOTE_REBUILD_ONLINE_TRUSTED, Utils.joinAsString(", ", indexes));
+  }
+
+  private Storage getStorage()
+  {
+    return rootContainer.getStorage();
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.FilePermission;
+
+/**
+ * Samples the keys read from the trees of a backend, and periodically saves them to a snapshot file so that the
+ * ranges of the trees which were hot before a restart can be preloaded when the backend is opened again.
+ * <p>
+ * Only one read out of {@link #SAMPLING_RATE} is sampled, and each tree only remembers its
+ * {@link #MAX_KEYS_PER_TREE} most recently sampled keys, so the snapshot stays small whatever the size of the trees.
+ * Trees are saved in decreasing order of reads, which is the order in which they are preloaded.
+ * <p>
+ * The keys of confidential trees are never saved, since they hold DNs and attribute values in clear. The snapshot
+ * file is only readable by its owner.
+ */
+final class PreloadSnapshot
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** One read out of this many is sampled. */
+  private static final int SAMPLING_RATE = 16;
+  /** The maximum number of keys remembered for each tree. Must be a power of two. */
+  static final int MAX_KEYS_PER_TREE = 1024;
+  /** Identifies snapshot files, followed by the format version. */
+  private static final int SNAPSHOT_MAGIC = 0x4f444a50;
+  private static final int SNAPSHOT_VERSION = 1;
+  private static final String SNAPSHOT_THREAD_NAME = "PRELOAD-SNAPSHOT-%d";
+
+  /** The keys sampled from a tree. */
+  private static final class TreeSample
+  {
+    private final LongAdder readCount = new LongAdder();
+    private final AtomicReferenceArray<ByteString> keys = new AtomicReferenceArray<>(MAX_KEYS_PER_TREE);
+    private final AtomicInteger nextKey = new AtomicInteger();
+  }
+
+  private final String backendId;
+  private final File snapshotFile;
+  private final ConcurrentMap<TreeName, TreeSample> samples = new ConcurrentHashMap<>();
+  /** Whether reads are sampled, which is the case while snapshots are periodically saved. */
+  private volatile boolean enabled;
+  private ScheduledExecutorService scheduler;
+  /** The root container telling which trees are confidential, {@code null} if no tree is. */
+  private volatile RootContainer rootContainer;
+
+  /**
+   * Creates a new preload snapshot.
+   *
+   * @param backendId
+   *          the backend whose reads are sampled
+   * @param snapshotFile
+   *          the file where the snapshot is saved
+   */
+  PreloadSnapshot(String backendId, File snapshotFile)
+  {
+    this.backendId = backendId;
+    this.snapshotFile = snapshotFile;
+  }
+
+  /**
+   * Returns the file where the snapshot is saved.
+   *
+   * @return the file where the snapshot is saved
+   */
+  File getSnapshotFile()
+  {
+    return snapshotFile;
+  }
+
+  /**
+   * Sets the root container telling which trees are confidential, so that their keys are not saved.
+   *
+   * @param rootContainer
+   *          the root container of the backend, or {@code null} once it is closed
+   */
+  void setRootContainer(RootContainer rootContainer)
+  {
+    this.rootContainer = rootContainer;
+  }
+
+  /**
+   * Indicates whether reads are currently sampled.
+   *
+   * @return {@code true} if reads are sampled
+   */
+  boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Records a read of the provided key, if it is sampled.
+   *
+   * @param treeName
+   *          the tree read
+   * @param key
+   *          the key read, or positioned to by a cursor
+   */
+  void sample(TreeName treeName, ByteSequence key)
+  {
+    if (!enabled || key == null)
+    {
+      return;
+    }
+    TreeSample sample = samples.get(treeName);
+    if (sample == null)
+    {
+      final TreeSample newSample = new TreeSample();
+      sample = samples.putIfAbsent(treeName, newSample);
+      if (sample == null)
+      {
+        sample = newSample;
+      }
+    }
+    sample.readCount.increment();
+    if (ThreadLocalRandom.current().nextInt(SAMPLING_RATE) == 0)
+    {
+      sample.keys.set(sample.nextKey.getAndIncrement() & (MAX_KEYS_PER_TREE - 1), key.toByteString());
+    }
+  }
+
+  /**
+   * Starts sampling reads and saving the snapshot at the provided interval. Restarts with the new interval if the
+   * snapshot is already being saved, and stops if the interval is zero.
+   *
+   * @param intervalMillis
+   *          the interval between two snapshots in milliseconds, zero to disable them
+   */
+  synchronized void start(long intervalMillis)
+  {
+    stopScheduler();
+    enabled = intervalMillis > 0;
+    if (enabled)
+    {
+      scheduler = Executors.newSingleThreadScheduledExecutor(newThreadFactory(null, SNAPSHOT_THREAD_NAME, true));
+      scheduler.scheduleWithFixedDelay(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          saveQuietly();
+        }
+      }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    else
+    {
+      samples.clear();
+    }
+  }
+
+  /** Stops sampling reads, after saving a last snapshot so that the next start can preload the latest hot keys. */
+  synchronized void stop()
+  {
+    stopScheduler();
+    if (enabled)
+    {
+      saveQuietly();
+      enabled = false;
+    }
+  }
+
+  private void stopScheduler()
+  {
+    if (scheduler != null)
+    {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  private void saveQuietly()
+  {
+    try
+    {
+      save();
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CACHE_PRELOAD_SNAPSHOT_WRITE, backendId, snapshotFile, stackTraceToSingleLineString(e));
+    }
+  }
+
+  /**
+   * Saves the sampled keys of each tree, sorted, with the trees in decreasing order of reads. The snapshot is written
+   * to a temporary file first, so that a crash while saving leaves the previous snapshot intact.
+   *
+   * @throws IOException
+   *           if the snapshot cannot be written
+   */
+  void save() throws IOException
+  {
+    // Read counts keep changing while sorting: sort on a copy of them
+    final Map<TreeName, TreeSample> treeSamples = new HashMap<>(samples);
+    final RootContainer container = rootContainer;
+    if (container != null)
+    {
+      treeSamples.keySet().removeAll(container.getConfidentialTreeNames());
+    }
+    final Map<TreeName, Long> readCounts = new HashMap<>();
+    for (Map.Entry<TreeName, TreeSample> tree : treeSamples.entrySet())
+    {
+      readCounts.put(tree.getKey(), tree.getValue().readCount.sum());
+    }
+    final List<TreeName> trees = new ArrayList<>(treeSamples.keySet());
+    Collections.sort(trees, new Comparator<TreeName>()
+    {
+      @Override
+      public int compare(TreeName tree1, TreeName tree2)
+      {
+        return Long.compare(readCounts.get(tree2), readCounts.get(tree1));
+      }
+    });
+
+    final File parent = snapshotFile.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+    {
+      throw new IOException("Cannot create directory " + parent);
+    }
+    final File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile))))
+    {
+      setOwnerOnlyPermissions(tmpFile);
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeInt(trees.size());
+      for (TreeName tree : trees)
+      {
+        final TreeSet<ByteString> keys = new TreeSet<>();
+        final AtomicReferenceArray<ByteString> sampledKeys = treeSamples.get(tree).keys;
+        for (int i = 0; i < sampledKeys.length(); i++)
+        {
+          final ByteString key = sampledKeys.get(i);
+          if (key != null)
+          {
+            keys.add(key);
+          }
+        }
+        out.writeUTF(tree.toString());
+        out.writeInt(keys.size());
+        for (ByteString key : keys)
+        {
+          out.writeInt(key.length());
+          out.write(key.toByteArray());
+        }
+      }
+    }
+    if (!tmpFile.renameTo(snapshotFile))
+    {
+      // Windows does not rename over an existing file
+      snapshotFile.delete();
+      if (!tmpFile.renameTo(snapshotFile))
+      {
+        throw new IOException("Cannot rename " + tmpFile + " to " + snapshotFile);
+      }
+    }
+  }
+
+  private void setOwnerOnlyPermissions(File file)
+  {
+    try
+    {
+      if (!FilePermission.setPermissions(file, new FilePermission(0600)))
+      {
+        logger.warn(WARN_CACHE_PRELOAD_SNAPSHOT_SET_PERMISSIONS_FAILED, file, backendId);
+      }
+    }
+    catch (FileNotFoundException | DirectoryException e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_CACHE_PRELOAD_SNAPSHOT_SET_PERMISSIONS_FAILED, file, backendId);
+    }
+  }
+
+  /**
+   * Reads the last saved snapshot.
+   *
+   * @return the sorted keys sampled from each tree, with the trees in decreasing order of reads. The map is empty if
+   *         no snapshot has been saved.
+   * @throws IOException
+   *           if the snapshot cannot be read
+   */
+  Map<TreeName, List<ByteString>> load() throws IOException
+  {
+    final Map<TreeName, List<ByteString>> hotKeys = new LinkedHashMap<>();
+    if (!snapshotFile.exists())
+    {
+      return hotKeys;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile))))
+    {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION)
+      {
+        throw new IOException("Unsupported preload snapshot format");
+      }
+      final int treeCount = in.readInt();
+      for (int i = 0; i < treeCount; i++)
+      {
+        final TreeName treeName = TreeName.valueOf(in.readUTF());
+        final int keyCount = in.readInt();
+        if (keyCount < 0 || keyCount > MAX_KEYS_PER_TREE)
+        {
+          throw new IOException("Invalid key count " + keyCount + " for tree " + treeName);
+        }
+        final List<ByteString> keys = new ArrayList<>(keyCount);
+        for (int j = 0; j < keyCount; j++)
+        {
+          final byte[] key = new byte[in.readInt()];
+          in.readFully(key);
+          keys.add(ByteString.wrap(key));
+        }
+        hotKeys.put(treeName, keys);
+      }
+    }
+    catch (EOFException | IllegalArgumentException | NegativeArraySizeException e)
+    {
+      throw new IOException("Truncated or corrupted preload snapshot", e);
+    }
+    return hotKeys;
+  }
+}
@@ -16,32 +16,50 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.config.server.ConfigurationChangeListener;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
 import org.opends.server.api.CompressedSchema;
 import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.core.SearchOperation;
@@ -60,6 +78,9 @@ import org.opends.server.types.Privilege;
 public class RootContainer implements ConfigurationChangeListener<PluggableBackendCfg>
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+  private static final String PRELOAD_THREAD_NAME = "PRELOAD-%d";
+  /** The number of records preloaded from each hot key of the preload snapshot. */
+  private static final int PRELOAD_RANGE_SIZE = 64;
 
   /** The tree storage. */
   private final Storage storage;
@@ -80,6 +101,9 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   /** The compressed schema manager for this backend. */
   private PersistentCompressedSchema compressedSchema;
 
+  /** The pool evaluating the candidates of indexed searches, or null if they are evaluated by the search thread. */
+  private volatile ForkJoinPool searchEvaluationPool;
+
   private final ServerContext serverContext;
 
   /**
@@ -102,6 +126,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    searchEvaluationPool = newSearchEvaluationPool(backendID, config.getNumSearchEvaluationThreads());
 
     config.addPluggableChangeListener(this);
   }
@@ -116,6 +141,44 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     return storage;
   }
 
+  /**
+   * Returns the pool used to decode and filter the candidate entries of indexed searches in parallel.
+   *
+   * @return the pool used to evaluate the candidates of indexed searches, or {@code null} if they must be evaluated by
+   *         the thread processing the search
+   */
+  ForkJoinPool getSearchEvaluationPool()
+  {
+    return searchEvaluationPool;
+  }
+
+  private static ForkJoinPool newSearchEvaluationPool(final String backendID, int threadCount)
+  {
+    if (threadCount == 0)
+    {
+      return null;
+    }
+    return new ForkJoinPool(threadCount, new ForkJoinWorkerThreadFactory()
+    {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+      {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Search evaluation worker " + thread.getPoolIndex() + " for backend " + backendID);
+        return thread;
+      }
+    }, null, false);
+  }
+
+  private static void shutdown(ForkJoinPool pool)
+  {
+    if (pool != null)
+    {
+      // Searches still using the pool evaluate their remaining candidates by themselves
+      pool.shutdown();
+    }
+  }
+
   /**
    * Opens the root container.
    *
@@ -272,11 +335,17 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
   /**
    * Preload the tree cache. There is no preload if the configured preload
    * time limit is zero.
+   * <p>
+   * If the provided snapshot holds the keys which were hot before the backend was closed, only the ranges of the
+   * trees starting at these keys are preloaded, hottest trees first. Otherwise whole trees are preloaded, in the
+   * order of the {@link TreePreloadComparator}. Trees are preloaded in parallel.
    *
    * @param timeLimit
    *          The time limit for the preload process.
+   * @param preloadSnapshot
+   *          The snapshot of the keys read before the backend was closed.
    */
-  void preload(long timeLimit)
+  void preload(long timeLimit, PreloadSnapshot preloadSnapshot)
   {
     if (timeLimit > 0)
     {
@@ -297,17 +366,191 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 
       // Sort the list in order of priority.
       Collections.sort(trees, new TreePreloadComparator());
+      final Map<TreeName, List<ByteString>> hotKeys = loadHotKeys(preloadSnapshot);
+      if (!hotKeys.isEmpty())
+      {
+        logger.info(NOTE_CACHE_PRELOAD_FROM_SNAPSHOT, backendId, preloadSnapshot.getSnapshotFile());
+        final Map<TreeName, Tree> treesByName = new HashMap<>();
+        for (Tree tree : trees)
+        {
+          treesByName.put(tree.getName(), tree);
+        }
+        trees.clear();
+        for (TreeName treeName : hotKeys.keySet())
+        {
+          final Tree tree = treesByName.get(treeName);
+          if (tree != null)
+          {
+            trees.add(tree);
+          }
+        }
+      }
 
       // Preload each tree until we reach the time limit or the cache is filled.
+      final long startTime = System.currentTimeMillis();
+      final long deadline = startTime + timeLimit;
+      final int threadCount = Math.max(1, Math.min(trees.size(), Runtime.getRuntime().availableProcessors()));
+      final ExecutorService executor =
+          Executors.newFixedThreadPool(threadCount, newThreadFactory(null, PRELOAD_THREAD_NAME, true));
       try
       {
-        throw new UnsupportedOperationException("Not implemented exception");
+        final List<Future<Long>> futures = new ArrayList<>(trees.size());
+        for (final Tree tree : trees)
+        {
+          final List<ByteString> treeHotKeys = hotKeys.get(tree.getName());
+          futures.add(executor.submit(new Callable<Long>()
+          {
+            @Override
+            public Long call() throws Exception
+            {
+              return preloadTree(tree.getName(), treeHotKeys, deadline);
+            }
+          }));
+        }
+        long recordCount = 0;
+        for (Future<Long> future : futures)
+        {
+          recordCount += getPreloadResult(future, deadline);
+        }
+        logger.info(NOTE_CACHE_PRELOAD_DONE, recordCount, trees.size(), backendId,
+            System.currentTimeMillis() - startTime);
       }
       catch (StorageRuntimeException e)
       {
         logger.error(ERR_CACHE_PRELOAD, backendId,
             stackTraceToSingleLineString(e.getCause() != null ? e.getCause() : e));
       }
+      finally
+      {
+        executor.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the trees whose keys hold DNs or attribute values which must be kept confidential: all the
+   * trees not keyed by entry IDs when the confidentiality of an entry container is enabled, and the encrypted indexes
+   * otherwise.
+   *
+   * @return the names of the confidential trees
+   */
+  Set<TreeName> getConfidentialTreeNames()
+  {
+    final Set<TreeName> treeNames = new HashSet<>();
+    for (EntryContainer ec : entryContainers.values())
+    {
+      ec.sharedLock.lock();
+      try
+      {
+        for (Tree tree : ec.listTrees())
+        {
+          if (ec.isConfidentialityEnabled()
+              ? tree != ec.getID2Entry() && tree != ec.getID2ChildrenCount()
+              : tree instanceof DefaultIndex && ((DefaultIndex) tree).isEncrypted())
+          {
+            treeNames.add(tree.getName());
+          }
+        }
+      }
+      finally
+      {
+        ec.sharedLock.unlock();
+      }
+    }
+    return treeNames;
+  }
+
+  private Map<TreeName, List<ByteString>> loadHotKeys(PreloadSnapshot preloadSnapshot)
+  {
+    try
+    {
+      return preloadSnapshot != null ? preloadSnapshot.load() : Collections.<TreeName, List<ByteString>> emptyMap();
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_CACHE_PRELOAD_SNAPSHOT_READ, preloadSnapshot.getSnapshotFile(), backendId,
+          stackTraceToSingleLineString(e));
+      return Collections.emptyMap();
+    }
+  }
+
+  /**
+   * Reads the records of a tree until the deadline, so that the storage caches them. Reads the whole tree if no hot
+   * keys are provided, else only the records following each hot key.
+   */
+  private long preloadTree(final TreeName treeName, final List<ByteString> hotKeys, final long deadline)
+      throws Exception
+  {
+    return storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        long recordCount = 0;
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          if (hotKeys == null)
+          {
+            while (System.currentTimeMillis() < deadline && cursor.next())
+            {
+              cursor.getValue();
+              recordCount++;
+            }
+            return recordCount;
+          }
+          for (ByteString hotKey : hotKeys)
+          {
+            if (System.currentTimeMillis() >= deadline)
+            {
+              break;
+            }
+            // Hot keys are sorted: skip those already read as part of the range of the previous key
+            if (cursor.isDefined() && cursor.getKey().compareTo(hotKey) >= 0)
+            {
+              continue;
+            }
+            if (cursor.positionToKeyOrNext(hotKey))
+            {
+              cursor.getValue();
+              recordCount++;
+              for (int i = 1; i < PRELOAD_RANGE_SIZE && cursor.next(); i++)
+              {
+                cursor.getValue();
+                recordCount++;
+              }
+            }
+          }
+        }
+        return recordCount;
+      }
+    });
+  }
+
+  private static long getPreloadResult(Future<Long> future, long deadline) throws StorageRuntimeException
+  {
+    try
+    {
+      return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+    catch (TimeoutException e)
+    {
+      // Trees which are still being preloaded when the time limit is reached stop by themselves.
+      // Never interrupt them: interrupting a thread in the middle of a storage read may invalidate the storage.
+      future.cancel(false);
+      return 0;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      future.cancel(false);
+      return 0;
+    }
+    catch (ExecutionException e)
+    {
+      throw e.getCause() instanceof StorageRuntimeException
+          ? (StorageRuntimeException) e.getCause()
+          : new StorageRuntimeException(e.getCause());
     }
   }
 
@@ -333,6 +576,8 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
       }
     }
     config.removePluggableChangeListener(this);
+    shutdown(searchEvaluationPool);
+    searchEvaluationPool = null;
     if (storage != null)
     {
       storage.close();
@@ -452,6 +697,13 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     config = configuration;
     getMonitorProvider().enableFilterUseStats(config.isIndexFilterAnalyzerEnabled());
     getMonitorProvider().setMaxEntries(config.getIndexFilterAnalyzerMaxFilters());
+    final ForkJoinPool currentPool = searchEvaluationPool;
+    if (config.getNumSearchEvaluationThreads() != (currentPool != null ? currentPool.getParallelism() : 0))
+    {
+      final ForkJoinPool previousPool = searchEvaluationPool;
+      searchEvaluationPool = newSearchEvaluationPool(backendId, config.getNumSearchEvaluationThreads());
+      shutdown(previousPool);
+    }
 
     return new ConfigChangeResult();
   }
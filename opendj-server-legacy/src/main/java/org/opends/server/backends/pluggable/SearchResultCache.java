@@ -0,0 +1,438 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.types.SearchFilter;
+
+/**
+ * Caches the candidate entry IDs computed by the {@link IndexFilter} for the search filters of an entry container.
+ * <p>
+ * The candidates of a search filter only depend on the index records read to compute them: the search base and scope
+ * are applied afterwards. Each cached set therefore remembers the index keys and key ranges it was computed from, and
+ * is invalidated as soon as a write operation updates one of them. Changes which affect the indexes as a whole, such as
+ * index configuration changes or rebuilds, clear the cache.
+ * <p>
+ * A search evaluated while a write operation is updating the indexes may have read the records either before or after
+ * the update. The cache is versioned so that such a search does not store its candidates once the write operation has
+ * invalidated the cache.
+ */
+final class SearchResultCache
+{
+  /** The index records read while evaluating a search filter. */
+  static final class Dependencies
+  {
+    /** The keys read from each index. */
+    private final Map<TreeName, Set<ByteString>> keys = new HashMap<>();
+    /** The key ranges read from each index, as pairs of lower and upper bounds. Empty bounds are unlimited. */
+    private final Map<TreeName, List<ByteString[]>> ranges = new HashMap<>();
+
+    /**
+     * Records that the provided key has been read from an index.
+     *
+     * @param treeName
+     *          the name of the index
+     * @param key
+     *          the key read from the index
+     */
+    void addKey(TreeName treeName, ByteSequence key)
+    {
+      Set<ByteString> treeKeys = keys.get(treeName);
+      if (treeKeys == null)
+      {
+        treeKeys = new HashSet<>();
+        keys.put(treeName, treeKeys);
+      }
+      treeKeys.add(key.toByteString());
+    }
+
+    /**
+     * Records that the keys in the provided range have been read from an index. The bounds are considered inclusive.
+     *
+     * @param treeName
+     *          the name of the index
+     * @param lowerBound
+     *          the lower bound of the range, or an empty sequence if the range has no lower bound
+     * @param upperBound
+     *          the upper bound of the range, or an empty sequence if the range has no upper bound
+     */
+    void addRange(TreeName treeName, ByteSequence lowerBound, ByteSequence upperBound)
+    {
+      List<ByteString[]> treeRanges = ranges.get(treeName);
+      if (treeRanges == null)
+      {
+        treeRanges = new ArrayList<>();
+        ranges.put(treeName, treeRanges);
+      }
+      treeRanges.add(new ByteString[] { lowerBound.toByteString(), upperBound.toByteString() });
+    }
+
+    private boolean rangesContainAny(TreeName treeName, Collection<ByteString> updatedKeys)
+    {
+      final List<ByteString[]> treeRanges = ranges.get(treeName);
+      if (treeRanges != null)
+      {
+        for (ByteString key : updatedKeys)
+        {
+          for (ByteString[] range : treeRanges)
+          {
+            if ((range[0].isEmpty() || key.compareTo(range[0]) >= 0)
+                && (range[1].isEmpty() || key.compareTo(range[1]) <= 0))
+            {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  /** The candidates cached for a search filter along with the index records they depend on. */
+  private static final class CachedCandidates
+  {
+    private final long[] entryIDs;
+    private final Dependencies dependencies;
+
+    private CachedCandidates(long[] entryIDs, Dependencies dependencies)
+    {
+      this.entryIDs = entryIDs;
+      this.dependencies = dependencies;
+    }
+  }
+
+  /** The cached candidates, in least recently used order. */
+  private final LinkedHashMap<SearchFilter, CachedCandidates> cache = new LinkedHashMap<>(16, 0.75f, true);
+  /** The filters whose cached candidates depend on each index key. */
+  private final Map<TreeName, Map<ByteString, Set<SearchFilter>>> keyDependents = new HashMap<>();
+  /** The filters whose cached candidates depend on a range of keys of each index. */
+  private final Map<TreeName, Map<SearchFilter, Dependencies>> rangeDependents = new HashMap<>();
+
+  private volatile int maxFilters;
+  private volatile int maxCandidates;
+  /** Incremented each time cached candidates may have become stale. */
+  private long version;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong invalidationCount = new AtomicLong();
+
+  /**
+   * Creates a new search result cache.
+   *
+   * @param maxFilters
+   *          the maximum number of search filters whose candidates are cached, zero disables the cache
+   * @param maxCandidates
+   *          the maximum number of candidates cached for a search filter
+   */
+  SearchResultCache(int maxFilters, int maxCandidates)
+  {
+    setLimits(maxFilters, maxCandidates);
+  }
+
+  /**
+   * Changes the size limits of this cache, evicting the least recently used candidates if needed.
+   *
+   * @param maxFilters
+   *          the maximum number of search filters whose candidates are cached, zero disables the cache
+   * @param maxCandidates
+   *          the maximum number of candidates cached for a search filter
+   */
+  synchronized void setLimits(int maxFilters, int maxCandidates)
+  {
+    this.maxFilters = Math.max(0, maxFilters);
+    if (maxCandidates < this.maxCandidates)
+    {
+      clear();
+    }
+    this.maxCandidates = maxCandidates;
+    evict();
+  }
+
+  /**
+   * Indicates whether this cache is enabled.
+   *
+   * @return {@code true} if this cache is enabled
+   */
+  boolean isEnabled()
+  {
+    return maxFilters > 0;
+  }
+
+  /**
+   * Returns the current version of this cache, to be provided when caching the candidates computed by a search.
+   *
+   * @return the current version of this cache
+   */
+  synchronized long getVersion()
+  {
+    return version;
+  }
+
+  /**
+   * Returns a copy of the candidates cached for the provided search filter.
+   *
+   * @param filter
+   *          the search filter
+   * @return the candidates cached for the provided search filter, or {@code null} if there are none
+   */
+  EntryIDSet get(SearchFilter filter)
+  {
+    final CachedCandidates cached;
+    synchronized (this)
+    {
+      cached = cache.get(filter);
+    }
+    if (cached == null)
+    {
+      missCount.incrementAndGet();
+      return null;
+    }
+    hitCount.incrementAndGet();
+    return newDefinedSet(cached.entryIDs.clone());
+  }
+
+  /**
+   * Caches the candidates computed for a search filter, unless the cache has been invalidated since the search
+   * started to read the indexes.
+   *
+   * @param filter
+   *          the search filter
+   * @param candidates
+   *          the candidates computed for the search filter, which are copied
+   * @param dependencies
+   *          the index records read to compute the candidates
+   * @param searchVersion
+   *          the version of this cache when the search started to read the indexes
+   */
+  void put(SearchFilter filter, EntryIDSet candidates, Dependencies dependencies, long searchVersion)
+  {
+    if (!candidates.isDefined() || candidates.size() > maxCandidates)
+    {
+      return;
+    }
+    final CachedCandidates cached = new CachedCandidates(candidates.toLongArray(), dependencies);
+    synchronized (this)
+    {
+      if (searchVersion != version || maxFilters == 0)
+      {
+        return;
+      }
+      removeCandidates(filter);
+      cache.put(filter, cached);
+      for (Map.Entry<TreeName, Set<ByteString>> treeKeys : dependencies.keys.entrySet())
+      {
+        Map<ByteString, Set<SearchFilter>> dependents = keyDependents.get(treeKeys.getKey());
+        if (dependents == null)
+        {
+          dependents = new HashMap<>();
+          keyDependents.put(treeKeys.getKey(), dependents);
+        }
+        for (ByteString key : treeKeys.getValue())
+        {
+          getOrCreate(dependents, key).add(filter);
+        }
+      }
+      for (TreeName treeName : dependencies.ranges.keySet())
+      {
+        Map<SearchFilter, Dependencies> dependents = rangeDependents.get(treeName);
+        if (dependents == null)
+        {
+          dependents = new HashMap<>();
+          rangeDependents.put(treeName, dependents);
+        }
+        dependents.put(filter, dependencies);
+      }
+      evict();
+    }
+  }
+
+  /**
+   * Invalidates the candidates computed from the provided index keys, which have just been updated.
+   *
+   * @param treeName
+   *          the name of the updated index
+   * @param updatedKeys
+   *          the updated keys
+   */
+  synchronized void invalidate(TreeName treeName, Collection<ByteString> updatedKeys)
+  {
+    version++;
+    if (cache.isEmpty())
+    {
+      return;
+    }
+    final Set<SearchFilter> staleFilters = new HashSet<>();
+    final Map<ByteString, Set<SearchFilter>> dependents = keyDependents.get(treeName);
+    if (dependents != null)
+    {
+      for (ByteString key : updatedKeys)
+      {
+        final Set<SearchFilter> filters = dependents.get(key);
+        if (filters != null)
+        {
+          staleFilters.addAll(filters);
+        }
+      }
+    }
+    final Map<SearchFilter, Dependencies> rangeFilters = rangeDependents.get(treeName);
+    if (rangeFilters != null)
+    {
+      for (Map.Entry<SearchFilter, Dependencies> rangeFilter : rangeFilters.entrySet())
+      {
+        if (rangeFilter.getValue().rangesContainAny(treeName, updatedKeys))
+        {
+          staleFilters.add(rangeFilter.getKey());
+        }
+      }
+    }
+    for (SearchFilter filter : staleFilters)
+    {
+      removeCandidates(filter);
+    }
+    invalidationCount.addAndGet(staleFilters.size());
+  }
+
+  /** Invalidates all the cached candidates. */
+  synchronized void clear()
+  {
+    version++;
+    invalidationCount.addAndGet(cache.size());
+    cache.clear();
+    keyDependents.clear();
+    rangeDependents.clear();
+  }
+
+  /**
+   * Returns the number of searches whose candidates were found in this cache.
+   *
+   * @return the number of cache hits
+   */
+  long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+  /**
+   * Returns the number of searches whose candidates were not found in this cache.
+   *
+   * @return the number of cache misses
+   */
+  long getMissCount()
+  {
+    return missCount.get();
+  }
+
+  /**
+   * Returns the number of cached candidate sets invalidated by updates.
+   *
+   * @return the number of invalidations
+   */
+  long getInvalidationCount()
+  {
+    return invalidationCount.get();
+  }
+
+  /**
+   * Returns the number of search filters whose candidates are cached.
+   *
+   * @return the number of search filters whose candidates are cached
+   */
+  synchronized int size()
+  {
+    return cache.size();
+  }
+
+  private void evict()
+  {
+    final Iterator<SearchFilter> it = cache.keySet().iterator();
+    final List<SearchFilter> evicted = new ArrayList<>();
+    for (int size = cache.size(); size > maxFilters && it.hasNext(); size--)
+    {
+      evicted.add(it.next());
+    }
+    for (SearchFilter filter : evicted)
+    {
+      removeCandidates(filter);
+    }
+  }
+
+  private void removeCandidates(SearchFilter filter)
+  {
+    final CachedCandidates cached = cache.remove(filter);
+    if (cached == null)
+    {
+      return;
+    }
+    for (Map.Entry<TreeName, Set<ByteString>> treeKeys : cached.dependencies.keys.entrySet())
+    {
+      final Map<ByteString, Set<SearchFilter>> dependents = keyDependents.get(treeKeys.getKey());
+      for (ByteString key : treeKeys.getValue())
+      {
+        removeDependent(dependents, key, filter);
+      }
+      if (dependents.isEmpty())
+      {
+        keyDependents.remove(treeKeys.getKey());
+      }
+    }
+    for (TreeName treeName : cached.dependencies.ranges.keySet())
+    {
+      final Map<SearchFilter, Dependencies> dependents = rangeDependents.get(treeName);
+      dependents.remove(filter);
+      if (dependents.isEmpty())
+      {
+        rangeDependents.remove(treeName);
+      }
+    }
+  }
+
+  private static Set<SearchFilter> getOrCreate(Map<ByteString, Set<SearchFilter>> dependents, ByteString key)
+  {
+    Set<SearchFilter> filters = dependents.get(key);
+    if (filters == null)
+    {
+      filters = new HashSet<>();
+      dependents.put(key, filters);
+    }
+    return filters;
+  }
+
+  private static void removeDependent(Map<ByteString, Set<SearchFilter>> dependents, ByteString key,
+      SearchFilter filter)
+  {
+    final Set<SearchFilter> filters = dependents.get(key);
+    if (filters != null && filters.remove(filter) && filters.isEmpty())
+    {
+      dependents.remove(key);
+    }
+  }
+}
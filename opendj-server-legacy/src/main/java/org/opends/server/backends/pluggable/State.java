@@ -26,6 +26,7 @@ import java.util.EnumSet;
 
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
@@ -55,7 +56,10 @@ class State extends AbstractTree
     TRUSTED(0x01),
 
     /** Use compact encoding for indexes' ID storage. */
-    COMPACTED(0x02);
+    COMPACTED(0x02),
+
+    /** Use compressed bitmap encoding for indexes' ID storage. Always set along with COMPACTED. */
+    BITMAP(0x04);
 
     static final EnumSet<IndexFlag> ALL_FLAGS = EnumSet.allOf(IndexFlag.class);
 
@@ -173,6 +177,74 @@ class State extends AbstractTree
     });
   }
 
+  /**
+   * Fetch a compression dictionary of a tree.
+   * @param txn The transaction or null if none.
+   * @param treeName The tree's name using the dictionary
+   * @param dictionaryID The identifier of the dictionary within the tree
+   * @return The dictionary, or null if there is no such dictionary
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  ByteString getCompressionDictionary(ReadableTransaction txn, TreeName treeName, int dictionaryID)
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(treeName, "treeName must not be null");
+
+    final ByteString value = txn.read(getName(), keyForDictionary(treeName, dictionaryID));
+    return value != null ? value.subSequence(1, value.length()) : null;
+  }
+
+  /**
+   * Store a compression dictionary of a tree.
+   * @param txn a non null transaction
+   * @param treeName The tree's name using the dictionary
+   * @param dictionaryID The identifier of the dictionary within the tree
+   * @param dictionary The dictionary
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void putCompressionDictionary(WriteableTransaction txn, TreeName treeName, int dictionaryID,
+      ByteSequence dictionary)
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(treeName, "treeName must not be null");
+    checkNotNull(dictionary, "dictionary must not be null");
+
+    // The leading empty flags byte lets the record be displayed like the state of an index.
+    final ByteStringBuilder value = new ByteStringBuilder(dictionary.length() + 1);
+    value.appendByte(0);
+    value.appendBytes(dictionary);
+    txn.put(getName(), keyForDictionary(treeName, dictionaryID), value);
+  }
+
+  /**
+   * Remove all the compression dictionaries of a tree.
+   * @param txn a non null transaction
+   * @param treeName The tree's name using the dictionaries
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  void deleteCompressionDictionaries(WriteableTransaction txn, TreeName treeName)
+  {
+    checkNotNull(txn, "txn must not be null");
+    checkNotNull(treeName, "treeName must not be null");
+
+    // Dictionary identifiers start at 1 and have no gaps. Only delete existing records, since the importers cannot
+    // delete records: they clear the state tree instead.
+    for (int dictionaryID = 1;; dictionaryID++)
+    {
+      final ByteString key = keyForDictionary(treeName, dictionaryID);
+      if (txn.read(getName(), key) == null)
+      {
+        return;
+      }
+      txn.delete(getName(), key);
+    }
+  }
+
+  private static ByteString keyForDictionary(TreeName treeName, int dictionaryID)
+  {
+    return ByteString.wrap(StaticUtils.getBytes(treeName + ".dictionary." + dictionaryID));
+  }
+
   @Override
   public String valueToString(ByteString value)
   {
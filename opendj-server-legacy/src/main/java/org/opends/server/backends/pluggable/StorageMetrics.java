@@ -0,0 +1,364 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.opends.server.backends.pluggable.spi.TreeName;
+
+/**
+ * Records the number of reads, writes and cursor operations performed on each tree of a storage, the number of bytes
+ * they transferred, and histograms of their latency. This shows which trees are responsible for the storage load
+ * without enabling trace logging.
+ * <p>
+ * Recording is lock-free so that it can stay enabled in production: counters are {@link LongAdder}s and latencies are
+ * recorded in histograms whose buckets have a bounded relative error, as done by HDR histograms.
+ */
+final class StorageMetrics
+{
+  /** A lock-free histogram of durations in nanoseconds, with a relative error of at most 1/{@link #SUB_BUCKETS}. */
+  static final class LatencyHistogram
+  {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below SUB_BUCKETS are exact, then each power of two is split in SUB_BUCKETS buckets. */
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos)
+    {
+      final long value = Math.max(0, nanos);
+      buckets.incrementAndGet(bucketIndex(value));
+      long currentMax = max.get();
+      while (value > currentMax && !max.compareAndSet(currentMax, value))
+      {
+        currentMax = max.get();
+      }
+    }
+
+    static int bucketIndex(long value)
+    {
+      if (value < SUB_BUCKETS)
+      {
+        return (int) value;
+      }
+      final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+      final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Returns the highest value recorded in the provided bucket. */
+    static long bucketUpperBound(int index)
+    {
+      if (index < SUB_BUCKETS)
+      {
+        return index;
+      }
+      final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+      final int subBucket = index % SUB_BUCKETS;
+      return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Returns an upper bound of the provided percentile of the recorded values, or 0 if no value has been recorded.
+     *
+     * @param percentile
+     *          the percentile, between 0 and 100
+     * @return an upper bound of the percentile, never higher than the maximum recorded value
+     */
+    long getPercentile(double percentile)
+    {
+      final long[] counts = new long[BUCKET_COUNT];
+      long total = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        counts[i] = buckets.get(i);
+        total += counts[i];
+      }
+      final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long cumulated = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++)
+      {
+        cumulated += counts[i];
+        if (cumulated >= rank)
+        {
+          return Math.min(bucketUpperBound(i), max.get());
+        }
+      }
+      return 0;
+    }
+
+    long getMax()
+    {
+      return max.get();
+    }
+  }
+
+  /** The metrics of a tree. */
+  static final class TreeMetrics
+  {
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder readBytes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeBytes = new LongAdder();
+    private final LongAdder cursors = new LongAdder();
+    private final LongAdder cursorSteps = new LongAdder();
+    private final LatencyHistogram readLatency = new LatencyHistogram();
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+
+    long getReads()
+    {
+      return reads.sum();
+    }
+
+    long getReadBytes()
+    {
+      return readBytes.sum();
+    }
+
+    long getWrites()
+    {
+      return writes.sum();
+    }
+
+    long getWriteBytes()
+    {
+      return writeBytes.sum();
+    }
+
+    long getCursors()
+    {
+      return cursors.sum();
+    }
+
+    long getCursorSteps()
+    {
+      return cursorSteps.sum();
+    }
+
+    LatencyHistogram getReadLatency()
+    {
+      return readLatency;
+    }
+
+    LatencyHistogram getWriteLatency()
+    {
+      return writeLatency;
+    }
+  }
+
+  private final ConcurrentMap<TreeName, TreeMetrics> trees = new ConcurrentHashMap<>();
+  private volatile boolean enabled;
+  private volatile Date startTime;
+
+  /**
+   * Indicates whether the metrics are recorded.
+   *
+   * @return {@code true} if the metrics are recorded
+   */
+  boolean isEnabled()
+  {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables recording the metrics. The metrics are reset when they are enabled again.
+   *
+   * @param enabled
+   *          {@code true} to record the metrics
+   */
+  synchronized void setEnabled(boolean enabled)
+  {
+    if (enabled && !this.enabled)
+    {
+      trees.clear();
+      startTime = new Date();
+    }
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns the time at which the metrics started being recorded.
+   *
+   * @return the time at which the metrics started being recorded, or null if they have never been recorded
+   */
+  Date getStartTime()
+  {
+    return startTime;
+  }
+
+  /**
+   * Returns the metrics of a tree.
+   *
+   * @param treeName
+   *          the name of the tree
+   * @return the metrics of the tree, created if needed
+   */
+  TreeMetrics getTreeMetrics(TreeName treeName)
+  {
+    TreeMetrics metrics = trees.get(treeName);
+    if (metrics == null)
+    {
+      final TreeMetrics newMetrics = new TreeMetrics();
+      metrics = trees.putIfAbsent(treeName, newMetrics);
+      if (metrics == null)
+      {
+        metrics = newMetrics;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Records reads of records from a tree.
+   *
+   * @param treeName
+   *          the tree read
+   * @param recordCount
+   *          the number of records read
+   * @param bytes
+   *          the number of bytes of the keys and values read
+   * @param startNanos
+   *          the {@link System#nanoTime()} at which the read started
+   */
+  void recordRead(TreeName treeName, int recordCount, long bytes, long startNanos)
+  {
+    final TreeMetrics metrics = getTreeMetrics(treeName);
+    metrics.reads.add(recordCount);
+    metrics.readBytes.add(bytes);
+    metrics.readLatency.record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Records a write of a record to a tree, including deletes.
+   *
+   * @param treeName
+   *          the tree written
+   * @param bytes
+   *          the number of bytes of the key and value written
+   * @param startNanos
+   *          the {@link System#nanoTime()} at which the write started
+   */
+  void recordWrite(TreeName treeName, long bytes, long startNanos)
+  {
+    final TreeMetrics metrics = getTreeMetrics(treeName);
+    metrics.writes.increment();
+    metrics.writeBytes.add(bytes);
+    metrics.writeLatency.record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Records the opening of a cursor on a tree.
+   *
+   * @param treeName
+   *          the tree the cursor is opened on
+   */
+  void recordCursor(TreeName treeName)
+  {
+    getTreeMetrics(treeName).cursors.increment();
+  }
+
+  /**
+   * Records a record a cursor has been positioned to.
+   *
+   * @param metrics
+   *          the metrics of the tree the cursor is opened on
+   */
+  void recordCursorStep(TreeMetrics metrics)
+  {
+    metrics.cursorSteps.increment();
+  }
+
+  /**
+   * Records the bytes of a key or a value read by a cursor.
+   *
+   * @param metrics
+   *          the metrics of the tree the cursor is opened on
+   * @param bytes
+   *          the number of bytes read
+   */
+  void recordCursorBytes(TreeMetrics metrics, long bytes)
+  {
+    metrics.readBytes.add(bytes);
+  }
+
+  /**
+   * Returns a description of the metrics of each tree, sorted by tree name, for the backend monitor.
+   *
+   * @return one value per tree
+   */
+  List<String> toMonitorValues()
+  {
+    final List<String> values = new ArrayList<>();
+    final StringBuilder value = new StringBuilder();
+    for (Map.Entry<TreeName, TreeMetrics> entry : new TreeMap<>(trees).entrySet())
+    {
+      final TreeMetrics metrics = entry.getValue();
+      value.append(entry.getKey());
+      value.append(" reads:").append(metrics.getReads());
+      value.append(" writes:").append(metrics.getWrites());
+      value.append(" cursors:").append(metrics.getCursors());
+      value.append(" cursorsteps:").append(metrics.getCursorSteps());
+      value.append(" readbytes:").append(metrics.getReadBytes());
+      value.append(" writebytes:").append(metrics.getWriteBytes());
+      appendLatency(value, " readlatency:", metrics.readLatency);
+      appendLatency(value, " writelatency:", metrics.writeLatency);
+      values.add(value.toString());
+      value.setLength(0);
+    }
+    return values;
+  }
+
+  private static void appendLatency(StringBuilder value, String name, LatencyHistogram histogram)
+  {
+    value.append(name)
+         .append("p50=").append(toMicros(histogram.getPercentile(50))).append("us,")
+         .append("p99=").append(toMicros(histogram.getPercentile(99))).append("us,")
+         .append("max=").append(toMicros(histogram.getMax())).append("us");
+  }
+
+  private static long toMicros(long nanos)
+  {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  /**
+   * Returns the number of bytes of a key and a value.
+   *
+   * @param key
+   *          the key, may be null
+   * @param value
+   *          the value, may be null
+   * @return the number of bytes of the key and the value
+   */
+  static long length(ByteSequence key, ByteSequence value)
+  {
+    return (key != null ? key.length() : 0) + (value != null ? value.length() : 0);
+  }
+}
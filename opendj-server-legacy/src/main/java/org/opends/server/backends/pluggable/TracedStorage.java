@@ -15,6 +15,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -24,6 +25,7 @@ import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.GroupCommit;
 import org.opends.server.backends.pluggable.spi.Importer;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
@@ -40,7 +42,10 @@ import org.opends.server.types.BackupDirectory;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.RestoreConfig;
 
-/** Decorates a {@link Storage} with additional trace logging. */
+/**
+ * Decorates a {@link Storage} with additional trace logging, samples the keys read for the {@link PreloadSnapshot},
+ * and records the {@link StorageMetrics} of each tree.
+ */
 final class TracedStorage implements Storage
 {
   private void appendKeyValue(final StringBuilder builder, final Object key, final Object value)
@@ -296,12 +301,272 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> read(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      traceEnter("read", "name", name, "keyCount", sortedKeys.size());
+      final List<ByteString> values = txn.read(name, sortedKeys);
+      traceLeave("read", "name", name, "keyCount", sortedKeys.size());
+      return values;
+    }
+
     private int id()
     {
       return System.identityHashCode(this);
     }
   }
 
+  /**
+   * Decorates a {@link Cursor} by sampling the keys it is positioned to for the preload snapshot, and recording the
+   * records it reads in the storage metrics.
+   */
+  private final class InstrumentedCursor implements Cursor<ByteString, ByteString>
+  {
+    private final TreeName name;
+    private final Cursor<ByteString, ByteString> cursor;
+    private final boolean sampled;
+    /** The metrics of the tree, or null if metrics are not recorded. */
+    private final StorageMetrics.TreeMetrics metrics;
+
+    private InstrumentedCursor(final TreeName name, final Cursor<ByteString, ByteString> cursor,
+        final boolean sampled, final StorageMetrics.TreeMetrics metrics)
+    {
+      this.name = name;
+      this.cursor = cursor;
+      this.sampled = sampled;
+      this.metrics = metrics;
+    }
+
+    private boolean step(final boolean found)
+    {
+      if (found && metrics != null)
+      {
+        storageMetrics.recordCursorStep(metrics);
+      }
+      return found;
+    }
+
+    @Override
+    public boolean positionToKey(final ByteSequence key)
+    {
+      if (sampled)
+      {
+        preloadSnapshot.sample(name, key);
+      }
+      return step(cursor.positionToKey(key));
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(final ByteSequence key)
+    {
+      if (sampled)
+      {
+        preloadSnapshot.sample(name, key);
+      }
+      return step(cursor.positionToKeyOrNext(key));
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      return step(cursor.positionToLastKey());
+    }
+
+    @Override
+    public boolean positionToIndex(final int index)
+    {
+      return step(cursor.positionToIndex(index));
+    }
+
+    @Override
+    public boolean next()
+    {
+      return step(cursor.next());
+    }
+
+    @Override
+    public void delete()
+    {
+      final long startNanos = System.nanoTime();
+      cursor.delete();
+      if (metrics != null)
+      {
+        storageMetrics.recordWrite(name, 0, startNanos);
+      }
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return cursor.isDefined();
+    }
+
+    @Override
+    public ByteString getKey() throws NoSuchElementException
+    {
+      final ByteString key = cursor.getKey();
+      if (metrics != null)
+      {
+        storageMetrics.recordCursorBytes(metrics, key.length());
+      }
+      return key;
+    }
+
+    @Override
+    public ByteString getValue() throws NoSuchElementException
+    {
+      final ByteString value = cursor.getValue();
+      if (metrics != null)
+      {
+        storageMetrics.recordCursorBytes(metrics, value.length());
+      }
+      return value;
+    }
+
+    @Override
+    public void close()
+    {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Decorates a {@link ReadableTransaction} by sampling the keys it reads for the preload snapshot, and recording its
+   * reads in the storage metrics.
+   */
+  private class InstrumentedReadableTransaction implements ReadableTransaction
+  {
+    private final ReadableTransaction txn;
+    private final boolean sampled;
+    private final boolean metered;
+
+    private InstrumentedReadableTransaction(final ReadableTransaction txn, final boolean sampled,
+        final boolean metered)
+    {
+      this.txn = txn;
+      this.sampled = sampled;
+      this.metered = metered;
+    }
+
+    @Override
+    public long getRecordCount(TreeName name)
+    {
+      return txn.getRecordCount(name);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(final TreeName name)
+    {
+      if (metered)
+      {
+        storageMetrics.recordCursor(name);
+      }
+      return new InstrumentedCursor(name, txn.openCursor(name), sampled,
+          metered ? storageMetrics.getTreeMetrics(name) : null);
+    }
+
+    @Override
+    public ByteString read(final TreeName name, final ByteSequence key)
+    {
+      if (sampled)
+      {
+        preloadSnapshot.sample(name, key);
+      }
+      final long startNanos = System.nanoTime();
+      final ByteString value = txn.read(name, key);
+      if (metered)
+      {
+        storageMetrics.recordRead(name, 1, StorageMetrics.length(key, value), startNanos);
+      }
+      return value;
+    }
+
+    @Override
+    public List<ByteString> read(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      if (sampled)
+      {
+        for (ByteSequence key : sortedKeys)
+        {
+          preloadSnapshot.sample(name, key);
+        }
+      }
+      final long startNanos = System.nanoTime();
+      final List<ByteString> values = txn.read(name, sortedKeys);
+      if (metered)
+      {
+        long bytes = 0;
+        for (int i = 0; i < sortedKeys.size(); i++)
+        {
+          bytes += StorageMetrics.length(sortedKeys.get(i), values.get(i));
+        }
+        storageMetrics.recordRead(name, sortedKeys.size(), bytes, startNanos);
+      }
+      return values;
+    }
+  }
+
+  /** Decorates a {@link WriteableTransaction} by recording its reads and writes in the storage metrics. */
+  private final class InstrumentedWriteableTransaction extends InstrumentedReadableTransaction
+      implements WriteableTransaction
+  {
+    private final WriteableTransaction txn;
+
+    private InstrumentedWriteableTransaction(final WriteableTransaction txn)
+    {
+      super(txn, false, true);
+      this.txn = txn;
+    }
+
+    @Override
+    public void openTree(final TreeName name, boolean createOnDemand)
+    {
+      txn.openTree(name, createOnDemand);
+    }
+
+    @Override
+    public void deleteTree(final TreeName name)
+    {
+      txn.deleteTree(name);
+    }
+
+    @Override
+    public void put(final TreeName name, final ByteSequence key, final ByteSequence value)
+    {
+      final long startNanos = System.nanoTime();
+      txn.put(name, key, value);
+      storageMetrics.recordWrite(name, StorageMetrics.length(key, value), startNanos);
+    }
+
+    @Override
+    public boolean update(final TreeName name, final ByteSequence key, final UpdateFunction f)
+    {
+      final long[] newValueLength = new long[1];
+      final long startNanos = System.nanoTime();
+      final boolean isUpdated = txn.update(name, key, new UpdateFunction()
+      {
+        @Override
+        public ByteSequence computeNewValue(final ByteSequence oldValue)
+        {
+          final ByteSequence newValue = f.computeNewValue(oldValue);
+          newValueLength[0] = newValue != null ? newValue.length() : 0;
+          return newValue;
+        }
+      });
+      storageMetrics.recordWrite(name, key.length() + newValueLength[0], startNanos);
+      return isUpdated;
+    }
+
+    @Override
+    public boolean delete(final TreeName name, final ByteSequence key)
+    {
+      final long startNanos = System.nanoTime();
+      final boolean isDeleted = txn.delete(name, key);
+      storageMetrics.recordWrite(name, key.length(), startNanos);
+      return isDeleted;
+    }
+  }
+
   /** Decorates an {@link WriteableTransaction} with additional trace logging. */
   private final class TracedWriteableTransaction implements WriteableTransaction
   {
@@ -382,6 +647,15 @@ final class TracedStorage implements Storage
       return value;
     }
 
+    @Override
+    public List<ByteString> read(final TreeName name, final List<? extends ByteSequence> sortedKeys)
+    {
+      traceEnter("read", "name", name, "keyCount", sortedKeys.size());
+      final List<ByteString> values = txn.read(name, sortedKeys);
+      traceLeave("read", "name", name, "keyCount", sortedKeys.size());
+      return values;
+    }
+
     @Override
     public boolean update(final TreeName name, final ByteSequence key, final UpdateFunction f)
     {
@@ -409,11 +683,16 @@ final class TracedStorage implements Storage
 
   private final String backendId;
   private final Storage storage;
+  private final PreloadSnapshot preloadSnapshot;
+  private final StorageMetrics storageMetrics;
 
-  TracedStorage(final Storage storage, final String backendId)
+  TracedStorage(final Storage storage, final String backendId, final PreloadSnapshot preloadSnapshot,
+      final StorageMetrics storageMetrics)
   {
     this.storage = storage;
     this.backendId = backendId;
+    this.preloadSnapshot = preloadSnapshot;
+    this.storageMetrics = storageMetrics;
   }
 
   private void trace(String type, int id, String method, Object... args)
@@ -482,14 +761,28 @@ final class TracedStorage implements Storage
   public <T> T read(final ReadOperation<T> readOperation) throws Exception
   {
     ReadOperation<T> op = readOperation;
+    final boolean sampled = preloadSnapshot != null && preloadSnapshot.isEnabled();
+    final boolean metered = storageMetrics != null && storageMetrics.isEnabled();
+    if (sampled || metered)
+    {
+      op = new ReadOperation<T>()
+      {
+        @Override
+        public T run(final ReadableTransaction txn) throws Exception
+        {
+          return readOperation.run(new InstrumentedReadableTransaction(txn, sampled, metered));
+        }
+      };
+    }
     if (logger.isTraceEnabled())
     {
+      final ReadOperation<T> instrumentedOp = op;
       op = new ReadOperation<T>()
       {
         @Override
         public T run(final ReadableTransaction txn) throws Exception
         {
-          return readOperation.run(new TracedReadableTransaction(txn));
+          return instrumentedOp.run(new TracedReadableTransaction(txn));
         }
       };
     }
@@ -519,18 +812,36 @@ final class TracedStorage implements Storage
     return storage.supportsBackupAndRestore();
   }
 
+  @Override
+  public GroupCommit getGroupCommit()
+  {
+    return storage.getGroupCommit();
+  }
+
   @Override
   public void write(final WriteOperation writeOperation) throws Exception
   {
     WriteOperation op = writeOperation;
+    if (storageMetrics != null && storageMetrics.isEnabled())
+    {
+      op = new WriteOperation()
+      {
+        @Override
+        public void run(final WriteableTransaction txn) throws Exception
+        {
+          writeOperation.run(new InstrumentedWriteableTransaction(txn));
+        }
+      };
+    }
     if (logger.isTraceEnabled())
     {
+      final WriteOperation instrumentedOp = op;
       op = new WriteOperation()
       {
         @Override
         public void run(final WriteableTransaction txn) throws Exception
         {
-          writeOperation.run(new TracedWriteableTransaction(txn));
+          instrumentedOp.run(new TracedWriteableTransaction(txn));
         }
       };
     }
@@ -16,6 +16,7 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.DnKeyFormat.*;
 import static org.opends.server.backends.pluggable.SuffixContainer.*;
@@ -30,14 +31,23 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
@@ -50,7 +60,9 @@ import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
 import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.core.DirectoryServer;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.DirectoryException;
@@ -58,11 +70,26 @@ import org.opends.server.types.Entry;
 import org.opends.server.util.ServerConstants;
 import org.opends.server.util.StaticUtils;
 
-/** This class is used to run an index verification process on the backend. */
+/**
+ * This class is used to run an index verification process on the backend.
+ * <p>
+ * The verification is divided into tasks, each of which checks a range of keys of a tree in its own read
+ * transaction, so that several threads can verify large trees concurrently. The errors found by a task are only
+ * logged once all the tasks preceding it have completed, which makes the report independent of thread scheduling.
+ */
 class VerifyJob
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The name of the threads verifying the indexes. */
+  private static final String VERIFY_THREAD_NAME = "VERIFY-%d";
+  /** The default minimum number of records of a key range verified by a single task. */
+  static final long MIN_RANGE_SIZE = 10000;
+  /** The minimum number of records of a key range verified by a single task. */
+  private static volatile long minRangeSize = MIN_RANGE_SIZE;
+  /** The number of key ranges each tree is split into for each thread, so that threads finishing early get work. */
+  private static final int RANGES_PER_THREAD = 4;
+
   /** The verify configuration. */
   private final VerifyConfig verifyConfig;
   /** The root container used for the verify job. */
@@ -71,9 +98,11 @@ class VerifyJob
   /** The number of milliseconds between job progress reports. */
   private final long progressInterval = 10000;
   /** The number of index keys processed. */
-  private long keyCount;
+  private final AtomicLong keyCount = new AtomicLong();
   /** The number of errors found. */
-  private long errorCount;
+  private final AtomicLong errorCount = new AtomicLong();
+  /** The number of keys processed for each verified tree, in the order of the progress reports. */
+  private final Map<Tree, AtomicLong> treeKeyCounts = new LinkedHashMap<>();
   /** The number of records that have exceeded the entry limit. */
   private long entryLimitExceededCount;
   /** The number of records that reference more than one entry. */
@@ -82,6 +111,8 @@ class VerifyJob
   private long entryReferencesCount;
   /** The maximum number of references per record. */
   private long maxEntryPerValue;
+  /** Whether a verify task failed, so that the other tasks stop at their next key. */
+  private volatile boolean aborted;
 
   /** This map is used to gather some statistics about values that have exceeded the entry limit. */
   private IdentityHashMap<Index, HashMap<ByteString, Long>> entryLimitMap = new IdentityHashMap<>();
@@ -127,14 +158,7 @@ class VerifyJob
   {
     try
     {
-      return rootContainer.getStorage().read(new ReadOperation<Long>()
-      {
-        @Override
-        public Long run(ReadableTransaction txn) throws Exception
-        {
-          return verifyBackend0(txn);
-        }
-      });
+      return verifyBackend0();
     }
     catch (StorageRuntimeException e)
     {
@@ -146,7 +170,7 @@ class VerifyJob
     }
   }
 
-  private long verifyBackend0(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+  private long verifyBackend0() throws Exception
   {
     EntryContainer entryContainer = rootContainer.getEntryContainer(verifyConfig.getBaseDN());
 
@@ -236,56 +260,57 @@ class VerifyJob
       dn2id = entryContainer.getDN2ID();
       id2childrenCount = entryContainer.getID2ChildrenCount();
 
+      final Storage storage = rootContainer.getStorage();
+      final int threadCount = Math.max(1, verifyConfig.getThreadCount());
+      final VerifyPlan plan = planVerification(storage, entryContainer, cleanMode, threadCount);
+      if (threadCount > 1)
+      {
+        logger.info(NOTE_VERIFY_PARALLEL_START, threadCount, plan.tasks.size());
+      }
+
       // Make a note of the time we started.
       long startTime = System.currentTimeMillis();
 
       // Start a timer for the progress report.
       Timer timer = new Timer();
-      TimerTask progressTask = new ProgressTask(cleanMode, txn);
+      TimerTask progressTask = new ProgressTask(plan.totalCount);
       timer.scheduleAtFixedRate(progressTask, progressInterval, progressInterval);
 
       // Iterate through the index keys.
       try
       {
-        if (cleanMode)
-        {
-          iterateIndex(txn);
-        }
-        else
-        {
-          iterateID2Entry(txn);
-
-          // Make sure the vlv indexes are in correct order.
-          for(VLVIndex vlvIndex : vlvIndexList)
-          {
-            iterateVLVIndex(txn, vlvIndex, false);
-          }
-        }
+        runTasks(storage, plan.tasks, threadCount);
       }
       finally
       {
         timer.cancel();
       }
 
+      if (!cleanMode && keyCount.get() != plan.storedEntryCount)
+      {
+        errorCount.incrementAndGet();
+        logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, plan.storedEntryCount, keyCount.get());
+      }
+
       long finishTime = System.currentTimeMillis();
       long totalTime = finishTime - startTime;
 
       float rate = 0;
       if (totalTime > 0)
       {
-        rate = 1000f*keyCount / totalTime;
+        rate = 1000f*keyCount.get() / totalTime;
       }
 
       if (cleanMode)
       {
-        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
 
         if (multiReferenceCount > 0)
         {
           float averageEntryReferences = 0;
-          if (keyCount > 0)
+          if (keyCount.get() > 0)
           {
-            averageEntryReferences = entryReferencesCount/keyCount;
+            averageEntryReferences = entryReferencesCount/keyCount.get();
           }
 
           if (logger.isDebugEnabled())
@@ -299,7 +324,7 @@ class VerifyJob
       }
       else
       {
-        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
         if (!entryLimitMap.isEmpty())
         {
           logger.debug(INFO_VERIFY_ENTRY_LIMIT_STATS_HEADER);
@@ -328,626 +353,1017 @@ class VerifyJob
           }
         }
       }
+
+      for (Map.Entry<Tree, AtomicLong> mapEntry : treeKeyCounts.entrySet())
+      {
+        final long treeKeyCount = mapEntry.getValue().get();
+        logger.info(NOTE_VERIFY_INDEX_FINAL_STATUS, treeKeyCount, mapEntry.getKey().getName(),
+            totalTime > 0 ? 1000f * treeKeyCount / totalTime : 0f);
+      }
     }
     finally
     {
       entryContainer.sharedLock.unlock();
     }
-    return errorCount;
+    return errorCount.get();
   }
 
-  /**
-   * Iterate through the entries in id2entry to perform a check for
-   * index completeness. We check that the ID for the entry is indeed
-   * present in the indexes for the appropriate values.
-   *
-   * @throws StorageRuntimeException If an error occurs in the storage.
-   */
-  private void iterateID2Entry(ReadableTransaction txn) throws StorageRuntimeException
+  /** The tasks verifying the selected trees, and the numbers of records they are expected to process. */
+  private static final class VerifyPlan
+  {
+    private final List<VerifyTask> tasks = new ArrayList<>();
+    /** The total number of records to process, used by the progress reports. */
+    private long totalCount;
+    /** The number of entries recorded by id2entry, checked after a complete verification. */
+    private long storedEntryCount;
+  }
+
+  /** Creates the tasks verifying the selected trees, splitting large trees into key ranges. */
+  private VerifyPlan planVerification(Storage storage, final EntryContainer entryContainer, final boolean cleanMode,
+      final int threadCount) throws Exception
   {
-    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+    return storage.read(new ReadOperation<VerifyPlan>()
     {
-      long storedEntryCount = id2entry.getRecordCount(txn);
-      while (cursor.next())
+      @Override
+      public VerifyPlan run(ReadableTransaction txn) throws Exception
       {
-        ByteString key = cursor.getKey();
-        ByteString value = cursor.getValue();
-
-        EntryID entryID;
-        try
+        final VerifyPlan plan = new VerifyPlan();
+        if (cleanMode)
         {
-          entryID = new EntryID(key);
+          planIndexVerification(txn, plan, threadCount);
         }
-        catch (Exception e)
+        else
         {
-          errorCount++;
-          if (logger.isTraceEnabled())
-          {
-            logger.traceException(e);
-
-            logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
-          }
-          continue;
+          planID2EntryVerification(txn, plan, threadCount);
+          plan.totalCount = entryContainer.getNumberOfEntriesInBaseDN0(txn);
         }
+        return plan;
+      }
+    });
+  }
 
-        keyCount++;
+  /**
+   * Plans a check for index completeness: id2entry is split into ranges of entry IDs, and each task checks that
+   * the IDs of the entries of its range are indeed present in the indexes for the appropriate values.
+   */
+  private void planID2EntryVerification(ReadableTransaction txn, VerifyPlan plan, int threadCount)
+  {
+    if (verifyDN2ID)
+    {
+      addTreeKeyCount(dn2id);
+    }
+    for (AttributeIndex attrIndex : attrIndexList)
+    {
+      for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
+      {
+        addTreeKeyCount(index);
+      }
+    }
+    for (VLVIndex vlvIndex : vlvIndexList)
+    {
+      addTreeKeyCount(vlvIndex);
+    }
 
-        Entry entry;
-        try
-        {
-          entry = id2entry.entryFromDatabase(value, rootContainer.getCompressedSchema());
-        }
-        catch (Exception e)
+    plan.storedEntryCount = id2entry.getRecordCount(txn);
+    final List<ByteString> splitKeys = new ArrayList<>();
+    final int nbRanges = getNumberOfRanges(plan.storedEntryCount, threadCount);
+    if (nbRanges > 1)
+    {
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+      {
+        // Entry IDs are mostly dense, so splitting the ID interval evenly balances the ranges well enough
+        if (cursor.positionToLastKey())
         {
-          errorCount++;
-          if (logger.isTraceEnabled())
+          final long highestID = new EntryID(cursor.getKey()).longValue();
+          final long rangeSize = Math.max(1, highestID / nbRanges);
+          for (long id = rangeSize; id < highestID; id += rangeSize)
           {
-            logger.traceException(e);
-
-            logger.trace("Malformed id2entry record for ID %d:%n%s%n", entryID, StaticUtils.bytesToHex(value));
+            splitKeys.add(new EntryID(id).toByteString());
           }
-          continue;
         }
-
-        verifyEntry(txn, entryID, entry);
-      }
-      if (keyCount != storedEntryCount)
-      {
-        errorCount++;
-        logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, storedEntryCount, keyCount);
       }
     }
+
+    ByteString lowKey = null;
+    for (ByteString splitKey : splitKeys)
+    {
+      plan.tasks.add(new ID2EntryRangeTask(lowKey, splitKey));
+      lowKey = splitKey;
+    }
+    plan.tasks.add(new ID2EntryRangeTask(lowKey, null));
   }
 
   /**
-   * Iterate through the entries in an index to perform a check for
-   * index cleanliness. For each ID in the index we check that the
-   * entry it refers to does indeed contain the expected value.
-   *
-   * @throws StorageRuntimeException If an error occurs in the storage.
-   * @throws DirectoryException If an error occurs reading values in the index.
+   * Plans a check for index cleanliness of the first selected tree. Attribute and VLV indexes are split into key
+   * ranges. The children counts are verified while walking dn2id in order, so dn2id and id2childrenCount are each
+   * verified by a single task.
    */
-  private void iterateIndex(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+  private void planIndexVerification(ReadableTransaction txn, VerifyPlan plan, int threadCount)
   {
     if (verifyDN2ID)
     {
-      iterateDN2ID(txn);
+      addTreeKeyCount(dn2id);
+      plan.totalCount = dn2id.getRecordCount(txn);
+      plan.tasks.add(new DN2IDTask());
     }
     else if (verifyID2ChildrenCount)
     {
-      iterateID2ChildrenCount(txn);
+      addTreeKeyCount(id2childrenCount);
+      plan.totalCount = id2childrenCount.getRecordCount(txn);
+      plan.tasks.add(new ID2ChildrenCountTask());
     }
     else if (!attrIndexList.isEmpty())
     {
       AttributeIndex attrIndex = attrIndexList.get(0);
       for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
       {
-        iterateAttrIndex(txn, index);
+        addTreeKeyCount(index);
+        final long recordCount = index.getRecordCount(txn);
+        plan.totalCount += recordCount;
+
+        ByteString lowKey = null;
+        for (ByteString splitKey : getSplitKeys(txn, index.getName(), recordCount, threadCount))
+        {
+          plan.tasks.add(new AttrIndexRangeTask(index, lowKey, splitKey));
+          lowKey = splitKey;
+        }
+        plan.tasks.add(new AttrIndexRangeTask(index, lowKey, null));
       }
     }
     else if (!vlvIndexList.isEmpty())
     {
-      iterateVLVIndex(txn, vlvIndexList.get(0), true);
+      VLVIndex vlvIndex = vlvIndexList.get(0);
+      addTreeKeyCount(vlvIndex);
+      plan.totalCount = vlvIndex.getRecordCount(txn);
+
+      ByteString lowKey = null;
+      for (ByteString splitKey : getSplitKeys(txn, vlvIndex.getName(), plan.totalCount, threadCount))
+      {
+        plan.tasks.add(new VLVIndexRangeTask(vlvIndex, lowKey, splitKey));
+        lowKey = splitKey;
+      }
+      plan.tasks.add(new VLVIndexRangeTask(vlvIndex, lowKey, null));
     }
   }
 
+  private void addTreeKeyCount(Tree tree)
+  {
+    treeKeyCounts.put(tree, new AtomicLong());
+  }
+
+  private void incrementTreeKeyCount(Tree tree)
+  {
+    treeKeyCounts.get(tree).incrementAndGet();
+  }
+
   /**
-   * Iterate through the entries in DN2ID to perform a check for
-   * index cleanliness.
+   * Sets the minimum number of records of a key range verified by a single task, so that tests can split small
+   * trees.
    *
-   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @param rangeSize the minimum number of records of a key range
    */
-  private void iterateDN2ID(ReadableTransaction txn) throws StorageRuntimeException
+  static void setMinRangeSize(long rangeSize)
   {
-    final Deque<ChildrenCount> childrenCounters = new LinkedList<>();
-    ChildrenCount currentNode = null;
+    minRangeSize = Math.max(1, rangeSize);
+  }
 
-    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(dn2id.getName()))
+  /** Returns the number of key ranges a tree holding the provided number of records should be split into. */
+  static int getNumberOfRanges(long recordCount, int threadCount)
+  {
+    if (threadCount <= 1)
     {
-      while (cursor.next())
-      {
-        keyCount++;
+      return 1;
+    }
+    return (int) Math.max(1, Math.min(threadCount * RANGES_PER_THREAD, recordCount / minRangeSize));
+  }
 
-        final ByteString key = cursor.getKey();
-        final EntryID entryID;
-        try
+  /**
+   * Returns the keys splitting a tree into ranges holding about the same number of records, in increasing order.
+   * The first range starts before the first key of the tree and the last range ends after the last key.
+   */
+  private static List<ByteString> getSplitKeys(ReadableTransaction txn, TreeName treeName, long recordCount,
+      int threadCount)
+  {
+    final int nbRanges = getNumberOfRanges(recordCount, threadCount);
+    final List<ByteString> splitKeys = new ArrayList<>(nbRanges);
+    if (nbRanges > 1 && recordCount <= Integer.MAX_VALUE)
+    {
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+      {
+        // Positioning to an index may scan the tree from its start: only do it once, then walk forward
+        long index = recordCount / nbRanges;
+        if (!cursor.positionToIndex((int) index))
         {
-          entryID =  new EntryID(cursor.getValue());
+          return splitKeys;
         }
-        catch (Exception e)
+        for (int i = 1; i < nbRanges; i++)
         {
-          errorCount++;
-          logger.trace("File dn2id has malformed ID for DN <%s>", key, e);
-          continue;
+          final long splitIndex = recordCount * i / nbRanges;
+          for (; index < splitIndex; index++)
+          {
+            if (!cursor.next())
+            {
+              return splitKeys;
+            }
+          }
+          final ByteString key = cursor.getKey();
+          if (splitKeys.isEmpty() || key.compareTo(splitKeys.get(splitKeys.size() - 1)) > 0)
+          {
+            splitKeys.add(key);
+          }
         }
+      }
+    }
+    return splitKeys;
+  }
 
-        currentNode = verifyID2ChildrenCount(txn, childrenCounters, key, entryID);
-
-        final Entry entry;
-        try
-        {
-          entry = id2entry.get(txn, entryID);
-        }
-        catch (Exception e)
-        {
-          errorCount++;
-          logger.traceException(e);
-          continue;
-        }
+  /**
+   * Runs the verify tasks, then merges their statistics and logs their errors in the order of the tasks. The
+   * tasks are run by the calling thread when a single thread is requested.
+   */
+  private void runTasks(Storage storage, List<VerifyTask> tasks, int threadCount) throws Exception
+  {
+    if (threadCount <= 1)
+    {
+      for (VerifyTask task : tasks)
+      {
+        mergeResult(task.call());
+      }
+      return;
+    }
 
-        if (entry == null)
-        {
-          errorCount++;
-          logger.error(ERR_VERIFY_DN2ID_UNKNOWN_ID, key, entryID.longValue());
-        }
-        else if (!key.equals(dnToDNKey(entry.getName(), verifyConfig.getBaseDN().size())))
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(threadCount, newThreadFactory(null, VERIFY_THREAD_NAME, true));
+    try
+    {
+      final List<Future<VerifyTask>> futures = new ArrayList<>(tasks.size());
+      for (VerifyTask task : tasks)
+      {
+        futures.add(executor.submit(task));
+      }
+      try
+      {
+        for (Future<VerifyTask> future : futures)
         {
-          errorCount++;
-          logger.error(ERR_VERIFY_DN2ID_WRONG_ENTRY, key, entry.getName());
+          mergeResult(getResult(future));
         }
       }
-
-      while ((currentNode = childrenCounters.pollLast()) != null)
+      catch (Exception e)
       {
-        verifyID2ChildrenCount(txn, currentNode);
+        // Never interrupt the other tasks: interrupting a read may invalidate the storage of an online backend
+        aborted = true;
+        for (Future<VerifyTask> future : futures)
+        {
+          future.cancel(false);
+        }
+        throw e;
       }
     }
+    finally
+    {
+      executor.shutdown();
+      awaitTermination(executor);
+    }
   }
 
-  private ChildrenCount verifyID2ChildrenCount(ReadableTransaction txn, final Deque<ChildrenCount> childrenCounters,
-      final ByteString key, final EntryID entryID)
+  /** Waits for the tasks still running, so that none of them is reading the storage once the verify is over. */
+  private static void awaitTermination(ExecutorService executor)
   {
-    ChildrenCount currentParent = childrenCounters.peekLast();
-    while (currentParent != null && !DnKeyFormat.isChild(currentParent.baseDN, key))
+    try
     {
-      // This subtree is fully processed, pop the counter of the parent DN from the stack and verify it's value
-      verifyID2ChildrenCount(txn, childrenCounters.removeLast());
-      currentParent = childrenCounters.getLast();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
     }
-    if (currentParent != null)
+    catch (InterruptedException e)
     {
-      currentParent.numberOfChildren++;
+      Thread.currentThread().interrupt();
     }
-    final ChildrenCount node = new ChildrenCount(key, entryID);
-    childrenCounters.addLast(node);
-    return node;
   }
 
-  private void verifyID2ChildrenCount(ReadableTransaction txn, ChildrenCount parent) {
-    final long expected = parent.numberOfChildren;
-    final long currentValue = id2childrenCount.getCount(txn, parent.entryID);
-    if (expected != currentValue)
+  private static <T> T getResult(Future<T> future) throws Exception
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (ExecutionException e)
     {
-      errorCount++;
-      logger.error(ERR_VERIFY_ID2COUNT_WRONG_COUNT, parent.baseDN, currentValue, expected);
+      if (e.getCause() instanceof Exception)
+      {
+        throw (Exception) e.getCause();
+      }
+      throw e;
     }
   }
 
-  private void iterateID2ChildrenCount(ReadableTransaction txn) throws StorageRuntimeException
+  private void mergeResult(VerifyTask task)
   {
-    try (final SequentialCursor<EntryID, Void> cursor = id2childrenCount.openCursor(txn))
+    for (LocalizableMessage error : task.errors)
     {
-      while (cursor.next())
+      logger.error(error);
+    }
+
+    entryLimitExceededCount += task.entryLimitExceededCount;
+    multiReferenceCount += task.multiReferenceCount;
+    entryReferencesCount += task.entryReferencesCount;
+    maxEntryPerValue = Math.max(maxEntryPerValue, task.maxEntryPerValue);
+    for (Map.Entry<Index, HashMap<ByteString, Long>> mapEntry : task.entryLimitMap.entrySet())
+    {
+      HashMap<ByteString, Long> hashMap = entryLimitMap.get(mapEntry.getKey());
+      if (hashMap == null)
       {
-        final EntryID entryID = cursor.getKey();
-        if (!id2entry.containsEntryID(txn, entryID))
-        {
-          logger.error(ERR_VERIFY_ID2COUNT_WRONG_ID, entryID.longValue());
-          errorCount++;
-        }
+        entryLimitMap.put(mapEntry.getKey(), mapEntry.getValue());
+        continue;
+      }
+      for (Map.Entry<ByteString, Long> counter : mapEntry.getValue().entrySet())
+      {
+        Long previous = hashMap.get(counter.getKey());
+        hashMap.put(counter.getKey(), previous != null ? previous + counter.getValue() : counter.getValue());
       }
     }
   }
 
   /**
-   * Increment the counter for a key that has exceeded the
-   * entry limit. The counter gives the number of entries that have
-   * referenced the key.
-   *
-   * @param index The index containing the key.
-   * @param key A key that has exceeded the entry limit.
+   * A part of the verification, run in its own read transaction. A task gathers the errors it finds and its index
+   * statistics so that they can be reported in order once it has completed.
    */
-  private void incrEntryLimitStats(Index index, ByteString key)
+  private abstract class VerifyTask implements Callable<VerifyTask>
   {
-    HashMap<ByteString,Long> hashMap = entryLimitMap.get(index);
-    if (hashMap == null)
-    {
-      hashMap = new HashMap<>();
-      entryLimitMap.put(index, hashMap);
-    }
-    Long counter = hashMap.get(key);
-    if (counter != null)
+    /** The errors found by this task, in the order they were found. */
+    final List<LocalizableMessage> errors = new ArrayList<>();
+    /** The number of records that have exceeded the entry limit. */
+    private long entryLimitExceededCount;
+    /** The number of records that reference more than one entry. */
+    private long multiReferenceCount;
+    /** The total number of entry references. */
+    private long entryReferencesCount;
+    /** The maximum number of references per record. */
+    private long maxEntryPerValue;
+    /** This map is used to gather some statistics about values that have exceeded the entry limit. */
+    private final IdentityHashMap<Index, HashMap<ByteString, Long>> entryLimitMap = new IdentityHashMap<>();
+
+    @Override
+    public VerifyTask call() throws Exception
     {
-      counter++;
+      rootContainer.getStorage().read(new ReadOperation<Void>()
+      {
+        @Override
+        public Void run(ReadableTransaction txn) throws Exception
+        {
+          verify(txn);
+          return null;
+        }
+      });
+      return this;
     }
-    else
+
+    /**
+     * Performs this part of the verification.
+     *
+     * @throws StorageRuntimeException If an error occurs in the storage.
+     * @throws DirectoryException If an error occurs reading values in the index.
+     */
+    abstract void verify(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException;
+
+    /** Records an error found by this task. */
+    void error(LocalizableMessage message)
     {
-      counter = 1L;
+      errorCount.incrementAndGet();
+      errors.add(message);
     }
-    hashMap.put(key, counter);
-  }
 
-  /**
-   * Update the statistical information for an index record.
-   *
-   * @param entryIDSet The set of entry IDs for the index record.
-   */
-  private void updateIndexStats(EntryIDSet entryIDSet)
-  {
-    if (!entryIDSet.isDefined())
+    /**
+     * Increment the counter for a key that has exceeded the
+     * entry limit. The counter gives the number of entries that have
+     * referenced the key.
+     *
+     * @param index The index containing the key.
+     * @param key A key that has exceeded the entry limit.
+     */
+    void incrEntryLimitStats(Index index, ByteString key)
     {
-      entryLimitExceededCount++;
-      multiReferenceCount++;
+      HashMap<ByteString,Long> hashMap = entryLimitMap.get(index);
+      if (hashMap == null)
+      {
+        hashMap = new HashMap<>();
+        entryLimitMap.put(index, hashMap);
+      }
+      Long counter = hashMap.get(key);
+      if (counter != null)
+      {
+        counter++;
+      }
+      else
+      {
+        counter = 1L;
+      }
+      hashMap.put(key, counter);
     }
-    else
+
+    /**
+     * Update the statistical information for an index record.
+     *
+     * @param entryIDSet The set of entry IDs for the index record.
+     */
+    void updateIndexStats(EntryIDSet entryIDSet)
     {
-      if (entryIDSet.size() > 1)
+      if (!entryIDSet.isDefined())
       {
+        entryLimitExceededCount++;
         multiReferenceCount++;
       }
-      entryReferencesCount += entryIDSet.size();
-      maxEntryPerValue = Math.max(maxEntryPerValue, entryIDSet.size());
+      else
+      {
+        if (entryIDSet.size() > 1)
+        {
+          multiReferenceCount++;
+        }
+        entryReferencesCount += entryIDSet.size();
+        maxEntryPerValue = Math.max(maxEntryPerValue, entryIDSet.size());
+      }
     }
   }
 
-  /**
-   * Iterate through the entries in a VLV index to perform a check for index
-   * cleanliness.
-   *
-   * @param vlvIndex The VLV index to perform the check against.
-   * @param verifyID True to verify the IDs against id2entry.
-   * @throws StorageRuntimeException If an error occurs in the storage.
-   * @throws DirectoryException If an error occurs reading values in the index.
-   */
-  private void iterateVLVIndex(ReadableTransaction txn, VLVIndex vlvIndex, boolean verifyID)
-      throws StorageRuntimeException, DirectoryException
+  /** A task verifying the keys of a tree from a lower bound, inclusive, to an upper bound, exclusive. */
+  private abstract class RangeTask extends VerifyTask
   {
-    if(vlvIndex == null || !verifyID)
+    /** The first key of the range, or {@code null} if the range starts with the first key of the tree. */
+    private final ByteString lowKey;
+    /** The key following the range, or {@code null} if the range ends with the last key of the tree. */
+    private final ByteString highKey;
+
+    RangeTask(ByteString lowKey, ByteString highKey)
     {
-      return;
+      this.lowKey = lowKey;
+      this.highKey = highKey;
     }
 
-    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(vlvIndex.getName()))
+    /** Positions the cursor on the first key of the range, returning {@code false} if the range is empty. */
+    boolean positionToFirstKey(Cursor<ByteString, ?> cursor)
     {
-      while (cursor.next())
-      {
-        ByteString key = cursor.getKey();
-        EntryID id = new EntryID(decodeEntryIDFromVLVKey(key));
-        Entry entry;
-        try
-        {
-          entry = id2entry.get(txn, id);
-        }
-        catch (Exception e)
-        {
-          logger.traceException(e);
-          errorCount++;
-          continue;
-        }
+      final boolean found = !aborted && (lowKey != null ? cursor.positionToKeyOrNext(lowKey) : cursor.next());
+      return found && isInRange(cursor.getKey());
+    }
 
-        if (entry == null)
-        {
-          errorCount++;
-          logger.error(ERR_VERIFY_UNKNOWN_ID, id, keyDump(vlvIndex, key));
-          continue;
-        }
+    /** Moves the cursor to the next key of the range, returning {@code false} at the end of the range. */
+    boolean next(Cursor<ByteString, ?> cursor)
+    {
+      return !aborted && cursor.next() && isInRange(cursor.getKey());
+    }
 
-        ByteString expectedKey = vlvIndex.toKey(entry, id);
-        if (expectedKey.compareTo(key) != 0)
-        {
-          errorCount++;
-          logger.error(ERR_VERIFY_ENTRY_NON_MATCHING_KEY, id, keyDump(vlvIndex, expectedKey));
-        }
-      }
+    private boolean isInRange(ByteString key)
+    {
+      return highKey == null || key.compareTo(highKey) < 0;
     }
   }
 
   /**
-   * Iterate through the entries in an attribute index to perform a check for
-   * index cleanliness.
-   * @param index The index tree to be checked.
-   * @throws StorageRuntimeException If an error occurs in the storage.
+   * Iterates through a range of entries in id2entry to perform a check for
+   * index completeness. We check that the ID for the entry is indeed
+   * present in the indexes for the appropriate values.
    */
-  private void iterateAttrIndex(ReadableTransaction txn, MatchingRuleIndex index) throws StorageRuntimeException
+  private final class ID2EntryRangeTask extends RangeTask
   {
-    if (index == null)
+    ID2EntryRangeTask(ByteString lowKey, ByteString highKey)
     {
-      return;
+      super(lowKey, highKey);
     }
 
-    try(final Cursor<ByteString,EntryIDSet> cursor = index.openCursor(txn))
+    @Override
+    void verify(ReadableTransaction txn) throws StorageRuntimeException
     {
-      while (cursor.next())
+      try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
       {
-        keyCount++;
-
-        final ByteString key = cursor.getKey();
-
-        EntryIDSet entryIDSet;
-        try
+        for (boolean found = positionToFirstKey(cursor); found; found = next(cursor))
         {
-          entryIDSet = cursor.getValue();
-          if (entryIDSet.size() == 0)
+          ByteString key = cursor.getKey();
+          ByteString value = cursor.getValue();
+
+          EntryID entryID;
+          try
           {
-            errorCount++;
-            logger.error(ERR_VERIFY_EMPTY_IDSET, keyDump(index, key));
+            entryID = new EntryID(key);
           }
-        }
-        catch (Exception e)
-        {
-          errorCount++;
-          logger.traceException(e);
-          logger.trace("Malformed ID list: %n%s", keyDump(index, key));
-          continue;
-        }
+          catch (Exception e)
+          {
+            errorCount.incrementAndGet();
+            if (logger.isTraceEnabled())
+            {
+              logger.traceException(e);
 
-        updateIndexStats(entryIDSet);
+              logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
+            }
+            continue;
+          }
 
-        if (entryIDSet.isDefined())
-        {
-          EntryID prevID = null;
+          keyCount.incrementAndGet();
 
-          for (EntryID id : entryIDSet)
+          Entry entry;
+          try
+          {
+            entry = id2entry.entryFromDatabase(value, rootContainer.getCompressedSchema());
+          }
+          catch (Exception e)
           {
-            if (prevID != null && id.equals(prevID) && logger.isTraceEnabled())
-            {
-              logger.error(ERR_VERIFY_DUPLICATE_REFERENCE, id.longValue(), keyDump(index, key));
-            }
-            prevID = id;
-
-            Entry entry;
-            try
-            {
-              entry = id2entry.get(txn, id);
-            }
-            catch (Exception e)
+            errorCount.incrementAndGet();
+            if (logger.isTraceEnabled())
             {
               logger.traceException(e);
-              errorCount++;
-              continue;
-            }
 
-            if (entry == null)
-            {
-              errorCount++;
-              logger.error(ERR_VERIFY_UNKNOWN_REFERENCE, id.longValue(), keyDump(index, key));
-              continue;
-            }
-
-            // As an optimization avoid passing in a real set and wasting time
-            // hashing and comparing a potentially large set of values, as well
-            // as using up memory. Instead just intercept the add() method and
-            // detect when an equivalent value has been added.
-
-            // We need to use an AtomicBoolean here since anonymous classes
-            // require referenced external variables to be final.
-            final AtomicBoolean foundMatchingKey = new AtomicBoolean(false);
-
-            Set<ByteString> dummySet = new AbstractSet<ByteString>()
-            {
-              @Override
-              public Iterator<ByteString> iterator()
-              {
-                // The set is always empty.
-                return Collections.<ByteString> emptySet().iterator();
-              }
-
-              @Override
-              public int size()
-              {
-                // The set is always empty.
-                return 0;
-              }
-
-              @Override
-              public boolean add(ByteString e)
-              {
-                if (key.equals(e))
-                {
-                  // We could terminate processing at this point by throwing an
-                  // UnsupportedOperationException, but this optimization is
-                  // already ugly enough.
-                  foundMatchingKey.set(true);
-                }
-                return true;
-              }
-
-            };
-
-            index.indexEntry(entry, dummySet);
-
-            if (!foundMatchingKey.get())
-            {
-              errorCount++;
-              logger.error(ERR_VERIFY_UNEXPECTED_REFERENCE, entry.getName(), keyDump(index, key));
+              logger.trace("Malformed id2entry record for ID %d:%n%s%n", entryID, StaticUtils.bytesToHex(value));
             }
+            continue;
           }
+
+          verifyEntry(txn, entryID, entry);
         }
       }
     }
-  }
 
-  /**
-   * Check that an index is complete for a given entry.
-   *
-   * @param entryID The entry ID.
-   * @param entry The entry to be checked.
-   */
-  private void verifyEntry(ReadableTransaction txn, EntryID entryID, Entry entry)
-  {
-    if (verifyDN2ID)
+    /**
+     * Check that an index is complete for a given entry.
+     *
+     * @param entryID The entry ID.
+     * @param entry The entry to be checked.
+     */
+    private void verifyEntry(ReadableTransaction txn, EntryID entryID, Entry entry)
     {
-      verifyDN2ID(txn, entryID, entry);
+      if (verifyDN2ID)
+      {
+        verifyDN2ID(txn, entryID, entry);
+      }
+      verifyIndex(txn, entryID, entry);
     }
-    verifyIndex(txn, entryID, entry);
-  }
 
-  /**
-   * Check that the DN2ID index is complete for a given entry.
-   *
-   * @param entryID The entry ID.
-   * @param entry The entry to be checked.
-   */
-  private void verifyDN2ID(ReadableTransaction txn, EntryID entryID, Entry entry)
-  {
-    DN dn = entry.getName();
+    /**
+     * Check that the DN2ID index is complete for a given entry.
+     *
+     * @param entryID The entry ID.
+     * @param entry The entry to be checked.
+     */
+    private void verifyDN2ID(ReadableTransaction txn, EntryID entryID, Entry entry)
+    {
+      DN dn = entry.getName();
+      incrementTreeKeyCount(dn2id);
 
-    // Check the ID is in dn2id with the correct DN.
-    try
+      // Check the ID is in dn2id with the correct DN.
+      try
+      {
+        EntryID id = dn2id.get(txn, dn);
+        if (id == null)
+        {
+          error(ERR_VERIFY_DN2ID_MISSING_KEY.get(dn));
+        }
+        else if (!id.equals(entryID))
+        {
+          error(ERR_VERIFY_DN2ID_WRONG_ID.get(id.longValue(), entryID.longValue(), dn));
+        }
+      }
+      catch (Exception e)
+      {
+        if (logger.isTraceEnabled())
+        {
+          logger.traceException(e);
+          logger.trace("File dn2id has error reading key %s: %s.%n", dn, e.getMessage());
+        }
+        errorCount.incrementAndGet();
+      }
+
+      // Check the parent DN is in dn2id.
+      DN parentDN = getParent(dn);
+      if (parentDN != null)
+      {
+        try
+        {
+          EntryID id = dn2id.get(txn, parentDN);
+          if (id == null)
+          {
+            error(ERR_VERIFY_DN2ID_MISSING_KEY.get(parentDN));
+          }
+        }
+        catch (Exception e)
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.traceException(e);
+            logger.trace("File dn2id has error reading key %s: %s.%n", parentDN, e.getMessage());
+          }
+          errorCount.incrementAndGet();
+        }
+      }
+    }
+
+    /**
+     * Check that an attribute index is complete for a given entry.
+     *
+     * @param entryID
+     *          The entry ID.
+     * @param entry
+     *          The entry to be checked.
+     */
+    private void verifyIndex(ReadableTransaction txn, EntryID entryID, Entry entry)
     {
-      EntryID id = dn2id.get(txn, dn);
-      if (id == null)
+      for (AttributeIndex attrIndex : attrIndexList)
       {
-        logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, dn);
-        errorCount++;
+        verifyAttribute(txn, entryID, entry, attrIndex);
       }
-      else if (!id.equals(entryID))
+
+      for (VLVIndex vlvIndex : vlvIndexList)
       {
-        logger.error(ERR_VERIFY_DN2ID_WRONG_ID, id.longValue(), entryID.longValue(), dn);
-        errorCount++;
+        incrementTreeKeyCount(vlvIndex);
+        try
+        {
+          if (vlvIndex.verifyEntry(txn, entryID, entry))
+          {
+            error(ERR_VERIFY_MISSING_ENTRY_VLV.get(entry.getName(), vlvIndex.getName()));
+          }
+        }
+        catch (DirectoryException e)
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.traceException(e);
+            logger.trace("Error checking entry %s against filter or base DN for VLV index %s: %s",
+                       entry.getName(), vlvIndex.getName(), e.getMessageObject());
+          }
+          errorCount.incrementAndGet();
+        }
+        catch (StorageRuntimeException e)
+        {
+          if (logger.isTraceEnabled())
+          {
+            logger.traceException(e);
+            logger.trace("Error reading VLV index %s for entry %s: %s",
+                vlvIndex.getName(), entry.getName(), StaticUtils.getBacktrace(e));
+          }
+          errorCount.incrementAndGet();
+        }
       }
     }
-    catch (Exception e)
+
+    /** Check that an attribute index is complete for a given attribute. */
+    private void verifyAttribute(ReadableTransaction txn, EntryID entryID, Entry entry, AttributeIndex attrIndex)
     {
-      if (logger.isTraceEnabled())
+      for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
       {
-        logger.traceException(e);
-        logger.trace("File dn2id has error reading key %s: %s.%n", dn, e.getMessage());
+        for (ByteString key : index.indexEntry(entry))
+        {
+          verifyAttributeInIndex(index, txn, key, entryID);
+        }
       }
-      errorCount++;
     }
 
-    // Check the parent DN is in dn2id.
-    DN parentDN = getParent(dn);
-    if (parentDN != null)
+    private void verifyAttributeInIndex(Index index, ReadableTransaction txn,
+        ByteString key, EntryID entryID)
     {
+      incrementTreeKeyCount(index);
       try
       {
-        EntryID id = dn2id.get(txn, parentDN);
-        if (id == null)
+        ConditionResult cr = indexContainsID(index, txn, key, entryID);
+        if (cr == ConditionResult.FALSE)
+        {
+          error(ERR_VERIFY_MISSING_ID.get(entryID.longValue(), keyDump(index, key)));
+        }
+        else if (cr == ConditionResult.UNDEFINED)
         {
-          logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, parentDN);
-          errorCount++;
+          incrEntryLimitStats(index, key);
         }
       }
-      catch (Exception e)
+      catch (StorageRuntimeException e)
       {
         if (logger.isTraceEnabled())
         {
           logger.traceException(e);
-          logger.trace("File dn2id has error reading key %s: %s.%n", parentDN, e.getMessage());
+
+          logger.trace("Error reading tree: %s%n%s", e.getMessage(), keyDump(index, key));
         }
-        errorCount++;
+        errorCount.incrementAndGet();
       }
     }
   }
 
   /**
-   * Construct a printable string from a raw key value.
-   *
-   * @param indexName
-   *          The name of the index tree containing the key value.
-   * @param key
-   *          The bytes of the key.
-   * @return A string that may be logged or printed.
-   */
-  private static String keyDump(Tree index, ByteSequence key)
-  {
-    StringBuilder buffer = new StringBuilder(128);
-    buffer.append("Index: ").append(index).append(ServerConstants.EOL);
-    buffer.append("Key:").append(ServerConstants.EOL);
-    StaticUtils.byteArrayToHexPlusAscii(buffer, key.toByteArray(), 6);
-    return buffer.toString();
-  }
-
-  /**
-   * Check that an attribute index is complete for a given entry.
-   *
-   * @param entryID
-   *          The entry ID.
-   * @param entry
-   *          The entry to be checked.
+   * Iterates through the entries in DN2ID to perform a check for
+   * index cleanliness, verifying the children counts along the way.
    */
-  private void verifyIndex(ReadableTransaction txn, EntryID entryID, Entry entry)
+  private final class DN2IDTask extends VerifyTask
   {
-    for (AttributeIndex attrIndex : attrIndexList)
+    @Override
+    void verify(ReadableTransaction txn) throws StorageRuntimeException
     {
-      verifyAttribute(txn, entryID, entry, attrIndex);
-    }
+      final Deque<ChildrenCount> childrenCounters = new LinkedList<>();
+      ChildrenCount currentNode = null;
 
-    for (VLVIndex vlvIndex : vlvIndexList)
-    {
-      try
+      try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(dn2id.getName()))
       {
-        if (vlvIndex.verifyEntry(txn, entryID, entry))
+        while (!aborted && cursor.next())
         {
-          logger.error(ERR_VERIFY_MISSING_ENTRY_VLV, entry.getName(), vlvIndex.getName());
-          errorCount++;
+          keyCount.incrementAndGet();
+          incrementTreeKeyCount(dn2id);
+
+          final ByteString key = cursor.getKey();
+          final EntryID entryID;
+          try
+          {
+            entryID =  new EntryID(cursor.getValue());
+          }
+          catch (Exception e)
+          {
+            errorCount.incrementAndGet();
+            logger.trace("File dn2id has malformed ID for DN <%s>", key, e);
+            continue;
+          }
+
+          currentNode = verifyID2ChildrenCount(txn, childrenCounters, key, entryID);
+
+          final Entry entry;
+          try
+          {
+            entry = id2entry.get(txn, entryID);
+          }
+          catch (Exception e)
+          {
+            errorCount.incrementAndGet();
+            logger.traceException(e);
+            continue;
+          }
+
+          if (entry == null)
+          {
+            error(ERR_VERIFY_DN2ID_UNKNOWN_ID.get(key, entryID.longValue()));
+          }
+          else if (!key.equals(dnToDNKey(entry.getName(), verifyConfig.getBaseDN().size())))
+          {
+            error(ERR_VERIFY_DN2ID_WRONG_ENTRY.get(key, entry.getName()));
+          }
         }
-      }
-      catch (DirectoryException e)
-      {
-        if (logger.isTraceEnabled())
+
+        while ((currentNode = childrenCounters.pollLast()) != null)
         {
-          logger.traceException(e);
-          logger.trace("Error checking entry %s against filter or base DN for VLV index %s: %s",
-                     entry.getName(), vlvIndex.getName(), e.getMessageObject());
+          verifyID2ChildrenCount(txn, currentNode);
         }
-        errorCount++;
       }
-      catch (StorageRuntimeException e)
+    }
+
+    private ChildrenCount verifyID2ChildrenCount(ReadableTransaction txn, final Deque<ChildrenCount> childrenCounters,
+        final ByteString key, final EntryID entryID)
+    {
+      ChildrenCount currentParent = childrenCounters.peekLast();
+      while (currentParent != null && !DnKeyFormat.isChild(currentParent.baseDN, key))
       {
-        if (logger.isTraceEnabled())
-        {
-          logger.traceException(e);
-          logger.trace("Error reading VLV index %s for entry %s: %s",
-              vlvIndex.getName(), entry.getName(), StaticUtils.getBacktrace(e));
-        }
-        errorCount++;
+        // This subtree is fully processed, pop the counter of the parent DN from the stack and verify it's value
+        verifyID2ChildrenCount(txn, childrenCounters.removeLast());
+        currentParent = childrenCounters.getLast();
+      }
+      if (currentParent != null)
+      {
+        currentParent.numberOfChildren++;
+      }
+      final ChildrenCount node = new ChildrenCount(key, entryID);
+      childrenCounters.addLast(node);
+      return node;
+    }
+
+    private void verifyID2ChildrenCount(ReadableTransaction txn, ChildrenCount parent) {
+      final long expected = parent.numberOfChildren;
+      final long currentValue = id2childrenCount.getCount(txn, parent.entryID);
+      if (expected != currentValue)
+      {
+        error(ERR_VERIFY_ID2COUNT_WRONG_COUNT.get(parent.baseDN, currentValue, expected));
       }
     }
   }
 
-  /** Check that an attribute index is complete for a given attribute. */
-  private void verifyAttribute(ReadableTransaction txn, EntryID entryID, Entry entry, AttributeIndex attrIndex)
+  /** Iterates through the children counts to check that they reference existing entries. */
+  private final class ID2ChildrenCountTask extends VerifyTask
   {
-    for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
+    @Override
+    void verify(ReadableTransaction txn) throws StorageRuntimeException
     {
-      for (ByteString key : index.indexEntry(entry))
+      try (final SequentialCursor<EntryID, Void> cursor = id2childrenCount.openCursor(txn))
       {
-        verifyAttributeInIndex(index, txn, key, entryID);
+        while (!aborted && cursor.next())
+        {
+          keyCount.incrementAndGet();
+          incrementTreeKeyCount(id2childrenCount);
+
+          final EntryID entryID = cursor.getKey();
+          if (!id2entry.containsEntryID(txn, entryID))
+          {
+            error(ERR_VERIFY_ID2COUNT_WRONG_ID.get(entryID.longValue()));
+          }
+        }
       }
     }
   }
 
-  private void verifyAttributeInIndex(Index index, ReadableTransaction txn,
-      ByteString key, EntryID entryID)
+  /**
+   * Iterates through a range of keys of a VLV index to perform a check for index
+   * cleanliness.
+   */
+  private final class VLVIndexRangeTask extends RangeTask
   {
-    try
+    /** The VLV index to perform the check against. */
+    private final VLVIndex vlvIndex;
+
+    VLVIndexRangeTask(VLVIndex vlvIndex, ByteString lowKey, ByteString highKey)
     {
-      ConditionResult cr = indexContainsID(index, txn, key, entryID);
-      if (cr == ConditionResult.FALSE)
+      super(lowKey, highKey);
+      this.vlvIndex = vlvIndex;
+    }
+
+    @Override
+    void verify(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+    {
+      try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(vlvIndex.getName()))
       {
-        logger.error(ERR_VERIFY_MISSING_ID, entryID.longValue(), keyDump(index, key));
-        errorCount++;
+        for (boolean found = positionToFirstKey(cursor); found; found = next(cursor))
+        {
+          keyCount.incrementAndGet();
+          incrementTreeKeyCount(vlvIndex);
+
+          ByteString key = cursor.getKey();
+          EntryID id = new EntryID(decodeEntryIDFromVLVKey(key));
+          Entry entry;
+          try
+          {
+            entry = id2entry.get(txn, id);
+          }
+          catch (Exception e)
+          {
+            logger.traceException(e);
+            errorCount.incrementAndGet();
+            continue;
+          }
+
+          if (entry == null)
+          {
+            error(ERR_VERIFY_UNKNOWN_ID.get(id, keyDump(vlvIndex, key)));
+            continue;
+          }
+
+          ByteString expectedKey = vlvIndex.toKey(entry, id);
+          if (expectedKey.compareTo(key) != 0)
+          {
+            error(ERR_VERIFY_ENTRY_NON_MATCHING_KEY.get(id, keyDump(vlvIndex, expectedKey)));
+          }
+        }
       }
-      else if (cr == ConditionResult.UNDEFINED)
+    }
+  }
+
+  /**
+   * Iterates through a range of keys of an attribute index to perform a check for
+   * index cleanliness. For each ID in the index we check that the
+   * entry it refers to does indeed contain the expected value.
+   */
+  private final class AttrIndexRangeTask extends RangeTask
+  {
+    /** The index tree to be checked. */
+    private final MatchingRuleIndex index;
+
+    AttrIndexRangeTask(MatchingRuleIndex index, ByteString lowKey, ByteString highKey)
+    {
+      super(lowKey, highKey);
+      this.index = index;
+    }
+
+    @Override
+    void verify(ReadableTransaction txn) throws StorageRuntimeException
+    {
+      try(final Cursor<ByteString,EntryIDSet> cursor = index.openCursor(txn))
       {
-        incrEntryLimitStats(index, key);
+        for (boolean found = positionToFirstKey(cursor); found; found = next(cursor))
+        {
+          keyCount.incrementAndGet();
+          incrementTreeKeyCount(index);
+
+          final ByteString key = cursor.getKey();
+
+          EntryIDSet entryIDSet;
+          try
+          {
+            entryIDSet = cursor.getValue();
+            if (entryIDSet.size() == 0)
+            {
+              error(ERR_VERIFY_EMPTY_IDSET.get(keyDump(index, key)));
+            }
+          }
+          catch (Exception e)
+          {
+            errorCount.incrementAndGet();
+            logger.traceException(e);
+            logger.trace("Malformed ID list: %n%s", keyDump(index, key));
+            continue;
+          }
+
+          updateIndexStats(entryIDSet);
+
+          if (entryIDSet.isDefined())
+          {
+            verifyReferences(txn, key, entryIDSet);
+          }
+        }
       }
     }
-    catch (StorageRuntimeException e)
+
+    private void verifyReferences(ReadableTransaction txn, final ByteString key, EntryIDSet entryIDSet)
     {
-      if (logger.isTraceEnabled())
+      EntryID prevID = null;
+
+      for (EntryID id : entryIDSet)
       {
-        logger.traceException(e);
+        if (prevID != null && id.equals(prevID) && logger.isTraceEnabled())
+        {
+          errors.add(ERR_VERIFY_DUPLICATE_REFERENCE.get(id.longValue(), keyDump(index, key)));
+        }
+        prevID = id;
 
-        logger.trace("Error reading tree: %s%n%s", e.getMessage(), keyDump(index, key));
+        Entry entry;
+        try
+        {
+          entry = id2entry.get(txn, id);
+        }
+        catch (Exception e)
+        {
+          logger.traceException(e);
+          errorCount.incrementAndGet();
+          continue;
+        }
+
+        if (entry == null)
+        {
+          error(ERR_VERIFY_UNKNOWN_REFERENCE.get(id.longValue(), keyDump(index, key)));
+          continue;
+        }
+
+        // As an optimization avoid passing in a real set and wasting time
+        // hashing and comparing a potentially large set of values, as well
+        // as using up memory. Instead just intercept the add() method and
+        // detect when an equivalent value has been added.
+
+        // We need to use an AtomicBoolean here since anonymous classes
+        // require referenced external variables to be final.
+        final AtomicBoolean foundMatchingKey = new AtomicBoolean(false);
+
+        Set<ByteString> dummySet = new AbstractSet<ByteString>()
+        {
+          @Override
+          public Iterator<ByteString> iterator()
+          {
+            // The set is always empty.
+            return Collections.<ByteString> emptySet().iterator();
+          }
+
+          @Override
+          public int size()
+          {
+            // The set is always empty.
+            return 0;
+          }
+
+          @Override
+          public boolean add(ByteString e)
+          {
+            if (key.equals(e))
+            {
+              // We could terminate processing at this point by throwing an
+              // UnsupportedOperationException, but this optimization is
+              // already ugly enough.
+              foundMatchingKey.set(true);
+            }
+            return true;
+          }
+
+        };
+
+        index.indexEntry(entry, dummySet);
+
+        if (!foundMatchingKey.get())
+        {
+          error(ERR_VERIFY_UNEXPECTED_REFERENCE.get(entry.getName(), keyDump(index, key)));
+        }
       }
-      errorCount++;
     }
   }
 
+  /**
+   * Construct a printable string from a raw key value.
+   *
+   * @param indexName
+   *          The name of the index tree containing the key value.
+   * @param key
+   *          The bytes of the key.
+   * @return A string that may be logged or printed.
+   */
+  private static String keyDump(Tree index, ByteSequence key)
+  {
+    StringBuilder buffer = new StringBuilder(128);
+    buffer.append("Index: ").append(index).append(ServerConstants.EOL);
+    buffer.append("Key:").append(ServerConstants.EOL);
+    StaticUtils.byteArrayToHexPlusAscii(buffer, key.toByteArray(), 6);
+    return buffer.toString();
+  }
+
   private static ConditionResult indexContainsID(Index index, ReadableTransaction txn, ByteString key, EntryID entryID)
   {
     EntryIDSet entryIDSet = index.get(txn, key);
@@ -989,66 +1405,29 @@ class VerifyJob
   private final class ProgressTask extends TimerTask
   {
     /** The total number of records to process. */
-    private long totalCount;
+    private final long totalCount;
     /** The number of records that had been processed at the time of the previous progress report. */
     private long previousCount;
+    /** The number of keys of each tree that had been processed at the time of the previous progress report. */
+    private final Map<Tree, Long> previousTreeKeyCounts = new HashMap<>();
     /** The time in milliseconds of the previous progress report. */
     private long previousTime;
 
     /**
      * Create a new verify progress task.
-     * @param indexIterator boolean, indicates if the task is iterating
-     * through indexes or the entries.
-     * @throws StorageRuntimeException An error occurred while accessing the storage.
+     * @param totalCount The total number of records to process.
      */
-    private ProgressTask(boolean indexIterator, ReadableTransaction txn) throws StorageRuntimeException
+    private ProgressTask(long totalCount)
     {
+      this.totalCount = totalCount;
       previousTime = System.currentTimeMillis();
-
-      if (indexIterator)
-      {
-        if (verifyDN2ID)
-        {
-          totalCount = dn2id.getRecordCount(txn);
-        }
-        else if (verifyID2ChildrenCount)
-        {
-          totalCount = id2childrenCount.getRecordCount(txn);
-        }
-        else if (!attrIndexList.isEmpty())
-        {
-          AttributeIndex attrIndex = attrIndexList.get(0);
-          totalCount = 0;
-          for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
-          {
-            totalCount += getRecordCount(txn, index);
-          }
-        }
-        else if (!vlvIndexList.isEmpty())
-        {
-          totalCount = vlvIndexList.get(0).getRecordCount(txn);
-        }
-      }
-      else
-      {
-        totalCount = rootContainer.getEntryContainer(verifyConfig.getBaseDN()).getNumberOfEntriesInBaseDN0(txn);
-      }
-    }
-
-    private long getRecordCount(ReadableTransaction txn, Index index)
-    {
-      if (index != null)
-      {
-        return index.getRecordCount(txn);
-      }
-      return 0;
     }
 
     /** The action to be performed by this timer task. */
     @Override
     public void run()
     {
-      long latestCount = keyCount;
+      long latestCount = keyCount.get();
       long deltaCount = latestCount - previousCount;
       long latestTime = System.currentTimeMillis();
       long deltaTime = latestTime - previousTime;
@@ -1060,7 +1439,17 @@ class VerifyJob
 
       float rate = 1000f*deltaCount / deltaTime;
 
-      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount, rate);
+      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount.get(), rate);
+
+      for (Map.Entry<Tree, AtomicLong> mapEntry : treeKeyCounts.entrySet())
+      {
+        final Tree tree = mapEntry.getKey();
+        final long latestTreeCount = mapEntry.getValue().get();
+        final Long previousTreeCount = previousTreeKeyCounts.put(tree, latestTreeCount);
+        final long deltaTreeCount = latestTreeCount - (previousTreeCount != null ? previousTreeCount : 0);
+        logger.info(NOTE_VERIFY_INDEX_PROGRESS_REPORT, latestTreeCount, tree.getName(),
+            1000f * deltaTreeCount / deltaTime);
+      }
 
       try
       {
@@ -0,0 +1,258 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable.spi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Groups the commits of concurrent write operations so that a single synchronization of the transaction log makes
+ * all of them durable.
+ * <p>
+ * Write operations commit their transaction without synchronizing the transaction log, then call
+ * {@link #awaitDurable()}. The first operation of a group becomes its leader: it waits for the synchronization of the
+ * previous group to complete, then for more operations to join the group, bounded by the maximum batch size and the
+ * maximum delay, before synchronizing the transaction log on behalf of the whole group. The other operations of the
+ * group simply wait for this synchronization.
+ * <p>
+ * This class is thread safe.
+ */
+public final class GroupCommit
+{
+  /** Synchronizes the transaction log of a storage so that all the transactions committed so far are durable. */
+  public interface LogSynchronizer
+  {
+    /**
+     * Synchronizes the transaction log to disk.
+     *
+     * @throws Exception
+     *           if the transaction log cannot be synchronized
+     */
+    void synchronize() throws Exception;
+  }
+
+  /** A group of commits made durable by the same synchronization. */
+  private static final class Batch
+  {
+    private int size;
+    private boolean durable;
+    private Exception failure;
+  }
+
+  /** Number of histogram buckets: bucket {@code i} counts the values in {@code [2^i, 2^(i+1))}. */
+  private static final int NB_BUCKETS = 24;
+
+  private final LogSynchronizer synchronizer;
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signaled when the current batch reaches the maximum batch size. */
+  private final Condition batchFull = lock.newCondition();
+  /** Signaled when a batch has been synchronized. */
+  private final Condition batchDurable = lock.newCondition();
+  /** The batch that new commits join, guarded by {@link #lock}. */
+  private Batch currentBatch = new Batch();
+  /** Whether a leader is synchronizing the transaction log, guarded by {@link #lock}. */
+  private boolean synchronizing;
+  private volatile int maxBatchSize;
+  private volatile long maxDelayNanos;
+
+  private final AtomicLongArray batchSizes = new AtomicLongArray(NB_BUCKETS);
+  private final AtomicLongArray commitLatencies = new AtomicLongArray(NB_BUCKETS);
+
+  /**
+   * Creates a new group commit.
+   *
+   * @param synchronizer
+   *          synchronizes the transaction log of the storage
+   * @param maxBatchSize
+   *          the maximum number of commits made durable by a single synchronization
+   * @param maxDelayMillis
+   *          the maximum time, in milliseconds, the leader of a group waits for other commits to join it
+   */
+  public GroupCommit(LogSynchronizer synchronizer, int maxBatchSize, long maxDelayMillis)
+  {
+    this.synchronizer = synchronizer;
+    setLimits(maxBatchSize, maxDelayMillis);
+  }
+
+  /**
+   * Changes the bounds of the groups of commits. The groups being formed may not honor the new bounds.
+   *
+   * @param maxBatchSize
+   *          the maximum number of commits made durable by a single synchronization
+   * @param maxDelayMillis
+   *          the maximum time, in milliseconds, the leader of a group waits for other commits to join it
+   */
+  public void setLimits(int maxBatchSize, long maxDelayMillis)
+  {
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+  }
+
+  /**
+   * Waits until the transaction committed by the current thread is durable. The transaction must have been committed
+   * before calling this method.
+   *
+   * @throws Exception
+   *           if the transaction log could not be synchronized, in which case the transaction may not be durable
+   */
+  public void awaitDurable() throws Exception
+  {
+    final long startTime = System.nanoTime();
+    final Batch batch;
+    final boolean isLeader;
+    lock.lock();
+    try
+    {
+      batch = currentBatch;
+      batch.size++;
+      isLeader = batch.size == 1;
+      if (isLeader)
+      {
+        waitForOtherCommits(batch);
+        currentBatch = new Batch();
+        synchronizing = true;
+      }
+      else
+      {
+        if (batch.size >= maxBatchSize)
+        {
+          batchFull.signalAll();
+        }
+        while (!batch.durable)
+        {
+          // Operations must not complete before their changes are durable
+          batchDurable.awaitUninterruptibly();
+        }
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    if (isLeader)
+    {
+      synchronize(batch);
+    }
+    record(commitLatencies, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    if (batch.failure != null)
+    {
+      throw batch.failure;
+    }
+  }
+
+  /** Must be called with the lock held. */
+  private void waitForOtherCommits(final Batch batch)
+  {
+    while (synchronizing)
+    {
+      batchDurable.awaitUninterruptibly();
+    }
+    long remainingNanos = maxDelayNanos;
+    try
+    {
+      while (batch.size < maxBatchSize && remainingNanos > 0)
+      {
+        remainingNanos = batchFull.awaitNanos(remainingNanos);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // Stop waiting, the commits which already joined the batch are made durable anyway
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void synchronize(final Batch batch)
+  {
+    Exception failure = null;
+    try
+    {
+      synchronizer.synchronize();
+    }
+    catch (Exception e)
+    {
+      failure = e;
+    }
+    catch (Error e)
+    {
+      failure = new StorageRuntimeException(e);
+      throw e;
+    }
+    finally
+    {
+      lock.lock();
+      try
+      {
+        batch.failure = failure;
+        batch.durable = true;
+        synchronizing = false;
+        batchDurable.signalAll();
+        record(batchSizes, batch.size);
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static void record(final AtomicLongArray histogram, final long value)
+  {
+    final int bucket = value <= 1 ? 0 : Math.min(63 - Long.numberOfLeadingZeros(value), NB_BUCKETS - 1);
+    histogram.incrementAndGet(bucket);
+  }
+
+  /**
+   * Returns the histogram of the number of commits made durable by each synchronization of the transaction log.
+   *
+   * @return the non empty buckets of the histogram, formatted as {@code "<min>-<max>: <count>"}
+   */
+  public List<String> getBatchSizeHistogram()
+  {
+    return toString(batchSizes, 1, "");
+  }
+
+  /**
+   * Returns the histogram of the time spent by write operations waiting for their commit to become durable.
+   *
+   * @return the non empty buckets of the histogram, formatted as {@code "<min>-<max> us: <count>"}
+   */
+  public List<String> getCommitLatencyHistogram()
+  {
+    return toString(commitLatencies, 0, " us");
+  }
+
+  private static List<String> toString(final AtomicLongArray histogram, final long firstBucketMin, final String unit)
+  {
+    final List<String> buckets = new ArrayList<>();
+    for (int i = 0; i < NB_BUCKETS; i++)
+    {
+      final long count = histogram.get(i);
+      if (count > 0)
+      {
+        final long min = i == 0 ? firstBucketMin : 1L << i;
+        final String max = i == NB_BUCKETS - 1 ? "" : String.valueOf((1L << (i + 1)) - 1);
+        buckets.add(min + "-" + max + unit + ": " + count);
+      }
+    }
+    return buckets;
+  }
+}
@@ -15,6 +15,9 @@
  */
 package org.opends.server.backends.pluggable.spi;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 
@@ -34,6 +37,30 @@ public interface ReadableTransaction
    */
   ByteString read(TreeName treeName, ByteSequence key);
 
+  /**
+   * Reads the values associated to the provided keys, in the tree whose name is provided.
+   * <p>
+   * The keys must be sorted in ascending order so that implementations can fetch all the records with a single
+   * ordered sweep of the tree rather than descending the tree once per key. The default implementation reads each
+   * key on its own.
+   *
+   * @param treeName
+   *          the tree name
+   * @param sortedKeys
+   *          the records' keys, sorted in ascending order
+   * @return the records' values, in the same order as the provided keys, with a {@code null} element for each key
+   *         which has no record
+   */
+  default List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+  {
+    final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+    for (ByteSequence key : sortedKeys)
+    {
+      values.add(read(treeName, key));
+    }
+    return values;
+  }
+
   /**
    * Opens a cursor on the tree whose name is provided.
    *
@@ -80,6 +80,17 @@ public interface Storage extends Closeable
    */
   void write(WriteOperation writeOperation) throws Exception;
 
+  /**
+   * Returns the group commit making the write operations durable, if this storage groups the commits of concurrent
+   * write operations.
+   *
+   * @return the group commit of this storage, or {@code null} if each write operation is made durable on its own
+   */
+  default GroupCommit getGroupCommit()
+  {
+    return null;
+  }
+
   /**
    * Remove all files for a backend of this storage.
    *
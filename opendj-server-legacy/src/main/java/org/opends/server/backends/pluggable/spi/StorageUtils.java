@@ -20,10 +20,14 @@ import static org.opends.messages.ConfigMessages.*;
 import static org.opends.server.util.StaticUtils.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigChangeResult;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
 import org.opends.server.core.DirectoryServer;
 import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.FilePermission;
@@ -31,6 +35,12 @@ import org.opends.server.types.FilePermission;
 /** Utility class for implementations of {@link Storage}. */
 public final class StorageUtils
 {
+  /**
+   * Maximum number of records skipped with {@link Cursor#next()} while looking for the next key of a sorted
+   * multi-get, before giving up and repositioning the cursor from the root of the tree.
+   */
+  private static final int MAX_SWEEP_STEPS = 8;
+
   private StorageUtils()
   {
     // do not instantiate utility classes
@@ -238,4 +248,59 @@ public final class StorageUtils
     return StorageStatus.lockedDown(WARN_DISK_SPACE_LOW_THRESHOLD_CROSSED.get(
         directory.getFreeSpace(), directory.getAbsolutePath(), thresholdInBytes, backendId));
   }
+
+  /**
+   * Reads the values associated to the provided sorted keys with a single ordered sweep of the provided cursor.
+   * <p>
+   * Keys which are close to each other, which is the usual case for the entry IDs of a search, are reached by moving
+   * the cursor forward instead of descending the tree again. This can be used by storage implementations for
+   * {@link ReadableTransaction#read(TreeName, List)}.
+   *
+   * @param cursor
+   *          a cursor opened on the tree to read from, which will be moved
+   * @param sortedKeys
+   *          the records' keys, sorted in ascending order. A key lower than the previous one is still read, by
+   *          positioning the cursor again
+   * @return the records' values, in the same order as the provided keys, with a {@code null} element for each key
+   *         which has no record
+   */
+  public static List<ByteString> readSortedKeys(Cursor<ByteString, ByteString> cursor,
+      List<? extends ByteSequence> sortedKeys)
+  {
+    final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+    ByteSequence previousKey = null;
+    for (ByteSequence key : sortedKeys)
+    {
+      final boolean canSweep = previousKey == null || previousKey.compareTo(key) <= 0;
+      values.add(sweepToKey(cursor, key, canSweep) ? cursor.getValue() : null);
+      previousKey = key;
+    }
+    return values;
+  }
+
+  /**
+   * Positions the cursor on the provided key. The cursor is moved forward from its current position when it cannot
+   * have passed the key, that is when it is positioned at or just after a lower key.
+   */
+  private static boolean sweepToKey(Cursor<ByteString, ByteString> cursor, ByteSequence key, boolean canSweep)
+  {
+    if (canSweep && cursor.isDefined())
+    {
+      int steps = 0;
+      int cmp;
+      while ((cmp = cursor.getKey().compareTo(key)) < 0 && steps++ < MAX_SWEEP_STEPS)
+      {
+        if (!cursor.next())
+        {
+          // End of tree: this key and all the following ones do not exist
+          return false;
+        }
+      }
+      if (cmp >= 0)
+      {
+        return cmp == 0;
+      }
+    }
+    return cursor.positionToKeyOrNext(key) && cursor.getKey().compareTo(key) == 0;
+  }
 }
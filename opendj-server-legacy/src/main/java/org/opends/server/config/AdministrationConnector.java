@@ -221,6 +221,13 @@ public final class AdministrationConnector implements
       return ADMIN_ACCEPT_BACKLOG;
     }
 
+    @Override
+    public boolean isAdaptiveConcurrencyLimit()
+    {
+      // the administration connector processes operations synchronously
+      return false;
+    }
+
     @Override
     public boolean isAllowLDAPV2()
     {
@@ -293,6 +300,13 @@ public final class AdministrationConnector implements
       return ADMIN_WRITE_BUFFER_SIZE;
     }
 
+    @Override
+    public long getEncodedEntryCacheSize()
+    {
+      // administration searches are not repeated enough to be worth caching
+      return 0;
+    }
+
     @Override
     public Integer getNumRequestHandlers()
     {
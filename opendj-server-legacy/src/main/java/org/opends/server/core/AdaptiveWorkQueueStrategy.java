@@ -0,0 +1,272 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.core;
+
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+
+/**
+ * A QueueingStrategy that enqueues operations to the DirectoryServer work queue
+ * as long as the number of concurrently enqueued operations is below a limit
+ * adapted to the observed latency of the operations.
+ * <p>
+ * The limit follows the gradient between the long term and the short term
+ * average latencies: it grows while the latency stays stable, and shrinks as
+ * soon as the operations start queueing, which increases their latency.
+ * Operations exceeding the limit, or finding the work queue full, are rejected
+ * immediately with a {@link ResultCode#BUSY} result, so that clients can back
+ * off or fail over instead of waiting until they time out.
+ */
+public class AdaptiveWorkQueueStrategy implements QueueingStrategy
+{
+  /** Weight of a new latency sample in the short term average latency. */
+  private static final double SHORT_TERM_WEIGHT = 0.1;
+  /** Weight of a new latency sample in the long term average latency. */
+  private static final double LONG_TERM_WEIGHT = 0.01;
+  /** Increase of the short term latency over the long term latency tolerated before shrinking the limit. */
+  private static final double TOLERANCE = 1.5;
+  /** Weight of a new estimation in the limit. */
+  private static final double SMOOTHING = 0.2;
+  /** Factor applied to the limit when the work queue is full. */
+  private static final double BACKOFF = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  /** The number of operations enqueued by this strategy and not completed yet. */
+  private final AtomicInteger inFlightOperations = new AtomicInteger();
+  private final AtomicLong rejectedOperations = new AtomicLong();
+  /** The current limit, the integer part of {@link #estimatedLimit}. */
+  private volatile int limit;
+
+  /** The following fields are guarded by this. */
+  private double estimatedLimit;
+  private double shortTermLatency;
+  private double longTermLatency;
+
+  /**
+   * Creates a strategy whose limit starts at the number of worker threads of
+   * the DirectoryServer work queue, and varies between the number of CPUs and
+   * four times the number of worker threads.
+   */
+  public AdaptiveWorkQueueStrategy()
+  {
+    this(Runtime.getRuntime().availableProcessors(),
+        DirectoryServer.getWorkQueue().getNumWorkerThreads());
+  }
+
+  private AdaptiveWorkQueueStrategy(int cpus, int numWorkerThreads)
+  {
+    this(cpus, Math.max(cpus, numWorkerThreads), Math.max(cpus, 4 * numWorkerThreads));
+  }
+
+  /**
+   * Creates a strategy with the provided limits.
+   *
+   * @param minLimit
+   *          the minimum concurrency limit, at least 1
+   * @param initialLimit
+   *          the initial concurrency limit
+   * @param maxLimit
+   *          the maximum concurrency limit
+   */
+  AdaptiveWorkQueueStrategy(int minLimit, int initialLimit, int maxLimit)
+  {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.estimatedLimit = initialLimit;
+    this.limit = initialLimit;
+  }
+
+  @Override
+  public void enqueueRequest(final Operation operation) throws DirectoryException
+  {
+    if (!operation.getClientConnection().isConnectionValid())
+    {
+      // do not bother enqueueing
+      return;
+    }
+
+    if (operation instanceof AbandonOperation)
+    {
+      // abandoning operations releases resources: never reject it
+      if (!tryEnqueueRequest(operation))
+      {
+        operation.run();
+      }
+      return;
+    }
+
+    final int inFlight = inFlightOperations.incrementAndGet();
+    if (inFlight > limit)
+    {
+      inFlightOperations.decrementAndGet();
+      throw reject();
+    }
+
+    final long startTime = System.nanoTime();
+    boolean enqueued = false;
+    try
+    {
+      enqueued = tryEnqueueRequest(BoundedWorkQueueStrategy.wrap(operation, new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            operation.run();
+          }
+          finally
+          {
+            inFlightOperations.decrementAndGet();
+            operationCompleted(System.nanoTime() - startTime, inFlight);
+          }
+        }
+      }));
+    }
+    finally
+    {
+      if (!enqueued)
+      {
+        inFlightOperations.decrementAndGet();
+      }
+    }
+
+    if (!enqueued)
+    {
+      workQueueFull(inFlight);
+      throw reject();
+    }
+  }
+
+  private DirectoryException reject()
+  {
+    rejectedOperations.incrementAndGet();
+    LocalizableMessage message = WARN_OP_REJECTED_BY_CONCURRENCY_LIMIT.get(limit);
+    return new DirectoryException(ResultCode.BUSY, message);
+  }
+
+  /**
+   * Tries to add the provided operation to the work queue if not full so that
+   * it will be processed by one of the worker threads.
+   *
+   * @param op
+   *          The operation to be added to the work queue.
+   * @return true if the operation could be enqueued, false otherwise
+   * @throws DirectoryException
+   *           If a problem prevents the operation from being added to the queue
+   *           (e.g., the server is shutting down).
+   */
+  protected boolean tryEnqueueRequest(Operation op) throws DirectoryException
+  {
+    return DirectoryServer.tryEnqueueRequest(op);
+  }
+
+  /**
+   * Adapts the limit to the latency of a completed operation.
+   *
+   * @param latencyNanos
+   *          the time elapsed between the enqueueing and the completion of the
+   *          operation, in nanoseconds
+   * @param inFlight
+   *          the number of operations in flight when the operation was enqueued
+   */
+  synchronized void operationCompleted(long latencyNanos, int inFlight)
+  {
+    final double latency = Math.max(1, latencyNanos);
+    if (longTermLatency == 0)
+    {
+      shortTermLatency = latency;
+      longTermLatency = latency;
+    }
+    else
+    {
+      shortTermLatency += (latency - shortTermLatency) * SHORT_TERM_WEIGHT;
+      longTermLatency += (latency - longTermLatency) * LONG_TERM_WEIGHT;
+    }
+    if (longTermLatency > 2 * shortTermLatency)
+    {
+      // the latency has dropped, forget the former baseline faster
+      longTermLatency *= 0.95;
+    }
+
+    if (inFlight < estimatedLimit / 2)
+    {
+      // the load, not the limit, bounds the concurrency: the latency tells nothing about the limit
+      return;
+    }
+
+    final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longTermLatency / shortTermLatency));
+    // the square root lets a few operations queue, which is how an increase of the latency can be observed
+    final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    setEstimatedLimit(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+  }
+
+  /**
+   * Shrinks the limit after the work queue rejected an operation.
+   *
+   * @param inFlight
+   *          the number of operations in flight when the operation was rejected
+   */
+  synchronized void workQueueFull(int inFlight)
+  {
+    setEstimatedLimit(Math.min(estimatedLimit, inFlight) * BACKOFF);
+  }
+
+  private void setEstimatedLimit(double newLimit)
+  {
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    limit = (int) estimatedLimit;
+  }
+
+  /**
+   * Returns the current concurrency limit.
+   *
+   * @return the current concurrency limit
+   */
+  public int getLimit()
+  {
+    return limit;
+  }
+
+  /**
+   * Returns the number of operations enqueued by this strategy and not completed yet.
+   *
+   * @return the number of operations enqueued by this strategy and not completed yet
+   */
+  public int getInFlightOperations()
+  {
+    return inFlightOperations.get();
+  }
+
+  /**
+   * Returns the number of operations rejected because the concurrency limit was
+   * reached or the work queue was full.
+   *
+   * @return the number of rejected operations
+   */
+  public long getRejectedOperations()
+  {
+    return rejectedOperations.get();
+  }
+}
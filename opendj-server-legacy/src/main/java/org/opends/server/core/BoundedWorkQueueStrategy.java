@@ -116,6 +116,28 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
   }
 
   private Operation wrap(final Operation operation)
+  {
+    return wrap(operation, new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        runWrapped(operation);
+      }
+    });
+  }
+
+  /**
+   * Wraps the provided operation so that running the wrapper runs the provided
+   * task instead, the task being responsible for running the operation.
+   *
+   * @param operation
+   *          the operation to wrap
+   * @param task
+   *          the task to run in place of the operation
+   * @return the wrapped operation
+   */
+  static Operation wrap(final Operation operation, final Runnable task)
   {
     if (operation instanceof AbandonOperation)
     {
@@ -124,7 +146,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -135,7 +157,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -146,7 +168,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -157,7 +179,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -168,7 +190,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -179,7 +201,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -190,7 +212,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -201,7 +223,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -212,7 +234,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
@@ -223,7 +245,7 @@ public class BoundedWorkQueueStrategy implements QueueingStrategy
         @Override
         public void run()
         {
-          runWrapped(operation);
+          task.run();
         }
       };
     }
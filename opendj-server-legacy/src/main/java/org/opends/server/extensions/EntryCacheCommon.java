@@ -18,6 +18,7 @@ package org.opends.server.extensions;
 
 import static org.opends.server.util.StaticUtils.*;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -379,4 +380,47 @@ public class EntryCacheCommon
 
     return attrs;
   }
+
+  /**
+   * Returns the number of independently locked stripes that a striped entry
+   * cache should use on this machine: the smallest power of two greater than
+   * or equal to twice the number of available processors, capped at 64.
+   *
+   * @return  The default number of stripes, always a power of two.
+   */
+  public static int getDefaultStripeCount()
+  {
+    int processors = Runtime.getRuntime().availableProcessors();
+    return Math.min(64, Integer.highestOneBit(processors * 2 - 1) << 1);
+  }
+
+  /**
+   * Adds the lock contention statistics of a striped entry cache to the
+   * provided monitor data. A lock acquisition is contended when the stripe
+   * lock was held by another thread at the time it was requested. The
+   * statistics of each stripe are reported as a value of the form
+   * {@code <stripe>:<contentions>/<acquisitions>}.
+   *
+   * @param attrs         The monitor data to add the statistics to.
+   * @param acquisitions  The number of lock acquisitions of each stripe.
+   * @param contentions   The number of contended lock acquisitions of each
+   *                      stripe.
+   */
+  public static void addStripeMonitorData(MonitorData attrs, long[] acquisitions, long[] contentions)
+  {
+    long totalAcquisitions = 0;
+    long totalContentions = 0;
+    List<String> stripeContentions = new ArrayList<>(contentions.length);
+    for (int i = 0; i < contentions.length; i++)
+    {
+      totalAcquisitions += acquisitions[i];
+      totalContentions += contentions[i];
+      stripeContentions.add(i + ":" + contentions[i] + "/" + acquisitions[i]);
+    }
+
+    attrs.add("entryCacheStripeCount", contentions.length);
+    attrs.add("entryCacheLockAcquisitions", totalAcquisitions);
+    attrs.add("entryCacheLockContentions", totalContentions);
+    attrs.add("entryCacheStripeLockContentions", stripeContentions);
+  }
 }
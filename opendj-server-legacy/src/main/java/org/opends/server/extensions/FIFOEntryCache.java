@@ -19,16 +19,16 @@ package org.opends.server.extensions;
 import static org.opends.messages.ExtensionMessages.*;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -58,6 +58,15 @@ import org.opends.server.util.ServerConstants;
  * significantly less locking (it will only be required when an entry is added
  * or removed from the cache, rather than each time an entry is accessed).
  * <BR><BR>
+ * Entries are looked up in concurrent maps, so retrieving an entry from the
+ * cache never blocks.  The insertion order is tracked by a power of two number
+ * of stripes selected by the hash of the entry DN, each protected by its own
+ * lock, so that threads adding or removing entries only contend with threads
+ * updating the same stripe.  Every entry is stamped with a global insertion
+ * sequence number and purging removes the oldest entry of the stripe whose
+ * oldest entry has the lowest sequence number: the FIFO order is exact when
+ * entries are added by a single thread, and approximate otherwise.
+ * <BR><BR>
  * Cache sizing is based on the percentage of free memory within the JVM, such
  * that if enough memory is free, then adding an entry to the cache will not
  * require purging, but if more than a specified percentage of the available
@@ -84,15 +93,19 @@ public class FIFOEntryCache
   private static final Runtime runtime = Runtime.getRuntime();
 
   /** The mapping between entry backends/IDs and entries. */
-  private Map<String, Map<Long, CacheEntry>> idMap;
+  private ConcurrentMap<String, ConcurrentMap<Long, CacheEntry>> idMap;
 
   /** The mapping between DNs and entries. */
-  private LinkedHashMap<DN,CacheEntry> dnMap;
+  private ConcurrentMap<DN, CacheEntry> dnMap;
 
-  /** The lock used to provide threadsafe access when changing the contents of the cache. */
-  private ReadWriteLock cacheLock;
-  private Lock cacheWriteLock;
-  private Lock cacheReadLock;
+  /**
+   * The stripes keeping track of the insertion order of the entries. The maps
+   * are only updated for a given DN while holding the lock of its stripe.
+   */
+  private Stripe[] stripes;
+
+  /** The source of the insertion sequence numbers used to order the entries across stripes. */
+  private final AtomicLong insertionSequence = new AtomicLong();
 
   /**
    * The maximum amount of memory in bytes that the JVM will be allowed to use
@@ -127,13 +140,13 @@ public class FIFOEntryCache
     configuration.addFIFOChangeListener (this);
 
     // Initialize the cache structures.
-    idMap = new HashMap<>();
-    dnMap = new LinkedHashMap<>();
-
-    // Initialize locks.
-    cacheLock = new ReentrantReadWriteLock(true);
-    cacheWriteLock = cacheLock.writeLock();
-    cacheReadLock = cacheLock.readLock();
+    idMap = new ConcurrentHashMap<>();
+    dnMap = new ConcurrentHashMap<>();
+    stripes = new Stripe[EntryCacheCommon.getDefaultStripeCount()];
+    for (int i = 0; i < stripes.length; i++)
+    {
+      stripes[i] = new Stripe();
+    }
 
     // Read configuration and apply changes.
     boolean applyChanges = true;
@@ -151,22 +164,10 @@ public class FIFOEntryCache
   @Override
   public void finalizeEntryCache()
   {
-    cacheWriteLock.lock();
+    registeredConfiguration.removeFIFOChangeListener(this);
 
-    try {
-      registeredConfiguration.removeFIFOChangeListener(this);
-
-      // Release all memory currently in use by this cache.
-      try {
-        idMap.clear();
-        dnMap.clear();
-      } catch (Exception e) {
-        // This should never happen.
-        logger.traceException(e);
-      }
-    } finally {
-      cacheWriteLock.unlock();
-    }
+    // Release all memory currently in use by this cache.
+    clear();
   }
 
   @Override
@@ -177,191 +178,83 @@ public class FIFOEntryCache
     }
 
     // Indicate whether the DN map contains the specified DN.
-    cacheReadLock.lock();
-    try {
-      return dnMap.containsKey(entryDN);
-    } finally {
-      cacheReadLock.unlock();
-    }
+    return dnMap.containsKey(entryDN);
   }
 
   @Override
   public Entry getEntry(DN entryDN)
   {
     // Simply return the entry from the DN map.
-    cacheReadLock.lock();
-    try {
-      CacheEntry e = dnMap.get(entryDN);
-      if (e == null) {
-        // Indicate cache miss.
-        cacheMisses.getAndIncrement();
-        return null;
-      }
-      // Indicate cache hit.
-      cacheHits.getAndIncrement();
-      return e.getEntry();
-    } finally {
-      cacheReadLock.unlock();
+    CacheEntry e = dnMap.get(entryDN);
+    if (e == null) {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
     }
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    return e.getEntry();
   }
 
   @Override
   public long getEntryID(DN entryDN)
   {
     // Simply return the ID from the DN map.
-    cacheReadLock.lock();
-    try {
-      CacheEntry e = dnMap.get(entryDN);
-      return e != null ? e.getEntryID() : -1;
-    } finally {
-      cacheReadLock.unlock();
-    }
+    CacheEntry e = dnMap.get(entryDN);
+    return e != null ? e.getEntryID() : -1;
   }
 
   @Override
   public DN getEntryDN(String backendID, long entryID)
   {
     // Locate specific backend map and return the entry DN by ID.
-    cacheReadLock.lock();
-    try {
-      Map<Long, CacheEntry> backendMap = idMap.get(backendID);
-      if (backendMap != null) {
-        CacheEntry e = backendMap.get(entryID);
-        if (e != null) {
-          return e.getDN();
-        }
+    Map<Long, CacheEntry> backendMap = idMap.get(backendID);
+    if (backendMap != null) {
+      CacheEntry e = backendMap.get(entryID);
+      if (e != null) {
+        return e.getDN();
       }
-      return null;
-    } finally {
-      cacheReadLock.unlock();
     }
+    return null;
   }
 
   @Override
   public void putEntry(Entry entry, String backendID, long entryID)
   {
-    // Create the cache entry based on the provided information.
-    CacheEntry cacheEntry = new CacheEntry(entry, backendID, entryID);
-
-    // Obtain a lock on the cache.  If this fails, then don't do anything.
-    try
-    {
-      if (!cacheWriteLock.tryLock(lockTimeout, TimeUnit.MILLISECONDS))
-      {
-        return;
-      }
-    }
-    catch (Exception e)
-    {
-      logger.traceException(e);
-
-      return;
-    }
-
-    // At this point, we hold the lock.  No matter what, we must release the
-    // lock before leaving this method, so do that in a finally block.
-    try
-    {
-      // See if the current memory usage is within acceptable constraints.  If
-      // so, then add the entry to the cache (or replace it if it is already
-      // present).  If not, then remove an existing entry and don't add the new
-      // entry.
-      long usedMemory = runtime.totalMemory() - runtime.freeMemory();
-      if (usedMemory > maxAllowedMemory)
-      {
-        CacheEntry cachedEntry = dnMap.remove(entry.getName());
-        if (cachedEntry == null)
-        {
-          // The current entry wasn't there, let's remove an existing entry.
-          Iterator<CacheEntry> iterator = dnMap.values().iterator();
-          if (iterator.hasNext())
-          {
-            CacheEntry ce = iterator.next();
-            iterator.remove();
-
-            Map<Long,CacheEntry> m = idMap.get(ce.getBackendID());
-            if (m != null)
-            {
-              m.remove(ce.getEntryID());
-            }
-          }
-        }
-        else
-        {
-          // Try to remove the entry from the ID list as well.
-          Map<Long,CacheEntry> map = idMap.get(backendID);
-          if (map != null)
-          {
-            map.remove(cacheEntry.getEntryID());
-            // If this backend becomes empty now remove it from the idMap map.
-            if (map.isEmpty())
-            {
-              idMap.remove(backendID);
-            }
-          }
-        }
-      }
-      else
-      {
-        // Add the entry to the cache.  This will replace it if it is already
-        // present and add it if it isn't.
-        dnMap.put(entry.getName(), cacheEntry);
-
-        Map<Long,CacheEntry> map = idMap.get(backendID);
-        if (map == null)
-        {
-          map = new HashMap<>();
-          map.put(entryID, cacheEntry);
-          idMap.put(backendID, map);
-        }
-        else
-        {
-          map.put(entryID, cacheEntry);
-        }
+    put(entry, backendID, entryID, false);
+  }
 
-        // See if a cap has been placed on the maximum number of entries in the
-        // cache.  If so, then see if we have exceeded it and we need to purge
-        // entries until we're within the limit.
-        int entryCount = dnMap.size();
-        if (maxEntries > 0 && entryCount > maxEntries)
-        {
-          Iterator<CacheEntry> iterator = dnMap.values().iterator();
-          while (iterator.hasNext() && entryCount > maxEntries)
-          {
-            CacheEntry ce = iterator.next();
-            iterator.remove();
-
-            Map<Long,CacheEntry> m = idMap.get(ce.getBackendID());
-            if (m != null)
-            {
-              m.remove(ce.getEntryID());
-            }
-
-            entryCount--;
-          }
-        }
-      }
-    }
-    catch (Exception e)
-    {
-      logger.traceException(e);
-    }
-    finally
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    // See if the entry already exists in the cache.  If it does, then we will
+    // fail and not actually store the entry.
+    if (dnMap.containsKey(entry.getName()))
     {
-      cacheWriteLock.unlock();
+      return false;
     }
+    return put(entry, backendID, entryID, true);
   }
 
-  @Override
-  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  /**
+   * Adds the provided entry to the cache, or replaces it if it is already
+   * present and {@code ifAbsent} is false.
+   *
+   * @return  {@code false} if a conflict with an existing entry cannot be ruled
+   *          out, or {@code true} otherwise, even if the entry was not added
+   *          due to memory constraints.
+   */
+  private boolean put(Entry entry, String backendID, long entryID, boolean ifAbsent)
   {
     // Create the cache entry based on the provided information.
     CacheEntry cacheEntry = new CacheEntry(entry, backendID, entryID);
+    DN entryDN = entry.getName();
 
-    // Obtain a lock on the cache.  If this fails, then don't do anything.
+    // Obtain a lock on the stripe of the entry.  If this fails, then don't do anything.
+    Stripe stripe = stripeFor(entryDN);
     try
     {
-      if (!cacheWriteLock.tryLock(lockTimeout, TimeUnit.MILLISECONDS))
+      if (!stripe.tryLock(lockTimeout))
       {
         // We can't rule out the possibility of a conflict, so return false.
         return false;
@@ -375,13 +268,12 @@ public class FIFOEntryCache
       return false;
     }
 
-    // At this point, we hold the lock.  No matter what, we must release the
-    // lock before leaving this method, so do that in a finally block.
+    // Entries of other stripes can only be purged once the lock is released,
+    // otherwise threads could deadlock when purging each other's stripe.
+    boolean purgeOldest = false;
     try
     {
-      // See if the entry already exists in the cache.  If it does, then we will
-      // fail and not actually store the entry.
-      if (dnMap.containsKey(entry.getName()))
+      if (ifAbsent && dnMap.containsKey(entryDN))
       {
         return false;
       }
@@ -393,58 +285,12 @@ public class FIFOEntryCache
       long usedMemory = runtime.totalMemory() - runtime.freeMemory();
       if (usedMemory > maxAllowedMemory)
       {
-        Iterator<CacheEntry> iterator = dnMap.values().iterator();
-        if (iterator.hasNext())
-        {
-          CacheEntry ce = iterator.next();
-          iterator.remove();
-
-          Map<Long,CacheEntry> m = idMap.get(ce.getBackendID());
-          if (m != null)
-          {
-            m.remove(ce.getEntryID());
-          }
-        }
+        // The current entry wasn't there, let's remove an existing entry.
+        purgeOldest = ifAbsent || stripe.remove(entryDN) == null;
       }
       else
       {
-        // Add the entry to the cache.  This will replace it if it is already
-        // present and add it if it isn't.
-        dnMap.put(entry.getName(), cacheEntry);
-
-        Map<Long,CacheEntry> map = idMap.get(backendID);
-        if (map == null)
-        {
-          map = new HashMap<>();
-          map.put(entryID, cacheEntry);
-          idMap.put(backendID, map);
-        }
-        else
-        {
-          map.put(entryID, cacheEntry);
-        }
-
-        // See if a cap has been placed on the maximum number of entries in the
-        // cache.  If so, then see if we have exceeded it and we need to purge
-        // entries until we're within the limit.
-        int entryCount = dnMap.size();
-        if (maxEntries > 0 && entryCount > maxEntries)
-        {
-          Iterator<CacheEntry> iterator = dnMap.values().iterator();
-          while (iterator.hasNext() && entryCount > maxEntries)
-          {
-            CacheEntry ce = iterator.next();
-            iterator.remove();
-
-            Map<Long,CacheEntry> m = idMap.get(ce.getBackendID());
-            if (m != null)
-            {
-              m.remove(ce.getEntryID());
-            }
-
-            entryCount--;
-          }
-        }
+        stripe.add(entryDN, cacheEntry);
       }
 
       // We'll always return true in this case, even if we didn't actually add
@@ -460,79 +306,78 @@ public class FIFOEntryCache
     }
     finally
     {
-      cacheWriteLock.unlock();
-    }
-  }
-
-  @Override
-  public void removeEntry(DN entryDN)
-  {
-    // Acquire the lock on the cache.  We should not return until the entry is
-    // removed, so we will block until we can obtain the lock.
-    // FIXME -- An alternate approach could be to block for a maximum length of
-    // time and then if it fails then put it in a queue for processing by some
-    // other thread before it releases the lock.
-    cacheWriteLock.lock();
+      stripe.lock.unlock();
 
-    // At this point, it is absolutely critical that we always release the lock
-    // before leaving this method, so do so in a finally block.
-    try
-    {
-      // Check the DN cache to see if the entry exists.  If not, then don't do
-      // anything.
-      CacheEntry entry = dnMap.remove(entryDN);
-      if (entry == null)
+      if (purgeOldest)
       {
-        return;
+        purgeOldestEntry();
       }
-
-      final String backendID = entry.getBackendID();
-
-      // Try to remove the entry from the ID list as well.
-      Map<Long,CacheEntry> map = idMap.get(backendID);
-      if (map == null)
+      else
       {
-        // This should't happen, but the entry isn't cached in the ID map so
-        // we can return.
-        return;
+        // See if a cap has been placed on the maximum number of entries in the
+        // cache.  If so, then see if we have exceeded it and we need to purge
+        // entries until we're within the limit.
+        while (maxEntries > 0 && dnMap.size() > maxEntries && purgeOldestEntry())
+        {
+          // Keep purging.
+        }
       }
+    }
+  }
 
-      map.remove(entry.getEntryID());
-
-      // If this backend becomes empty now remove it from the idMap map.
-      if (map.isEmpty())
+  /**
+   * Removes the oldest entry of the stripe whose oldest entry has the lowest
+   * insertion sequence number.
+   *
+   * @return  {@code false} if the cache is empty, or {@code true} otherwise.
+   */
+  private boolean purgeOldestEntry()
+  {
+    Stripe oldest = null;
+    long oldestSequence = Long.MAX_VALUE;
+    for (Stripe stripe : stripes)
+    {
+      long sequence = stripe.oldestSequence;
+      if (sequence < oldestSequence)
       {
-        idMap.remove(backendID);
+        oldest = stripe;
+        oldestSequence = sequence;
       }
     }
+    if (oldest == null)
+    {
+      return false;
+    }
+
+    oldest.lock();
+    try
+    {
+      oldest.removeOldest();
+    }
     catch (Exception e)
     {
       logger.traceException(e);
-
-      // This shouldn't happen, but there's not much that we can do if it does.
     }
     finally
     {
-      cacheWriteLock.unlock();
+      oldest.lock.unlock();
     }
+    return true;
   }
 
   @Override
-  public void clear()
+  public void removeEntry(DN entryDN)
   {
-    // Acquire a lock on the cache.  We should not return until the cache has
-    // been cleared, so we will block until we can obtain the lock.
-    cacheWriteLock.lock();
+    // Acquire the lock on the stripe.  We should not return until the entry is
+    // removed, so we will block until we can obtain the lock.
+    Stripe stripe = stripeFor(entryDN);
+    stripe.lock();
 
     // At this point, it is absolutely critical that we always release the lock
     // before leaving this method, so do so in a finally block.
     try
     {
-      // Clear the DN cache.
-      dnMap.clear();
-
-      // Clear the ID cache.
-      idMap.clear();
+      stripe.remove(entryDN);
     }
     catch (Exception e)
     {
@@ -542,108 +387,86 @@ public class FIFOEntryCache
     }
     finally
     {
-      cacheWriteLock.unlock();
+      stripe.lock.unlock();
     }
   }
 
   @Override
-  public void clearBackend(String backendID)
+  public void clear()
   {
-    // Acquire a lock on the cache.  We should not return until the cache has
-    // been cleared, so we will block until we can obtain the lock.
-    cacheWriteLock.lock();
-
-    // At this point, it is absolutely critical that we always release the lock
-    // before leaving this method, so do so in a finally block.
-    try
+    // Clear the stripes one at a time, so this doesn't become a stop-the-world
+    // event as far as the cache is concerned.
+    for (Stripe stripe : stripes)
     {
-      // Remove all references to entries for this backend from the ID cache.
-      Map<Long,CacheEntry> map = idMap.remove(backendID);
-      if (map == null)
+      stripe.lock();
+      try
       {
-        // No entries were in the cache for this backend, so we can return
-        // without doing anything.
-        return;
+        stripe.clear();
       }
-
-      // Unfortunately, there is no good way to dump the entries from the DN
-      // cache based on their backend, so we will need to iterate through the
-      // entries in the ID map and do it manually.  Since this could take a
-      // while, we'll periodically release and re-acquire the lock in case
-      // anyone else is waiting on it so this doesn't become a stop-the-world
-      // event as far as the cache is concerned.
-      int entriesDeleted = 0;
-      for (CacheEntry e : map.values())
+      catch (Exception e)
       {
-        dnMap.remove(e.getEntry().getName());
-        entriesDeleted++;
+        logger.traceException(e);
 
-        if ((entriesDeleted % 1000)  == 0)
-        {
-          cacheWriteLock.unlock();
-          Thread.yield();
-          cacheWriteLock.lock();
-        }
+        // This shouldn't happen, but there's not much that we can do if it does.
+      }
+      finally
+      {
+        stripe.lock.unlock();
       }
-    }
-    catch (Exception e)
-    {
-      logger.traceException(e);
-
-      // This shouldn't happen, but there's not much that we can do if it does.
-    }
-    finally
-    {
-      cacheWriteLock.unlock();
     }
   }
 
   @Override
-  public void handleLowMemory()
+  public void clearBackend(String backendID)
   {
-    // Grab the lock on the cache and wait until we have it.
-    cacheWriteLock.lock();
+    // Remove all references to entries for this backend from the ID cache.
+    Map<Long,CacheEntry> map = idMap.remove(backendID);
+    if (map == null)
+    {
+      // No entries were in the cache for this backend, so we can return
+      // without doing anything.
+      return;
+    }
 
-    // At this point, it is absolutely critical that we always release the lock
-    // before leaving this method, so do so in a finally block.
-    try
+    // Unfortunately, there is no good way to dump the entries from the DN
+    // cache based on their backend, so we will need to iterate through the
+    // entries in the ID map and do it manually, one stripe lock at a time.
+    for (CacheEntry e : map.values())
     {
-      // See how many entries are in the cache.  If there are less than 1000,
-      // then we'll dump all of them.  Otherwise, we'll dump 10% of the entries.
-      int numEntries = dnMap.size();
-      if (numEntries < 1000)
+      Stripe stripe = stripeFor(e.getDN());
+      stripe.lock();
+      try
       {
-        dnMap.clear();
-        idMap.clear();
+        stripe.remove(e);
       }
-      else
+      catch (Exception ex)
       {
-        int numToDrop = numEntries / 10;
-        Iterator<CacheEntry> iterator = dnMap.values().iterator();
-        while (iterator.hasNext() && numToDrop > 0)
-        {
-          CacheEntry entry = iterator.next();
-          iterator.remove();
-
-          Map<Long,CacheEntry> m = idMap.get(entry.getBackendID());
-          if (m != null)
-          {
-            m.remove(entry.getEntryID());
-          }
-
-          numToDrop--;
-        }
+        logger.traceException(ex);
+      }
+      finally
+      {
+        stripe.lock.unlock();
       }
     }
-    catch (Exception e)
-    {
-      logger.traceException(e);
+  }
 
-      // This shouldn't happen, but there's not much that we can do if it does.
+  @Override
+  public void handleLowMemory()
+  {
+    // See how many entries are in the cache.  If there are less than 1000,
+    // then we'll dump all of them.  Otherwise, we'll dump 10% of the entries.
+    int numEntries = dnMap.size();
+    if (numEntries < 1000)
+    {
+      clear();
     }
-    finally
+    else
     {
-      cacheWriteLock.unlock();
+      int numToDrop = numEntries / 10;
+      while (numToDrop > 0 && purgeOldestEntry())
+      {
+        numToDrop--;
+      }
     }
   }
 
@@ -763,7 +586,7 @@ public class FIFOEntryCache
   public MonitorData getMonitorData()
   {
     try {
-      return EntryCacheCommon.getGenericMonitorData(
+      MonitorData monitorData = EntryCacheCommon.getGenericMonitorData(
         cacheHits.longValue(),
         // If cache misses is maintained by default cache
         // get it from there and if not point to itself.
@@ -774,6 +597,16 @@ public class FIFOEntryCache
         Long.valueOf(
             (maxEntries != Integer.MAX_VALUE && maxEntries != Long.MAX_VALUE) ? maxEntries : 0)
         );
+
+      long[] acquisitions = new long[stripes.length];
+      long[] contentions = new long[stripes.length];
+      for (int i = 0; i < stripes.length; i++)
+      {
+        acquisitions[i] = stripes[i].acquisitions.get();
+        contentions[i] = stripes[i].contentions.get();
+      }
+      EntryCacheCommon.addStripeMonitorData(monitorData, acquisitions, contentions);
+      return monitorData;
     } catch (Exception e) {
       logger.traceException(e);
       return new MonitorData(0);
@@ -791,27 +624,26 @@ public class FIFOEntryCache
   {
     StringBuilder sb = new StringBuilder();
 
-    Map<DN,CacheEntry> dnMapCopy;
-    Map<String, Map<Long, CacheEntry>> idMapCopy;
+    // Take a snapshot of each stripe in turn, in insertion order.
+    List<CacheEntry> entries = new ArrayList<>();
+    for (Stripe stripe : stripes)
+    {
+      stripe.lock();
+      try
+      {
+        for (DN dn : stripe.fifo.keySet())
+        {
+          entries.add(dnMap.get(dn));
+        }
+      }
+      finally
+      {
+        stripe.lock.unlock();
+      }
+    }
 
-    // Grab cache lock to prevent any modifications
-    // to the cache maps until a snapshot is taken.
-    cacheWriteLock.lock();
-    try {
-      // Examining the real maps will hold the lock and can cause map
-      // modifications in case of any access order maps, make copies
-      // instead.
-      dnMapCopy = new LinkedHashMap<>(dnMap);
-      idMapCopy = new HashMap<>(idMap);
-    } finally {
-      cacheWriteLock.unlock();
-    }
-
-    // Check dnMap first.
-    for (Map.Entry<DN, CacheEntry> mapEntry : dnMapCopy.entrySet()) {
-      DN dn = mapEntry.getKey();
-      final CacheEntry cacheEntry = mapEntry.getValue();
-      sb.append(dn);
+    for (CacheEntry cacheEntry : entries) {
+      sb.append(cacheEntry != null ? cacheEntry.getDN() : null);
       sb.append(":");
       sb.append(cacheEntry != null ? Long.toString(cacheEntry.getEntryID()) : null);
       sb.append(":");
@@ -821,11 +653,11 @@ public class FIFOEntryCache
 
     // See if there is anything on idMap that is not reflected on
     // dnMap in case maps went out of sync.
-    for (Map.Entry<String,  Map<Long, CacheEntry>> backendCache : idMapCopy.entrySet()) {
+    for (Map.Entry<String, ConcurrentMap<Long, CacheEntry>> backendCache : idMap.entrySet()) {
       final String backendID = backendCache.getKey();
       for (Map.Entry<Long, CacheEntry> entry : backendCache.getValue().entrySet()) {
         final CacheEntry cacheEntry = entry.getValue();
-        if (cacheEntry == null || !dnMapCopy.containsKey(cacheEntry.getDN())) {
+        if (cacheEntry == null || !dnMap.containsKey(cacheEntry.getDN())) {
           sb.append(cacheEntry != null ? cacheEntry.getDN() : null);
           sb.append(":");
           sb.append(entry.getKey());
@@ -839,4 +671,145 @@ public class FIFOEntryCache
     String verboseString = sb.toString();
     return verboseString.length() > 0 ? verboseString : null;
   }
+
+  private Stripe stripeFor(DN entryDN)
+  {
+    int h = entryDN.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+  }
+
+  /**
+   * Keeps track of the insertion order of the entries whose DN hashes to this
+   * stripe, and performs all the updates of the cache maps for these entries.
+   * All the methods of this class must be called while holding its lock.
+   */
+  private final class Stripe
+  {
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The DNs of the entries of this stripe in insertion order, with their insertion sequence numbers. */
+    private final LinkedHashMap<DN, Long> fifo = new LinkedHashMap<>();
+
+    /** The insertion sequence number of the oldest entry of this stripe, or Long.MAX_VALUE if it is empty. */
+    private volatile long oldestSequence = Long.MAX_VALUE;
+
+    /** The number of times the lock of this stripe has been acquired. */
+    private final AtomicLong acquisitions = new AtomicLong();
+
+    /** The number of times the lock of this stripe was held by another thread when requested. */
+    private final AtomicLong contentions = new AtomicLong();
+
+    private void lock()
+    {
+      if (!lock.tryLock())
+      {
+        contentions.getAndIncrement();
+        lock.lock();
+      }
+      acquisitions.getAndIncrement();
+    }
+
+    private boolean tryLock(long timeout) throws InterruptedException
+    {
+      if (!lock.tryLock())
+      {
+        contentions.getAndIncrement();
+        if (!lock.tryLock(timeout, TimeUnit.MILLISECONDS))
+        {
+          return false;
+        }
+      }
+      acquisitions.getAndIncrement();
+      return true;
+    }
+
+    private void add(DN dn, CacheEntry cacheEntry)
+    {
+      // Add the entry to the cache.  This will replace it if it is already
+      // present, keeping its position in the FIFO, and add it if it isn't.
+      CacheEntry previous = dnMap.put(dn, cacheEntry);
+      if (previous != null)
+      {
+        removeFromIdMap(previous);
+      }
+      if (!fifo.containsKey(dn))
+      {
+        fifo.put(dn, insertionSequence.getAndIncrement());
+        updateOldestSequence();
+      }
+
+      ConcurrentMap<Long, CacheEntry> map = idMap.get(cacheEntry.getBackendID());
+      if (map == null)
+      {
+        map = new ConcurrentHashMap<>();
+        ConcurrentMap<Long, CacheEntry> existingMap = idMap.putIfAbsent(cacheEntry.getBackendID(), map);
+        if (existingMap != null)
+        {
+          map = existingMap;
+        }
+      }
+      map.put(cacheEntry.getEntryID(), cacheEntry);
+    }
+
+    private CacheEntry remove(DN dn)
+    {
+      fifo.remove(dn);
+      updateOldestSequence();
+
+      CacheEntry cacheEntry = dnMap.remove(dn);
+      if (cacheEntry != null)
+      {
+        removeFromIdMap(cacheEntry);
+      }
+      return cacheEntry;
+    }
+
+    /** Removes the provided entry unless it has been replaced in the meantime. */
+    private void remove(CacheEntry cacheEntry)
+    {
+      if (dnMap.remove(cacheEntry.getDN(), cacheEntry))
+      {
+        fifo.remove(cacheEntry.getDN());
+        updateOldestSequence();
+      }
+    }
+
+    private void removeOldest()
+    {
+      Iterator<DN> iterator = fifo.keySet().iterator();
+      if (iterator.hasNext())
+      {
+        remove(iterator.next());
+      }
+    }
+
+    private void clear()
+    {
+      for (DN dn : fifo.keySet())
+      {
+        CacheEntry cacheEntry = dnMap.remove(dn);
+        if (cacheEntry != null)
+        {
+          removeFromIdMap(cacheEntry);
+        }
+      }
+      fifo.clear();
+      updateOldestSequence();
+    }
+
+    private void removeFromIdMap(CacheEntry cacheEntry)
+    {
+      Map<Long, CacheEntry> map = idMap.get(cacheEntry.getBackendID());
+      if (map != null)
+      {
+        map.remove(cacheEntry.getEntryID(), cacheEntry);
+      }
+    }
+
+    private void updateOldestSequence()
+    {
+      Iterator<Long> iterator = fifo.values().iterator();
+      oldestSequence = iterator.hasNext() ? iterator.next() : Long.MAX_VALUE;
+    }
+  }
 }
@@ -0,0 +1,976 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache that keeps the cached
+ * entries in their encoded form in direct memory, outside of the JVM heap.
+ * Only a small per-entry descriptor lives on the heap, so large caches do not
+ * add to the work performed by the garbage collector.
+ * <BR><BR>
+ * The cache is divided into a power of two number of stripes selected by the
+ * hash of the entry DN, each of which is protected by its own lock and owns a
+ * fixed share of the configured memory. Within a stripe the encoded entries
+ * are stored as chains of fixed size blocks carved out of direct memory
+ * segments which are allocated on demand, and the free blocks are threaded
+ * through the segments themselves.
+ * <BR><BR>
+ * Eviction follows the W-TinyLFU policy: newly inserted entries enter a small
+ * LRU admission window, and the entries leaving the window are only admitted
+ * to the main LRU region if a compact frequency sketch estimates that they are
+ * accessed more often than the main region victim they would replace. As a
+ * result a single large search cannot flush the most frequently used entries
+ * out of the cache.
+ * <BR><BR>
+ * A set of filters may be used to define criteria for determining which
+ * entries are stored in the cache.
+ */
+public class OffHeapEntryCache
+       extends EntryCache<OffHeapEntryCacheCfg>
+       implements ConfigurationChangeListener<OffHeapEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The size in bytes of the blocks used to store the encoded entries. */
+  private static final int BLOCK_SIZE = 512;
+  /** Each block starts with the index of the next block of the chain, or -1. */
+  private static final int BLOCK_HEADER_SIZE = 4;
+  private static final int BLOCK_DATA_SIZE = BLOCK_SIZE - BLOCK_HEADER_SIZE;
+  /** The maximum size of the direct memory segments allocated by each stripe. */
+  private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+  /** The minimum amount of memory owned by a stripe, reduces the number of stripes of small caches. */
+  private static final long MIN_STRIPE_SIZE = 1024 * 1024;
+  /** The percentage of the memory of each stripe used by the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+  /**
+   * Below this number of cached entries, {@link #handleLowMemory()} empties the
+   * cache rather than evicting a fraction of it.
+   */
+  private static final int LOW_MEMORY_CLEAR_THRESHOLD = 1000;
+
+  /**
+   * The entries are encoded with the same compact form used by the backends,
+   * virtual attributes are recomputed when they are decoded.
+   */
+  private final EntryEncodeConfig encodeConfig = new EntryEncodeConfig(false, true, true);
+
+  /**
+   * The stripes of this cache and the mapping of their entries by ID, replaced
+   * as a whole when the cache is resized so that an operation racing with the
+   * resize only ever updates the discarded state.
+   */
+  private volatile CacheState state;
+
+  /** Currently registered configuration object. */
+  private OffHeapEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this off heap entry cache. */
+  public OffHeapEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, OffHeapEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addOffHeapChangeListener(this);
+
+    // Read configuration and apply changes.
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages
+          );
+    if (!processEntryCacheConfig(configuration, applyChanges, errorHandler)) {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeOffHeapChangeListener(this);
+
+    // Drop the references to the direct memory segments so that they can be reclaimed.
+    state = new CacheState(0);
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    if (entryDN == null) {
+      return false;
+    }
+
+    Stripe stripe = stripeFor(entryDN);
+    stripe.lock.lock();
+    try {
+      return stripe.peek(entryDN) != null;
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    // Copy the encoded entry while holding the stripe lock, but decode it after releasing the lock.
+    ByteString encodedEntry = null;
+    Stripe stripe = stripeFor(entryDN);
+    stripe.lock.lock();
+    try {
+      encodedEntry = stripe.get(entryDN);
+    } finally {
+      stripe.lock.unlock();
+    }
+
+    if (encodedEntry == null) {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+
+    try {
+      Entry entry = Entry.decode(encodedEntry.asReader());
+      entry.processVirtualAttributes();
+      // Indicate cache hit.
+      cacheHits.getAndIncrement();
+      return entry;
+    } catch (Exception e) {
+      // The compressed schema tokens are no longer valid, drop the entry.
+      logger.traceException(e);
+      removeEntry(entryDN);
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    Stripe stripe = stripeFor(entryDN);
+    stripe.lock.lock();
+    try {
+      CachedEntry e = stripe.peek(entryDN);
+      return e != null ? e.key.entryID : -1;
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    CachedEntry e = state.idMap.get(new CacheKey(backendID, entryID));
+    return e != null ? e.dn : null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    put(state, entry, backendID, entryID, false);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    CacheState s = state;
+    if (s.idMap.containsKey(new CacheKey(backendID, entryID))) {
+      return false;
+    }
+    return put(s, entry, backendID, entryID, true);
+  }
+
+  /**
+   * Stores the provided entry in the cache.
+   *
+   * @return {@code false} if {@code ifAbsent} is true and the entry is already
+   *         present in the cache, or {@code true} otherwise, even if the entry
+   *         could not be stored.
+   */
+  private boolean put(CacheState s, Entry entry, String backendID, long entryID, boolean ifAbsent)
+  {
+    ByteStringBuilder encodedEntry = new ByteStringBuilder();
+    try {
+      entry.encode(encodedEntry, encodeConfig);
+    } catch (Exception e) {
+      logger.traceException(e);
+      return !ifAbsent;
+    }
+
+    DN entryDN = entry.getName();
+    CacheKey key = new CacheKey(backendID, entryID);
+
+    // The entry ID may have been cached under another DN, possibly in another stripe.
+    CachedEntry previous = s.idMap.get(key);
+    if (previous != null && !previous.dn.equals(entryDN)) {
+      if (ifAbsent) {
+        return false;
+      }
+      removeEntry(s, previous.dn);
+    }
+
+    Stripe stripe = s.stripeFor(entryDN);
+    stripe.lock.lock();
+    try {
+      return stripe.put(entryDN, key, encodedEntry, ifAbsent);
+    } catch (Exception e) {
+      logger.traceException(e);
+      return false;
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    removeEntry(state, entryDN);
+  }
+
+  private void removeEntry(CacheState s, DN entryDN)
+  {
+    Stripe stripe = s.stripeFor(entryDN);
+    stripe.lock.lock();
+    try {
+      CachedEntry e = stripe.unlink(entryDN);
+      if (e != null) {
+        stripe.release(e);
+      }
+    } finally {
+      stripe.lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    for (Stripe stripe : state.stripes) {
+      stripe.lock.lock();
+      try {
+        stripe.clear();
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    // Locks are only held one stripe and one entry at a time so this does not
+    // become a stop-the-world event as far as the cache is concerned.
+    CacheState s = state;
+    for (CachedEntry e : s.idMap.values()) {
+      if (!e.key.backendID.equals(backendID)) {
+        continue;
+      }
+      Stripe stripe = s.stripeFor(e.dn);
+      stripe.lock.lock();
+      try {
+        if (stripe.peek(e.dn) == e) {
+          stripe.release(stripe.unlink(e.dn));
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // Although the entries live outside the heap, their descriptors do not.
+    // Dump all the entries of a small cache, or 10% of the entries otherwise.
+    boolean clearAll = getCacheCount() < LOW_MEMORY_CLEAR_THRESHOLD;
+    for (Stripe stripe : state.stripes) {
+      stripe.lock.lock();
+      try {
+        if (clearAll) {
+          stripe.clear();
+        } else {
+          stripe.evict(stripe.size() / 10);
+        }
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    OffHeapEntryCacheCfg config = (OffHeapEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      OffHeapEntryCacheCfg configuration,
+      List<LocalizableMessage> unacceptableReasons
+      )
+  {
+    boolean applyChanges = false;
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE,
+          unacceptableReasons,
+          null
+        );
+    processEntryCacheConfig (configuration, applyChanges, errorHandler);
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(OffHeapEntryCacheCfg configuration)
+  {
+    boolean applyChanges = true;
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+      EntryCacheCommon.getConfigErrorHandler (
+          EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages
+          );
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled()) {
+      processEntryCacheConfig (configuration, applyChanges, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(
+      OffHeapEntryCacheCfg                configuration,
+      boolean                             applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler
+      )
+  {
+    // Local variables to read configuration.
+    Set<SearchFilter> newIncludeFilters = null;
+    Set<SearchFilter> newExcludeFilters = null;
+
+    // Read configuration.
+    DN newConfigEntryDN = configuration.dn();
+    long newMaxMemorySize = configuration.getMaxMemorySize();
+
+    // Get include and exclude filters.
+    switch (errorHandler.getConfigPhase())
+    {
+    case PHASE_INIT:
+    case PHASE_ACCEPTABLE:
+    case PHASE_APPLY:
+      newIncludeFilters = EntryCacheCommon.getFilters (
+          configuration.getIncludeFilter(),
+          ERR_CACHE_INVALID_INCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      newExcludeFilters = EntryCacheCommon.getFilters (
+          configuration.getExcludeFilter(),
+          ERR_CACHE_INVALID_EXCLUDE_FILTER,
+          errorHandler,
+          newConfigEntryDN
+          );
+      break;
+    }
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      if (state == null || newMaxMemorySize != state.maxMemorySize)
+      {
+        // Resizing the stripes empties the cache.
+        state = new CacheState(newMaxMemorySize);
+      }
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try {
+      CacheState s = state;
+      long usedMemory = 0;
+      for (Stripe stripe : s.stripes) {
+        usedMemory += stripe.usedBlocks * (long) BLOCK_SIZE;
+      }
+      return EntryCacheCommon.getGenericMonitorData(
+        cacheHits.longValue(),
+        // If cache misses is maintained by default cache
+        // get it from there and if not point to itself.
+        DirectoryServer.getEntryCache().getCacheMisses(),
+        usedMemory,
+        s.maxMemorySize,
+        getCacheCount(),
+        null
+        );
+    } catch (Exception e) {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    long count = 0;
+    for (Stripe stripe : state.stripes) {
+      count += stripe.size();
+    }
+    return count;
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    // Take a snapshot of each stripe in turn rather than locking the whole cache.
+    List<CachedEntry> snapshot = new ArrayList<>();
+    for (Stripe stripe : state.stripes) {
+      stripe.lock.lock();
+      try {
+        snapshot.addAll(stripe.window.values());
+        snapshot.addAll(stripe.main.values());
+      } finally {
+        stripe.lock.unlock();
+      }
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (CachedEntry e : snapshot) {
+      sb.append(e.dn);
+      sb.append(":");
+      sb.append(e.key.entryID);
+      sb.append(":");
+      sb.append(e.key.backendID);
+      sb.append(ServerConstants.EOL);
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+
+  private Stripe stripeFor(DN entryDN)
+  {
+    return state.stripeFor(entryDN);
+  }
+
+  /** The stripes of the cache sized for a maximum amount of memory, and the mapping of their entries by ID. */
+  private final class CacheState
+  {
+    /** The maximum amount of memory in bytes used to store the encoded entries. */
+    private final long maxMemorySize;
+    private final Stripe[] stripes;
+    /** The mapping between entry backends/IDs and cached entries. */
+    private final ConcurrentHashMap<CacheKey, CachedEntry> idMap = new ConcurrentHashMap<>();
+
+    private CacheState(long maxMemorySize)
+    {
+      this.maxMemorySize = maxMemorySize;
+      int count = EntryCacheCommon.getDefaultStripeCount();
+      while (count > 1 && maxMemorySize / count < MIN_STRIPE_SIZE)
+      {
+        count >>>= 1;
+      }
+      long stripeBlocks = Math.min(maxMemorySize / count / BLOCK_SIZE, Integer.MAX_VALUE / 2);
+
+      stripes = new Stripe[count];
+      for (int i = 0; i < count; i++)
+      {
+        stripes[i] = new Stripe((int) stripeBlocks, idMap);
+      }
+    }
+
+    private Stripe stripeFor(DN entryDN)
+    {
+      return stripes[spread(entryDN.hashCode()) & (stripes.length - 1)];
+    }
+  }
+
+  /** Spreads the bits of the provided hash code so that both stripes and sketch counters are well distributed. */
+  private static int spread(int hashCode)
+  {
+    int h = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    return (h >>> 16) ^ h;
+  }
+
+  /** Identifies a cached entry by its backend and entry ID. */
+  private static final class CacheKey
+  {
+    private final String backendID;
+    private final long entryID;
+
+    private CacheKey(String backendID, long entryID)
+    {
+      this.backendID = backendID;
+      this.entryID = entryID;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof CacheKey))
+      {
+        return false;
+      }
+      CacheKey other = (CacheKey) obj;
+      return entryID == other.entryID && backendID.equals(other.backendID);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return 31 * backendID.hashCode() + (int) (entryID ^ (entryID >>> 32));
+    }
+  }
+
+  /** The on-heap descriptor of an entry stored in direct memory. */
+  private static final class CachedEntry
+  {
+    private final DN dn;
+    private final CacheKey key;
+    private final int hash;
+    private final int firstBlock;
+    private final int length;
+    private final int blocks;
+    private boolean inWindow = true;
+
+    private CachedEntry(DN dn, CacheKey key, int hash, int firstBlock, int length, int blocks)
+    {
+      this.dn = dn;
+      this.key = key;
+      this.hash = hash;
+      this.firstBlock = firstBlock;
+      this.length = length;
+      this.blocks = blocks;
+    }
+  }
+
+  /**
+   * A lock protected share of the cache. All the methods of this class must be
+   * called while holding its lock, except {@link #size()} which only provides
+   * an estimate.
+   */
+  private final class Stripe
+  {
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The admission window and main regions, both in LRU order. */
+    private final LinkedHashMap<DN, CachedEntry> window = new LinkedHashMap<>();
+    private final LinkedHashMap<DN, CachedEntry> main = new LinkedHashMap<>();
+    private final FrequencySketch sketch;
+
+    private final int maxBlocks;
+    private final int maxWindowBlocks;
+    private final int blocksPerSegment;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+
+    /** The number of blocks carved out of the segments so far. */
+    private int allocatedBlocks;
+    /** The head of the list of free blocks, or -1. */
+    private int freeBlocksHead = -1;
+    private int windowBlocks;
+    private int mainBlocks;
+    private volatile int usedBlocks;
+    private volatile int entryCount;
+    /** The mapping by ID of the entries of all the stripes of the same cache state. */
+    private final ConcurrentHashMap<CacheKey, CachedEntry> idMap;
+
+    private Stripe(int maxBlocks, ConcurrentHashMap<CacheKey, CachedEntry> idMap)
+    {
+      this.idMap = idMap;
+      this.maxBlocks = maxBlocks;
+      this.maxWindowBlocks = Math.max(1, (int) ((long) maxBlocks * WINDOW_PERCENT / 100));
+      this.blocksPerSegment = Math.max(1, Math.min(maxBlocks, MAX_SEGMENT_SIZE / BLOCK_SIZE));
+      this.sketch = new FrequencySketch(maxBlocks / 4);
+    }
+
+    private int size()
+    {
+      return entryCount;
+    }
+
+    /** Returns the descriptor of the provided entry without recording an access. */
+    private CachedEntry peek(DN dn)
+    {
+      CachedEntry e = window.get(dn);
+      return e != null ? e : main.get(dn);
+    }
+
+    /** Records an access to the provided entry and returns a copy of its encoded form if it is cached. */
+    private ByteString get(DN dn)
+    {
+      CachedEntry e = peek(dn);
+      sketch.increment(spread(dn.hashCode()));
+      if (e == null)
+      {
+        return null;
+      }
+
+      // Move the entry to the most recently used end of its region.
+      LinkedHashMap<DN, CachedEntry> region = e.inWindow ? window : main;
+      region.remove(dn);
+      region.put(dn, e);
+      return ByteString.wrap(read(e));
+    }
+
+    private boolean put(DN dn, CacheKey key, ByteStringBuilder encodedEntry, boolean ifAbsent)
+    {
+      int hash = spread(dn.hashCode());
+      sketch.increment(hash);
+
+      if (peek(dn) != null)
+      {
+        if (ifAbsent)
+        {
+          return false;
+        }
+        release(unlink(dn));
+      }
+
+      int length = encodedEntry.length();
+      int blocks = (length + BLOCK_DATA_SIZE - 1) / BLOCK_DATA_SIZE;
+      if (blocks > maxBlocks)
+      {
+        // Too large to ever fit in this stripe.
+        return true;
+      }
+
+      makeRoom(blocks);
+      CachedEntry e = new CachedEntry(dn, key, hash, write(encodedEntry.getBackingArray(), length, blocks),
+          length, blocks);
+      window.put(dn, e);
+      windowBlocks += blocks;
+      usedBlocks += blocks;
+      entryCount++;
+      idMap.put(key, e);
+      return true;
+    }
+
+    /** Removes the provided entry from its region, without releasing it. */
+    private CachedEntry unlink(DN dn)
+    {
+      CachedEntry e = window.remove(dn);
+      if (e != null)
+      {
+        windowBlocks -= e.blocks;
+        return e;
+      }
+      e = main.remove(dn);
+      if (e != null)
+      {
+        mainBlocks -= e.blocks;
+      }
+      return e;
+    }
+
+    /** Releases the memory of an unlinked entry. */
+    private void release(CachedEntry e)
+    {
+      freeBlocks(e.firstBlock);
+      usedBlocks -= e.blocks;
+      entryCount--;
+      idMap.remove(e.key, e);
+    }
+
+    /**
+     * Evicts entries until the provided number of blocks can be inserted in the
+     * admission window. The entries leaving the window compete with the least
+     * recently used entries of the main region for admission.
+     */
+    private void makeRoom(int blocks)
+    {
+      while (windowBlocks + blocks > maxWindowBlocks && !window.isEmpty())
+      {
+        CachedEntry candidate = unlink(eldest(window).dn);
+        admit(candidate);
+      }
+      while (usedBlocks + blocks > maxBlocks)
+      {
+        CachedEntry victim = eldest(main);
+        if (victim == null)
+        {
+          victim = eldest(window);
+        }
+        release(unlink(victim.dn));
+      }
+    }
+
+    private void admit(CachedEntry candidate)
+    {
+      int maxMainBlocks = maxBlocks - maxWindowBlocks;
+      int candidateFrequency = sketch.frequency(candidate.hash);
+      while (mainBlocks + candidate.blocks > maxMainBlocks && !main.isEmpty())
+      {
+        CachedEntry victim = eldest(main);
+        if (candidateFrequency <= sketch.frequency(victim.hash))
+        {
+          release(candidate);
+          return;
+        }
+        release(unlink(victim.dn));
+      }
+      candidate.inWindow = false;
+      main.put(candidate.dn, candidate);
+      mainBlocks += candidate.blocks;
+    }
+
+    /** Evicts the provided number of entries, least recently used first. */
+    private void evict(int count)
+    {
+      for (int i = 0; i < count; i++)
+      {
+        CachedEntry victim = eldest(main);
+        if (victim == null)
+        {
+          victim = eldest(window);
+        }
+        if (victim == null)
+        {
+          return;
+        }
+        release(unlink(victim.dn));
+      }
+    }
+
+    private CachedEntry eldest(LinkedHashMap<DN, CachedEntry> region)
+    {
+      Iterator<CachedEntry> it = region.values().iterator();
+      return it.hasNext() ? it.next() : null;
+    }
+
+    private void clear()
+    {
+      for (CachedEntry e : window.values())
+      {
+        idMap.remove(e.key, e);
+      }
+      for (CachedEntry e : main.values())
+      {
+        idMap.remove(e.key, e);
+      }
+      window.clear();
+      main.clear();
+      // Drop the references to the direct memory segments so that they can be reclaimed.
+      segments.clear();
+      allocatedBlocks = 0;
+      freeBlocksHead = -1;
+      windowBlocks = 0;
+      mainBlocks = 0;
+      usedBlocks = 0;
+      entryCount = 0;
+    }
+
+    /** Copies the provided bytes to a newly allocated chain of blocks and returns the first block. */
+    private int write(byte[] bytes, int length, int blocks)
+    {
+      int first = allocateBlock();
+      int block = first;
+      for (int offset = 0, remaining = blocks; remaining > 0; remaining--)
+      {
+        int next = remaining > 1 ? allocateBlock() : -1;
+        ByteBuffer segment = segments.get(block / blocksPerSegment);
+        int position = (block % blocksPerSegment) * BLOCK_SIZE;
+        int chunk = Math.min(BLOCK_DATA_SIZE, length - offset);
+        segment.putInt(position, next);
+        segment.position(position + BLOCK_HEADER_SIZE);
+        segment.put(bytes, offset, chunk);
+        offset += chunk;
+        block = next;
+      }
+      return first;
+    }
+
+    private byte[] read(CachedEntry e)
+    {
+      byte[] bytes = new byte[e.length];
+      int offset = 0;
+      for (int block = e.firstBlock; block != -1;)
+      {
+        ByteBuffer segment = segments.get(block / blocksPerSegment);
+        int position = (block % blocksPerSegment) * BLOCK_SIZE;
+        int chunk = Math.min(BLOCK_DATA_SIZE, e.length - offset);
+        segment.position(position + BLOCK_HEADER_SIZE);
+        segment.get(bytes, offset, chunk);
+        offset += chunk;
+        block = segment.getInt(position);
+      }
+      return bytes;
+    }
+
+    private int allocateBlock()
+    {
+      if (freeBlocksHead != -1)
+      {
+        int block = freeBlocksHead;
+        freeBlocksHead = segments.get(block / blocksPerSegment).getInt((block % blocksPerSegment) * BLOCK_SIZE);
+        return block;
+      }
+      int block = allocatedBlocks++;
+      if (block / blocksPerSegment == segments.size())
+      {
+        int segmentBlocks = Math.min(blocksPerSegment, maxBlocks - block);
+        segments.add(ByteBuffer.allocateDirect(segmentBlocks * BLOCK_SIZE));
+      }
+      return block;
+    }
+
+    private void freeBlocks(int firstBlock)
+    {
+      int block = firstBlock;
+      while (block != -1)
+      {
+        ByteBuffer segment = segments.get(block / blocksPerSegment);
+        int position = (block % blocksPerSegment) * BLOCK_SIZE;
+        int next = segment.getInt(position);
+        segment.putInt(position, freeBlocksHead);
+        freeBlocksHead = block;
+        block = next;
+      }
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters estimating how often the entries of a
+   * stripe have been accessed recently. All the counters are halved once the
+   * number of recorded accesses reaches ten times the number of counter rows,
+   * so that entries which are no longer used eventually lose their advantage.
+   */
+  private static final class FrequencySketch
+  {
+    private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    private FrequencySketch(int expectedEntries)
+    {
+      int tableSize = Integer.highestOneBit(Math.max(16, Math.min(MAX_TABLE_SIZE, expectedEntries)) - 1) << 1;
+      table = new long[tableSize];
+      tableMask = tableSize - 1;
+      sampleSize = 10 * tableSize;
+    }
+
+    private void increment(int hash)
+    {
+      int start = (hash >>> 30) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++)
+      {
+        int index = indexOf(hash, i);
+        int offset = (start + i) << 2;
+        if (((table[index] >>> offset) & 0xfL) != 0xfL)
+        {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++size == sampleSize)
+      {
+        for (int i = 0; i < table.length; i++)
+        {
+          table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size >>>= 1;
+      }
+    }
+
+    private int frequency(int hash)
+    {
+      int start = (hash >>> 30) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++)
+      {
+        int offset = (start + i) << 2;
+        frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL));
+      }
+      return frequency;
+    }
+
+    private int indexOf(int hash, int i)
+    {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & tableMask;
+    }
+  }
+}
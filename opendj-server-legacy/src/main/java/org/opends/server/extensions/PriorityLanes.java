@@ -0,0 +1,311 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opends.server.api.ClientConnection;
+import org.opends.server.extensions.PriorityWorkQueue.Lane;
+import org.opends.server.extensions.PriorityWorkQueue.LaneStatistics;
+import org.opends.server.types.AuthenticationInfo;
+import org.opends.server.types.Operation;
+
+/**
+ * The pending operations of the priority work queue, classified in weighted lanes.
+ * <p>
+ * Lanes are served with a deficit round-robin: each time a lane's turn comes, it is credited with its weight and it
+ * is served until its credit is spent or it is empty, so a lane with weight 4 is served four times as often as a lane
+ * with weight 1 when both have pending operations. Inside a lane, the connections having pending operations are
+ * served in turn, one operation at a time, so a client pipelining many requests cannot delay the requests of other
+ * clients in the same lane.
+ * <p>
+ * This class is not thread safe: the work queue serializes the accesses.
+ */
+final class PriorityLanes
+{
+  /** The pending operations of a lane, per connection. */
+  private static final class LaneQueue
+  {
+    private final Lane lane;
+    private int weight;
+    /** The number of operations the lane may still dequeue before passing its turn. */
+    private int deficit;
+    /** The connections having pending operations, in the order in which they will be served. */
+    private final LinkedHashMap<Long, ArrayDeque<PendingOperation>> connections = new LinkedHashMap<>();
+    private int size;
+
+    private long submitted;
+    private int maxSize;
+    private long dequeued;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    private LaneQueue(Lane lane, int weight)
+    {
+      this.lane = lane;
+      this.weight = weight;
+    }
+
+    private void add(PendingOperation pending)
+    {
+      final Long connectionID = pending.operation.getClientConnection().getConnectionID();
+      ArrayDeque<PendingOperation> operations = connections.get(connectionID);
+      if (operations == null)
+      {
+        operations = new ArrayDeque<>();
+        connections.put(connectionID, operations);
+      }
+      operations.add(pending);
+      size++;
+      submitted++;
+      maxSize = Math.max(maxSize, size);
+    }
+
+    /** Dequeues the next operation of the next connection, and moves this connection to the end of the line. */
+    private Operation poll(long nowNanos)
+    {
+      final Iterator<Map.Entry<Long, ArrayDeque<PendingOperation>>> it = connections.entrySet().iterator();
+      final Map.Entry<Long, ArrayDeque<PendingOperation>> next = it.next();
+      final ArrayDeque<PendingOperation> operations = next.getValue();
+      final PendingOperation pending = operations.poll();
+      it.remove();
+      if (!operations.isEmpty())
+      {
+        connections.put(next.getKey(), operations);
+      }
+      size--;
+
+      final long waitNanos = nowNanos - pending.enqueueNanos;
+      dequeued++;
+      totalWaitNanos += waitNanos;
+      maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+      return pending.operation;
+    }
+
+    private void drainTo(List<Operation> operations)
+    {
+      for (ArrayDeque<PendingOperation> pendings : connections.values())
+      {
+        for (PendingOperation pending : pendings)
+        {
+          operations.add(pending.operation);
+        }
+      }
+      connections.clear();
+      size = 0;
+    }
+  }
+
+  /** An operation waiting in a lane. */
+  private static final class PendingOperation
+  {
+    private final Operation operation;
+    private final long enqueueNanos;
+
+    private PendingOperation(Operation operation, long enqueueNanos)
+    {
+      this.operation = operation;
+      this.enqueueNanos = enqueueNanos;
+    }
+  }
+
+  private final LaneQueue[] lanes;
+  private final Map<Lane, LaneQueue> lanesByType = new EnumMap<>(Lane.class);
+  /** The index of the lane whose turn it is. */
+  private int currentLane;
+  private int size;
+
+  /**
+   * Creates empty lanes.
+   *
+   * @param weights
+   *          the weight of each lane, at least 1
+   */
+  PriorityLanes(Map<Lane, Integer> weights)
+  {
+    final Lane[] types = Lane.values();
+    lanes = new LaneQueue[types.length];
+    for (int i = 0; i < types.length; i++)
+    {
+      lanes[i] = new LaneQueue(types[i], weights.get(types[i]));
+      lanesByType.put(types[i], lanes[i]);
+    }
+  }
+
+  /**
+   * Changes the weights of the lanes. Takes effect on the next turn of each lane.
+   *
+   * @param weights
+   *          the weight of each lane, at least 1
+   */
+  void setWeights(Map<Lane, Integer> weights)
+  {
+    for (LaneQueue lane : lanes)
+    {
+      lane.weight = weights.get(lane.lane);
+    }
+  }
+
+  /**
+   * Returns the lane of an operation.
+   *
+   * @param operation
+   *          the operation to classify
+   * @return the lane of the operation
+   */
+  static Lane classify(Operation operation)
+  {
+    if (operation.isSynchronizationOperation())
+    {
+      return Lane.REPLICATION;
+    }
+    final ClientConnection connection = operation.getClientConnection();
+    final AuthenticationInfo authInfo = connection.getAuthenticationInfo();
+    if (connection.isInnerConnection() || (authInfo != null && authInfo.isRoot()))
+    {
+      return Lane.ADMIN;
+    }
+    switch (operation.getOperationType())
+    {
+    case BIND:
+    case UNBIND:
+    case ABANDON:
+      return Lane.BIND;
+    case SEARCH:
+    case COMPARE:
+      return Lane.READ;
+    default:
+      return Lane.WRITE;
+    }
+  }
+
+  /**
+   * Adds an operation to the end of its connection's line in its lane.
+   *
+   * @param operation
+   *          the operation to add
+   * @param lane
+   *          the lane of the operation
+   */
+  void add(Operation operation, Lane lane)
+  {
+    lanesByType.get(lane).add(new PendingOperation(operation, System.nanoTime()));
+    size++;
+  }
+
+  /**
+   * Dequeues the next operation to process.
+   *
+   * @return the next operation to process, or {@code null} if there are no pending operations
+   */
+  Operation poll()
+  {
+    if (size == 0)
+    {
+      return null;
+    }
+    while (true)
+    {
+      final LaneQueue lane = lanes[currentLane];
+      if (lane.size == 0)
+      {
+        // An idle lane does not accumulate credit
+        lane.deficit = 0;
+        nextLane();
+        continue;
+      }
+      if (lane.deficit <= 0)
+      {
+        lane.deficit = lane.weight;
+      }
+      final Operation operation = lane.poll(System.nanoTime());
+      size--;
+      lane.deficit--;
+      if (lane.deficit <= 0 || lane.size == 0)
+      {
+        lane.deficit = 0;
+        nextLane();
+      }
+      return operation;
+    }
+  }
+
+  private void nextLane()
+  {
+    currentLane = (currentLane + 1) % lanes.length;
+  }
+
+  /**
+   * Removes all the pending operations.
+   *
+   * @return the removed operations
+   */
+  List<Operation> clear()
+  {
+    final List<Operation> operations = new ArrayList<>(size);
+    for (LaneQueue lane : lanes)
+    {
+      lane.drainTo(operations);
+    }
+    size = 0;
+    return operations;
+  }
+
+  /**
+   * Returns the number of pending operations in all the lanes.
+   *
+   * @return the number of pending operations
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of pending operations in a lane.
+   *
+   * @param lane
+   *          the lane
+   * @return the number of pending operations in the lane
+   */
+  int size(Lane lane)
+  {
+    return lanesByType.get(lane).size;
+  }
+
+  /**
+   * Returns the statistics of each lane.
+   *
+   * @return the statistics of each lane
+   */
+  List<LaneStatistics> getStatistics()
+  {
+    final List<LaneStatistics> statistics = new ArrayList<>(lanes.length);
+    for (LaneQueue lane : lanes)
+    {
+      final long averageWaitNanos = lane.dequeued > 0 ? lane.totalWaitNanos / lane.dequeued : 0;
+      statistics.add(new LaneStatistics(lane.lane, lane.weight, lane.size, lane.maxSize, lane.submitted,
+          averageWaitNanos, lane.maxWaitNanos));
+    }
+    return statistics;
+  }
+}
@@ -0,0 +1,676 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.PriorityWorkQueueCfg;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.PriorityWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue which classifies operations in weighted lanes, so that a client flooding the server with requests of
+ * one kind cannot delay the binds of interactive users or the administrative operations.
+ * <p>
+ * Operations are classified in the {@link Lane}s, then served by a fixed number of worker threads, with the
+ * scheduling described in {@link PriorityLanes}. The administrative lane does not count towards the capacity of the
+ * queue, so administrators can still operate the server when the queue is full.
+ */
+public class PriorityWorkQueue extends WorkQueue<PriorityWorkQueueCfg>
+    implements ConfigurationChangeListener<PriorityWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The lanes in which operations are classified. */
+  public enum Lane
+  {
+    /** Operations from internal connections or from root users. */
+    ADMIN,
+    /** Operations replaying replicated changes. */
+    REPLICATION,
+    /** Bind, unbind and abandon operations. */
+    BIND,
+    /** Add, delete, modify, modify DN and extended operations. */
+    WRITE,
+    /** Search and compare operations. */
+    READ
+  }
+
+  /** A point-in-time snapshot of the statistics of a lane. */
+  public static final class LaneStatistics
+  {
+    private final Lane lane;
+    private final int weight;
+    private final int backlog;
+    private final int maxBacklog;
+    private final long submitted;
+    private final long averageWaitNanos;
+    private final long maxWaitNanos;
+
+    LaneStatistics(Lane lane, int weight, int backlog, int maxBacklog, long submitted, long averageWaitNanos,
+        long maxWaitNanos)
+    {
+      this.lane = lane;
+      this.weight = weight;
+      this.backlog = backlog;
+      this.maxBacklog = maxBacklog;
+      this.submitted = submitted;
+      this.averageWaitNanos = averageWaitNanos;
+      this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * Returns the lane.
+     *
+     * @return the lane
+     */
+    public Lane getLane()
+    {
+      return lane;
+    }
+
+    /**
+     * Returns the weight of the lane.
+     *
+     * @return the weight of the lane
+     */
+    public int getWeight()
+    {
+      return weight;
+    }
+
+    /**
+     * Returns the number of operations pending in the lane.
+     *
+     * @return the number of operations pending in the lane
+     */
+    public int getBacklog()
+    {
+      return backlog;
+    }
+
+    /**
+     * Returns the highest number of operations which have been pending in the lane.
+     *
+     * @return the highest number of operations which have been pending in the lane
+     */
+    public int getMaxBacklog()
+    {
+      return maxBacklog;
+    }
+
+    /**
+     * Returns the number of operations submitted to the lane.
+     *
+     * @return the number of operations submitted to the lane
+     */
+    public long getSubmitted()
+    {
+      return submitted;
+    }
+
+    /**
+     * Returns the average time operations waited in the lane before being processed.
+     *
+     * @param unit
+     *          the unit of the returned time
+     * @return the average wait time
+     */
+    public long getAverageWaitTime(TimeUnit unit)
+    {
+      return unit.convert(averageWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time an operation waited in the lane before being processed.
+     *
+     * @param unit
+     *          the unit of the returned time
+     * @return the maximum wait time
+     */
+    public long getMaxWaitTime(TimeUnit unit)
+    {
+      return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** A thread processing the operations dequeued from the lanes. */
+  private final class PriorityWorkerThread extends DirectoryThread
+  {
+    /** The operation that this worker thread is currently processing. */
+    private volatile Operation operation;
+
+    private PriorityWorkerThread(int threadID)
+    {
+      super("Worker Thread " + threadID);
+    }
+
+    private boolean isActive()
+    {
+      return isAlive() && operation != null;
+    }
+
+    @Override
+    public void run()
+    {
+      Operation nextOperation;
+      while ((nextOperation = nextOperation(this)) != null)
+      {
+        try
+        {
+          processOperation(nextOperation);
+        }
+        finally
+        {
+          operation = null;
+        }
+      }
+    }
+
+    private void processOperation(Operation operation)
+    {
+      try
+      {
+        operation.run();
+        operation.operationCompleted();
+      }
+      catch (Throwable t)
+      {
+        logger.traceException(t);
+        try
+        {
+          LocalizableMessage message =
+              ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(getName(), operation, stackTraceToSingleLineString(t));
+          logger.error(message);
+
+          operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+          operation.appendErrorMessage(message);
+          operation.getClientConnection().sendResponse(operation);
+        }
+        catch (Throwable t2)
+        {
+          logger.traceException(t2);
+        }
+
+        try
+        {
+          LocalizableMessage message =
+              ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(getName(), operation, stackTraceToSingleLineString(t));
+          operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+        }
+        catch (Throwable t2)
+        {
+          logger.traceException(t2);
+        }
+      }
+    }
+
+    private void shutDown()
+    {
+      final Operation currentOperation = operation;
+      if (currentOperation != null)
+      {
+        currentOperation.cancel(new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get()));
+      }
+    }
+  }
+
+  /** Guards the lanes, the worker threads and the configuration. */
+  private final ReentrantLock queueLock = new ReentrantLock();
+  /** Signaled when an operation is added to the lanes. */
+  private final Condition notEmpty = queueLock.newCondition();
+  /** Signaled when an operation is removed from the lanes. */
+  private final Condition notFull = queueLock.newCondition();
+
+  /** The set of worker threads that will be used to process this work queue. */
+  private final List<PriorityWorkerThread> workerThreads = new ArrayList<>();
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** The pending operations. */
+  private PriorityLanes lanes;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /**
+   * The maximum number of pending requests that this work queue will allow
+   * before it will start rejecting them, not counting the administrative ones.
+   */
+  private int maxCapacity;
+
+  /**
+   * The number of worker threads that should be active (or will be shortly if a
+   * configuration change has not been completely applied).
+   */
+  private volatile int numWorkerThreads;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public PriorityWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(PriorityWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    queueLock.lock();
+    try
+    {
+      shutdownRequested = false;
+      configuration.addPriorityChangeListener(this);
+
+      numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      maxCapacity = configuration.getMaxWorkQueueCapacity();
+      lanes = new PriorityLanes(getWeights(configuration));
+      for (lastThreadNumber = 0; lastThreadNumber < numWorkerThreads; lastThreadNumber++)
+      {
+        startWorkerThread(lastThreadNumber);
+      }
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      PriorityWorkQueueMonitor monitor = new PriorityWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, PriorityWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void startWorkerThread(int threadID)
+  {
+    final PriorityWorkerThread t = new PriorityWorkerThread(threadID);
+    workerThreads.add(t);
+    t.start();
+  }
+
+  private static Map<Lane, Integer> getWeights(PriorityWorkQueueCfg configuration)
+  {
+    final Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+    weights.put(Lane.ADMIN, configuration.getAdminLaneWeight());
+    weights.put(Lane.REPLICATION, configuration.getReplicationLaneWeight());
+    weights.put(Lane.BIND, configuration.getBindLaneWeight());
+    weights.put(Lane.WRITE, configuration.getWriteLaneWeight());
+    weights.put(Lane.READ, configuration.getReadLaneWeight());
+    return weights;
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    final List<Operation> pendingOperations;
+    final List<PriorityWorkerThread> threads;
+    queueLock.lock();
+    try
+    {
+      shutdownRequested = true;
+      pendingOperations = lanes.clear();
+      threads = new ArrayList<>(workerThreads);
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (Operation o : pendingOperations)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Cancel the operations being processed by the worker threads.
+    for (PriorityWorkerThread t : threads)
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    final Lane lane = PriorityLanes.classify(operation);
+    queueLock.lock();
+    try
+    {
+      checkNotShutdown();
+      while (lane != Lane.ADMIN && lanes.size() - lanes.size(Lane.ADMIN) >= maxCapacity)
+      {
+        if (!blockEnqueuingWhenFull)
+        {
+          queueFullRejects.incrementAndGet();
+          throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity));
+        }
+        try
+        {
+          notFull.await(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+          // We cannot handle the interruption here. Reject the request and
+          // re-interrupt this thread.
+          Thread.currentThread().interrupt();
+
+          queueFullRejects.incrementAndGet();
+          throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+        }
+        checkNotShutdown();
+      }
+
+      lanes.add(operation, lane);
+      opsSubmitted.incrementAndGet();
+      notEmpty.signal();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  private void checkNotShutdown() throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+  }
+
+  /**
+   * Retrieves the next operation to be processed by a worker thread, blocking until one is submitted.
+   *
+   * @param workerThread
+   *          the worker thread requesting the operation
+   * @return the next operation to process, or {@code null} if the worker thread must exit because the server is
+   *         shutting down or the number of worker threads has been reduced
+   */
+  private Operation nextOperation(PriorityWorkerThread workerThread)
+  {
+    queueLock.lock();
+    try
+    {
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          return null;
+        }
+        if (workerThreads.size() > numWorkerThreads)
+        {
+          workerThreads.remove(workerThread);
+          logger.debug(INFO_WORKER_STOPPED_BY_REDUCED_THREADNUMBER, workerThread.getName());
+          return null;
+        }
+        final Operation operation = lanes.poll();
+        if (operation != null)
+        {
+          // Set while holding the lock, so that the queue is never seen idle while an operation is handed over
+          workerThread.operation = operation;
+          notFull.signal();
+          return operation;
+        }
+        notEmpty.await();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_WORKER_WAITING_UNCAUGHT_EXCEPTION, workerThread.getName(), e);
+      workerThreads.remove(workerThread);
+      return null;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been rejected because
+   *          the work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in all the lanes.
+   *
+   * @return  The number of pending operations in the queue that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    queueLock.lock();
+    try
+    {
+      return lanes.size();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves a snapshot of the statistics of each lane.
+   *
+   * @return the statistics of each lane
+   */
+  public List<LaneStatistics> getLaneStatistics()
+  {
+    queueLock.lock();
+    try
+    {
+      return lanes.getStatistics();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      PriorityWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(PriorityWorkQueueCfg configuration)
+  {
+    queueLock.lock();
+    try
+    {
+      numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      maxCapacity = configuration.getMaxWorkQueueCapacity();
+      lanes.setWeights(getWeights(configuration));
+
+      // Extra worker threads exit as soon as they are done with their current operation
+      while (workerThreads.size() < numWorkerThreads)
+      {
+        startWorkerThread(lastThreadNumber++);
+      }
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    queueLock.lock();
+    try
+    {
+      if (lanes.size() > 0)
+      {
+        return false;
+      }
+      for (PriorityWorkerThread t : workerThreads)
+      {
+        if (t.isActive())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+    finally
+    {
+      queueLock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return numWorkerThreads;
+  }
+}
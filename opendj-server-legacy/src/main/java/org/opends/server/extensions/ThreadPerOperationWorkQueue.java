@@ -0,0 +1,539 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.ThreadPerOperationWorkQueueCfg;
+import org.opends.server.api.DirectoryThread;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.ThreadPerOperationWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.DisconnectReason;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * A work queue which runs each operation on its own thread instead of a fixed pool of worker threads, so that
+ * operations blocked on I/O or on a remote server do not prevent other operations from being processed.
+ * <p>
+ * The number of operations running at the same time is bounded by a semaphore. Operations submitted while all the
+ * permits are taken wait in a FIFO queue, whose capacity is bounded by another semaphore so that both limits can be
+ * changed on the fly. Threads are created on demand and die after being idle for
+ * {@link #IDLE_THREAD_KEEP_ALIVE_SECONDS} seconds, so the server only holds as many threads as it has concurrently
+ * running operations.
+ */
+public class ThreadPerOperationWorkQueue extends WorkQueue<ThreadPerOperationWorkQueueCfg>
+    implements ConfigurationChangeListener<ThreadPerOperationWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The number of seconds an idle operation thread is kept for running the next operation. */
+  private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  /** A semaphore whose number of permits can be reduced when the configuration changes. */
+  private static final class ResizableSemaphore extends Semaphore
+  {
+    private static final long serialVersionUID = 1L;
+
+    private ResizableSemaphore(int permits)
+    {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction)
+    {
+      super.reducePermits(reduction);
+    }
+  }
+
+  /** Runs an operation on an operation thread, and releases its permit once done. */
+  private final class OperationTask implements Runnable
+  {
+    private final Operation operation;
+
+    private OperationTask(Operation operation)
+    {
+      this.operation = operation;
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        processOperation(operation);
+      }
+      finally
+      {
+        runningTasks.remove(this);
+        concurrencyPermits.release();
+        dispatchPendingOperations();
+      }
+    }
+  }
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** The highest number of operations that have been running at the same time. */
+  private final AtomicLong maxRunningOperations = new AtomicLong();
+
+  /** The operations which are currently running. */
+  private final Set<OperationTask> runningTasks =
+      Collections.newSetFromMap(new ConcurrentHashMap<OperationTask, Boolean>());
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The maximum number of operations which can run at the same time. */
+  private int maxConcurrentOperations;
+
+  /**
+   * The maximum number of pending requests that this work queue will allow
+   * before it will start rejecting them.
+   */
+  private int maxCapacity;
+
+  /** The permits to run an operation, one per operation allowed to run at the same time. */
+  private ResizableSemaphore concurrencyPermits;
+
+  /** The permits to wait in the queue, one per pending operation allowed. */
+  private ResizableSemaphore queuePermits;
+
+  /** The operations waiting for a permit to run. */
+  private final LinkedBlockingQueue<Operation> opQueue = new LinkedBlockingQueue<>();
+
+  /**
+   * The number of operations being moved from the queue to the running tasks, so that the work queue does not look
+   * idle while an operation is in neither.
+   */
+  private final AtomicInteger dispatchingOperations = new AtomicInteger();
+
+  /** Creates the threads running the operations. */
+  private ThreadPoolExecutor operationThreads;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public ThreadPerOperationWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(ThreadPerOperationWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    shutdownRequested = false;
+    configuration.addThreadPerOperationChangeListener(this);
+
+    maxConcurrentOperations = configuration.getMaxConcurrentOperations();
+    maxCapacity = configuration.getMaxWorkQueueCapacity();
+    concurrencyPermits = new ResizableSemaphore(maxConcurrentOperations);
+    queuePermits = new ResizableSemaphore(maxCapacity);
+    // The semaphore bounds the number of threads: never queue in the executor
+    operationThreads = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+        IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+        new DirectoryThread.Factory("Operation Thread"));
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      ThreadPerOperationWorkQueueMonitor monitor = new ThreadPerOperationWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, ThreadPerOperationWorkQueueMonitor.class, e);
+    }
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    shutdownRequested = true;
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    List<Operation> pendingOperations = new ArrayList<>();
+    opQueue.drainTo(pendingOperations);
+    for (Operation o : pendingOperations)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Cancel the running operations, as worker threads do when they are shut down.
+    CancelRequest shutdownCancelRequest = new CancelRequest(true, INFO_CANCELED_BY_SHUTDOWN.get());
+    for (OperationTask task : runningTasks)
+    {
+      try
+      {
+        task.operation.cancel(shutdownCancelRequest);
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, task.operation, e);
+      }
+    }
+    operationThreads.shutdown();
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  /**
+   * Submits an operation to be processed on its own thread, blocking while the pending operation queue is full.
+   *
+   * @param operation
+   *          The operation to be processed.
+   * @throws DirectoryException
+   *           If the provided operation is not accepted for some reason (e.g.,
+   *           if the server is shutting down).
+   */
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    checkNotShutdown();
+    if (blockEnqueuingWhenFull)
+    {
+      try
+      {
+        // Periodically wake up to notice the shutdown
+        while (!queuePermits.tryAcquire(1, TimeUnit.SECONDS))
+        {
+          checkNotShutdown();
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // We cannot handle the interruption here. Reject the request and
+        // re-interrupt this thread.
+        Thread.currentThread().interrupt();
+
+        queueFullRejects.incrementAndGet();
+        throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get());
+      }
+    }
+    else if (!queuePermits.tryAcquire())
+    {
+      queueFullRejects.incrementAndGet();
+      throw new DirectoryException(ResultCode.BUSY, WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity));
+    }
+
+    opQueue.add(operation);
+    opsSubmitted.incrementAndGet();
+    dispatchPendingOperations();
+  }
+
+  private void checkNotShutdown() throws DirectoryException
+  {
+    if (shutdownRequested)
+    {
+      throw new DirectoryException(ResultCode.UNAVAILABLE, WARN_OP_REJECTED_BY_SHUTDOWN.get());
+    }
+  }
+
+  /**
+   * Starts a thread for each pending operation, as long as permits are available. This is called whenever an
+   * operation is submitted and whenever a permit is released, so that an operation never stays pending while a
+   * permit is available.
+   */
+  private void dispatchPendingOperations()
+  {
+    while (!opQueue.isEmpty() && !shutdownRequested && concurrencyPermits.tryAcquire())
+    {
+      dispatchingOperations.incrementAndGet();
+      final Operation operation = opQueue.poll();
+      if (operation == null)
+      {
+        // Another thread took it: loop to check whether a new operation was submitted meanwhile
+        dispatchingOperations.decrementAndGet();
+        concurrencyPermits.release();
+        continue;
+      }
+      queuePermits.release();
+
+      final OperationTask task = new OperationTask(operation);
+      runningTasks.add(task);
+      dispatchingOperations.decrementAndGet();
+      updateMaxRunningOperations();
+      try
+      {
+        operationThreads.execute(task);
+      }
+      catch (RejectedExecutionException e)
+      {
+        // The work queue has been finalized meanwhile
+        logger.traceException(e);
+        runningTasks.remove(task);
+        concurrencyPermits.release();
+        operation.abort(new CancelRequest(true, WARN_OP_REJECTED_BY_SHUTDOWN.get()));
+      }
+    }
+  }
+
+  private void updateMaxRunningOperations()
+  {
+    final long running = runningTasks.size();
+    long currentMax = maxRunningOperations.get();
+    while (running > currentMax && !maxRunningOperations.compareAndSet(currentMax, running))
+    {
+      currentMax = maxRunningOperations.get();
+    }
+  }
+
+  /**
+   * Processes an operation on the current thread, reporting unexpected failures to the client as worker threads do.
+   *
+   * @param operation
+   *          The operation to process.
+   */
+  private void processOperation(Operation operation)
+  {
+    try
+    {
+      operation.run();
+      operation.operationCompleted();
+    }
+    catch (Throwable t)
+    {
+      if (logger.isTraceEnabled())
+      {
+        logger.trace("Uncaught exception in operation thread while processing operation %s: %s", operation, t);
+        logger.traceException(t);
+      }
+
+      final String threadName = Thread.currentThread().getName();
+      try
+      {
+        LocalizableMessage message =
+            ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+        logger.error(message);
+
+        operation.setResultCode(DirectoryServer.getCoreConfigManager().getServerErrorResultCode());
+        operation.appendErrorMessage(message);
+        operation.getClientConnection().sendResponse(operation);
+      }
+      catch (Throwable t2)
+      {
+        logger.traceException(t2);
+      }
+
+      try
+      {
+        LocalizableMessage message =
+            ERR_UNCAUGHT_WORKER_THREAD_EXCEPTION.get(threadName, operation, stackTraceToSingleLineString(t));
+        operation.disconnectClient(DisconnectReason.SERVER_ERROR, true, message);
+      }
+      catch (Throwable t2)
+      {
+        logger.traceException(t2);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup.  This
+   * does not include operations that have been rejected for some reason like
+   * the queue already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been successfully
+   *          submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.get();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return  The total number of operations that have been rejected because
+   *          the work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.get();
+  }
+
+  /**
+   * Retrieves the number of operations which are currently running.
+   *
+   * @return The number of operations which are currently running.
+   */
+  public int getRunningOperations()
+  {
+    return runningTasks.size();
+  }
+
+  /**
+   * Retrieves the highest number of operations which have been running at the same time since startup.
+   *
+   * @return The highest number of operations which have been running at the same time.
+   */
+  public long getMaxRunningOperations()
+  {
+    return maxRunningOperations.get();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing.
+   *
+   * @return  The number of pending operations in the queue that have not yet
+   *          been picked up for processing.
+   */
+  public int size()
+  {
+    return opQueue.size();
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      ThreadPerOperationWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public synchronized ConfigChangeResult applyConfigurationChange(ThreadPerOperationWorkQueueCfg configuration)
+  {
+    // Running and pending operations keep their permits: a lower limit applies as they complete
+    final int newMaxConcurrentOperations = configuration.getMaxConcurrentOperations();
+    resize(concurrencyPermits, maxConcurrentOperations, newMaxConcurrentOperations);
+    maxConcurrentOperations = newMaxConcurrentOperations;
+
+    final int newMaxCapacity = configuration.getMaxWorkQueueCapacity();
+    resize(queuePermits, maxCapacity, newMaxCapacity);
+    maxCapacity = newMaxCapacity;
+
+    dispatchPendingOperations();
+    return new ConfigChangeResult();
+  }
+
+  private static void resize(ResizableSemaphore permits, int oldPermits, int newPermits)
+  {
+    if (newPermits > oldPermits)
+    {
+      permits.release(newPermits - oldPermits);
+    }
+    else if (newPermits < oldPermits)
+    {
+      permits.reducePermits(oldPermits - newPermits);
+    }
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    // Checked in the order operations go through, so that an operation being dispatched is always seen
+    return opQueue.isEmpty() && dispatchingOperations.get() == 0 && runningTasks.isEmpty();
+  }
+
+  /**
+   * Returns the maximum number of operations which can run at the same time, each on its own thread.
+   *
+   * @return the maximum number of operations which can run at the same time
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return maxConcurrentOperations;
+  }
+}
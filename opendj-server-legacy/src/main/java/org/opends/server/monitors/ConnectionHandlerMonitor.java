@@ -22,20 +22,24 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
 
+import org.forgerock.opendj.reactive.LDAPConnectionHandler2;
 import org.forgerock.opendj.server.config.server.ConnectionHandlerCfg;
 import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
 import org.opends.server.api.ClientConnection;
 import org.opends.server.api.ConnectionHandler;
 import org.opends.server.api.MonitorData;
 import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.AdaptiveWorkQueueStrategy;
 import org.opends.server.core.DirectoryServer;
+import org.opends.server.protocols.ldap.LDAPConnectionHandler;
 import org.opends.server.types.HostPort;
 import org.forgerock.opendj.ldap.schema.ObjectClass;
 
 /**
  * This class implements a monitor provider that will report generic information
  * for an enabled Directory Server connection handler, including its protocol,
- * listeners, and established connections.
+ * listeners, established connections and, for LDAP connection handlers using
+ * it, the adaptive concurrency limit.
  */
 public class ConnectionHandlerMonitor
        extends MonitorProvider<MonitorProviderCfg>
@@ -102,7 +106,7 @@ public class ConnectionHandlerMonitor
     LinkedList<ClientConnection> conns = new LinkedList<>(connectionHandler.getClientConnections());
     LinkedList<HostPort> listeners = new LinkedList<>(connectionHandler.getListeners());
 
-    final MonitorData attrs = new MonitorData(5);
+    final MonitorData attrs = new MonitorData(7);
     attrs.add(ATTR_MONITOR_CONFIG_DN, connectionHandler.getComponentEntryDN());
     attrs.add(ATTR_MONITOR_CONNHANDLER_PROTOCOL, connectionHandler.getProtocol());
 
@@ -122,6 +126,32 @@ public class ConnectionHandlerMonitor
       attrs.add(ATTR_MONITOR_CONNHANDLER_CONNECTION, connectionSummaries);
     }
 
+    AdaptiveWorkQueueStrategy strategy = null;
+    if (connectionHandler instanceof LDAPConnectionHandler)
+    {
+      strategy = ((LDAPConnectionHandler) connectionHandler).getAdaptiveQueueingStrategy();
+    }
+    else if (connectionHandler instanceof LDAPConnectionHandler2)
+    {
+      strategy = ((LDAPConnectionHandler2) connectionHandler).getAdaptiveQueueingStrategy();
+    }
+    if (strategy != null)
+    {
+      attrs.add(ATTR_MONITOR_CONNHANDLER_CONCURRENCY_LIMIT, strategy.getLimit());
+      attrs.add(ATTR_MONITOR_CONNHANDLER_CONCURRENCY_REJECTIONS, strategy.getRejectedOperations());
+    }
+
+    if (connectionHandler instanceof LDAPConnectionHandler)
+    {
+      LDAPConnectionHandler ldapConnectionHandler = (LDAPConnectionHandler) connectionHandler;
+      if (ldapConnectionHandler.isEncodedEntryCacheEnabled())
+      {
+        attrs.add(ATTR_MONITOR_CONNHANDLER_ENCODED_ENTRY_CACHE_HITS, ldapConnectionHandler.getEncodedEntryCacheHits());
+        attrs.add(ATTR_MONITOR_CONNHANDLER_ENCODED_ENTRY_CACHE_MISSES,
+            ldapConnectionHandler.getEncodedEntryCacheMisses());
+      }
+    }
+
     return attrs;
   }
 }
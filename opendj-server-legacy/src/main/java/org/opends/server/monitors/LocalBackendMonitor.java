@@ -95,6 +95,7 @@ public class LocalBackendMonitor
     attrs.add(ATTR_MONITOR_BACKEND_ENTRY_COUNT, backend.getEntryCount());
     attrs.add(ATTR_MONITOR_BASE_DN_ENTRY_COUNT, getBackendEntryCounts(baseDNs));
     attrs.add(ATTR_MONITOR_BACKEND_WRITABILITY_MODE, backend.getWritabilityMode());
+    backend.addBackendMonitorData(attrs);
     return attrs;
   }
 
@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.monitors;
+
+import static org.opends.server.monitors.TraditionalWorkQueueMonitor.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorData;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.PriorityWorkQueue;
+import org.opends.server.extensions.PriorityWorkQueue.LaneStatistics;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the priority work queue. Along with the
+ * statistics of the traditional work queue monitor, it provides the backlog
+ * and the wait time of each lane, in attributes prefixed with the name of the
+ * lane, such as {@code bindRequestBacklog}.
+ */
+public class PriorityWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The suffix of the monitor attributes that provide the weight of each lane. */
+  public static final String ATTR_LANE_WEIGHT = "Weight";
+  /** The suffix of the monitor attributes that provide the current request backlog of each lane. */
+  public static final String ATTR_LANE_BACKLOG = "RequestBacklog";
+  /** The suffix of the monitor attributes that provide the maximum request backlog of each lane. */
+  public static final String ATTR_LANE_MAX_BACKLOG = "MaxRequestBacklog";
+  /** The suffix of the monitor attributes that provide the number of operations submitted to each lane. */
+  public static final String ATTR_LANE_OPS_SUBMITTED = "RequestsSubmitted";
+  /** The suffix of the monitor attributes that provide the average wait time in milliseconds of each lane. */
+  public static final String ATTR_LANE_AVERAGE_WAIT_TIME = "AverageWaitTime";
+  /** The suffix of the monitor attributes that provide the maximum wait time in milliseconds of each lane. */
+  public static final String ATTR_LANE_MAX_WAIT_TIME = "MaxWaitTime";
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The work queue instance with which this monitor is associated. */
+  private final PriorityWorkQueue workQueue;
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public PriorityWorkQueueMonitor(PriorityWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public synchronized void run()
+  {
+    pollBacklog();
+  }
+
+  private int pollBacklog()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    return backlog;
+  }
+
+  @Override
+  public synchronized MonitorData getMonitorData()
+  {
+    int backlog = pollBacklog();
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+    final List<LaneStatistics> lanes = workQueue.getLaneStatistics();
+
+    final MonitorData monitorAttrs = new MonitorData(5 + 6 * lanes.size());
+    monitorAttrs.add(ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(ATTR_OPS_REJECTED_QUEUE_FULL, workQueue.getOpsRejectedDueToQueueFull());
+    for (LaneStatistics lane : lanes)
+    {
+      final String prefix = toLowerCase(lane.getLane().name());
+      monitorAttrs.add(prefix + ATTR_LANE_WEIGHT, lane.getWeight());
+      monitorAttrs.add(prefix + ATTR_LANE_BACKLOG, lane.getBacklog());
+      monitorAttrs.add(prefix + ATTR_LANE_MAX_BACKLOG, lane.getMaxBacklog());
+      monitorAttrs.add(prefix + ATTR_LANE_OPS_SUBMITTED, lane.getSubmitted());
+      monitorAttrs.add(prefix + ATTR_LANE_AVERAGE_WAIT_TIME, lane.getAverageWaitTime(TimeUnit.MILLISECONDS));
+      monitorAttrs.add(prefix + ATTR_LANE_MAX_WAIT_TIME, lane.getMaxWaitTime(TimeUnit.MILLISECONDS));
+    }
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Writes the encoded responses of a client connection, coalescing the
+ * responses which can be deferred, such as the entries of a search, so that
+ * they are written to the client with one write, and one TLS record, per
+ * buffer rather than per response.
+ * <p>
+ * Deferred responses are accumulated in a buffer borrowed from a pool shared by
+ * all the connections. The buffer is written when its size reaches the flush
+ * threshold, along with the next response which cannot be deferred, such as
+ * the search result done, or when its oldest response has waited for
+ * {@link #MAX_DELAY_MILLIS}, whether or not another response is written: a
+ * scheduled flush then writes the responses of slow or abandoned searches and
+ * gives the buffer back to the pool, so that idle connections hold no buffer.
+ * The scheduler only hands the scheduled flushes over to an executor, because
+ * the write of a flush may block on a slow client, which must not delay the
+ * flushes of the other connections.
+ * Writes block while the client does not read: the threads writing responses
+ * then wait for the buffer, which bounds the memory used by a slow client to
+ * the flush threshold plus one response.
+ * <p>
+ * This class is thread safe: the responses of all the operations of a
+ * connection are written in the order in which they are submitted.
+ */
+final class CoalescingResponseWriter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum time a deferred response waits for other responses before being written. */
+  static final long MAX_DELAY_MILLIS = 10;
+
+  /** The buffers of the connections which are not accumulating responses. */
+  private static final BlockingQueue<ByteStringBuilder> BUFFER_POOL =
+      new ArrayBlockingQueue<>(4 * Runtime.getRuntime().availableProcessors());
+
+  private final WritableByteChannel channel;
+  private final int flushThreshold;
+  private final ScheduledExecutorService scheduler;
+  private final Executor flushExecutor;
+  /** Guards the deferred responses, and serializes the writes to the channel. */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** The deferred responses, {@code null} outside of a burst of deferred responses. Guarded by lock. */
+  private ByteStringBuilder pending;
+  /** The time at which the oldest deferred response was submitted. Guarded by lock. */
+  private long pendingSince;
+  /** Whether a flush of the deferred responses is scheduled. Guarded by lock. */
+  private boolean flushScheduled;
+  /** Run by the scheduler, which must never block: the write is left to the flush executor. */
+  private final Runnable scheduledFlush = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      try
+      {
+        flushExecutor.execute(flushTask);
+      }
+      catch (RejectedExecutionException e)
+      {
+        // The connection handler is shutting down, and closes the connections
+        logger.traceException(e);
+      }
+    }
+  };
+  private final Runnable flushTask = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      flushOldResponses();
+    }
+  };
+
+  /**
+   * Creates a writer of responses.
+   *
+   * @param channel
+   *          the channel to which the responses are written
+   * @param flushThreshold
+   *          the size in bytes of the deferred responses triggering a write
+   * @param scheduler
+   *          the scheduler of the flushes of the deferred responses which are
+   *          not followed by other responses in time
+   * @param flushExecutor
+   *          the executor writing the scheduled flushes, whose threads may
+   *          block on slow clients
+   */
+  CoalescingResponseWriter(WritableByteChannel channel, int flushThreshold, ScheduledExecutorService scheduler,
+      Executor flushExecutor)
+  {
+    this.channel = channel;
+    this.flushThreshold = flushThreshold;
+    this.scheduler = scheduler;
+    this.flushExecutor = flushExecutor;
+  }
+
+  /**
+   * Writes an encoded response, or defers it.
+   *
+   * @param response
+   *          the encoded response, which is copied if deferred
+   * @param canBeDeferred
+   *          whether the response can wait for other responses before being
+   *          written, for at most {@link #MAX_DELAY_MILLIS}
+   * @throws IOException
+   *           if the response, or the responses deferred before it, cannot be
+   *           written
+   */
+  void write(ByteStringBuilder response, boolean canBeDeferred) throws IOException
+  {
+    lock.lock();
+    try
+    {
+      if (pending == null || pending.length() == 0)
+      {
+        if (!canBeDeferred || response.length() >= flushThreshold)
+        {
+          // Nothing to coalesce the response with
+          if (!canBeDeferred && pending != null)
+          {
+            releaseBuffer(pending);
+            pending = null;
+          }
+          response.copyTo(channel);
+          return;
+        }
+        if (pending == null)
+        {
+          pending = borrowBuffer();
+        }
+        pendingSince = System.currentTimeMillis();
+        scheduleFlush(MAX_DELAY_MILLIS);
+      }
+
+      pending.appendBytes(response);
+      if (!canBeDeferred)
+      {
+        // The burst of deferred responses is over: give the buffer back
+        flushPending(true);
+      }
+      else if (pending.length() >= flushThreshold || System.currentTimeMillis() - pendingSince >= MAX_DELAY_MILLIS)
+      {
+        flushPending(false);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the size of the deferred responses.
+   *
+   * @return the size in bytes of the deferred responses
+   */
+  int getPendingBytes()
+  {
+    lock.lock();
+    try
+    {
+      return pending != null ? pending.length() : 0;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Indicates whether this writer holds a buffer borrowed from the pool.
+   *
+   * @return {@code true} if this writer holds a buffer
+   */
+  boolean holdsBuffer()
+  {
+    lock.lock();
+    try
+    {
+      return pending != null;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private void scheduleFlush(long delayMillis)
+  {
+    if (!flushScheduled)
+    {
+      try
+      {
+        scheduler.schedule(scheduledFlush, delayMillis, TimeUnit.MILLISECONDS);
+        flushScheduled = true;
+      }
+      catch (RejectedExecutionException e)
+      {
+        // The connection handler is shutting down, and closes the connections
+        logger.traceException(e);
+      }
+    }
+  }
+
+  /** Writes the deferred responses which have waited for too long, and gives the buffer back. */
+  private void flushOldResponses()
+  {
+    // Do not wait for a thread blocked writing to a slow client, it writes the deferred responses
+    if (!lock.tryLock())
+    {
+      scheduleRetry();
+      return;
+    }
+    try
+    {
+      flushScheduled = false;
+      if (pending == null)
+      {
+        return;
+      }
+      if (pending.length() == 0)
+      {
+        // The burst of deferred responses paused after a flush
+        releaseBuffer(pending);
+        pending = null;
+        return;
+      }
+      final long age = System.currentTimeMillis() - pendingSince;
+      if (age < MAX_DELAY_MILLIS)
+      {
+        // The responses have been deferred after the buffer was last written
+        scheduleFlush(MAX_DELAY_MILLIS - age);
+      }
+      else
+      {
+        flushPending(true);
+      }
+    }
+    catch (IOException e)
+    {
+      // No thread can report the error: close the channel so that the connection notices it
+      logger.traceException(e);
+      close(channel);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private void scheduleRetry()
+  {
+    try
+    {
+      scheduler.schedule(scheduledFlush, MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    catch (RejectedExecutionException e)
+    {
+      logger.traceException(e);
+    }
+  }
+
+  private void flushPending(boolean releaseBuffer) throws IOException
+  {
+    boolean written = false;
+    try
+    {
+      pending.copyTo(channel);
+      written = true;
+    }
+    finally
+    {
+      if (releaseBuffer || !written)
+      {
+        // Do not keep half written responses: the connection is closed on failures
+        releaseBuffer(pending);
+        pending = null;
+      }
+      else
+      {
+        // More deferred responses are expected: keep the buffer
+        pending.clear();
+      }
+    }
+  }
+
+  private ByteStringBuilder borrowBuffer()
+  {
+    final ByteStringBuilder buffer = BUFFER_POOL.poll();
+    return buffer != null ? buffer : new ByteStringBuilder(flushThreshold);
+  }
+
+  private void releaseBuffer(ByteStringBuilder buffer)
+  {
+    // Do not pool the buffers grown by a large response
+    buffer.clearAndTruncate(2 * flushThreshold, flushThreshold);
+    BUFFER_POOL.offer(buffer);
+  }
+}
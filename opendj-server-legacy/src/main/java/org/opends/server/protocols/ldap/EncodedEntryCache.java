@@ -0,0 +1,705 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.opends.server.util.CollectionUtils.*;
+import static org.opends.server.util.ServerConstants.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.opends.server.api.LocalBackend;
+import org.opends.server.api.LocalBackendInitializationListener;
+import org.opends.server.api.plugin.InternalDirectoryServerPlugin;
+import org.opends.server.api.plugin.PluginResult;
+import org.opends.server.api.plugin.PluginResult.PostOperation;
+import org.opends.server.api.plugin.PluginResult.PostResponse;
+import org.opends.server.api.plugin.PluginResult.PreParse;
+import org.opends.server.api.plugin.PluginType;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Control;
+import org.opends.server.types.SearchResultEntry;
+import org.opends.server.types.operation.PluginOperation;
+import org.opends.server.types.operation.PostOperationAddOperation;
+import org.opends.server.types.operation.PostOperationDeleteOperation;
+import org.opends.server.types.operation.PostOperationModifyDNOperation;
+import org.opends.server.types.operation.PostOperationModifyOperation;
+import org.opends.server.types.operation.PostResponseAddOperation;
+import org.opends.server.types.operation.PostResponseDeleteOperation;
+import org.opends.server.types.operation.PostResponseModifyDNOperation;
+import org.opends.server.types.operation.PostResponseModifyOperation;
+import org.opends.server.types.operation.PostSynchronizationAddOperation;
+import org.opends.server.types.operation.PostSynchronizationDeleteOperation;
+import org.opends.server.types.operation.PostSynchronizationModifyDNOperation;
+import org.opends.server.types.operation.PostSynchronizationModifyOperation;
+import org.opends.server.types.operation.PreParseAddOperation;
+import org.opends.server.types.operation.PreParseDeleteOperation;
+import org.opends.server.types.operation.PreParseModifyDNOperation;
+import org.opends.server.types.operation.PreParseModifyOperation;
+
+/**
+ * A cache of the encoded DN and attributes of the entries returned by the
+ * searches of an LDAP connection handler, so that an entry returned again with
+ * the same attributes is copied to the client instead of being encoded again.
+ * <p>
+ * An entry is cached for each list of returned attribute descriptions, which
+ * captures the requested attributes as well as the attributes filtered out by
+ * access control. Entries including virtual attributes, whose values do not
+ * change with the entry, and entries of private backends, such as the monitor
+ * or the configuration, are not cached. Neither are the entries returned to a
+ * search with a request control which may change their content, such as the
+ * matched values or the get effective rights controls: only the controls known
+ * to leave the entries unchanged are allowed.
+ * <p>
+ * The entries are discarded when they are added, deleted or modified, locally
+ * or by replication, and the whole cache is cleared when an entry is renamed or
+ * a backend is finalized. An entry is neither cached nor returned from the
+ * cache while a change of the entry is in progress, from the parsing of the
+ * change until its response, so that no search returns the encoding of an
+ * entry which has been changed in the backend but not yet discarded from the
+ * cache. An entry is only cached by a search which started after the last
+ * change, so that a search which read an entry before a change cannot cache it
+ * after the change. The oldest entries are evicted first when the cache
+ * exceeds its maximum size.
+ */
+final class EncodedEntryCache implements LocalBackendInitializationListener
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of attribute lists for which an entry is cached. */
+  private static final int MAX_VARIANTS_PER_ENTRY = 4;
+  /** The estimated memory used by a cached entry in addition to its encoded bytes. */
+  private static final int VARIANT_OVERHEAD = 64;
+  /** The OIDs of the search request controls which do not change the content of the returned entries. */
+  private static final Set<String> CACHEABLE_CONTROLS = newHashSet(
+      OID_LDAP_ASSERTION, OID_LDAP_SUBENTRIES, OID_MANAGE_DSAIT_CONTROL, OID_PAGED_RESULTS_CONTROL,
+      OID_PERSISTENT_SEARCH, OID_PROXIED_AUTH_V1, OID_PROXIED_AUTH_V2, OID_REAL_ATTRS_ONLY,
+      OID_SERVER_SIDE_SORT_REQUEST_CONTROL, OID_VLV_REQUEST_CONTROL);
+
+  /** The encoding of an entry for a list of returned attributes. */
+  private static final class Variant
+  {
+    private final List<String> attributes;
+    private final boolean typesOnly;
+    private final ByteString content;
+
+    private Variant(List<String> attributes, boolean typesOnly, ByteString content)
+    {
+      this.attributes = attributes;
+      this.typesOnly = typesOnly;
+      this.content = content;
+    }
+
+    private boolean matches(List<String> attributes, boolean typesOnly)
+    {
+      return this.typesOnly == typesOnly && this.attributes.equals(attributes);
+    }
+
+    private long size()
+    {
+      return content.length() + VARIANT_OVERHEAD;
+    }
+  }
+
+  /** The encodings of an entry. Immutable. */
+  private static final class CachedEntry
+  {
+    private final Variant[] variants;
+    private final long size;
+
+    private CachedEntry(Variant... variants)
+    {
+      this.variants = variants;
+      long total = 0;
+      for (Variant variant : variants)
+      {
+        total += variant.size();
+      }
+      this.size = total;
+    }
+
+    private ByteString get(List<String> attributes, boolean typesOnly)
+    {
+      for (Variant variant : variants)
+      {
+        if (variant.matches(attributes, typesOnly))
+        {
+          return variant.content;
+        }
+      }
+      return null;
+    }
+
+    /** Returns a copy of this entry with the provided variant, replacing the oldest one if needed. */
+    private CachedEntry with(Variant newVariant)
+    {
+      final List<Variant> newVariants = new ArrayList<>(variants.length + 1);
+      for (Variant variant : variants)
+      {
+        if (!variant.matches(newVariant.attributes, newVariant.typesOnly))
+        {
+          newVariants.add(variant);
+        }
+      }
+      newVariants.add(newVariant);
+      if (newVariants.size() > MAX_VARIANTS_PER_ENTRY)
+      {
+        newVariants.remove(0);
+      }
+      return new CachedEntry(newVariants.toArray(new Variant[newVariants.size()]));
+    }
+  }
+
+  /** Discards the cached entries changed by an operation. */
+  private final class InvalidationPlugin extends InternalDirectoryServerPlugin
+  {
+    /** The name of the attachment holding the DN of the entry changed by an operation. */
+    private final String changedEntryAttachment;
+
+    private InvalidationPlugin(DN configurationDN)
+    {
+      super(configurationDN, EnumSet.of(
+          PluginType.PRE_PARSE_ADD,
+          PluginType.PRE_PARSE_DELETE,
+          PluginType.PRE_PARSE_MODIFY,
+          PluginType.PRE_PARSE_MODIFY_DN,
+          PluginType.POST_RESPONSE_ADD,
+          PluginType.POST_RESPONSE_DELETE,
+          PluginType.POST_RESPONSE_MODIFY,
+          PluginType.POST_RESPONSE_MODIFY_DN,
+          PluginType.POST_SYNCHRONIZATION_ADD,
+          PluginType.POST_SYNCHRONIZATION_DELETE,
+          PluginType.POST_SYNCHRONIZATION_MODIFY,
+          PluginType.POST_SYNCHRONIZATION_MODIFY_DN,
+          PluginType.POST_OPERATION_ADD,
+          PluginType.POST_OPERATION_DELETE,
+          PluginType.POST_OPERATION_MODIFY,
+          PluginType.POST_OPERATION_MODIFY_DN), true);
+      changedEntryAttachment = EncodedEntryCache.class.getName() + "." + configurationDN;
+    }
+
+    @Override
+    public PreParse doPreParse(PreParseAddOperation addOperation)
+    {
+      beginChange(addOperation, addOperation.getRawEntryDN());
+      return PluginResult.PreParse.continueOperationProcessing();
+    }
+
+    @Override
+    public PreParse doPreParse(PreParseDeleteOperation deleteOperation)
+    {
+      beginChange(deleteOperation, deleteOperation.getRawEntryDN());
+      return PluginResult.PreParse.continueOperationProcessing();
+    }
+
+    @Override
+    public PreParse doPreParse(PreParseModifyOperation modifyOperation)
+    {
+      beginChange(modifyOperation, modifyOperation.getRawEntryDN());
+      return PluginResult.PreParse.continueOperationProcessing();
+    }
+
+    @Override
+    public PreParse doPreParse(PreParseModifyDNOperation modifyDNOperation)
+    {
+      beginChange(modifyDNOperation, modifyDNOperation.getRawEntryDN());
+      return PluginResult.PreParse.continueOperationProcessing();
+    }
+
+    private void beginChange(PluginOperation operation, ByteString rawEntryDN)
+    {
+      try
+      {
+        final DN dn = DN.valueOf(rawEntryDN);
+        EncodedEntryCache.this.beginChange(dn);
+        operation.setAttachment(changedEntryAttachment, dn);
+      }
+      catch (LocalizedIllegalArgumentException e)
+      {
+        // The operation fails without changing any entry
+        logger.traceException(e);
+      }
+    }
+
+    @Override
+    public PostResponse doPostResponse(PostResponseAddOperation addOperation)
+    {
+      endChange(addOperation);
+      return PluginResult.PostResponse.continueOperationProcessing();
+    }
+
+    @Override
+    public PostResponse doPostResponse(PostResponseDeleteOperation deleteOperation)
+    {
+      endChange(deleteOperation);
+      return PluginResult.PostResponse.continueOperationProcessing();
+    }
+
+    @Override
+    public PostResponse doPostResponse(PostResponseModifyOperation modifyOperation)
+    {
+      endChange(modifyOperation);
+      return PluginResult.PostResponse.continueOperationProcessing();
+    }
+
+    @Override
+    public PostResponse doPostResponse(PostResponseModifyDNOperation modifyDNOperation)
+    {
+      endChange(modifyDNOperation);
+      return PluginResult.PostResponse.continueOperationProcessing();
+    }
+
+    private void endChange(PluginOperation operation)
+    {
+      // The post-response plugins are invoked even if the pre-parse plugins were not
+      final DN dn = operation.removeAttachment(changedEntryAttachment);
+      if (dn != null)
+      {
+        EncodedEntryCache.this.endChange(dn);
+      }
+    }
+
+    @Override
+    public void doPostSynchronization(PostSynchronizationAddOperation addOperation)
+    {
+      invalidate(addOperation.getEntryDN());
+    }
+
+    @Override
+    public void doPostSynchronization(PostSynchronizationDeleteOperation deleteOperation)
+    {
+      invalidate(deleteOperation.getEntryDN());
+    }
+
+    @Override
+    public void doPostSynchronization(PostSynchronizationModifyOperation modifyOperation)
+    {
+      invalidate(modifyOperation.getEntryDN());
+    }
+
+    @Override
+    public void doPostSynchronization(PostSynchronizationModifyDNOperation modifyDNOperation)
+    {
+      // The DN of the whole subtree has changed
+      clear();
+    }
+
+    @Override
+    public PostOperation doPostOperation(PostOperationAddOperation addOperation)
+    {
+      // Failed operations are not worth distinguishing: invalidate anyway
+      invalidate(addOperation.getEntryDN());
+      return PluginResult.PostOperation.continueOperationProcessing();
+    }
+
+    @Override
+    public PostOperation doPostOperation(PostOperationDeleteOperation deleteOperation)
+    {
+      invalidate(deleteOperation.getEntryDN());
+      return PluginResult.PostOperation.continueOperationProcessing();
+    }
+
+    @Override
+    public PostOperation doPostOperation(PostOperationModifyOperation modifyOperation)
+    {
+      invalidate(modifyOperation.getEntryDN());
+      return PluginResult.PostOperation.continueOperationProcessing();
+    }
+
+    @Override
+    public PostOperation doPostOperation(PostOperationModifyDNOperation modifyDNOperation)
+    {
+      clear();
+      return PluginResult.PostOperation.continueOperationProcessing();
+    }
+  }
+
+  private final ServerContext serverContext;
+  private final long maxSize;
+  private final InvalidationPlugin plugin;
+
+  /** The cached entries, read without locking. */
+  private final Map<DN, CachedEntry> entries = new ConcurrentHashMap<>();
+  /** The number of changes in progress for each entry, read without locking. Written while holding this. */
+  private final Map<DN, Integer> changesInProgress = new ConcurrentHashMap<>();
+  /** The cached entries in insertion order, for eviction. Guarded by this. */
+  private final LinkedHashSet<DN> insertionOrder = new LinkedHashSet<>();
+  /** The total size of the cached entries. Guarded by this. */
+  private long size;
+  /** The time of the last change which discarded entries from the cache. */
+  private volatile long lastInvalidationTime;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates an empty cache, which must be registered before it is used.
+   *
+   * @param serverContext
+   *          the server context
+   * @param configurationDN
+   *          the DN of the configuration of the connection handler owning this cache
+   * @param maxSize
+   *          the maximum size in bytes of the cached entries
+   */
+  EncodedEntryCache(ServerContext serverContext, DN configurationDN, long maxSize)
+  {
+    this.serverContext = serverContext;
+    this.maxSize = maxSize;
+    this.plugin = new InvalidationPlugin(configurationDN);
+  }
+
+  /** Starts listening to the changes discarding cached entries. */
+  void register()
+  {
+    DirectoryServer.registerInternalPlugin(plugin);
+    serverContext.getBackendConfigManager().registerLocalBackendInitializationListener(this);
+  }
+
+  /** Stops listening to the changes, and empties the cache. */
+  void deregister()
+  {
+    DirectoryServer.deregisterInternalPlugin(plugin);
+    serverContext.getBackendConfigManager().deregisterLocalBackendInitializationListener(this);
+    clear();
+  }
+
+  /**
+   * Returns the LDAPv3 protocol op of a search result entry, reusing the encoding of a
+   * previous search returning the same entry with the same attributes if any.
+   *
+   * @param searchOperation
+   *          the search operation returning the entry
+   * @param searchEntry
+   *          the search result entry
+   * @return the search result entry protocol op
+   */
+  SearchResultEntryProtocolOp toProtocolOp(SearchOperation searchOperation, SearchResultEntry searchEntry)
+  {
+    final DN dn = searchEntry.getName();
+    final List<String> attributes = getAttributeDescriptions(searchEntry);
+    if (attributes == null || !hasOnlyCacheableControls(searchOperation) || !isInPublicBackend(dn))
+    {
+      return new SearchResultEntryProtocolOp(searchEntry, 3);
+    }
+
+    final boolean typesOnly = searchOperation.getTypesOnly();
+    ByteString content = get(dn, attributes, typesOnly);
+    if (content != null)
+    {
+      hits.incrementAndGet();
+      return new SearchResultEntryProtocolOp(searchEntry, content);
+    }
+
+    misses.incrementAndGet();
+    try
+    {
+      content = SearchResultEntryProtocolOp.encodeContent(searchEntry);
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      return new SearchResultEntryProtocolOp(searchEntry, 3);
+    }
+    put(dn, attributes, typesOnly, content, searchOperation.getProcessingStartTime());
+    return new SearchResultEntryProtocolOp(searchEntry, content);
+  }
+
+  /** Returns whether none of the request controls of the search may change the content of the returned entries. */
+  private static boolean hasOnlyCacheableControls(SearchOperation searchOperation)
+  {
+    for (Control control : searchOperation.getRequestControls())
+    {
+      if (!CACHEABLE_CONTROLS.contains(control.getOID()))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the descriptions of the attributes of a search result entry, in the order in which
+   * they are encoded.
+   *
+   * @return the descriptions of the attributes, or {@code null} if the entry has virtual attributes
+   */
+  private static List<String> getAttributeDescriptions(SearchResultEntry searchEntry)
+  {
+    final List<String> attributes = new ArrayList<>();
+    for (Map<AttributeType, List<Attribute>> attributeMap : Arrays.asList(
+        searchEntry.getUserAttributes(), searchEntry.getOperationalAttributes()))
+    {
+      for (List<Attribute> attrList : attributeMap.values())
+      {
+        for (Attribute a : attrList)
+        {
+          if (a.isVirtual())
+          {
+            return null;
+          }
+          attributes.add(a.getAttributeDescription().toString());
+        }
+      }
+    }
+    return attributes;
+  }
+
+  private boolean isInPublicBackend(DN dn)
+  {
+    final LocalBackend<?> backend = serverContext.getBackendConfigManager().findLocalBackendForEntry(dn);
+    return backend != null && !backend.isPrivateBackend();
+  }
+
+  /**
+   * Returns the encoding of an entry for a list of returned attributes.
+   *
+   * @param dn
+   *          the DN of the entry
+   * @param attributes
+   *          the descriptions of the returned attributes
+   * @param typesOnly
+   *          whether the values of the attributes are returned
+   * @return the encoded DN and attributes of the entry, or {@code null} if not cached
+   */
+  ByteString get(DN dn, List<String> attributes, boolean typesOnly)
+  {
+    if (changesInProgress.containsKey(dn))
+    {
+      // The backend may already hold the new entry
+      return null;
+    }
+    final CachedEntry entry = entries.get(dn);
+    return entry != null ? entry.get(attributes, typesOnly) : null;
+  }
+
+  /**
+   * Caches the encoding of an entry for a list of returned attributes, unless the entry has
+   * changed since the operation which read it started, or is being changed.
+   *
+   * @param dn
+   *          the DN of the entry
+   * @param attributes
+   *          the descriptions of the returned attributes
+   * @param typesOnly
+   *          whether the values of the attributes are returned
+   * @param content
+   *          the encoded DN and attributes of the entry
+   * @param operationStartTime
+   *          the time at which the operation which read the entry started
+   */
+  void put(DN dn, List<String> attributes, boolean typesOnly, ByteString content, long operationStartTime)
+  {
+    if (operationStartTime <= lastInvalidationTime)
+    {
+      return;
+    }
+    final Variant variant = new Variant(attributes, typesOnly, content);
+    if (variant.size() > maxSize)
+    {
+      return;
+    }
+
+    synchronized (this)
+    {
+      if (changesInProgress.containsKey(dn))
+      {
+        return;
+      }
+      final CachedEntry oldEntry = entries.get(dn);
+      final CachedEntry newEntry = oldEntry != null ? oldEntry.with(variant) : new CachedEntry(variant);
+      entries.put(dn, newEntry);
+      insertionOrder.add(dn);
+      size += newEntry.size - (oldEntry != null ? oldEntry.size : 0);
+      evict();
+    }
+
+    if (operationStartTime <= lastInvalidationTime)
+    {
+      // The entry may have changed while it was being cached
+      invalidate(dn);
+    }
+  }
+
+  private void evict()
+  {
+    final Iterator<DN> it = insertionOrder.iterator();
+    while (size > maxSize && it.hasNext())
+    {
+      final CachedEntry evicted = entries.remove(it.next());
+      it.remove();
+      if (evicted != null)
+      {
+        size -= evicted.size;
+      }
+    }
+  }
+
+  /**
+   * Discards the encodings of an entry.
+   *
+   * @param dn
+   *          the DN of the entry
+   */
+  void invalidate(DN dn)
+  {
+    lastInvalidationTime = System.currentTimeMillis();
+    synchronized (this)
+    {
+      final CachedEntry entry = entries.remove(dn);
+      insertionOrder.remove(dn);
+      if (entry != null)
+      {
+        size -= entry.size;
+      }
+    }
+  }
+
+  /**
+   * Discards the encodings of an entry which is about to be changed, and stops caching it until
+   * the change is over.
+   *
+   * @param dn
+   *          the DN of the entry
+   */
+  void beginChange(DN dn)
+  {
+    synchronized (this)
+    {
+      final Integer count = changesInProgress.get(dn);
+      changesInProgress.put(dn, count != null ? count + 1 : 1);
+    }
+    invalidate(dn);
+  }
+
+  /**
+   * Discards the encodings of an entry which has been changed, and caches it again once no
+   * other change of the entry is in progress.
+   *
+   * @param dn
+   *          the DN of the entry
+   */
+  void endChange(DN dn)
+  {
+    synchronized (this)
+    {
+      final Integer count = changesInProgress.get(dn);
+      if (count == null || count <= 1)
+      {
+        changesInProgress.remove(dn);
+      }
+      else
+      {
+        changesInProgress.put(dn, count - 1);
+      }
+    }
+    invalidate(dn);
+  }
+
+  /** Discards all the cached entries. */
+  void clear()
+  {
+    lastInvalidationTime = System.currentTimeMillis();
+    synchronized (this)
+    {
+      entries.clear();
+      insertionOrder.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Returns the maximum size of the cached entries.
+   *
+   * @return the maximum size in bytes of the cached entries
+   */
+  long getMaxSize()
+  {
+    return maxSize;
+  }
+
+  /**
+   * Returns the total size of the cached entries.
+   *
+   * @return the total size in bytes of the cached entries
+   */
+  synchronized long getSize()
+  {
+    return size;
+  }
+
+  /**
+   * Returns the number of search result entries whose encoding was found in the cache.
+   *
+   * @return the number of cache hits
+   */
+  long getHits()
+  {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of search result entries which had to be encoded.
+   *
+   * @return the number of cache misses
+   */
+  long getMisses()
+  {
+    return misses.get();
+  }
+
+  @Override
+  public void performBackendPreInitializationProcessing(LocalBackend<?> backend)
+  {
+    // Nothing to do.
+  }
+
+  @Override
+  public void performBackendPostInitializationProcessing(LocalBackend<?> backend)
+  {
+    // Nothing to do.
+  }
+
+  @Override
+  public void performBackendPreFinalizationProcessing(LocalBackend<?> backend)
+  {
+    // Nothing to do.
+  }
+
+  @Override
+  public void performBackendPostFinalizationProcessing(LocalBackend<?> backend)
+  {
+    // The backend content may be replaced, by an import for instance
+    clear();
+  }
+}
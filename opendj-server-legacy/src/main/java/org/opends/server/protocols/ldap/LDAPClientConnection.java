@@ -423,6 +423,8 @@ public final class LDAPClientConnection extends ClientConnection implements
   private final int bufferSize;
   private final RedirectingByteChannel saslChannel;
   private final RedirectingByteChannel tlsChannel;
+  /** Writes the responses to the client, coalescing the entries of the searches. */
+  private final CoalescingResponseWriter responseWriter;
   private volatile ConnectionSecurityProvider saslActiveProvider;
   private volatile ConnectionSecurityProvider tlsActiveProvider;
   private volatile ConnectionSecurityProvider saslPendingProvider;
@@ -479,6 +481,8 @@ public final class LDAPClientConnection extends ClientConnection implements
     tlsChannel = RedirectingByteChannel.getRedirectingByteChannel(timeoutClientChannel);
     saslChannel = RedirectingByteChannel.getRedirectingByteChannel(tlsChannel);
     this.asn1Reader = new ASN1ByteChannelReader(saslChannel, bufferSize, connectionHandler.getMaxRequestSize());
+    responseWriter = new CoalescingResponseWriter(saslChannel, bufferSize, connectionHandler.getResponseFlusher(),
+        connectionHandler.getResponseFlushExecutor());
 
     if (connectionHandler.useSSL())
     {
@@ -837,11 +841,15 @@ public final class LDAPClientConnection extends ClientConnection implements
   public void sendSearchEntry(SearchOperation searchOperation,
       SearchResultEntry searchEntry)
   {
-    SearchResultEntryProtocolOp protocolOp =
-        new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
+    final EncodedEntryCache encodedEntryCache = connectionHandler.getEncodedEntryCache();
+    SearchResultEntryProtocolOp protocolOp = encodedEntryCache != null && ldapVersion == 3
+        ? encodedEntryCache.toProtocolOp(searchOperation, searchEntry)
+        : new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
 
+    // Entries can wait for the next ones as long as the search result done
+    // follows, which is not the case of persistent searches.
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchEntry.getControls()));
+        protocolOp, searchEntry.getControls()), searchOperation.isSendResponse());
   }
 
   /**
@@ -876,7 +884,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultReferenceProtocolOp(searchReference);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchReference.getControls()));
+        protocolOp, searchReference.getControls()), searchOperation.isSendResponse());
     return true;
   }
 
@@ -915,13 +923,27 @@ public final class LDAPClientConnection extends ClientConnection implements
    *          The LDAP message to send to the client.
    */
   private void sendLDAPMessage(LDAPMessage message)
+  {
+    sendLDAPMessage(message, false);
+  }
+
+  /**
+   * Sends the provided LDAP message to the client.
+   *
+   * @param message
+   *          The LDAP message to send to the client.
+   * @param canBeDeferred
+   *          Indicates whether the message can be buffered until other
+   *          messages are sent, or for a few milliseconds at most.
+   */
+  private void sendLDAPMessage(LDAPMessage message, boolean canBeDeferred)
   {
     // Use a thread local writer.
     final ASN1WriterHolder holder = getASN1Writer();
     try
     {
       message.write(holder.writer);
-      holder.buffer.copyTo(saslChannel);
+      responseWriter.write(holder.buffer, canBeDeferred);
 
       if (logger.isTraceEnabled())
       {
@@ -26,9 +26,11 @@ import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -47,6 +49,7 @@ import org.forgerock.opendj.server.config.server.ConnectionHandlerCfg;
 import org.forgerock.opendj.server.config.server.LDAPConnectionHandlerCfg;
 import org.opends.server.api.*;
 import org.opends.server.api.plugin.PluginResult;
+import org.opends.server.core.AdaptiveWorkQueueStrategy;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.PluginConfigManager;
 import org.opends.server.core.QueueingStrategy;
@@ -176,6 +179,17 @@ public final class LDAPConnectionHandler extends
   /** Queueing strategy. */
   private final QueueingStrategy queueingStrategy;
 
+  /**
+   * The queueing strategy adapting the concurrency to the latency of the
+   * operations, used instead of the work queue strategy when enabled. Created
+   * on first use, since connection handlers are initialized before the work
+   * queue.
+   */
+  private final AtomicReference<AdaptiveWorkQueueStrategy> adaptiveQueueingStrategy = new AtomicReference<>();
+
+  /** The cache of encoded search result entries, or {@code null} if disabled. */
+  private volatile EncodedEntryCache encodedEntryCache;
+
   /**
    * The condition variable that will be used by the start method to wait for
    * the socket port to be opened and ready to process requests before
@@ -208,6 +222,19 @@ public final class LDAPConnectionHandler extends
   private List<Runnable> connectionFinalizerActiveJobQueue;
   private List<Runnable> connectionFinalizerPendingJobQueue;
 
+  /**
+   * Schedules the writes of the search entries which the connections deferred
+   * for longer than the coalescing delay. It never writes itself, so that a
+   * slow client does not delay the writes of the other connections.
+   */
+  private ScheduledExecutorService responseFlusher;
+  /**
+   * Writes the search entries which the connections deferred for longer than
+   * the coalescing delay. Its threads may block on slow clients, at most one
+   * per connection.
+   */
+  private ExecutorService responseFlushExecutor;
+
   /**
    * Creates a new instance of this LDAP connection handler. It must be
    * initialized before it may be used.
@@ -290,6 +317,11 @@ public final class LDAPConnectionHandler extends
     enabled = config.isEnabled();
     allowedClients = config.getAllowedClient();
     deniedClients = config.getDeniedClient();
+    if (!config.isAdaptiveConcurrencyLimit())
+    {
+      adaptiveQueueingStrategy.set(null);
+    }
+    configureEncodedEntryCache(DirectoryServer.getInstance().getServerContext(), config);
 
     // Reconfigure SSL if needed.
     try
@@ -332,6 +364,28 @@ public final class LDAPConnectionHandler extends
     }
   }
 
+  private void configureEncodedEntryCache(ServerContext serverContext, LDAPConnectionHandlerCfg config)
+  {
+    final EncodedEntryCache oldCache = encodedEntryCache;
+    final long maxSize = config.getEncodedEntryCacheSize();
+    if (oldCache != null && oldCache.getMaxSize() == maxSize)
+    {
+      return;
+    }
+
+    EncodedEntryCache newCache = null;
+    if (maxSize > 0)
+    {
+      newCache = new EncodedEntryCache(serverContext, config.dn(), maxSize);
+      newCache.register();
+    }
+    encodedEntryCache = newCache;
+    if (oldCache != null)
+    {
+      oldCache.deregister();
+    }
+  }
+
   @Override
   public void finalizeConnectionHandler(LocalizableMessage finalizeReason)
   {
@@ -351,6 +405,13 @@ public final class LDAPConnectionHandler extends
     DirectoryServer.deregisterSupportedLDAPVersion(2, this);
     DirectoryServer.deregisterSupportedLDAPVersion(3, this);
 
+    final EncodedEntryCache cache = encodedEntryCache;
+    if (cache != null)
+    {
+      encodedEntryCache = null;
+      cache.deregister();
+    }
+
     try
     {
       selector.wakeup();
@@ -367,6 +428,8 @@ public final class LDAPConnectionHandler extends
 
     // Shutdown the connection finalizer and ensure that any pending
     // unclosed connections are closed.
+    responseFlusher.shutdown();
+    responseFlushExecutor.shutdown();
     synchronized (connectionFinalizerLock)
     {
       connectionFinalizer.shutdown();
@@ -549,6 +612,28 @@ public final class LDAPConnectionHandler extends
     return sslClientAuthPolicy;
   }
 
+  /**
+   * Retrieves the scheduler of the writes of the responses deferred by the
+   * connections of this connection handler.
+   *
+   * @return The scheduler of the writes of the deferred responses.
+   */
+  ScheduledExecutorService getResponseFlusher()
+  {
+    return responseFlusher;
+  }
+
+  /**
+   * Retrieves the executor of the writes of the responses deferred by the
+   * connections of this connection handler.
+   *
+   * @return The executor of the writes of the deferred responses.
+   */
+  ExecutorService getResponseFlushExecutor()
+  {
+    return responseFlushExecutor;
+  }
+
   /**
    * Retrieves the set of statistics maintained by this connection handler.
    *
@@ -651,6 +736,11 @@ public final class LDAPConnectionHandler extends
     connectionFinalizer.scheduleWithFixedDelay(
         new ConnectionFinalizerRunnable(), 100, 100, TimeUnit.MILLISECONDS);
 
+    responseFlusher = Executors.newSingleThreadScheduledExecutor(new DirectoryThread.Factory(
+        "LDAP Response Flusher for connection handler " + toString()));
+    responseFlushExecutor = Executors.newCachedThreadPool(new DirectoryThread.Factory(
+        "LDAP Response Flush Writer for connection handler " + toString()));
+
     // Create and start the request handlers.
     requestHandlers = new LDAPRequestHandler[numRequestHandlers];
     for (int i = 0; i < numRequestHandlers; i++)
@@ -670,6 +760,8 @@ public final class LDAPConnectionHandler extends
       DirectoryServer.registerSupportedLDAPVersion(2, this);
     }
 
+    configureEncodedEntryCache(serverContext, config);
+
     // Create and register monitors.
     statTracker = new LDAPStatistics(handlerName + " Statistics");
     DirectoryServer.registerMonitorProvider(statTracker);
@@ -1208,7 +1300,76 @@ public final class LDAPConnectionHandler extends
    */
   public QueueingStrategy getQueueingStrategy()
   {
-    return queueingStrategy;
+    if (!currentConfig.isAdaptiveConcurrencyLimit() || !(queueingStrategy instanceof WorkQueueStrategy))
+    {
+      return queueingStrategy;
+    }
+    AdaptiveWorkQueueStrategy strategy = adaptiveQueueingStrategy.get();
+    if (strategy == null)
+    {
+      adaptiveQueueingStrategy.compareAndSet(null, new AdaptiveWorkQueueStrategy());
+      strategy = adaptiveQueueingStrategy.get();
+    }
+    return strategy != null ? strategy : queueingStrategy;
+  }
+
+  /**
+   * Get the queueing strategy adapting the concurrency to the latency of the
+   * operations.
+   *
+   * @return The adaptive queueing strategy, or {@code null} if it is disabled
+   *         or has not processed any operation yet.
+   */
+  public AdaptiveWorkQueueStrategy getAdaptiveQueueingStrategy()
+  {
+    return adaptiveQueueingStrategy.get();
+  }
+
+  /**
+   * Get the cache of encoded search result entries.
+   *
+   * @return The cache of encoded search result entries, or {@code null} if
+   *         disabled.
+   */
+  EncodedEntryCache getEncodedEntryCache()
+  {
+    return encodedEntryCache;
+  }
+
+  /**
+   * Indicates whether this connection handler caches the encoded search
+   * result entries.
+   *
+   * @return {@code true} if the encoded search result entries are cached.
+   */
+  public boolean isEncodedEntryCacheEnabled()
+  {
+    return encodedEntryCache != null;
+  }
+
+  /**
+   * Retrieves the number of search result entries whose encoding was found
+   * in the cache since it was last configured.
+   *
+   * @return The number of hits of the encoded entry cache, or 0 if disabled.
+   */
+  public long getEncodedEntryCacheHits()
+  {
+    final EncodedEntryCache cache = encodedEntryCache;
+    return cache != null ? cache.getHits() : 0;
+  }
+
+  /**
+   * Retrieves the number of search result entries which were encoded and
+   * offered to the cache since it was last configured.
+   *
+   * @return The number of misses of the encoded entry cache, or 0 if
+   *         disabled.
+   */
+  public long getEncodedEntryCacheMisses()
+  {
+    final EncodedEntryCache cache = encodedEntryCache;
+    return cache != null ? cache.getMisses() : 0;
   }
 
   /**
@@ -29,10 +29,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.forgerock.opendj.io.ASN1;
 import org.forgerock.opendj.io.ASN1Writer;
 import org.forgerock.opendj.ldap.AttributeDescription;
 import org.forgerock.opendj.ldap.Base64;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.ObjectClass;
@@ -63,6 +65,9 @@ public class SearchResultEntryProtocolOp
   /** The LDAP version (determines how attribute options are handled). */
   private final int ldapVersion;
 
+  /** The pre-encoded DN and attributes of this search entry, if any. */
+  private final ByteString encodedContent;
+
 
 
   /**
@@ -123,15 +128,64 @@ public class SearchResultEntryProtocolOp
 
 
 
+  /**
+   * Creates a new LDAPv3 search result entry protocol op from the provided
+   * search result entry, which will be written using its pre-encoded DN and
+   * attributes.
+   *
+   * @param  searchEntry     The search result entry object to use to create
+   *                         this search result entry protocol op.
+   * @param  encodedContent  The DN and attributes of the search result entry,
+   *                         as encoded by {@link #encodeContent}.
+   */
+  public SearchResultEntryProtocolOp(SearchResultEntry searchEntry,
+      ByteString encodedContent)
+  {
+    this(searchEntry.getName(), null, searchEntry, 3, encodedContent);
+  }
+
+
+
   /** Generic constructor. */
   private SearchResultEntryProtocolOp(DN dn,
       LinkedList<LDAPAttribute> attributes, SearchResultEntry searchEntry,
       int ldapVersion)
+  {
+    this(dn, attributes, searchEntry, ldapVersion, null);
+  }
+
+
+
+  private SearchResultEntryProtocolOp(DN dn,
+      LinkedList<LDAPAttribute> attributes, SearchResultEntry searchEntry,
+      int ldapVersion, ByteString encodedContent)
   {
     this.dn = dn;
     this.attributes = attributes;
     this.entry = searchEntry;
     this.ldapVersion = ldapVersion;
+    this.encodedContent = encodedContent;
+  }
+
+
+
+  /**
+   * Encodes the DN and the attributes of the provided search result entry, as
+   * they are written by an LDAPv3 search result entry protocol op. The
+   * returned bytes can be reused to write the same search result entry again.
+   *
+   * @param  searchEntry  The search result entry to encode.
+   * @return  The encoded DN and attributes of the search result entry.
+   * @throws IOException If a problem occurs while encoding the entry.
+   */
+  public static ByteString encodeContent(SearchResultEntry searchEntry)
+      throws IOException
+  {
+    ByteStringBuilder builder = new ByteStringBuilder();
+    ASN1Writer writer = ASN1.getWriter(builder);
+    new SearchResultEntryProtocolOp(searchEntry, 3).writeContent(writer);
+    writer.flush();
+    return builder.toByteString();
   }
 
 
@@ -252,7 +306,23 @@ public class SearchResultEntryProtocolOp
   @Override
   public void write(ASN1Writer stream) throws IOException
   {
+    if (encodedContent != null)
+    {
+      // The same length and content octets as the sequence below
+      stream.writeOctetString(OP_TYPE_SEARCH_RESULT_ENTRY, encodedContent);
+      return;
+    }
+
     stream.writeStartSequence(OP_TYPE_SEARCH_RESULT_ENTRY);
+    writeContent(stream);
+    stream.writeEndSequence();
+  }
+
+
+
+  /** Writes the DN and the attributes of this search entry. */
+  private void writeContent(ASN1Writer stream) throws IOException
+  {
     stream.writeOctetString(dn.toString());
 
     stream.writeStartSequence();
@@ -285,8 +355,6 @@ public class SearchResultEntryProtocolOp
       }
     }
     stream.writeEndSequence();
-
-    stream.writeEndSequence();
   }
 
 
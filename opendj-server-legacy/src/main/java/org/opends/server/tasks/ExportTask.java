@@ -74,11 +74,15 @@ public class ExportTask extends Task
     argDisplayMap.put(ATTR_TASK_EXPORT_INCLUDE_BRANCH, INFO_EXPORT_ARG_INCL_BRANCH.get());
     argDisplayMap.put(ATTR_TASK_EXPORT_EXCLUDE_BRANCH, INFO_EXPORT_ARG_EXCL_BRANCH.get());
     argDisplayMap.put(ATTR_TASK_EXPORT_WRAP_COLUMN, INFO_EXPORT_ARG_WRAP_COLUMN.get());
+    argDisplayMap.put(ATTR_TASK_EXPORT_THREAD_COUNT, INFO_EXPORT_ARG_THREAD_COUNT.get());
+    argDisplayMap.put(ATTR_TASK_EXPORT_SPLIT_OUTPUT, INFO_EXPORT_ARG_SPLIT_OUTPUT.get());
   }
 
   private String  ldifFile;
   private String  backendID;
   private int     wrapColumn;
+  private int     threadCount;
+  private boolean splitOutput;
   private boolean appendToLDIF;
   private boolean compressLDIF;
   private boolean encryptLDIF;
@@ -150,6 +154,8 @@ public class ExportTask extends Task
     excludeBranchStrings = toListOfString(taskEntry, ATTR_TASK_EXPORT_EXCLUDE_BRANCH);
 
     wrapColumn = TaskUtils.getSingleValueInteger(taskEntry.getAllAttributes(ATTR_TASK_EXPORT_WRAP_COLUMN), 0);
+    threadCount = TaskUtils.getSingleValueInteger(taskEntry.getAllAttributes(ATTR_TASK_EXPORT_THREAD_COUNT), 0);
+    splitOutput = toBoolean(taskEntry, false, ATTR_TASK_EXPORT_SPLIT_OUTPUT);
 
     includeOperationalAttributes = toBoolean(taskEntry, true, ATTR_TASK_EXPORT_INCLUDE_OPERATIONAL_ATTRIBUTES);
   }
@@ -343,6 +349,8 @@ public class ExportTask extends Task
     exportConfig.setIncludeFilters(includeFilters);
     exportConfig.setSignHash(signHash);
     exportConfig.setWrapColumn(wrapColumn);
+    exportConfig.setThreadCount(threadCount);
+    exportConfig.setSplitOutput(splitOutput);
     exportConfig.setIncludeOperationalAttributes(includeOperationalAttributes);
 
     // FIXME -- Should this be conditional?
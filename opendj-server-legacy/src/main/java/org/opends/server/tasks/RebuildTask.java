@@ -57,6 +57,8 @@ public class RebuildTask extends Task
   private String tmpDirectory;
   private RebuildMode rebuildMode = RebuildMode.USER_DEFINED;
   private boolean isClearDegradedState;
+  private boolean isOnline;
+  private int maxEntriesPerSecond;
 
   @Override
   public LocalizableMessage getDisplayName()
@@ -88,6 +90,17 @@ public class RebuildTask extends Task
     tmpDirectory = asString(taskEntry, ATTR_REBUILD_TMP_DIRECTORY);
     final String val = asString(taskEntry, ATTR_REBUILD_INDEX_CLEARDEGRADEDSTATE);
     isClearDegradedState = Boolean.parseBoolean(val);
+    isOnline = Boolean.parseBoolean(asString(taskEntry, ATTR_REBUILD_ONLINE));
+    final String rate = asString(taskEntry, ATTR_REBUILD_MAX_ENTRIES_PER_SECOND);
+    try
+    {
+      maxEntriesPerSecond = rate != null ? Integer.parseInt(rate) : 0;
+    }
+    catch (NumberFormatException e)
+    {
+      throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM,
+          ERR_TASK_INDEXREBUILD_INVALID_MAX_ENTRIES_PER_SECOND.get(rate));
+    }
     indexes = TaskUtils.getMultiValueString(taskEntry.getAllAttributes(ATTR_REBUILD_INDEX));
 
     rebuildMode = getRebuildMode(indexes);
@@ -100,6 +113,10 @@ public class RebuildTask extends Task
       }
       indexes.clear();
     }
+    if (isOnline && rebuildMode == RebuildMode.ALL)
+    {
+      throw new DirectoryException(ResultCode.UNWILLING_TO_PERFORM, ERR_TASK_INDEXREBUILD_ONLINE_ALL_ERROR.get());
+    }
   }
 
   private String asString(Entry taskEntry, String attrName)
@@ -146,6 +163,10 @@ public class RebuildTask extends Task
     // The degraded state is set(if present in args)
     // during the initialization.
     rebuildConfig.isClearDegradedState(isClearDegradedState);
+    rebuildConfig.setOnline(isOnline);
+    rebuildConfig.setMaxEntriesPerSecond(maxEntriesPerSecond);
+    // In 'cleardegradedstate' and online modes the backend keeps serving requests.
+    final boolean keepBackendEnabled = isClearDegradedState || isOnline;
     boolean isBackendNeedToBeEnabled = false;
 
     if (tmpDirectory == null)
@@ -169,13 +190,13 @@ public class RebuildTask extends Task
     }
 
     // If we are rebuilding one or more system indexes, we have
-    // to acquire exclusive lock. Shared lock in 'cleardegradedstate' mode.
+    // to acquire exclusive lock. Shared lock in 'cleardegradedstate' and online modes.
     String lockFile = LockFileManager.getBackendLockFileName(backend);
     StringBuilder failureReason = new StringBuilder();
 
     // Disable the backend
-    // Except in 'cleardegradedstate' mode we don't need to disable it.
-    if (!isClearDegradedState)
+    // Except in 'cleardegradedstate' and online modes we don't need to disable it.
+    if (!keepBackendEnabled)
     {
       try
       {
@@ -272,7 +293,7 @@ public class RebuildTask extends Task
     // The backend must be enabled only if the task is successful
     // for prevent potential risks of database corruption.
     if ((returnCode == TaskState.COMPLETED_SUCCESSFULLY || isBackendNeedToBeEnabled)
-        && !isClearDegradedState)
+        && !keepBackendEnabled)
     {
       // Enable the backend.
       try
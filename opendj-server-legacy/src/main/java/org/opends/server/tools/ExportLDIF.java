@@ -112,6 +112,8 @@ public class ExportLDIF extends TaskTool {
   private BooleanArgument encryptLDIF;
   private BooleanArgument excludeOperationalAttrs;
   private BooleanArgument signHash;
+  private BooleanArgument splitOutput;
+  private IntegerArgument threadCount;
   private IntegerArgument wrapColumn;
   private StringArgument  backendID;
   private StringArgument  configFile;
@@ -221,6 +223,17 @@ public class ExportLDIF extends TaskTool {
                       .defaultValue(0)
                       .valuePlaceholder(INFO_WRAP_COLUMN_PLACEHOLDER.get())
                       .buildAndAddToParser(argParser);
+      threadCount =
+              IntegerArgument.builder("threadCount")
+                      .description(INFO_LDIFEXPORT_DESCRIPTION_THREAD_COUNT.get())
+                      .lowerBound(0)
+                      .defaultValue(0)
+                      .valuePlaceholder(INFO_LDIFEXPORT_THREAD_COUNT_PLACEHOLDER.get())
+                      .buildAndAddToParser(argParser);
+      splitOutput =
+              BooleanArgument.builder("splitOutput")
+                      .description(INFO_LDIFEXPORT_DESCRIPTION_SPLIT_OUTPUT.get())
+                      .buildAndAddToParser(argParser);
       compressLDIF =
               BooleanArgument.builder(OPTION_LONG_COMPRESS)
                       .shortIdentifier(OPTION_SHORT_COMPRESS)
@@ -312,6 +325,8 @@ public class ExportLDIF extends TaskTool {
     addAttribute(attributes, ATTR_TASK_EXPORT_INCLUDE_BRANCH, includeBranchStrings.getValues());
     addAttribute(attributes, ATTR_TASK_EXPORT_EXCLUDE_BRANCH, excludeBranchStrings.getValues());
     addAttribute(attributes, ATTR_TASK_EXPORT_WRAP_COLUMN, wrapColumn);
+    addAttribute(attributes, ATTR_TASK_EXPORT_THREAD_COUNT, threadCount);
+    addAttribute(attributes, ATTR_TASK_EXPORT_SPLIT_OUTPUT, splitOutput);
 
     if (excludeOperationalAttrs.isPresent())
     {
@@ -554,6 +569,7 @@ public class ExportLDIF extends TaskTool {
     exportConfig.setSignHash(signHash.isPresent());
     exportConfig.setIncludeOperationalAttributes(
                       !excludeOperationalAttrs.isPresent());
+    exportConfig.setSplitOutput(splitOutput.isPresent());
 
     // FIXME -- Should this be conditional?
     exportConfig.setInvokeExportPlugins(true);
@@ -568,6 +584,16 @@ public class ExportLDIF extends TaskTool {
       return 1;
     }
 
+    try
+    {
+      exportConfig.setThreadCount(threadCount.getIntValue());
+    }
+    catch (ArgumentException ae)
+    {
+      logger.error(ERR_LDIFEXPORT_CANNOT_PARSE_THREAD_COUNT, threadCount.getValue(), ae.getMessage());
+      return 1;
+    }
+
 
     // Get the set of base DNs for the backend as an array.
     DN[] baseDNs = new DN[baseDNList.size()];
@@ -51,6 +51,7 @@ import org.opends.server.util.cli.LDAPConnectionArgumentParser;
 
 import com.forgerock.opendj.cli.ArgumentException;
 import com.forgerock.opendj.cli.BooleanArgument;
+import com.forgerock.opendj.cli.IntegerArgument;
 import com.forgerock.opendj.cli.StringArgument;
 
 /**
@@ -71,6 +72,8 @@ public class RebuildIndex extends TaskTool
   private BooleanArgument rebuildAll;
   private BooleanArgument rebuildDegraded;
   private BooleanArgument clearDegradedState;
+  private BooleanArgument online;
+  private IntegerArgument maxEntriesPerSecond;
 
   private final LDAPConnectionArgumentParser argParser = createArgParser(
       "org.opends.server.tools.RebuildIndex",
@@ -195,6 +198,18 @@ public class RebuildIndex extends TaskTool
       return 1;
     }
 
+    if (online.isPresent() && rebuildAll.isPresent())
+    {
+      argParser.displayMessageAndUsageReference(err, ERR_REBUILDINDEX_ONLINE_ERROR.get("rebuildAll"));
+      return 1;
+    }
+
+    if (online.isPresent() && clearDegradedState.isPresent())
+    {
+      argParser.displayMessageAndUsageReference(err, ERR_REBUILDINDEX_ONLINE_ERROR.get("clearDegradedState"));
+      return 1;
+    }
+
     // Checks the version - if upgrade required, the tool is unusable
     try
     {
@@ -266,6 +281,17 @@ public class RebuildIndex extends TaskTool
                     .defaultValue("import-tmp")
                     .valuePlaceholder(INFO_REBUILDINDEX_TEMP_DIR_PLACEHOLDER.get())
                     .buildAndAddToParser(argParser);
+    online =
+            BooleanArgument.builder("online")
+                    .description(INFO_REBUILDINDEX_DESCRIPTION_ONLINE.get())
+                    .buildAndAddToParser(argParser);
+    maxEntriesPerSecond =
+            IntegerArgument.builder("maxEntriesPerSecond")
+                    .description(INFO_REBUILDINDEX_DESCRIPTION_MAX_ENTRIES_PER_SECOND.get())
+                    .lowerBound(0)
+                    .defaultValue(0)
+                    .valuePlaceholder(INFO_NUM_ENTRIES_PLACEHOLDER.get())
+                    .buildAndAddToParser(argParser);
 
     final BooleanArgument displayUsage = showUsageArgument();
     argParser.addArgument(displayUsage);
@@ -397,6 +423,16 @@ public class RebuildIndex extends TaskTool
     }
 
     config.setTmpDirectory(tmpDirectory.getValue());
+    config.setOnline(online.isPresent());
+    try
+    {
+      config.setMaxEntriesPerSecond(maxEntriesPerSecond.getIntValue());
+    }
+    catch (ArgumentException e)
+    {
+      // The argument parser already checked the value
+      logger.traceException(e);
+    }
     return config;
   }
 
@@ -623,6 +659,16 @@ public class RebuildIndex extends TaskTool
     {
       addLdapAttribute(attributes, ATTR_REBUILD_INDEX_CLEARDEGRADEDSTATE, "true");
     }
+
+    if (hasNonDefaultValue(online))
+    {
+      addLdapAttribute(attributes, ATTR_REBUILD_ONLINE, "true");
+    }
+
+    if (hasNonDefaultValue(maxEntriesPerSecond))
+    {
+      addLdapAttribute(attributes, ATTR_REBUILD_MAX_ENTRIES_PER_SECOND, maxEntriesPerSecond.getValue());
+    }
   }
 
   private void addLdapAttribute(List<RawAttribute> attributes, String attrType, String attrValue)
@@ -636,6 +682,12 @@ public class RebuildIndex extends TaskTool
         && !arg.getValue().equals(arg.getDefaultValue());
   }
 
+  private boolean hasNonDefaultValue(IntegerArgument arg)
+  {
+    return arg.getValue() != null
+        && !arg.getValue().equals(arg.getDefaultValue());
+  }
+
   private boolean hasNonDefaultValue(StringArgument arg)
   {
     return arg.getValue() != null
@@ -26,6 +26,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -88,6 +89,11 @@ public final class LDIFExportConfig extends OperationConfig
   /** The column number at which long lines should be wrapped. */
   private int wrapColumn;
 
+  /** The number of threads used to read and format the exported entries. */
+  private int threadCount;
+  /** Indicates whether the entries exported by each thread should be written to a separate file. */
+  private boolean splitOutput;
+
   /** The set of base DNs to exclude from the export. */
   private List<DN> excludeBranches;
   /** The set of base DNs to include from the export. */
@@ -452,6 +458,126 @@ public final class LDIFExportConfig extends OperationConfig
     this.wrapColumn = wrapColumn;
   }
 
+  /**
+   * Retrieves the number of threads that should be used to read and
+   * format the exported entries.
+   *
+   * @return  The number of threads that should be used to read and
+   *          format the exported entries, or a value less than or
+   *          equal to one to indicate that the entries should be
+   *          exported by a single thread.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /**
+   * Specifies the number of threads that should be used to read and
+   * format the exported entries.  Backends which cannot export their
+   * entries in parallel ignore it.
+   *
+   * @param  threadCount  The number of threads that should be used to
+   *                      read and format the exported entries.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Indicates whether the entries exported by each thread should be
+   * written to a separate LDIF file rather than in order to the LDIF
+   * file of this configuration.
+   *
+   * @return  <CODE>true</CODE> if the entries exported by each thread
+   *          should be written to a separate LDIF file, or
+   *          <CODE>false</CODE> if not.
+   */
+  public boolean splitOutput()
+  {
+    return splitOutput;
+  }
+
+  /**
+   * Specifies whether the entries exported by each thread should be
+   * written to a separate LDIF file.  It is ignored when the LDIF data
+   * is written to an output stream.
+   *
+   * @param  splitOutput  Indicates whether the entries exported by each
+   *                      thread should be written to a separate LDIF
+   *                      file.
+   */
+  public void setSplitOutput(boolean splitOutput)
+  {
+    this.splitOutput = splitOutput;
+  }
+
+  /**
+   * Retrieves the path to the LDIF file that should be written.
+   *
+   * @return  The path to the LDIF file that should be written, or
+   *          <CODE>null</CODE> if the LDIF data is written to an
+   *          output stream.
+   */
+  public String getLDIFFile()
+  {
+    return ldifFile;
+  }
+
+  /**
+   * Creates a copy of this configuration which writes the LDIF data to
+   * the provided LDIF file, using the same file behavior and
+   * compression.  It is used to export parts of the entries to
+   * separate files.
+   *
+   * @param  ldifFile  The path to the LDIF file to export.
+   *
+   * @return  A copy of this configuration writing to the provided file.
+   */
+  public LDIFExportConfig duplicate(String ldifFile)
+  {
+    LDIFExportConfig copy = new LDIFExportConfig(ldifFile, existingFileBehavior);
+    copy.compressData = compressData;
+    copyEntrySelectionTo(copy);
+    return copy;
+  }
+
+  /**
+   * Creates a copy of this configuration which writes the LDIF data,
+   * without compression, to the provided writer.  It is used to format
+   * entries on several threads before writing them with the writer of
+   * this configuration.
+   *
+   * @param  writer  The writer to which the LDIF data should be written.
+   *
+   * @return  A copy of this configuration writing to the provided writer.
+   */
+  public LDIFExportConfig duplicate(Writer writer)
+  {
+    LDIFExportConfig copy = new LDIFExportConfig((OutputStream) null);
+    copy.writer = new BufferedWriter(writer);
+    copyEntrySelectionTo(copy);
+    return copy;
+  }
+
+  /** Copies the settings determining which entries and attributes are exported, and how. */
+  private void copyEntrySelectionTo(LDIFExportConfig copy)
+  {
+    copy.excludeBranches = excludeBranches;
+    copy.includeBranches = includeBranches;
+    copy.excludeFilters = excludeFilters;
+    copy.includeFilters = includeFilters;
+    copy.excludeAttributes = excludeAttributes;
+    copy.includeAttributes = includeAttributes;
+    copy.includeObjectClasses = includeObjectClasses;
+    copy.includeOperationalAttributes = includeOperationalAttributes;
+    copy.includeVirtualAttributes = includeVirtualAttributes;
+    copy.invokeExportPlugins = invokeExportPlugins;
+    copy.typesOnly = typesOnly;
+    copy.wrapColumn = wrapColumn;
+  }
+
   /**
    * Retrieves the set of base DNs that specify the set of entries to
    * exclude from the export.  The list that is returned may be
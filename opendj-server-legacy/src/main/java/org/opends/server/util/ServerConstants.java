@@ -320,6 +320,42 @@ public final class ServerConstants
   public static final String ATTR_MONITOR_BACKEND_WRITABILITY_MODE =
        "ds-backend-writability-mode";
 
+  /**
+   * The name of the monitor attribute that is used to hold the histogram of
+   * the number of commits made durable together by the backend.
+   */
+  public static final String ATTR_MONITOR_BACKEND_GROUP_COMMIT_BATCH_SIZE =
+       "ds-backend-group-commit-batch-size";
+
+  /**
+   * The name of the monitor attribute that is used to hold the histogram of
+   * the time spent waiting for commits to be durable in the backend.
+   */
+  public static final String ATTR_MONITOR_BACKEND_GROUP_COMMIT_LATENCY =
+       "ds-backend-group-commit-latency";
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * searches whose candidate entries were found in the search result cache.
+   */
+  public static final String ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_HITS =
+       "ds-backend-search-result-cache-hits";
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * searches whose candidate entries were not found in the search result
+   * cache.
+   */
+  public static final String ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_MISSES =
+       "ds-backend-search-result-cache-misses";
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * candidate entry sets invalidated in the search result cache.
+   */
+  public static final String ATTR_MONITOR_BACKEND_SEARCH_RESULT_CACHE_INVALIDATIONS =
+       "ds-backend-search-result-cache-invalidations";
+
 
 
   /**
@@ -331,6 +367,45 @@ public final class ServerConstants
 
 
 
+  /**
+   * The name of the monitor attribute that is used to hold the current
+   * adaptive concurrency limit of the connection handler.
+   */
+  public static final String ATTR_MONITOR_CONNHANDLER_CONCURRENCY_LIMIT =
+       "ds-connectionhandler-concurrency-limit";
+
+
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * operations rejected by the adaptive concurrency limit of the connection
+   * handler.
+   */
+  public static final String ATTR_MONITOR_CONNHANDLER_CONCURRENCY_REJECTIONS =
+       "ds-connectionhandler-concurrency-rejections";
+
+
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * search result entries whose encoding was found in the encoded entry cache
+   * of the connection handler.
+   */
+  public static final String ATTR_MONITOR_CONNHANDLER_ENCODED_ENTRY_CACHE_HITS =
+       "ds-connectionhandler-encoded-entry-cache-hits";
+
+
+
+  /**
+   * The name of the monitor attribute that is used to hold the number of
+   * search result entries which had to be encoded by the connection handler
+   * because they were not found in its encoded entry cache.
+   */
+  public static final String ATTR_MONITOR_CONNHANDLER_ENCODED_ENTRY_CACHE_MISSES =
+       "ds-connectionhandler-encoded-entry-cache-misses";
+
+
+
   /**
    * The name of the monitor attribute that is used to hold the connection
    * handler listeners.
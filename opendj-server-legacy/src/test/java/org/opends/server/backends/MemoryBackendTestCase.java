@@ -0,0 +1,191 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends;
+
+import static org.forgerock.opendj.ldap.ModificationType.*;
+import static org.forgerock.opendj.ldap.requests.Requests.*;
+import static org.forgerock.opendj.ldap.schema.CoreSchema.*;
+import static org.opends.server.protocols.internal.InternalClientConnection.*;
+import static org.opends.server.protocols.internal.Requests.*;
+import static org.opends.server.util.CollectionUtils.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.ModifyOperation;
+import org.opends.server.protocols.internal.InternalSearchOperation;
+import org.opends.server.types.SearchResultEntry;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the memory backend and its attribute indexes. */
+public class MemoryBackendTestCase extends BackendTestCase
+{
+  private MemoryBackend backend;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.initializeTestBackend(true);
+    backend = (MemoryBackend) TestCaseUtils.getServerContext().getBackendConfigManager()
+        .getLocalBackendById(TestCaseUtils.TEST_BACKEND_ID);
+    backend.setIndexedAttributes(newHashSet(getUIDAttributeType(), getSNAttributeType()));
+
+    TestCaseUtils.addEntries(
+        "dn: ou=People,o=test",
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: People",
+        "",
+        "dn: uid=user.1,ou=People,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.1",
+        "cn: User 1",
+        "sn: Smith",
+        "",
+        "dn: uid=user.2,ou=People,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.2",
+        "cn: User 2",
+        "sn: Smith",
+        "",
+        "dn: uid=user.3,ou=People,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.3",
+        "cn: User 3",
+        "sn: Jones");
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception
+  {
+    backend.setIndexedAttributes(Collections.<AttributeType> emptySet());
+    TestCaseUtils.clearMemoryBackend(TestCaseUtils.TEST_BACKEND_ID);
+  }
+
+  @Test
+  public void testIndexedEqualitySearch() throws Exception
+  {
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(uid=USER.1)"),
+        newArrayList("uid=user.1,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(uid=user.4)"), newArrayList());
+  }
+
+  @Test
+  public void testIndexedAndOrSearch() throws Exception
+  {
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(&(sn=smith)(cn=User 2))"),
+        newArrayList("uid=user.2,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(|(uid=user.1)(uid=user.3))").size(), 2);
+    // One component is not indexed: all the entries in scope are evaluated
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(|(uid=user.1)(cn=User 3))").size(), 2);
+  }
+
+  @Test
+  public void testIndexedSearchHonoursScope() throws Exception
+  {
+    assertEquals(search("ou=People,o=test", SearchScope.SINGLE_LEVEL, "(sn=jones)"),
+        newArrayList("uid=user.3,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.SINGLE_LEVEL, "(sn=jones)"), newArrayList());
+  }
+
+  @Test
+  public void testUnindexedSearchReturnsParentsFirst() throws Exception
+  {
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(objectClass=*)"),
+        newArrayList("o=test", "ou=People,o=test", "uid=user.1,ou=People,o=test",
+            "uid=user.2,ou=People,o=test", "uid=user.3,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.SINGLE_LEVEL, "(objectClass=*)"),
+        newArrayList("ou=People,o=test"));
+  }
+
+  @Test
+  public void testSearchOnVirtualAttributes() throws Exception
+  {
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(entryDN=uid=user.2,ou=People,o=test)"),
+        newArrayList("uid=user.2,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(&(uid=user.2)(entryDN=uid=user.2,ou=People,o=test))"),
+        newArrayList("uid=user.2,ou=People,o=test"));
+    assertEquals(search("o=test", SearchScope.SINGLE_LEVEL, "(numSubordinates=3)"),
+        newArrayList("ou=People,o=test"));
+  }
+
+  @Test
+  public void testIndexedSearchReturnsParentsFirst() throws Exception
+  {
+    DN childDN = DN.valueOf("uid=user.4,uid=user.2,ou=People,o=test");
+    TestCaseUtils.addEntry(
+        "dn: " + childDN,
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.4",
+        "cn: User 4",
+        "sn: Taylor");
+    try
+    {
+      assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(|(uid=user.4)(uid=user.2)(uid=user.1))"),
+          newArrayList("uid=user.1,ou=People,o=test", "uid=user.2,ou=People,o=test", childDN.toString()));
+    }
+    finally
+    {
+      TestCaseUtils.deleteEntry(childDN);
+    }
+  }
+
+  @Test
+  public void testIndexIsMaintainedOnModify() throws Exception
+  {
+    ModifyOperation modifyOperation = getRootConnection().processModify(
+        newModifyRequest("uid=user.3,ou=People,o=test").addModification(REPLACE, "sn", "Brown"));
+    assertEquals(modifyOperation.getResultCode(), ResultCode.SUCCESS);
+
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(sn=jones)"), newArrayList());
+    assertEquals(search("o=test", SearchScope.WHOLE_SUBTREE, "(sn=brown)"),
+        newArrayList("uid=user.3,ou=People,o=test"));
+  }
+
+  private List<String> search(String baseDN, SearchScope scope, String filter) throws Exception
+  {
+    InternalSearchOperation searchOperation =
+        getRootConnection().processSearch(newSearchRequest(DN.valueOf(baseDN), scope, filter));
+    assertEquals(searchOperation.getResultCode(), ResultCode.SUCCESS);
+    List<String> dns = new ArrayList<>();
+    for (SearchResultEntry entry : searchOperation.getSearchEntries())
+    {
+      dns.add(entry.getName().toString());
+    }
+    return dns;
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.inmemory;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.InMemoryBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class InMemoryStorageTest extends DirectoryServerTestCase
+{
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private InMemoryStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    storage = new InMemoryStorage(createBackendCfg(true));
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testRecordsAreRestoredFromSnapshot() throws Exception
+  {
+    putRecords(0, 10000);
+    storage.close();
+    storage = new InMemoryStorage(createBackendCfg(true));
+    storage.open(AccessMode.READ_WRITE);
+
+    assertThat(storage.listTrees()).containsExactly(treeName);
+    assertThat(read(key(1234))).isEqualTo(key(1234));
+    assertThat(recordCount()).isEqualTo(10000);
+  }
+
+  @Test
+  public void testRecordsAreLostWithoutSnapshot() throws Exception
+  {
+    storage.close();
+    storage = new InMemoryStorage(createBackendCfg(false));
+    storage.open(AccessMode.READ_WRITE);
+    putRecords(0, 10);
+    storage.close();
+    storage = new InMemoryStorage(createBackendCfg(false));
+    storage.open(AccessMode.READ_WRITE);
+
+    assertThat(storage.listTrees()).isEmpty();
+  }
+
+  @Test
+  public void testCursorNavigation() throws Exception
+  {
+    putRecords(0, 5000);
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.positionToIndex(4321)).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(4321));
+          assertThat(cursor.positionToLastKey()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(4999));
+          assertThat(cursor.next()).isFalse();
+          assertThat(cursor.positionToKeyOrNext(valueOfUtf8("key-00001234x"))).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(1235));
+          assertThat(cursor.positionToKey(valueOfUtf8("key-00001234x"))).isFalse();
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(1235));
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testFailedWriteIsRolledBack() throws Exception
+  {
+    putRecords(0, 10);
+    final TreeName otherTreeName = new TreeName("dc=test", "other");
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.delete(treeName, key(5));
+          txn.put(treeName, key(100), key(100));
+          txn.put(treeName, key(6), key(600));
+          txn.openTree(otherTreeName, true);
+          throw new IllegalStateException();
+        }
+      });
+      failBecauseExceptionWasNotThrown(IllegalStateException.class);
+    }
+    catch (IllegalStateException expected)
+    {
+      // expected
+    }
+    assertThat(read(key(5))).isEqualTo(key(5));
+    assertThat(read(key(6))).isEqualTo(key(6));
+    assertThat(read(key(100))).isNull();
+    assertThat(recordCount()).isEqualTo(10);
+    assertThat(storage.listTrees()).containsExactly(treeName);
+  }
+
+  @Test
+  public void testReadersDoNotSeeUncommittedOrAbortedWrites() throws Exception
+  {
+    putRecords(0, 10);
+    final CountDownLatch written = new CountDownLatch(1);
+    final CountDownLatch checked = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      final Future<?> writer = executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          storage.write(new WriteOperation()
+          {
+            @Override
+            public void run(WriteableTransaction txn) throws Exception
+            {
+              txn.delete(treeName, key(5));
+              txn.put(treeName, key(6), key(600));
+              txn.put(treeName, key(100), key(100));
+              assertThat(txn.read(treeName, key(6))).isEqualTo(key(600));
+              assertThat(txn.getRecordCount(treeName)).isEqualTo(10);
+              assertThat(keys(txn)).doesNotContain(key(5)).contains(key(100));
+              written.countDown();
+              checked.await(10, TimeUnit.SECONDS);
+              throw new IllegalStateException();
+            }
+          });
+          return null;
+        }
+      });
+
+      assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+      assertCommittedRecordsAreVisible();
+      checked.countDown();
+      try
+      {
+        writer.get(10, TimeUnit.SECONDS);
+        failBecauseExceptionWasNotThrown(ExecutionException.class);
+      }
+      catch (ExecutionException expected)
+      {
+        assertThat(expected.getCause()).isInstanceOf(IllegalStateException.class);
+      }
+      assertCommittedRecordsAreVisible();
+    }
+    finally
+    {
+      checked.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testCursorSeesChangesOfItsOwnTransaction() throws Exception
+  {
+    putRecords(0, 10);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.delete(treeName, key(0));
+        txn.delete(treeName, key(9));
+        txn.put(treeName, key(4), key(400));
+        txn.put(treeName, key(15), key(15));
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(1));
+          assertThat(cursor.positionToKey(key(4))).isTrue();
+          assertThat(cursor.getValue()).isEqualTo(key(400));
+          cursor.delete();
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(5));
+          assertThat(cursor.positionToLastKey()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(15));
+        }
+        assertThat(keys(txn)).containsExactly(key(1), key(2), key(3), key(5), key(6), key(7), key(8), key(15));
+        assertThat(txn.getRecordCount(treeName)).isEqualTo(8);
+      }
+    });
+    assertThat(read(key(4))).isNull();
+    assertThat(read(key(15))).isEqualTo(key(15));
+    assertThat(recordCount()).isEqualTo(8);
+  }
+
+  private void assertCommittedRecordsAreVisible() throws Exception
+  {
+    assertThat(read(key(5))).isEqualTo(key(5));
+    assertThat(read(key(6))).isEqualTo(key(6));
+    assertThat(read(key(100))).isNull();
+    assertThat(recordCount()).isEqualTo(10);
+    assertThat(storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        return keys(txn);
+      }
+    })).hasSize(10).contains(key(5)).doesNotContain(key(100));
+  }
+
+  private List<ByteString> keys(ReadableTransaction txn)
+  {
+    final List<ByteString> keys = new ArrayList<>();
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+    {
+      while (cursor.next())
+      {
+        keys.add(cursor.getKey());
+      }
+    }
+    return keys;
+  }
+
+  private void putRecords(final int from, final int to) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        for (int i = from; i < to; i++)
+        {
+          txn.put(treeName, key(i), key(i));
+        }
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private long recordCount() throws Exception
+  {
+    return storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return txn.getRecordCount(treeName);
+      }
+    });
+  }
+
+  private static ByteString key(int i)
+  {
+    return valueOfUtf8(String.format("key-%08d", i));
+  }
+
+  private static InMemoryBackendCfg createBackendCfg(boolean snapshotOnShutdown)
+  {
+    InMemoryBackendCfg backendCfg = mockCfg(InMemoryBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn("InMemoryStorageTest");
+    when(backendCfg.getDBDirectory()).thenReturn("InMemoryStorageTest");
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.isSnapshotOnShutdown()).thenReturn(snapshotOnShutdown);
+    return backendCfg;
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.mdb;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.opends.server.util.StaticUtils.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+
+import java.io.File;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.MDBBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MDBStorageTest extends DirectoryServerTestCase
+{
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private ServerContext serverContext;
+  private MDBStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws ConfigException
+  {
+    serverContext = mock(ServerContext.class);
+    when(serverContext.getDiskSpaceMonitor()).thenReturn(mock(DiskSpaceMonitor.class));
+
+    storage = new MDBStorage(createBackendCfg(), serverContext);
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testCanAddLargeValues() throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        txn.put(treeName, valueOfUtf8("4mb"), valueOfBytes(new byte[4 * MB]));
+        txn.put(treeName, valueOfUtf8("32mb"), valueOfBytes(new byte[32 * MB]));
+        txn.put(treeName, valueOfUtf8("64mb"), valueOfBytes(new byte[64 * MB]));
+      }
+    });
+
+    assertThat(read(valueOfUtf8("32mb")).length()).isEqualTo(32 * MB);
+  }
+
+  @Test
+  public void testRecordsArePersistedAcrossRestarts() throws Exception
+  {
+    putRecords(0, 10000);
+    storage.close();
+    storage = new MDBStorage(createBackendCfg(), serverContext);
+    storage.open(AccessMode.READ_WRITE);
+
+    assertThat(storage.listTrees()).containsExactly(treeName);
+    assertThat(read(key(1234))).isEqualTo(key(1234));
+    final long recordCount = storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return txn.getRecordCount(treeName);
+      }
+    });
+    assertThat(recordCount).isEqualTo(10000);
+  }
+
+  @Test
+  public void testCursorNavigation() throws Exception
+  {
+    putRecords(0, 5000);
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.positionToIndex(4321)).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(4321));
+          assertThat(cursor.positionToLastKey()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(4999));
+          assertThat(cursor.next()).isFalse();
+          assertThat(cursor.positionToKeyOrNext(valueOfUtf8("key-00001234x"))).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(1235));
+          assertThat(cursor.positionToKey(valueOfUtf8("key-00001234x"))).isFalse();
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(1235));
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testCursorDeleteWhileIterating() throws Exception
+  {
+    putRecords(0, 3000);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          while (cursor.next())
+          {
+            cursor.delete();
+          }
+        }
+      }
+    });
+    assertThat(read(key(0))).isNull();
+    assertThat(read(key(2999))).isNull();
+  }
+
+  @Test
+  public void testFailedWriteIsRolledBack() throws Exception
+  {
+    putRecords(0, 10);
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.delete(treeName, key(5));
+          txn.put(treeName, key(100), key(100));
+          throw new IllegalStateException();
+        }
+      });
+      failBecauseExceptionWasNotThrown(IllegalStateException.class);
+    }
+    catch (IllegalStateException expected)
+    {
+      // expected
+    }
+    assertThat(read(key(5))).isEqualTo(key(5));
+    assertThat(read(key(100))).isNull();
+  }
+
+  @Test
+  public void testReadersSeeTheStateAtTheirStart() throws Exception
+  {
+    putRecords(0, 100);
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        final Thread writer = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            try
+            {
+              putRecords(100, 200);
+            }
+            catch (Exception e)
+            {
+              throw new RuntimeException(e);
+            }
+          }
+        });
+        writer.start();
+        writer.join();
+        assertThat(txn.getRecordCount(treeName)).isEqualTo(100);
+        assertThat(txn.read(treeName, key(150))).isNull();
+        return null;
+      }
+    });
+    assertThat(read(key(150))).isEqualTo(key(150));
+  }
+
+  @Test
+  public void testReaderSlotsOfTerminatedThreadsAreDiscarded() throws Exception
+  {
+    final File file = File.createTempFile("MDBStorageTest", ".mdb");
+    file.delete();
+    final PageFile pageFile = new PageFile(file, true);
+    try
+    {
+      final Thread[] readers = new Thread[10];
+      for (int i = 0; i < readers.length; i++)
+      {
+        readers[i] = new Thread(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            pageFile.endRead(pageFile.beginRead());
+          }
+        });
+        readers[i].start();
+      }
+      for (Thread reader : readers)
+      {
+        reader.join();
+      }
+      final PageFile.ReaderSlot slot = pageFile.beginRead();
+      assertThat(pageFile.getReaderSlotCount()).isEqualTo(readers.length + 1);
+      assertThat(pageFile.getActiveReaderCount()).isEqualTo(1);
+
+      pageFile.reclaimPendingFreePages();
+      assertThat(pageFile.getReaderSlotCount()).isEqualTo(1);
+      pageFile.endRead(slot);
+      assertThat(pageFile.getActiveReaderCount()).isEqualTo(0);
+    }
+    finally
+    {
+      pageFile.close();
+      file.delete();
+    }
+  }
+
+  private void putRecords(final int from, final int to) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        for (int i = from; i < to; i++)
+        {
+          txn.put(treeName, key(i), key(i));
+        }
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private static ByteString key(int i)
+  {
+    return valueOfUtf8(String.format("key-%08d", i));
+  }
+
+  protected MDBBackendCfg createBackendCfg()
+  {
+    MDBBackendCfg backendCfg = mockCfg(MDBBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn("MDBStorageTest");
+    when(backendCfg.getDBDirectory()).thenReturn("MDBStorageTest");
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    return backendCfg;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.zip.Deflater;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class CompressionDictionaryTrainerTest extends DirectoryServerTestCase
+{
+  private static ByteString sample(int i)
+  {
+    return ByteString.valueOfUtf8("dn: uid=user." + i + ",ou=People,dc=example,dc=com\n"
+        + "objectClass: top\nobjectClass: person\nobjectClass: inetOrgPerson\n"
+        + "uid: user." + i + "\nmail: user." + i + "@example.com\n"
+        + "description: " + Integer.toHexString(i * 0x9e3779b9) + "\n");
+  }
+
+  private static CompressionDictionaryTrainer sampledTrainer()
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+    int i = 0;
+    while (!trainer.addSample(sample(i++)))
+    {
+      // keep sampling
+    }
+    return trainer;
+  }
+
+  private static int deflatedSize(ByteString data, ByteString dictionary)
+  {
+    final Deflater deflater = new Deflater();
+    try
+    {
+      if (dictionary != null)
+      {
+        deflater.setDictionary(dictionary.toByteArray());
+      }
+      deflater.setInput(data.toByteArray());
+      deflater.finish();
+      final byte[] buffer = new byte[1024];
+      int size = 0;
+      while (!deflater.finished())
+      {
+        size += deflater.deflate(buffer);
+      }
+      return size;
+    }
+    finally
+    {
+      deflater.end();
+    }
+  }
+
+  @Test
+  public void testAddSampleReportsWhenEnoughEntriesAreSampled()
+  {
+    final CompressionDictionaryTrainer trainer = sampledTrainer();
+    assertThat(trainer.getSampleCount()).isEqualTo(CompressionDictionaryTrainer.SAMPLE_COUNT);
+    assertThat(trainer.addSample(sample(0))).isTrue();
+    assertThat(trainer.getSampleCount()).isEqualTo(CompressionDictionaryTrainer.SAMPLE_COUNT);
+  }
+
+  @Test
+  public void testTrainedDictionaryContainsSharedContent()
+  {
+    final ByteString dictionary = sampledTrainer().train();
+    assertThat(dictionary.length()).isBetween(1, CompressionDictionaryTrainer.MAX_DICTIONARY_SIZE);
+    assertThat(dictionary.toString()).contains("objectClass: inetOrgPerson", ",ou=People,dc=example,dc=com");
+  }
+
+  @Test
+  public void testTrainedDictionaryImprovesCompression()
+  {
+    final ByteString dictionary = sampledTrainer().train();
+    final ByteString entry = sample(CompressionDictionaryTrainer.SAMPLE_COUNT + 1);
+    assertThat(deflatedSize(entry, dictionary)).isLessThan(deflatedSize(entry, null));
+  }
+
+  @Test
+  public void testNothingSharedGivesEmptyDictionary()
+  {
+    final CompressionDictionaryTrainer trainer = new CompressionDictionaryTrainer();
+    trainer.addSample(ByteString.valueOfUtf8("0123456789abcdef"));
+    trainer.addSample(ByteString.valueOfUtf8("ghijklmnopqrstuv"));
+    assertThat(trainer.train().length()).isEqualTo(0);
+  }
+}
@@ -23,9 +23,11 @@ import static org.opends.server.backends.pluggable.EntryIDSet.*;
 import static org.opends.server.backends.pluggable.State.IndexFlag.*;
 import static org.opends.server.backends.pluggable.Utils.assertIdsEquals;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -98,10 +100,36 @@ public class DefaultIndexTest extends DirectoryServerTestCase
     assertThat(txn.read(index.getName(), valueOfUtf8("key"))).isNull();
   }
 
+  @Test
+  public void testEstimateSizeIsCappedToIndexEntryLimit() {
+    updateAndCommit(newDefinedSet(), newDefinedSet(1, 2, 3));
+    assertThat(index.estimateSize(valueOfUtf8("key"))).isEqualTo(3);
+
+    // Statistics overestimate keys, so they must never make a query look undefined
+    updateAndCommit(newDefinedSet(), newDefinedSet(4, 5, 6, 7));
+    assertThat(index.estimateSize(valueOfUtf8("key"))).isEqualTo(5);
+  }
+
+  @Test
+  public void testRetriedUpdateIsCountedOnce() {
+    // A transaction retried after a conflict runs its updates again, but only commits once
+    update(newDefinedSet(), newDefinedSet(1, 2));
+    assertThat(index.estimateSize(valueOfUtf8("key"))).isEqualTo(0);
+    txn.delete(index.getName(), valueOfUtf8("key"));
+    updateAndCommit(newDefinedSet(), newDefinedSet(1, 2));
+
+    assertThat(index.estimateSize(valueOfUtf8("key"))).isEqualTo(2);
+  }
+
   private void update(EntryIDSet deletedIDSet, EntryIDSet addedIDSet) {
     index.update(txn, valueOfUtf8("key"), deletedIDSet, addedIDSet);
   }
 
+  private void updateAndCommit(EntryIDSet deletedIDSet, EntryIDSet addedIDSet) {
+    update(deletedIDSet, addedIDSet);
+    index.updateStatistics(valueOfUtf8("key"), deletedIDSet, addedIDSet);
+  }
+
   private void put(EntryIDSet idSet)
   {
     txn.put(index.getName(), valueOfUtf8("key"), CODEC_V2.encode(idSet));
@@ -135,6 +163,17 @@ public class DefaultIndexTest extends DirectoryServerTestCase
       return getTree(treeName).get(key);
     }
 
+    @Override
+    public List<ByteString> read(TreeName treeName, List<? extends ByteSequence> sortedKeys)
+    {
+      final List<ByteString> values = new ArrayList<>(sortedKeys.size());
+      for (ByteSequence key : sortedKeys)
+      {
+        values.add(read(treeName, key));
+      }
+      return values;
+    }
+
     private TreeMap<ByteString, ByteString> getTree(TreeName treeName) {
       final TreeMap<ByteString, ByteString> tree = storage.get(treeName);
       if ( tree == null ) {
@@ -151,6 +151,20 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(newDefinedSet(4, 6, 8, 10, 12).iterator(), 4, 6, 8, 10, 12);
   }
 
+  @Test
+  public void testIteratorFrom()
+  {
+    assertIdsEquals(newDefinedSet(4, 6, 8, 10, 12).iterator(id(8)), 8, 10, 12);
+    assertIdsEquals(newDefinedSet(4, 6, 8, 10, 12).iterator(id(9)), 10, 12);
+    assertThat(newDefinedSet(4, 6, 8).iterator(id(9)).hasNext()).isFalse();
+
+    assertIdsEquals(newBitmapSet(4, 6, 70000, 70002).iterator(id(7)), 70000, 70002);
+    assertIdsEquals(newBitmapSet(4, 6, 70000, 70002).iterator(id(70001)), 70002);
+    assertThat(newBitmapSet(4, 6, 70000).iterator(id(70001)).hasNext()).isFalse();
+
+    assertThat(newUndefinedSet().iterator(id(1)).hasNext()).isFalse();
+  }
+
   @Test(dataProvider = "codecs")
   public void testCodecs(EntryIDSetCodec codec)
   {
@@ -290,9 +304,99 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testBitmapCodecCompressesLargeSets()
+  {
+    final long[] ids = range(1, 100000);
+    final ByteString compacted = CODEC_V2.encode(newDefinedSet(ids));
+    final ByteString bitmap = CODEC_V4.encode(newDefinedSet(ids));
+    assertThat(bitmap.length()).isLessThan(compacted.length() / 100);
+    assertThat(CODEC_V4.decode(KEY, bitmap).toLongArray()).isEqualTo(ids);
+  }
+
+  @Test
+  public void testBitmapCodecReadsCompactedRecords()
+  {
+    final long[] ids = range(10, 1000);
+    assertThat(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(ids))).toLongArray()).isEqualTo(ids);
+    assertThat(CODEC_V4.decode(KEY, CODEC_V2.encode(newUndefinedSet())).isDefined()).isFalse();
+  }
+
+  @Test
+  public void testBitmapAddRemove()
+  {
+    final EntryIDSet set = newBitmapSet(6, 8, 10, 12);
+
+    assertThat(set.add(id(4))).isTrue();
+    assertThat(set.add(id(70000))).isTrue();
+    assertThat(set.add(id(10))).isFalse();
+    assertThat(set.toLongArray()).containsExactly(4, 6, 8, 10, 12, 70000);
+
+    assertThat(set.remove(id(8))).isTrue();
+    assertThat(set.remove(id(70000))).isTrue();
+    assertThat(set.remove(id(70000))).isFalse();
+    assertThat(set.toLongArray()).containsExactly(4, 6, 10, 12);
+    assertThat(set.contains(id(6))).isTrue();
+    assertThat(set.contains(id(8))).isFalse();
+  }
+
+  @Test
+  public void testBitmapAddAllRemoveAll()
+  {
+    final EntryIDSet set = newBitmapSet(range(0, 10000));
+
+    set.addAll(newDefinedSet(20000, 200000));
+    assertThat(set.size()).isEqualTo(10002);
+    assertThat(set.contains(id(200000))).isTrue();
+
+    set.removeAll(newBitmapSet(range(1, 10000)));
+    assertThat(set.toLongArray()).containsExactly(0, 20000, 200000);
+  }
+
+  @Test
+  public void testBitmapRetainAll()
+  {
+    EntryIDSet retained = newBitmapSet(range(0, 100000));
+    retained.retainAll(newDefinedSet(1, 65535, 65536, 99999, 100000));
+    assertThat(retained.toLongArray()).containsExactly(1, 65535, 65536, 99999);
+
+    retained = newDefinedSet(2, 4, 6, 8);
+    retained.retainAll(newBitmapSet(1, 2, 3, 5, 6, 7, 8));
+    assertThat(retained.toLongArray()).containsExactly(2, 6, 8);
+
+    retained = newBitmapSet(2, 4, 6, 8);
+    retained.retainAll(newUndefinedSet());
+    assertThat(retained.toLongArray()).containsExactly(2, 4, 6, 8);
+
+    retained = newUndefinedSet();
+    retained.retainAll(newBitmapSet(1, 3, 5));
+    assertThat(retained.toLongArray()).containsExactly(1, 3, 5);
+  }
+
+  @Test
+  public void testBitmapNewSetFromUnions()
+  {
+    EntryIDSet union = newSetFromUnion(
+        Arrays.asList(newBitmapSet(1, 2, 3), newDefinedSet(4, 5, 6), newDefinedSet(), newBitmapSet(3, 4, 70000)));
+    assertThat(union.toLongArray()).containsExactly(1, 2, 3, 4, 5, 6, 70000);
+
+    union = newSetFromUnion(Arrays.asList(newBitmapSet(4, 5, 6), newUndefinedSet()));
+    assertThat(union.isDefined()).isFalse();
+  }
+
+  private static long[] range(long from, long to)
+  {
+    final long[] ids = new long[(int) (to - from)];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = from + i;
+    }
+    return ids;
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
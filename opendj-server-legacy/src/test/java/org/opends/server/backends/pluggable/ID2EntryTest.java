@@ -0,0 +1,265 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.util.CollectionUtils.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.PDBBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pdb.PDBStorage;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.MemoryQuota;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.Entry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend" }, sequential = true)
+public class ID2EntryTest extends DirectoryServerTestCase
+{
+  private final TreeName id2entryTreeName = new TreeName("base-dn", "id2entry");
+  private final TreeName dictionaryTreeName = new TreeName("base-dn", "id2entry-dictionary");
+  private final State state = new State(new TreeName("base-dn", "state"));
+  private final int dictionaryEntryCount = CompressionDictionaryTrainer.MIN_SAMPLE_COUNT;
+  private ID2Entry id2entry;
+  private PDBStorage storage;
+
+  // FIXME: This is required since PDBStorage is now using
+  // DirectoryServer static method.
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    ServerContext serverContext = mock(ServerContext.class);
+    when(serverContext.getMemoryQuota()).thenReturn(new MemoryQuota());
+    when(serverContext.getDiskSpaceMonitor()).thenReturn(mock(DiskSpaceMonitor.class));
+
+    storage = new PDBStorage(createBackendCfg(), serverContext);
+    storage.open(AccessMode.READ_WRITE);
+    id2entry = new ID2Entry(id2entryTreeName, new DataConfig.Builder().compress(false).encode(false).build());
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        id2entry.open(txn, true);
+        for (int i = 1; i <= 5; i++)
+        {
+          id2entry.put(txn, id(i), entry(i));
+        }
+        // A record which cannot be decoded
+        id2entry.put(txn, id(6), ByteString.valueOfUtf8("not an entry"));
+        id2entry.put(txn, id(7), entry(7));
+      }
+    });
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testGetSortedEntryIDs() throws Exception
+  {
+    assertThat(names(get(1, 2, 4, 5))).containsExactly(name(1), name(2), name(4), name(5));
+  }
+
+  @Test
+  public void testGetReturnsNullForMissingEntries() throws Exception
+  {
+    assertThat(names(get(0, 2, 3, 8, 9))).containsExactly(null, name(2), name(3), null, null);
+  }
+
+  @Test
+  public void testGetReturnsNullForEntriesWhichCannotBeDecoded() throws Exception
+  {
+    assertThat(names(get(5, 6, 7))).containsExactly(name(5), null, name(7));
+  }
+
+  @Test
+  public void testGetUnsortedEntryIDs() throws Exception
+  {
+    assertThat(names(get(4, 1, 7, 2, 2))).containsExactly(name(4), name(1), name(7), name(2), name(2));
+  }
+
+  @Test
+  public void testGetEntriesCompressedWithDictionary() throws Exception
+  {
+    final ID2Entry compressed = newID2EntryCompressedWithDictionary();
+    final List<Entry> entries = storage.read(new ReadOperation<List<Entry>>()
+    {
+      @Override
+      public List<Entry> run(ReadableTransaction txn) throws Exception
+      {
+        final ByteString record = txn.read(dictionaryTreeName, id(1).toByteString());
+        assertThat(record.byteAt(1) & 0x04).as("entries must be compressed against the dictionary").isNotZero();
+        final List<EntryID> entryIDs = new ArrayList<>();
+        for (int i = 1; i <= dictionaryEntryCount; i++)
+        {
+          entryIDs.add(id(i));
+        }
+        return compressed.get(txn, entryIDs);
+      }
+    });
+
+    // Entries decoded on the same thread must not share their decoded values
+    for (int i = 1; i <= dictionaryEntryCount; i++)
+    {
+      assertThat(entries.get(i - 1).toLDIFString()).isEqualTo(entry(i).toLDIFString());
+    }
+  }
+
+  @Test
+  public void testDeleteRemovesCompressionDictionaries() throws Exception
+  {
+    final ID2Entry compressed = newID2EntryCompressedWithDictionary();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        assertThat(state.getCompressionDictionary(txn, dictionaryTreeName, 1)).isNotNull();
+        compressed.delete(txn);
+        assertThat(state.getCompressionDictionary(txn, dictionaryTreeName, 1)).isNull();
+      }
+    });
+  }
+
+  /** Returns an id2entry tree holding entries compressed against a dictionary trained from them. */
+  private ID2Entry newID2EntryCompressedWithDictionary() throws Exception
+  {
+    final DataConfig dataConfig = new DataConfig.Builder().compress(true).compressionDictionary(true).build();
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        state.open(txn, true);
+        final ID2Entry uncompressed = new ID2Entry(dictionaryTreeName, dataConfig, state);
+        uncompressed.open(txn, true);
+        for (int i = 1; i <= dictionaryEntryCount; i++)
+        {
+          uncompressed.put(txn, id(i), entry(i));
+        }
+      }
+    });
+
+    // Opening the populated tree trains a dictionary, which the entries written next are compressed against
+    final ID2Entry compressed = new ID2Entry(dictionaryTreeName, dataConfig, state);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        compressed.open(txn, true);
+        for (int i = 1; i <= dictionaryEntryCount; i++)
+        {
+          compressed.put(txn, id(i), entry(i));
+        }
+      }
+    });
+    return compressed;
+  }
+
+  private List<Entry> get(final long... ids) throws Exception
+  {
+    return storage.read(new ReadOperation<List<Entry>>()
+    {
+      @Override
+      public List<Entry> run(ReadableTransaction txn) throws Exception
+      {
+        final List<EntryID> entryIDs = new ArrayList<>();
+        for (long id : ids)
+        {
+          entryIDs.add(id(id));
+        }
+        return id2entry.get(txn, entryIDs);
+      }
+    });
+  }
+
+  private static List<DN> names(List<Entry> entries)
+  {
+    final List<DN> names = new ArrayList<>();
+    for (Entry entry : entries)
+    {
+      names.add(entry != null ? entry.getName() : null);
+    }
+    return names;
+  }
+
+  private static EntryID id(long id)
+  {
+    return new EntryID(id);
+  }
+
+  private static DN name(int i)
+  {
+    return DN.valueOf("cn=user" + i + ",dc=test,dc=com");
+  }
+
+  private static Entry entry(int i) throws Exception
+  {
+    return TestCaseUtils.makeEntry(
+        "dn: " + name(i),
+        "objectClass: person",
+        "cn: user" + i,
+        "sn: user" + i);
+  }
+
+  private static PDBBackendCfg createBackendCfg() throws Exception
+  {
+    String homeDirName = "pdb_id2entry_test";
+    PDBBackendCfg backendCfg = mockCfg(PDBBackendCfg.class);
+
+    when(backendCfg.getBackendId()).thenReturn("persTest" + homeDirName);
+    when(backendCfg.getDBDirectory()).thenReturn(homeDirName);
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.getDBCacheSize()).thenReturn(0L);
+    when(backendCfg.getDBCachePercent()).thenReturn(20);
+    when(backendCfg.getBaseDN()).thenReturn(newTreeSet(DN.valueOf("dc=test,dc=com")));
+    when(backendCfg.dn()).thenReturn(DN.valueOf("dc=test,dc=com"));
+    when(backendCfg.listBackendIndexes()).thenReturn(new String[0]);
+    when(backendCfg.listBackendVLVIndexes()).thenReturn(new String[0]);
+    return backendCfg;
+  }
+}
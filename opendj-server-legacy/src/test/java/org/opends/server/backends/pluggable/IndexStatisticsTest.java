@@ -0,0 +1,136 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class IndexStatisticsTest extends DirectoryServerTestCase
+{
+  private final static ByteString KEY = ByteString.valueOfUtf8("person");
+  private final static ByteString OTHER_KEY = ByteString.valueOfUtf8("jdoe");
+
+  @Test
+  public void testUnknownKeyIsEstimatedEmpty()
+  {
+    assertThat(new IndexStatistics().estimate(KEY)).isEqualTo(0);
+  }
+
+  @Test
+  public void testAdd()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.add(KEY, 10);
+    statistics.add(KEY, 5);
+    statistics.add(OTHER_KEY, 1);
+
+    assertThat(statistics.estimate(KEY)).isEqualTo(15);
+    assertThat(statistics.estimate(OTHER_KEY)).isEqualTo(1);
+    assertThat(statistics.estimate(ByteString.valueOfUtf8(KEY.toString()))).isEqualTo(15);
+  }
+
+  @Test
+  public void testRemoveNeverEstimatesNegativeCount()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.add(KEY, 3);
+    statistics.add(KEY, -2);
+    assertThat(statistics.estimate(KEY)).isEqualTo(1);
+
+    statistics.add(KEY, -2);
+    assertThat(statistics.estimate(KEY)).isEqualTo(0);
+  }
+
+  @Test
+  public void testAddSaturates()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.add(KEY, Long.MAX_VALUE - 1);
+    statistics.add(KEY, 10);
+    assertThat(statistics.estimate(KEY)).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void testObserveOnlyRaisesEstimate()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.observe(KEY, 4000);
+    assertThat(statistics.estimate(KEY)).isEqualTo(4000);
+
+    statistics.observe(KEY, 10);
+    assertThat(statistics.estimate(KEY)).isEqualTo(4000);
+  }
+
+  @Test
+  public void testEstimateIsAtLeastActualCount()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    for (int i = 0; i < 300; i++)
+    {
+      statistics.add(ByteString.valueOfUtf8("uid" + i), 1);
+    }
+    statistics.add(KEY, 10000);
+
+    assertThat(statistics.getWidth()).isEqualTo(IndexStatistics.INITIAL_WIDTH);
+    assertThat(statistics.estimate(KEY)).isGreaterThanOrEqualTo(10000);
+    assertThat(statistics.estimate(ByteString.valueOfUtf8("uid42"))).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  public void testSketchGrowsWithTheNumberOfKeys()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    for (int i = 0; i < 200000; i++)
+    {
+      statistics.add(ByteString.valueOfUtf8("uid" + i), 1);
+    }
+    assertThat(statistics.getWidth()).isEqualTo(IndexStatistics.MAX_WIDTH);
+
+    // A fixed size sketch would estimate about 200 entries for any key
+    statistics.add(KEY, 1);
+    assertThat(statistics.estimate(KEY)).isBetween(1L, 10L);
+  }
+
+  @Test
+  public void testClearKeepsTheSketchSize()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    for (int i = 0; i < 10000; i++)
+    {
+      statistics.observe(ByteString.valueOfUtf8("uid" + i), 1);
+    }
+    final int width = statistics.getWidth();
+    assertThat(width).isGreaterThan(IndexStatistics.INITIAL_WIDTH);
+
+    statistics.clear();
+    assertThat(statistics.getWidth()).isEqualTo(width);
+    assertThat(statistics.estimate(ByteString.valueOfUtf8("uid42"))).isEqualTo(0);
+  }
+
+  @Test
+  public void testClear()
+  {
+    final IndexStatistics statistics = new IndexStatistics();
+    statistics.add(KEY, 10);
+    statistics.clear();
+    assertThat(statistics.estimate(KEY)).isEqualTo(0);
+  }
+}
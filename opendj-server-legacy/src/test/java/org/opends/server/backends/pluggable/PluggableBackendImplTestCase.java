@@ -27,6 +27,8 @@ import static org.testng.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,12 +37,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.SortKey;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.CoreSchema;
 import org.forgerock.opendj.server.config.meta.BackendIndexCfgDefn.IndexType;
@@ -58,7 +62,9 @@ import org.opends.server.api.LocalBackend.BackendOperation;
 import org.opends.server.backends.RebuildConfig;
 import org.opends.server.backends.RebuildConfig.RebuildMode;
 import org.opends.server.backends.VerifyConfig;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
 import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
@@ -66,6 +72,8 @@ import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.controls.PagedResultsControl;
+import org.opends.server.controls.ServerSideSortRequestControl;
 import org.opends.server.core.AddOperation;
 import org.opends.server.core.DeleteOperation;
 import org.opends.server.core.ModifyDNOperation;
@@ -75,13 +83,18 @@ import org.opends.server.core.ServerContext;
 import org.opends.server.protocols.internal.InternalClientConnection;
 import org.opends.server.protocols.internal.InternalSearchOperation;
 import org.opends.server.protocols.internal.SearchRequest;
+import org.opends.server.types.Attribute;
 import org.opends.server.types.BackupConfig;
 import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.Control;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
+import org.opends.server.types.ExistingFileBehavior;
 import org.opends.server.types.LDIFExportConfig;
 import org.opends.server.types.LDIFImportConfig;
 import org.opends.server.types.Modification;
+import org.opends.server.types.Operation;
+import org.opends.server.types.Privilege;
 import org.opends.server.types.RestoreConfig;
 import org.opends.server.types.SearchFilter;
 import org.opends.server.types.SearchResultEntry;
@@ -99,7 +112,8 @@ import org.testng.annotations.Test;
 @Test(groups = { "precommit", "pluggablebackend" }, sequential = true)
 public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg> extends DirectoryServerTestCase
 {
-  private BackendImpl<C> backend;
+  protected BackendImpl<C> backend;
+  private C backendCfg;
   private List<Entry> topEntries;
   private List<Entry> entries;
   private List<Entry> workEntries;
@@ -113,10 +127,12 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
   {
     backendIndexes.put("entryUUID", new IndexType[] { IndexType.EQUALITY });
     backendIndexes.put("cn", new IndexType[] { IndexType.SUBSTRING });
-    backendIndexes.put("sn", new IndexType[] { IndexType.PRESENCE, IndexType.EQUALITY, IndexType.SUBSTRING });
+    backendIndexes.put("sn",
+        new IndexType[] { IndexType.PRESENCE, IndexType.EQUALITY, IndexType.ORDERING, IndexType.SUBSTRING });
     backendIndexes.put("uid", new IndexType[] { IndexType.EQUALITY });
     backendIndexes.put("telephoneNumber", new IndexType[] { IndexType.EQUALITY, IndexType.SUBSTRING });
     backendIndexes.put("mail", new IndexType[] { IndexType.SUBSTRING });
+    backendIndexes.put("street", new IndexType[] { IndexType.SUBSTRING });
   }
 
   private String[] backendVlvIndexes = { "people" };
@@ -149,7 +165,7 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
 
     testBaseDN = DN.valueOf("dc=test,dc=com");
 
-    C backendCfg = createBackendCfg();
+    backendCfg = createBackendCfg();
     when(backendCfg.dn()).thenReturn(testBaseDN);
     when(backendCfg.getBaseDN()).thenReturn(newTreeSet(testBaseDN));
     when(backendCfg.listBackendIndexes()).thenReturn(backendIndexes.keySet().toArray(new String[0]));
@@ -166,6 +182,11 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
       when(indexCfg.getAttribute()).thenReturn(attribute);
       when(indexCfg.getIndexEntryLimit()).thenReturn(4000);
       when(indexCfg.getSubstringLength()).thenReturn(6);
+      if ("street".equals(attributeName))
+      {
+        when(indexCfg.getSubstringLength()).thenReturn(3);
+        when(indexCfg.isSubstringNgramIndexEnabled()).thenReturn(true);
+      }
       when(backendCfg.getBackendIndex(index.getKey())).thenReturn(indexCfg);
       if (backendCfg.isConfidentialityEnabled())
       {
@@ -831,7 +852,19 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
       { "sn=abadin*", 1},
       { "sn=*abadin*", 1},
       { "sn=*abadin", 0},
-      { "sn=*adines", 1}
+      { "sn=*adines", 1},
+      { "mail=user.1*", 4},
+      { "mail=*er.53*", 1},
+      { "mail=*.1*", 4},
+      { "mail=*.9@*", 1},
+      { "mail=*9@example.com", 2},
+      { "mail=*9@example.co", 0},
+      // street uses a positional n-gram index
+      { "street=81*", 3},
+      { "street=*hill*", 2},
+      { "street=*ll*", 3},
+      { "street=*t Street", 2},
+      { "street=*Stree", 0},
       // @formatter:on
     };
   }
@@ -868,6 +901,348 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(searchOperation.getEntriesSent()).isEqualTo(0);
   }
 
+  @Test
+  public void testSortedSearchWithSizeLimit() throws Exception
+  {
+    final List<String> sortedNames = getSurnames(runSortedSearch("sn=*", "sn", 0));
+    assertThat(sortedNames).isSortedAccordingTo(String.CASE_INSENSITIVE_ORDER);
+
+    final List<SearchResultEntry> result = runSortedSearch("sn=*", "sn", 3);
+    assertThat(getSurnames(result)).isEqualTo(sortedNames.subList(0, 3));
+  }
+
+  @Test
+  public void testSortedSearchUsingOrderingIndex() throws Exception
+  {
+    // No approximate index on sn: the candidates are undefined and can only be sorted by walking the ordering index
+    final String filter = "(|(sn~=Abadines)(sn>=A))";
+    final List<String> expectedNames = getSurnames(runSortedSearch("sn>=A", "sn", 0));
+
+    assertThat(getSurnames(runSortedSearch(filter, "sn", 0))).isEqualTo(expectedNames);
+
+    final List<String> reverseNames = new ArrayList<>(expectedNames);
+    Collections.reverse(reverseNames);
+    assertThat(getSurnames(runSortedSearch(filter, "-sn", 0))).isEqualTo(reverseNames);
+  }
+
+  @Test
+  public void testSortedSearchUsingOrderingIndexIsUnindexed() throws Exception
+  {
+    // Without an approximate index on sn, and with a lookthrough limit below the number of entries in scope, the
+    // candidates are undefined and can only be sorted by walking the ordering index
+    final String filter = "(|(sn~=Abadines)(sn>=A))";
+    final SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, filter)
+        .addControl(new ServerSideSortRequestControl(false, "sn"));
+    final BackendMonitor monitor = backend.getRootContainer().getMonitorProvider();
+    monitor.enableFilterUseStats(true);
+    try
+    {
+      final ClientConnection connection = new ClientConnectionStub();
+      connection.setLookthroughLimit(2);
+      InternalSearchOperation searchOperation = new InternalSearchOperation(connection, 1, 1, request, null);
+      searchOperation.run();
+      assertThat(searchOperation.getResultCode()).isEqualTo(ResultCode.INSUFFICIENT_ACCESS_RIGHTS);
+      assertThat(searchOperation.getErrorMessage().toString()).contains("unindexed search");
+      assertThat(searchOperation.getEntriesSent()).isEqualTo(0);
+      assertThat(getMonitorCount(monitor, "filter-use-indexed")).isEqualTo(0);
+      assertThat(getMonitorCount(monitor, "filter-use-unindexed")).isEqualTo(1);
+
+      final ClientConnection privilegedConnection = new ClientConnectionStub()
+      {
+        @Override
+        public boolean hasPrivilege(Privilege privilege, Operation operation)
+        {
+          return privilege == Privilege.UNINDEXED_SEARCH;
+        }
+      };
+      privilegedConnection.setLookthroughLimit(2);
+      searchOperation = new InternalSearchOperation(privilegedConnection, 1, 1, request, null);
+      searchOperation.run();
+      // The sorted candidates are then subject to the lookthrough limit
+      assertThat(searchOperation.getResultCode()).isEqualTo(ResultCode.ADMIN_LIMIT_EXCEEDED);
+      assertThat(getMonitorCount(monitor, "filter-use-indexed")).isEqualTo(0);
+      assertThat(getMonitorCount(monitor, "filter-use-unindexed")).isEqualTo(2);
+    }
+    finally
+    {
+      monitor.enableFilterUseStats(false);
+    }
+  }
+
+  @Test
+  public void testSortedIDsWithEntryDeletedBeforeSorting() throws Exception
+  {
+    final DN sortDN = DN.valueOf("ou=Sort," + testBaseDN);
+    final List<Entry> sortEntries = new ArrayList<>();
+    sortEntries.add(TestCaseUtils.makeEntry(
+        "dn: " + sortDN,
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: Sort"));
+    for (String uid : Arrays.asList("sort.a", "sort.b", "sort.c"))
+    {
+      sortEntries.add(TestCaseUtils.makeEntry(
+          "dn: uid=" + uid + "," + sortDN,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: " + uid,
+          "cn: " + uid,
+          "sn: Sort"));
+    }
+    addEntriesToBackend(sortEntries);
+    final Storage storage = backend.getRootContainer().getStorage();
+    final EntryContainer entryContainer = backend.getRootContainer().getEntryContainer(testBaseDN);
+    try
+    {
+      final long[] ids = storage.read(new ReadOperation<long[]>()
+      {
+        @Override
+        public long[] run(ReadableTransaction txn) throws Exception
+        {
+          final long[] ids = new long[3];
+          for (int i = 0; i < ids.length; i++)
+          {
+            ids[i] = entryContainer.getDN2ID().get(txn, sortEntries.get(i + 1).getName()).longValue();
+          }
+          return ids;
+        }
+      });
+      // All the candidates share the same sn, hence the same group of the ordering index
+      final EntryContainer.SortedIDs sortedIDs = entryContainer.new SortedIDs(ids);
+      sortedIDs.addRemainingGroup();
+
+      // The entry is deleted after the candidates have been collected, but before they are sorted
+      backend.deleteEntry(sortEntries.get(2).getName(), mock(DeleteOperation.class));
+      final long[] sorted = storage.read(new ReadOperation<long[]>()
+      {
+        @Override
+        public long[] run(ReadableTransaction txn) throws Exception
+        {
+          return sortedIDs.toArray(txn, Arrays.asList(new SortKey("sn", false), new SortKey("uid", true)), false);
+        }
+      });
+      assertThat(sorted).containsExactly(ids[2], ids[0], ids[1]);
+    }
+    finally
+    {
+      for (int i = sortEntries.size() - 1; i >= 0; i--)
+      {
+        if (backend.getEntry(sortEntries.get(i).getName()) != null)
+        {
+          backend.deleteEntry(sortEntries.get(i).getName(), mock(DeleteOperation.class));
+        }
+      }
+    }
+  }
+
+  private static long getMonitorCount(BackendMonitor monitor, String attributeName)
+  {
+    for (Attribute attribute : monitor.getMonitorData())
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equals(attributeName))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    throw new AssertionError("Missing monitor attribute " + attributeName);
+  }
+
+  @Test
+  public void testParallelSearchEvaluation() throws Exception
+  {
+    final DN evaluationDN = DN.valueOf("ou=Evaluation," + testBaseDN);
+    final List<Entry> evaluationEntries = new ArrayList<>();
+    evaluationEntries.add(TestCaseUtils.makeEntry(
+        "dn: " + evaluationDN,
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: Evaluation"));
+    for (int i = 0; i < 100; i++)
+    {
+      evaluationEntries.add(TestCaseUtils.makeEntry(
+          "dn: uid=evaluation." + i + "," + evaluationDN,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: evaluation." + i,
+          "cn: Evaluation " + i,
+          "sn: Evaluation" + i,
+          "employeeNumber: " + i));
+    }
+    addEntriesToBackend(evaluationEntries);
+    final RootContainer rootContainer = backend.getRootContainer();
+    try
+    {
+      // The sn candidates of the whole backend are checked for scope and for the unindexed employeeNumber
+      final String filter = "(&(sn=*)(employeeNumber=*5))";
+      final List<DN> allNames = getNames(runEvaluationSearch(evaluationDN, filter, 0));
+      final List<DN> limitedNames = getNames(runEvaluationSearch(evaluationDN, filter, 7));
+      final List<DN> pagedNames = runPagedEvaluationSearch(evaluationDN, filter, 3);
+      assertThat(allNames).hasSize(10);
+      assertThat(limitedNames).isEqualTo(allNames.subList(0, 7));
+      assertThat(pagedNames).isEqualTo(allNames);
+
+      when(backendCfg.getNumSearchEvaluationThreads()).thenReturn(4);
+      rootContainer.applyConfigurationChange(backendCfg);
+      final ForkJoinPool pool = rootContainer.getSearchEvaluationPool();
+      assertThat(pool).isNotNull();
+      assertThat(pool.getParallelism()).isEqualTo(4);
+
+      assertThat(getNames(runEvaluationSearch(evaluationDN, filter, 0))).isEqualTo(allNames);
+      assertThat(pool.getPoolSize()).as("the candidates must have been evaluated by the pool").isGreaterThan(0);
+      assertThat(getNames(runEvaluationSearch(evaluationDN, filter, 7))).isEqualTo(limitedNames);
+      assertThat(runPagedEvaluationSearch(evaluationDN, filter, 3)).isEqualTo(pagedNames);
+
+      when(backendCfg.getNumSearchEvaluationThreads()).thenReturn(0);
+      rootContainer.applyConfigurationChange(backendCfg);
+      assertThat(rootContainer.getSearchEvaluationPool()).isNull();
+      assertThat(pool.isShutdown()).isTrue();
+      assertThat(getNames(runEvaluationSearch(evaluationDN, filter, 0))).isEqualTo(allNames);
+    }
+    finally
+    {
+      when(backendCfg.getNumSearchEvaluationThreads()).thenReturn(0);
+      rootContainer.applyConfigurationChange(backendCfg);
+      for (int i = evaluationEntries.size() - 1; i >= 0; i--)
+      {
+        backend.deleteEntry(evaluationEntries.get(i).getName(), mock(DeleteOperation.class));
+      }
+    }
+  }
+
+  @Test
+  public void testIndexFilterPlan() throws Exception
+  {
+    final DN planDN = DN.valueOf("ou=Plan," + testBaseDN);
+    final List<Entry> planEntries = new ArrayList<>();
+    planEntries.add(TestCaseUtils.makeEntry(
+        "dn: " + planDN,
+        "objectClass: top",
+        "objectClass: organizationalUnit",
+        "ou: Plan"));
+    for (int i = 0; i < 30; i++)
+    {
+      planEntries.add(TestCaseUtils.makeEntry(
+          "dn: uid=plan." + i + "," + planDN,
+          "objectClass: top",
+          "objectClass: person",
+          "objectClass: organizationalPerson",
+          "objectClass: inetOrgPerson",
+          "uid: plan." + i,
+          "cn: Plan " + i,
+          "sn: Plan",
+          "description: plan",
+          i < 15 ? "telephoneNumber: 555-0100" : "l: Plan"));
+    }
+    addEntriesToBackend(planEntries);
+    try
+    {
+      // The selective uid component is read first, and reaches the candidate threshold on its own
+      String debug = getDebugSearchIndex(planDN, "(&(sn=*)(uid=plan.3))");
+      assertThat(debug).startsWith("filter=(&[ESTIMATE:1](uid=plan.3)").doesNotContain("(sn=*)");
+
+      // Components are read by increasing estimate whatever their order in the filter
+      debug = getDebugSearchIndex(planDN, "(&(sn=Plan)(telephoneNumber=555-0100))");
+      assertThat(debug).startsWith("filter=(&[ESTIMATE:15](telephoneNumber=555-0100)");
+      assertThat(debug).contains("[ESTIMATE:30](sn=Plan)").doesNotContain("[SKIPPED]");
+
+      // The unindexed description component cannot reduce the candidates of the sn component
+      debug = getDebugSearchIndex(planDN, "(&(description=plan)(sn=Plan))");
+      assertThat(debug.indexOf("(sn=Plan)")).isGreaterThan(0).isLessThan(debug.indexOf("(description=plan)"));
+      assertThat(debug).contains("[ESTIMATE:UNDEFINED](description=plan)[SKIPPED]");
+
+      // Without any defined candidates, it must be read
+      debug = getDebugSearchIndex(planDN, "(&(description=plan)(telephoneNumber=*))");
+      assertThat(debug).doesNotContain("[SKIPPED]");
+
+      // Skipping components must not change the result
+      assertThat(runEvaluationSearch(planDN, "(&(description=plan)(sn=Plan))", 0)).hasSize(30);
+    }
+    finally
+    {
+      for (int i = planEntries.size() - 1; i >= 0; i--)
+      {
+        backend.deleteEntry(planEntries.get(i).getName(), mock(DeleteOperation.class));
+      }
+    }
+  }
+
+  private String getDebugSearchIndex(DN baseDN, String filter) throws Exception
+  {
+    final SearchRequest request = newSearchRequest(baseDN, SearchScope.WHOLE_SUBTREE, filter)
+        .addAttribute(SuffixContainer.ATTR_DEBUG_SEARCH_INDEX);
+    final InternalSearchOperation search = getRootConnection().processSearch(request);
+    assertThat(search.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(search.getSearchEntries()).hasSize(1);
+    return search.getSearchEntries().get(0).parseAttribute(SuffixContainer.ATTR_DEBUG_SEARCH_INDEX).asString();
+  }
+
+  private List<SearchResultEntry> runEvaluationSearch(DN baseDN, String filter, int sizeLimit) throws Exception
+  {
+    final SearchRequest request = newSearchRequest(baseDN, SearchScope.WHOLE_SUBTREE, filter).setSizeLimit(sizeLimit);
+    final InternalSearchOperation search = getRootConnection().processSearch(request);
+    assertThat(search.getResultCode()).isIn(ResultCode.SUCCESS, ResultCode.SIZE_LIMIT_EXCEEDED);
+    return search.getSearchEntries();
+  }
+
+  private List<DN> runPagedEvaluationSearch(DN baseDN, String filter, int pageSize) throws Exception
+  {
+    final List<DN> names = new ArrayList<>();
+    ByteString cookie = ByteString.empty();
+    do
+    {
+      final SearchRequest request = newSearchRequest(baseDN, SearchScope.WHOLE_SUBTREE, filter)
+          .addControl(new PagedResultsControl(false, pageSize, cookie));
+      final InternalSearchOperation search = getRootConnection().processSearch(request);
+      assertThat(search.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(search.getSearchEntries().size()).isLessThanOrEqualTo(pageSize);
+      names.addAll(getNames(search.getSearchEntries()));
+      cookie = ByteString.empty();
+      for (Control control : search.getResponseControls())
+      {
+        if (control instanceof PagedResultsControl)
+        {
+          cookie = ((PagedResultsControl) control).getCookie();
+        }
+      }
+    }
+    while (cookie.length() > 0);
+    return names;
+  }
+
+  private static List<DN> getNames(List<SearchResultEntry> entries)
+  {
+    final List<DN> names = new ArrayList<>();
+    for (SearchResultEntry entry : entries)
+    {
+      names.add(entry.getName());
+    }
+    return names;
+  }
+
+  private List<SearchResultEntry> runSortedSearch(String filter, String sortOrder, int sizeLimit) throws Exception
+  {
+    final SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, filter)
+        .setSizeLimit(sizeLimit)
+        .addControl(new ServerSideSortRequestControl(true, sortOrder));
+    final InternalSearchOperation search = getRootConnection().processSearch(request);
+    assertThat(search.getResultCode()).isIn(ResultCode.SUCCESS, ResultCode.SIZE_LIMIT_EXCEEDED);
+    return search.getSearchEntries();
+  }
+
+  private static List<String> getSurnames(List<SearchResultEntry> entries)
+  {
+    final List<String> surnames = new ArrayList<>();
+    for (SearchResultEntry entry : entries)
+    {
+      surnames.add(entry.parseAttribute("sn").asString());
+    }
+    return surnames;
+  }
+
   private void subTreeSearch(boolean useInternalConnection) throws Exception
   {
     SearchRequest request = newSearchRequest(testBaseDN, SearchScope.WHOLE_SUBTREE, "objectclass=*");
@@ -990,6 +1365,160 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(0);
   }
 
+  @Test
+  public void testParallelExportLDIF() throws Exception
+  {
+    final String sequentialExport = exportLDIF(0);
+    assertEquals(exportLDIF(4), sequentialExport, "Parallel export must write the entries in order");
+  }
+
+  @Test
+  public void testParallelExportLDIFToSplitFiles() throws Exception
+  {
+    final File exportDirectory = TestCaseUtils.createTemporaryDirectory("export");
+    final String ldifFile = new File(exportDirectory, "export.ldif").getPath();
+    try (final LDIFExportConfig exportConfig = new LDIFExportConfig(ldifFile, ExistingFileBehavior.OVERWRITE))
+    {
+      exportConfig.setIncludeOperationalAttributes(true);
+      exportConfig.setThreadCount(2);
+      exportConfig.setSplitOutput(true);
+      backend.exportLDIF(exportConfig);
+    }
+
+    assertEquals(ExportJob.getPartFileName(ldifFile, 1), new File(exportDirectory, "export-1.ldif").getPath());
+    assertFalse(new File(ldifFile).exists(), "Split export must not write the LDIF file");
+    int exportedEntries = 0;
+    for (File part : exportDirectory.listFiles())
+    {
+      exportedEntries += countEntries(new String(Files.readAllBytes(part.toPath())));
+    }
+    assertEquals(exportedEntries, countEntries(exportLDIF(0)));
+  }
+
+  @Test
+  public void testParallelVerifyBackend() throws Exception
+  {
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.setThreadCount(4);
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    for (String indexName : backendIndexes.keySet())
+    {
+      config = new VerifyConfig();
+      config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+      config.setThreadCount(4);
+      config.addCleanIndex(indexName);
+      assertThat(backend.verifyBackend(config)).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testParallelVerifyReportsErrorsInKeyOrder() throws Exception
+  {
+    final Storage storage = backend.getRootContainer().getStorage();
+    final AttributeIndex uidIndex = backend.getRootContainer().getEntryContainer(testBaseDN)
+        .getAttributeIndex(CoreSchema.getUIDAttributeType());
+    final MatchingRuleIndex index = uidIndex.getNameToIndexes().values().iterator().next();
+    final long[] unknownIDs = { 1000001, 1000002, 1000003 };
+
+    // Reference unknown entries from the first, middle and last keys of the index
+    final List<ByteString> keys = storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        final List<ByteString> keys = new ArrayList<>();
+        try (Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey());
+          }
+        }
+        return keys;
+      }
+    });
+    final List<ByteString> corruptedKeys =
+        Arrays.asList(keys.get(0), keys.get(keys.size() / 2), keys.get(keys.size() - 1));
+    updateIndex(index, corruptedKeys, unknownIDs, true);
+
+    VerifyJob.setMinRangeSize(1);
+    try
+    {
+      assertThat(VerifyJob.getNumberOfRanges(keys.size(), 4)).isGreaterThan(corruptedKeys.size());
+
+      final VerifyConfig config = new VerifyConfig();
+      config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+      config.setThreadCount(4);
+      config.addCleanIndex("uid");
+      TestCaseUtils.ERROR_TEXT_WRITER.clear();
+      assertThat(backend.verifyBackend(config)).isEqualTo(unknownIDs.length);
+
+      final List<String> errors = new ArrayList<>();
+      for (String message : TestCaseUtils.ERROR_TEXT_WRITER.getMessages())
+      {
+        for (long unknownID : unknownIDs)
+        {
+          if (message.contains("Reference to unknown ID " + unknownID))
+          {
+            errors.add("Reference to unknown ID " + unknownID);
+          }
+        }
+      }
+      assertThat(errors).containsExactly(
+          "Reference to unknown ID 1000001", "Reference to unknown ID 1000002", "Reference to unknown ID 1000003");
+    }
+    finally
+    {
+      VerifyJob.setMinRangeSize(VerifyJob.MIN_RANGE_SIZE);
+      updateIndex(index, corruptedKeys, unknownIDs, false);
+    }
+  }
+
+  /** Adds or removes the provided entry ID of each provided key of an index. */
+  private void updateIndex(final Index index, final List<ByteString> keys, final long[] entryIDs, final boolean add)
+      throws Exception
+  {
+    backend.getRootContainer().getStorage().write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (int i = 0; i < keys.size(); i++)
+        {
+          final EntryIDSet ids = EntryIDSet.newDefinedSet(entryIDs[i]);
+          index.update(txn, keys.get(i), add ? null : ids, add ? ids : null);
+        }
+      }
+    });
+  }
+
+  private String exportLDIF(int threadCount) throws Exception
+  {
+    ByteArrayOutputStream ldifOutputContent = new ByteArrayOutputStream();
+    try (final LDIFExportConfig exportConfig = new LDIFExportConfig(ldifOutputContent))
+    {
+      exportConfig.setIncludeOperationalAttributes(true);
+      exportConfig.setThreadCount(threadCount);
+      backend.exportLDIF(exportConfig);
+    }
+    return ldifOutputContent.toString();
+  }
+
+  private static int countEntries(String ldif)
+  {
+    int count = 0;
+    for (int i = ldif.indexOf("dn: "); i >= 0; i = ldif.indexOf("dn: ", i + 1))
+    {
+      if (i == 0 || ldif.charAt(i - 1) == '\n')
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
   @Test
   public void testRebuildAllIndex() throws Exception
   {
@@ -1100,6 +1629,59 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(0);
   }
 
+  @Test
+  public void testRebuildIndexOnline() throws Exception
+  {
+    final EntryContainer entryContainer =  backend.getRootContainer().getEntryContainers().iterator().next();
+
+    // Degrade the index while the backend remains open
+    backend.getRootContainer().getStorage().write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (AttributeIndex attribute : entryContainer.getAttributeIndexes())
+        {
+          if ("sn".equals(attribute.getAttributeType().getNameOrOID()))
+          {
+            for (Index idx : attribute.getNameToIndexes().values())
+            {
+              idx.setTrusted(txn, false);
+              idx.delete(txn);
+            }
+          }
+        }
+      }
+    });
+
+    RebuildConfig rebuildConf = new RebuildConfig();
+    rebuildConf.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    rebuildConf.setRebuildMode(RebuildMode.USER_DEFINED);
+    rebuildConf.addRebuildIndex("sn");
+    rebuildConf.setOnline(true);
+    rebuildConf.setMaxEntriesPerSecond(1000);
+
+    backend.rebuildBackend(rebuildConf, TestCaseUtils.getServerContext());
+
+    for (AttributeIndex attribute : entryContainer.getAttributeIndexes())
+    {
+      for (Index idx : attribute.getNameToIndexes().values())
+      {
+        assertTrue(idx.isTrusted(), idx.getName() + " should be trusted after an online rebuild");
+      }
+    }
+
+    VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.addCompleteIndex("sn");
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+
+    config = new VerifyConfig();
+    config.setBaseDN(DN.valueOf("dc=test,dc=com"));
+    config.addCleanIndex("sn");
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+  }
+
   @Test
   public void testVerifyID2ChildrenCount() throws Exception
   {
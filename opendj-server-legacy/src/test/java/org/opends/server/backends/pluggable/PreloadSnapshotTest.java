@@ -0,0 +1,134 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class PreloadSnapshotTest extends DirectoryServerTestCase
+{
+  private static final TreeName ID2ENTRY = new TreeName("dc=example,dc=com", "id2entry");
+  private static final TreeName DN2ID = new TreeName("dc=example,dc=com", "dn2id");
+  /** Reads enough times for a key to be sampled at least once. */
+  private static final int READS = 1000;
+
+  private File snapshotFile;
+
+  @BeforeMethod
+  public void setUp() throws IOException
+  {
+    snapshotFile = File.createTempFile("preload", ".snapshot");
+    snapshotFile.delete();
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    snapshotFile.delete();
+  }
+
+  @Test
+  public void testLoadWithoutSnapshot() throws Exception
+  {
+    assertThat(new PreloadSnapshot("test", snapshotFile).load()).isEmpty();
+  }
+
+  @Test
+  public void testSaveAndLoadHotKeys() throws Exception
+  {
+    final PreloadSnapshot snapshot = new PreloadSnapshot("test", snapshotFile);
+    snapshot.start(Long.MAX_VALUE);
+    try
+    {
+      read(snapshot, DN2ID, "b", READS);
+      read(snapshot, ID2ENTRY, "y", READS);
+      read(snapshot, ID2ENTRY, "x", READS);
+    }
+    finally
+    {
+      snapshot.stop();
+    }
+    assertThat(snapshotFile).exists();
+
+    final Map<TreeName, List<ByteString>> hotKeys = new PreloadSnapshot("test", snapshotFile).load();
+    assertThat(hotKeys.keySet()).containsExactly(ID2ENTRY, DN2ID);
+    assertThat(hotKeys.get(ID2ENTRY)).containsExactly(ByteString.valueOfUtf8("x"), ByteString.valueOfUtf8("y"));
+    assertThat(hotKeys.get(DN2ID)).containsExactly(ByteString.valueOfUtf8("b"));
+  }
+
+  @Test
+  public void testOnlySamplesWhileStarted() throws Exception
+  {
+    final PreloadSnapshot snapshot = new PreloadSnapshot("test", snapshotFile);
+    read(snapshot, ID2ENTRY, "x", READS);
+    snapshot.start(0);
+    read(snapshot, ID2ENTRY, "x", READS);
+    assertThat(snapshot.isEnabled()).isFalse();
+
+    snapshot.save();
+    assertThat(snapshot.load()).isEmpty();
+  }
+
+  @Test
+  public void testKeepsMostRecentlySampledKeys() throws Exception
+  {
+    final PreloadSnapshot snapshot = new PreloadSnapshot("test", snapshotFile);
+    snapshot.start(Long.MAX_VALUE);
+    try
+    {
+      for (int i = 0; i < 100 * PreloadSnapshot.MAX_KEYS_PER_TREE; i++)
+      {
+        snapshot.sample(ID2ENTRY, ByteString.valueOfInt(i));
+      }
+    }
+    finally
+    {
+      snapshot.stop();
+    }
+    final List<ByteString> keys = snapshot.load().get(ID2ENTRY);
+    assertThat(keys).hasSize(PreloadSnapshot.MAX_KEYS_PER_TREE).isSorted();
+    assertThat(keys.get(0).toInt()).isGreaterThanOrEqualTo(50 * PreloadSnapshot.MAX_KEYS_PER_TREE);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testLoadCorruptedSnapshot() throws Exception
+  {
+    Files.write(snapshotFile.toPath(), new byte[] { 1, 2, 3 });
+    new PreloadSnapshot("test", snapshotFile).load();
+  }
+
+  private static void read(PreloadSnapshot snapshot, TreeName treeName, String key, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      snapshot.sample(treeName, ByteString.valueOfUtf8(key));
+    }
+  }
+}
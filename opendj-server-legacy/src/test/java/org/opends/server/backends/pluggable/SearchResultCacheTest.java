@@ -0,0 +1,173 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static java.util.Arrays.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.opends.server.backends.pluggable.EntryIDSet.*;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.SearchResultCache.Dependencies;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class SearchResultCacheTest extends DirectoryServerTestCase
+{
+  private static final TreeName CN_EQUALITY = new TreeName("dc=example,dc=com", "cn.caseIgnoreMatch");
+  private static final TreeName UID_ORDERING = new TreeName("dc=example,dc=com", "uid.caseIgnoreOrderingMatch");
+  private static final ByteString JOHN = ByteString.valueOfUtf8("john");
+  private static final ByteString JANE = ByteString.valueOfUtf8("jane");
+
+  private SearchFilter johnFilter;
+  private SearchFilter janeFilter;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startFakeServer();
+    johnFilter = SearchFilter.createFilterFromString("(cn=john)");
+    janeFilter = SearchFilter.createFilterFromString("(cn=jane)");
+  }
+
+  @AfterClass
+  public void tearDown() throws DirectoryException
+  {
+    TestCaseUtils.shutdownFakeServer();
+  }
+
+  @Test
+  public void testGetReturnsACopyOfTheCachedCandidates() throws Exception
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 100);
+    final SearchFilter filter = SearchFilter.createFilterFromString("(&(cn=john)(sn=doe))");
+    assertThat(cache.get(filter)).isNull();
+
+    cache.put(filter, newDefinedSet(1, 2, 3), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    final EntryIDSet candidates = cache.get(SearchFilter.createFilterFromString("(&(sn=doe)(cn=john))"));
+    assertThat(candidates.toLongArray()).containsExactly(1, 2, 3);
+
+    candidates.remove(new EntryID(1));
+    assertThat(cache.get(filter).toLongArray()).containsExactly(1, 2, 3);
+    assertThat(cache.getHitCount()).isEqualTo(2);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testUndefinedAndLargeCandidatesAreNotCached()
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 2);
+    cache.put(johnFilter, newUndefinedSet(), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    cache.put(janeFilter, newDefinedSet(1, 2, 3), keyDependency(CN_EQUALITY, JANE), cache.getVersion());
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testDisabledCacheDoesNotCache()
+  {
+    final SearchResultCache cache = new SearchResultCache(0, 100);
+    assertThat(cache.isEnabled()).isFalse();
+    cache.put(johnFilter, newDefinedSet(1), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testInvalidateOnlyRemovesCandidatesReadFromUpdatedKeys()
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 100);
+    cache.put(johnFilter, newDefinedSet(1), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    cache.put(janeFilter, newDefinedSet(2), keyDependency(CN_EQUALITY, JANE), cache.getVersion());
+
+    cache.invalidate(UID_ORDERING, asList(JOHN));
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.invalidate(CN_EQUALITY, asList(JOHN));
+    assertThat(cache.get(johnFilter)).isNull();
+    assertThat(cache.get(janeFilter).toLongArray()).containsExactly(2);
+    assertThat(cache.getInvalidationCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testInvalidateRemovesCandidatesReadFromUpdatedRanges() throws Exception
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 100);
+    final Dependencies dependencies = new Dependencies();
+    dependencies.addRange(UID_ORDERING, ByteString.valueOfUtf8("b"), ByteString.valueOfUtf8("d"));
+    final SearchFilter rangeFilter = SearchFilter.createFilterFromString("(&(uid>=b)(uid<=d))");
+    cache.put(rangeFilter, newDefinedSet(1), dependencies, cache.getVersion());
+
+    cache.invalidate(UID_ORDERING, asList(ByteString.valueOfUtf8("a"), ByteString.valueOfUtf8("e")));
+    assertThat(cache.size()).isEqualTo(1);
+
+    cache.invalidate(UID_ORDERING, asList(ByteString.valueOfUtf8("d")));
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testCandidatesReadBeforeAnInvalidationAreNotCached()
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 100);
+    final long searchVersion = cache.getVersion();
+    cache.invalidate(UID_ORDERING, asList(JOHN));
+    cache.put(johnFilter, newDefinedSet(1), keyDependency(CN_EQUALITY, JOHN), searchVersion);
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedCandidatesAreEvicted()
+  {
+    final SearchResultCache cache = new SearchResultCache(2, 100);
+    final SearchFilter otherFilter = SearchFilter.objectClassPresent();
+    cache.put(johnFilter, newDefinedSet(1), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    cache.put(janeFilter, newDefinedSet(2), keyDependency(CN_EQUALITY, JANE), cache.getVersion());
+    cache.get(johnFilter);
+    cache.put(otherFilter, newDefinedSet(3), keyDependency(CN_EQUALITY, JANE), cache.getVersion());
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(janeFilter)).isNull();
+    assertThat(cache.get(johnFilter)).isNotNull();
+
+    cache.setLimits(1, 100);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testClear()
+  {
+    final SearchResultCache cache = new SearchResultCache(10, 100);
+    cache.put(johnFilter, newDefinedSet(1), keyDependency(CN_EQUALITY, JOHN), cache.getVersion());
+    final long searchVersion = cache.getVersion();
+    cache.clear();
+    assertThat(cache.size()).isEqualTo(0);
+
+    cache.put(janeFilter, newDefinedSet(2), keyDependency(CN_EQUALITY, JANE), searchVersion);
+    assertThat(cache.size()).isEqualTo(0);
+  }
+
+  private static Dependencies keyDependency(TreeName treeName, ByteString key)
+  {
+    final Dependencies dependencies = new Dependencies();
+    dependencies.addKey(treeName, key);
+    return dependencies;
+  }
+}
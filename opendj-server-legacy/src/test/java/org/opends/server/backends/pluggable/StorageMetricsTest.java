@@ -0,0 +1,110 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.StorageMetrics.LatencyHistogram;
+import org.opends.server.backends.pluggable.StorageMetrics.TreeMetrics;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class StorageMetricsTest extends DirectoryServerTestCase
+{
+  private static final TreeName ID2ENTRY = new TreeName("dc=example,dc=com", "id2entry");
+  private static final TreeName DN2ID = new TreeName("dc=example,dc=com", "dn2id");
+
+  @DataProvider
+  public Object[][] values()
+  {
+    return new Object[][] { { 0L }, { 7L }, { 8L }, { 15L }, { 16L }, { 17L }, { 1000L }, { 123456789L },
+      { Long.MAX_VALUE } };
+  }
+
+  @Test(dataProvider = "values")
+  public void testBucketBoundsHaveBoundedRelativeError(long value)
+  {
+    final int index = LatencyHistogram.bucketIndex(value);
+    final long upperBound = LatencyHistogram.bucketUpperBound(index);
+    assertThat(upperBound).isGreaterThanOrEqualTo(value);
+    assertThat(upperBound - value).isLessThanOrEqualTo(value / 8);
+    if (index > 0)
+    {
+      assertThat(LatencyHistogram.bucketUpperBound(index - 1)).isLessThan(value);
+    }
+  }
+
+  @Test
+  public void testPercentiles()
+  {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertThat(histogram.getPercentile(99)).isEqualTo(0);
+    for (int i = 1; i <= 1000; i++)
+    {
+      histogram.record(i * 1000L);
+    }
+    assertThat(histogram.getPercentile(50)).isBetween(500000L, 500000L * 9 / 8);
+    assertThat(histogram.getPercentile(99)).isBetween(990000L, 990000L * 9 / 8);
+    assertThat(histogram.getPercentile(100)).isEqualTo(1000000L);
+    assertThat(histogram.getMax()).isEqualTo(1000000L);
+  }
+
+  @Test
+  public void testRecordsPerTree()
+  {
+    final StorageMetrics metrics = new StorageMetrics();
+    metrics.setEnabled(true);
+    final long start = System.nanoTime();
+    metrics.recordRead(ID2ENTRY, 1, 100, start);
+    metrics.recordRead(ID2ENTRY, 3, 300, start);
+    metrics.recordWrite(ID2ENTRY, 50, start);
+    metrics.recordCursor(DN2ID);
+    final TreeMetrics dn2id = metrics.getTreeMetrics(DN2ID);
+    metrics.recordCursorStep(dn2id);
+    metrics.recordCursorBytes(dn2id, 20);
+
+    final TreeMetrics id2entry = metrics.getTreeMetrics(ID2ENTRY);
+    assertThat(id2entry.getReads()).isEqualTo(4);
+    assertThat(id2entry.getReadBytes()).isEqualTo(400);
+    assertThat(id2entry.getWrites()).isEqualTo(1);
+    assertThat(id2entry.getWriteBytes()).isEqualTo(50);
+    assertThat(dn2id.getCursors()).isEqualTo(1);
+    assertThat(dn2id.getCursorSteps()).isEqualTo(1);
+    assertThat(dn2id.getReadBytes()).isEqualTo(20);
+
+    assertThat(metrics.toMonitorValues()).hasSize(2);
+    assertThat(metrics.toMonitorValues().get(0)).startsWith(DN2ID + " reads:0 writes:0 cursors:1 cursorsteps:1");
+  }
+
+  @Test
+  public void testEnablingResetsTheMetrics()
+  {
+    final StorageMetrics metrics = new StorageMetrics();
+    metrics.setEnabled(true);
+    metrics.recordWrite(ID2ENTRY, 50, System.nanoTime());
+    metrics.setEnabled(true);
+    assertThat(metrics.toMonitorValues()).hasSize(1);
+
+    metrics.setEnabled(false);
+    metrics.setEnabled(true);
+    assertThat(metrics.toMonitorValues()).isEmpty();
+    assertThat(metrics.getStartTime()).isNotNull();
+  }
+}
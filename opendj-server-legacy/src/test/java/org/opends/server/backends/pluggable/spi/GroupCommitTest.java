@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable.spi;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class GroupCommitTest extends DirectoryServerTestCase
+{
+  /** Simulates a transaction log: commits are only durable once the log has been synchronized. */
+  private static final class FakeLog implements GroupCommit.LogSynchronizer
+  {
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong durable = new AtomicLong();
+    private final AtomicInteger synchronizations = new AtomicInteger();
+
+    @Override
+    public void synchronize() throws Exception
+    {
+      final long lastCommit = committed.get();
+      Thread.sleep(1);
+      durable.set(lastCommit);
+      synchronizations.incrementAndGet();
+    }
+  }
+
+  @Test
+  public void testSingleCommitIsSynchronized() throws Exception
+  {
+    final FakeLog log = new FakeLog();
+    final GroupCommit groupCommit = new GroupCommit(log, 64, 0);
+
+    log.committed.incrementAndGet();
+    groupCommit.awaitDurable();
+
+    assertThat(log.durable.get()).isEqualTo(1);
+    assertThat(log.synchronizations.get()).isEqualTo(1);
+    assertThat(groupCommit.getBatchSizeHistogram()).containsExactly("1-1: 1");
+    assertThat(groupCommit.getCommitLatencyHistogram()).hasSize(1);
+  }
+
+  @Test
+  public void testConcurrentCommitsShareSynchronizations() throws Exception
+  {
+    final int nbThreads = 16;
+    final int nbCommitsPerThread = 50;
+    final FakeLog log = new FakeLog();
+    final GroupCommit groupCommit = new GroupCommit(log, nbThreads, 1);
+    final AtomicInteger notDurable = new AtomicInteger();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try
+    {
+      for (int i = 0; i < nbThreads; i++)
+      {
+        executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (int j = 0; j < nbCommitsPerThread; j++)
+            {
+              final long commit = log.committed.incrementAndGet();
+              groupCommit.awaitDurable();
+              if (log.durable.get() < commit)
+              {
+                notDurable.incrementAndGet();
+              }
+            }
+            return null;
+          }
+        });
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+      assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    }
+
+    assertThat(notDurable.get()).isEqualTo(0);
+    assertThat(log.synchronizations.get()).isLessThan(nbThreads * nbCommitsPerThread);
+  }
+
+  @Test
+  public void testSynchronizationFailureIsReportedToTheWholeBatch() throws Exception
+  {
+    final GroupCommit groupCommit = new GroupCommit(new GroupCommit.LogSynchronizer()
+    {
+      @Override
+      public void synchronize() throws Exception
+      {
+        Thread.sleep(10);
+        throw new IOException("disk failure");
+      }
+    }, 2, 1000);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try
+    {
+      final Callable<Void> commit = new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception
+        {
+          groupCommit.awaitDurable();
+          return null;
+        }
+      };
+      final Future<Void> first = executor.submit(commit);
+      final Future<Void> second = executor.submit(commit);
+      for (Future<Void> future : Arrays.asList(first, second))
+      {
+        try
+        {
+          future.get(1, TimeUnit.MINUTES);
+          fail("Expected the synchronization failure to be reported");
+        }
+        catch (ExecutionException e)
+        {
+          assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    assertThat(groupCommit.getBatchSizeHistogram()).containsExactly("2-3: 1");
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.backends.pluggable.spi;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class StorageUtilsTest extends DirectoryServerTestCase
+{
+  /** A cursor over a sorted map, counting the positioning operations. */
+  private static final class MapCursor implements Cursor<ByteString, ByteString>
+  {
+    private final TreeMap<ByteString, ByteString> records;
+    private Map.Entry<ByteString, ByteString> current;
+    private int seeks;
+
+    private MapCursor(TreeMap<ByteString, ByteString> records)
+    {
+      this.records = records;
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      seeks++;
+      final ByteString value = records.get(key.toByteString());
+      current = value != null ? new SimpleEntry<>(key.toByteString(), value) : null;
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      seeks++;
+      current = records.ceilingEntry(key.toByteString());
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      seeks++;
+      current = records.lastEntry();
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean next()
+    {
+      current = current != null ? records.higherEntry(current.getKey()) : records.firstEntry();
+      return current != null;
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return current != null;
+    }
+
+    @Override
+    public ByteString getKey() throws NoSuchElementException
+    {
+      if (current == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return current.getKey();
+    }
+
+    @Override
+    public ByteString getValue() throws NoSuchElementException
+    {
+      if (current == null)
+      {
+        throw new NoSuchElementException();
+      }
+      return current.getValue();
+    }
+
+    @Override
+    public void delete()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+      // Nothing to do.
+    }
+  }
+
+  @Test
+  public void testReadSortedKeysSweepsCloseKeys()
+  {
+    final MapCursor cursor = new MapCursor(records(1, 2, 3, 4, 5, 6));
+
+    assertThat(StorageUtils.readSortedKeys(cursor, keys(1, 2, 4, 6))).containsExactly(
+        value(1), value(2), value(4), value(6));
+    assertThat(cursor.seeks).isEqualTo(1);
+  }
+
+  @Test
+  public void testReadSortedKeysReturnsNullForMissingKeys()
+  {
+    final MapCursor cursor = new MapCursor(records(2, 4, 6));
+
+    assertThat(StorageUtils.readSortedKeys(cursor, keys(1, 2, 3, 5, 6, 7, 8))).containsExactly(
+        null, value(2), null, null, value(6), null, null);
+  }
+
+  @Test
+  public void testReadSortedKeysFromAnEmptyTree()
+  {
+    final MapCursor cursor = new MapCursor(records());
+
+    assertThat(StorageUtils.readSortedKeys(cursor, keys(1, 2))).containsExactly(null, null);
+    assertThat(StorageUtils.readSortedKeys(cursor, keys())).isEmpty();
+  }
+
+  @Test
+  public void testReadSortedKeysSeeksForDistantKeys()
+  {
+    final MapCursor cursor = new MapCursor(records(range(0, 100)));
+
+    assertThat(StorageUtils.readSortedKeys(cursor, keys(0, 50, 99))).containsExactly(
+        value(0), value(50), value(99));
+    assertThat(cursor.seeks).isEqualTo(3);
+  }
+
+  @Test
+  public void testReadSortedKeysWithUnsortedKeys()
+  {
+    final MapCursor cursor = new MapCursor(records(1, 2, 3, 5, 8));
+
+    assertThat(StorageUtils.readSortedKeys(cursor, keys(5, 2, 8, 1, 4, 3, 3))).containsExactly(
+        value(5), value(2), value(8), value(1), null, value(3), value(3));
+  }
+
+  private static TreeMap<ByteString, ByteString> records(int... keys)
+  {
+    final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+    for (int key : keys)
+    {
+      records.put(key(key), value(key));
+    }
+    return records;
+  }
+
+  private static List<ByteString> keys(int... keys)
+  {
+    final List<ByteString> result = new ArrayList<>();
+    for (int key : keys)
+    {
+      result.add(key(key));
+    }
+    return result;
+  }
+
+  private static int[] range(int from, int to)
+  {
+    final int[] range = new int[to - from];
+    for (int i = 0; i < range.length; i++)
+    {
+      range[i] = from + i;
+    }
+    return range;
+  }
+
+  private static ByteString key(int key)
+  {
+    return ByteString.valueOfInt(key);
+  }
+
+  private static ByteString value(int key)
+  {
+    return ByteString.valueOfUtf8("value" + key);
+  }
+}
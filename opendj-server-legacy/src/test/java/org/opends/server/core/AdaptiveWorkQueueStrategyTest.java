@@ -0,0 +1,152 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.core;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ResultCode;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class AdaptiveWorkQueueStrategyTest extends DirectoryServerTestCase
+{
+  /** Overrides the use of the DirectoryServer work queue. */
+  private static final class AdaptiveWorkQueueStrategyForTest extends AdaptiveWorkQueueStrategy
+  {
+    private final List<Operation> enqueuedOperations = new ArrayList<>();
+    private boolean enqueueRequestSucceeds = true;
+
+    private AdaptiveWorkQueueStrategyForTest(int minLimit, int initialLimit, int maxLimit)
+    {
+      super(minLimit, initialLimit, maxLimit);
+    }
+
+    @Override
+    protected boolean tryEnqueueRequest(Operation op) throws DirectoryException
+    {
+      if (enqueueRequestSucceeds)
+      {
+        enqueuedOperations.add(op);
+      }
+      return enqueueRequestSucceeds;
+    }
+  }
+
+  @Test
+  public void limitGrowsWhileLatencyIsStable()
+  {
+    final AdaptiveWorkQueueStrategy strategy = new AdaptiveWorkQueueStrategyForTest(1, 10, 100);
+    for (int i = 0; i < 200; i++)
+    {
+      strategy.operationCompleted(1000000, strategy.getLimit());
+    }
+    assertThat(strategy.getLimit()).isEqualTo(100);
+  }
+
+  @Test
+  public void limitDoesNotGrowWhenUnderused()
+  {
+    final AdaptiveWorkQueueStrategy strategy = new AdaptiveWorkQueueStrategyForTest(1, 10, 100);
+    for (int i = 0; i < 200; i++)
+    {
+      strategy.operationCompleted(1000000, 1);
+    }
+    assertThat(strategy.getLimit()).isEqualTo(10);
+  }
+
+  @Test
+  public void limitShrinksWhenLatencyIncreases()
+  {
+    final AdaptiveWorkQueueStrategy strategy = new AdaptiveWorkQueueStrategyForTest(2, 50, 100);
+    for (int i = 0; i < 100; i++)
+    {
+      strategy.operationCompleted(1000000, 1);
+    }
+    for (int i = 0; i < 30; i++)
+    {
+      strategy.operationCompleted(10000000, strategy.getLimit());
+    }
+    assertThat(strategy.getLimit()).isLessThan(50).isGreaterThanOrEqualTo(2);
+  }
+
+  @Test
+  public void operationsBeyondTheLimitAreRejected() throws Exception
+  {
+    final AdaptiveWorkQueueStrategyForTest strategy = new AdaptiveWorkQueueStrategyForTest(1, 2, 2);
+    strategy.enqueueRequest(getMockedOperation(SearchOperation.class));
+    strategy.enqueueRequest(getMockedOperation(SearchOperation.class));
+    assertThat(strategy.getInFlightOperations()).isEqualTo(2);
+
+    assertBusy(strategy, getMockedOperation(SearchOperation.class));
+    assertThat(strategy.getRejectedOperations()).isEqualTo(1);
+
+    // abandon operations are never rejected
+    final Operation abandon = getMockedOperation(AbandonOperation.class);
+    strategy.enqueueRequest(abandon);
+    assertThat(strategy.enqueuedOperations).contains(abandon);
+
+    strategy.enqueuedOperations.get(0).run();
+    assertThat(strategy.getInFlightOperations()).isEqualTo(1);
+    strategy.enqueueRequest(getMockedOperation(SearchOperation.class));
+    assertThat(strategy.getInFlightOperations()).isEqualTo(2);
+  }
+
+  @Test
+  public void operationsAreRejectedWhenWorkQueueIsFull() throws Exception
+  {
+    final AdaptiveWorkQueueStrategyForTest strategy = new AdaptiveWorkQueueStrategyForTest(1, 20, 20);
+    strategy.enqueueRequest(getMockedOperation(SearchOperation.class));
+    strategy.enqueueRequest(getMockedOperation(SearchOperation.class));
+    strategy.enqueueRequestSucceeds = false;
+
+    final Operation operation = getMockedOperation(ModifyOperation.class);
+    assertBusy(strategy, operation);
+    verify(operation, never()).run();
+    assertThat(strategy.getInFlightOperations()).isEqualTo(2);
+    assertThat(strategy.getRejectedOperations()).isEqualTo(1);
+    assertThat(strategy.getLimit()).isLessThan(3);
+  }
+
+  private static void assertBusy(AdaptiveWorkQueueStrategy strategy, Operation operation)
+  {
+    try
+    {
+      strategy.enqueueRequest(operation);
+      failBecauseExceptionWasNotThrown(DirectoryException.class);
+    }
+    catch (DirectoryException e)
+    {
+      assertThat(e.getResultCode()).isEqualTo(ResultCode.BUSY);
+    }
+  }
+
+  private static Operation getMockedOperation(Class<? extends Operation> operationClass)
+  {
+    final Operation operation = mock(operationClass);
+    final ClientConnection connection = mock(ClientConnection.class);
+    when(operation.getClientConnection()).thenReturn(connection);
+    when(connection.isConnectionValid()).thenReturn(true);
+    return operation;
+  }
+}
@@ -17,12 +17,15 @@
 package org.opends.server.extensions;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.opends.server.TestCaseUtils;
 import org.testng.annotations.BeforeClass;
 import org.forgerock.opendj.server.config.meta.*;
 import org.forgerock.opendj.server.config.server.FIFOEntryCacheCfg;
 import org.forgerock.opendj.ldap.DN;
+import org.opends.server.types.Attribute;
 import org.opends.server.types.Entry;
 import org.opends.server.util.ServerConstants;
 import org.testng.annotations.AfterClass;
@@ -340,4 +343,38 @@ public class FIFOEntryCacheTestCase
     // Clear the cache so that other tests can start from scratch.
     super.cache.clear();
   }
+
+
+
+  /**
+   * Tests that the monitor data reports the lock contention of each stripe.
+   */
+  @Test
+  public void testStripeMonitorData()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      super.cache.putEntry(super.testEntriesList.get(i), b, i);
+    }
+
+    Set<String> attributeNames = new HashSet<>();
+    for (Attribute attribute : super.cache.getMonitorData()) {
+      attributeNames.add(attribute.getAttributeDescription().getNameOrOID());
+    }
+    assertTrue(attributeNames.contains("currentEntryCacheCount"));
+    assertTrue(attributeNames.contains("entryCacheStripeCount"));
+    assertTrue(attributeNames.contains("entryCacheLockAcquisitions"));
+    assertTrue(attributeNames.contains("entryCacheLockContentions"));
+    assertTrue(attributeNames.contains("entryCacheStripeLockContentions"));
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
 }
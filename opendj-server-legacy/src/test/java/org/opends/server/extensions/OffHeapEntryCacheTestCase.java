@@ -0,0 +1,463 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.opends.server.TestCaseUtils;
+import org.testng.annotations.BeforeClass;
+import org.forgerock.opendj.server.config.meta.*;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Entry;
+import org.opends.server.util.ServerConstants;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterGroups;
+import org.testng.annotations.BeforeGroups;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * A set of test cases for off heap entry cache implementation.
+ */
+@Test(groups = "entrycache", sequential=true)
+public class OffHeapEntryCacheTestCase
+       extends CommonEntryCacheTestCase<OffHeapEntryCacheCfg>
+{
+  /**
+   * Initialize the entry cache test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass
+  public void entryCacheTestInit()
+         throws Exception
+  {
+    // Ensure that the server is running.
+    TestCaseUtils.startServer();
+
+    // Configure this entry cache.
+    super.configuration = getConfiguration("8 mb");
+
+    // Initialize the cache.
+    super.cache = new OffHeapEntryCache();
+    super.cache.initializeEntryCache(TestCaseUtils.getServerContext(), configuration);
+
+    // Make some dummy test entries.
+    super.testEntriesList = new ArrayList<>(super.NUMTESTENTRIES);
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      super.testEntriesList.add(TestCaseUtils.makeEntry(
+        "dn: uid=test" + i + ".user" + i + ",ou=test" + i + ",o=test",
+        "objectClass: person",
+        "objectClass: inetorgperson",
+        "objectClass: top",
+        "objectClass: organizationalperson",
+        "postalAddress: somewhere in Testville" + i,
+        "street: Under Construction Street" + i,
+        "l: Testcounty" + i,
+        "st: Teststate" + i,
+        "telephoneNumber: +878 8378 8378" + i,
+        "mobile: +878 8378 8378" + i,
+        "homePhone: +878 8378 8378" + i,
+        "pager: +878 8378 8378" + i,
+        "mail: test" + i + ".user" + i + "@testdomain.net",
+        "postalCode: 8378" + i,
+        "userPassword: testpassword" + i,
+        "description: description for Test" + i + "User" + i,
+        "cn: Test" + i + "User" + i,
+        "sn: User" + i,
+        "givenName: Test" + i,
+        "initials: TST" + i,
+        "employeeNumber: 8378" + i,
+        "uid: test" + i + ".user" + i)
+      );
+    }
+  }
+
+
+
+  private static OffHeapEntryCacheCfg getConfiguration(String maxMemorySize)
+         throws Exception
+  {
+    Entry cacheConfigEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Off Heap,cn=Entry Caches,cn=config",
+      "objectClass: ds-cfg-off-heap-entry-cache",
+      "objectClass: ds-cfg-entry-cache",
+      "objectClass: top",
+      "cn: Off Heap",
+      "ds-cfg-cache-level: 1",
+      "ds-cfg-java-class: org.opends.server.extensions.OffHeapEntryCache",
+      "ds-cfg-enabled: true",
+      "ds-cfg-max-memory-size: " + maxMemorySize);
+    return InitializationUtils.getConfiguration(
+      OffHeapEntryCacheCfgDefn.getInstance(), cacheConfigEntry);
+  }
+
+
+
+  /**
+   * Finalize the entry cache test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @AfterClass
+  public void entryCacheTestFini()
+         throws Exception
+  {
+    super.cache.finalizeEntryCache();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testContainsEntry()
+         throws Exception
+  {
+    super.testContainsEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry1()
+         throws Exception
+  {
+    super.testGetEntry1();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry2()
+         throws Exception
+  {
+    super.testGetEntry2();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry3()
+         throws Exception
+  {
+    super.testGetEntry3();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntryID()
+         throws Exception
+  {
+    super.testGetEntryID();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testPutEntry()
+         throws Exception
+  {
+    super.testPutEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testPutEntryIfAbsent()
+         throws Exception
+  {
+    super.testPutEntryIfAbsent();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testRemoveEntry()
+         throws Exception
+  {
+    super.testRemoveEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testClear()
+         throws Exception
+  {
+    super.testClear();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testClearBackend()
+         throws Exception
+  {
+    super.testClearBackend();
+  }
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testHandleLowMemory()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      super.cache.putEntry(super.testEntriesList.get(i), b, i);
+    }
+
+    super.cache.handleLowMemory();
+
+    // Make sure that the entries put previously on the
+    // cache are no longer there after handleLowMemory.
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      assertFalse(super.cache.containsEntry(
+        super.testEntriesList.get(i).getName()), "Not expected to find " +
+        super.testEntriesList.get(i).getName() + " in the " +
+        "cache.  Cache contents:" + ServerConstants.EOL +
+        cache.toVerboseString());
+    }
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  @BeforeGroups(groups = "testOffHeapCacheConcurrency")
+  public void cacheConcurrencySetup()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+  }
+
+
+
+  @AfterGroups(groups = "testOffHeapCacheConcurrency")
+  public void cacheConcurrencyCleanup()
+         throws Exception
+  {
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test(groups = { "slow", "testOffHeapCacheConcurrency" },
+        threadPoolSize = 10,
+        invocationCount = 10,
+        timeOut = 60000)
+  @Override
+  public void testCacheConcurrency()
+         throws Exception
+  {
+    super.testCacheConcurrency();
+  }
+
+
+
+  /**
+   * Tests that the entries decoded from the off heap memory
+   * hold the same values as the entries put in the cache.
+   */
+  @Test
+  public void testEntryRoundTrip()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+    Entry entry = super.testEntriesList.get(0);
+    super.cache.putEntry(entry, b, 1);
+
+    Entry cachedEntry = super.cache.getEntry(b, 1);
+    assertNotNull(cachedEntry, "Expected to find " + entry.getName() + " in the cache.");
+    assertNotSame(cachedEntry, entry);
+    assertEquals(cachedEntry.getName(), entry.getName());
+    assertEquals(cachedEntry.getObjectClasses(), entry.getObjectClasses());
+    for (Attribute attribute : entry.getAllAttributes()) {
+      for (ByteString value : attribute) {
+        assertTrue(cachedEntry.hasValue(attribute.getAttributeDescription(), value),
+          "Expected to find value " + value + " of " + attribute.getAttributeDescription() +
+          " in the cached entry.");
+      }
+    }
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  /**
+   * Tests that a scan of entries read only once does not evict a working set
+   * of entries which are read frequently.
+   */
+  @Test
+  public void testScanDoesNotEvictWorkingSet()
+         throws Exception
+  {
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+    OffHeapEntryCache smallCache = new OffHeapEntryCache();
+    smallCache.initializeEntryCache(TestCaseUtils.getServerContext(), getConfiguration("1 mb"));
+    try {
+      List<Entry> workingSet = makeScanEntries("working", 100);
+      for (int i = 0; i < workingSet.size(); i++) {
+        smallCache.putEntry(workingSet.get(i), b, i);
+      }
+      for (int n = 0; n < 4; n++) {
+        for (Entry entry : workingSet) {
+          assertNotNull(smallCache.getEntry(entry.getName()),
+            "Expected to find " + entry.getName() + " in the cache.");
+        }
+      }
+
+      // The scanned entries are enough to fill the cache several times.
+      List<Entry> scan = makeScanEntries("scan", 5000);
+      for (int i = 0; i < scan.size(); i++) {
+        smallCache.putEntry(scan.get(i), b, workingSet.size() + i);
+      }
+
+      int cachedCount = 0;
+      for (Entry entry : workingSet) {
+        if (smallCache.containsEntry(entry.getName())) {
+          cachedCount++;
+        }
+      }
+      assertTrue(cachedCount >= workingSet.size() * 9 / 10,
+        "Expected the working set to stay in the cache, but only " + cachedCount + " of its "
+        + workingSet.size() + " entries are still cached.");
+    } finally {
+      smallCache.finalizeEntryCache();
+    }
+  }
+
+  private static List<Entry> makeScanEntries(String prefix, int count)
+         throws Exception
+  {
+    List<Entry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      entries.add(TestCaseUtils.makeEntry(
+        "dn: uid=" + prefix + i + ",ou=" + prefix + ",o=test",
+        "objectClass: person",
+        "objectClass: inetorgperson",
+        "objectClass: top",
+        "objectClass: organizationalperson",
+        "cn: " + prefix + i,
+        "sn: " + prefix + i,
+        "uid: " + prefix + i));
+    }
+    return entries;
+  }
+
+
+
+  /**
+   * Tests that resizing the cache while entries are put in it does not leave
+   * entries indexed by ID which are not in the cache.
+   */
+  @Test
+  public void testResizeWhilePuttingEntries()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    final String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+    final OffHeapEntryCache offHeapCache = (OffHeapEntryCache) super.cache;
+    final OffHeapEntryCacheCfg largerConfiguration = getConfiguration("16 mb");
+
+    final AtomicBoolean done = new AtomicBoolean();
+    final Thread[] writers = new Thread[4];
+    for (int t = 0; t < writers.length; t++) {
+      final int first = t;
+      writers[t] = new Thread() {
+        @Override
+        public void run() {
+          while (!done.get()) {
+            for (int i = first; i < NUMTESTENTRIES; i += writers.length) {
+              cache.putEntry(testEntriesList.get(i), b, i);
+            }
+          }
+        }
+      };
+      writers[t].start();
+    }
+    try {
+      for (int i = 0; i < 50; i++) {
+        offHeapCache.applyConfigurationChange(i % 2 == 0 ? largerConfiguration : configuration);
+      }
+    } finally {
+      done.set(true);
+      for (Thread writer : writers) {
+        writer.join();
+      }
+    }
+
+    for (int i = 0; i < super.NUMTESTENTRIES; i++) {
+      DN dn = super.cache.getEntryDN(b, i);
+      if (dn != null) {
+        assertTrue(super.cache.containsEntry(dn), "Expected to find " + dn + " in the cache.");
+      }
+    }
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+}
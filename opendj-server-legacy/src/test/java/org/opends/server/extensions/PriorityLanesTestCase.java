@@ -0,0 +1,160 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opends.server.api.ClientConnection;
+import org.opends.server.extensions.PriorityWorkQueue.Lane;
+import org.opends.server.extensions.PriorityWorkQueue.LaneStatistics;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the scheduling of the priority work queue. */
+@SuppressWarnings("javadoc")
+public class PriorityLanesTestCase extends ExtensionsTestCase
+{
+  @Test
+  public void testClassify()
+  {
+    assertThat(PriorityLanes.classify(newOperation(OperationType.BIND, 1))).isEqualTo(Lane.BIND);
+    assertThat(PriorityLanes.classify(newOperation(OperationType.SEARCH, 1))).isEqualTo(Lane.READ);
+    assertThat(PriorityLanes.classify(newOperation(OperationType.COMPARE, 1))).isEqualTo(Lane.READ);
+    assertThat(PriorityLanes.classify(newOperation(OperationType.MODIFY, 1))).isEqualTo(Lane.WRITE);
+    assertThat(PriorityLanes.classify(newOperation(OperationType.EXTENDED, 1))).isEqualTo(Lane.WRITE);
+
+    final Operation internal = newOperation(OperationType.SEARCH, -1);
+    when(internal.getClientConnection().isInnerConnection()).thenReturn(true);
+    assertThat(PriorityLanes.classify(internal)).isEqualTo(Lane.ADMIN);
+
+    final Operation replicated = newOperation(OperationType.MODIFY, -1);
+    when(replicated.isSynchronizationOperation()).thenReturn(true);
+    assertThat(PriorityLanes.classify(replicated)).isEqualTo(Lane.REPLICATION);
+  }
+
+  @Test
+  public void testLanesAreServedInProportionToTheirWeights()
+  {
+    final PriorityLanes lanes = new PriorityLanes(weights(1));
+    lanes.setWeights(weights(3));
+    final List<Operation> reads = new ArrayList<>();
+    final List<Operation> binds = new ArrayList<>();
+    for (int i = 0; i < 4; i++)
+    {
+      reads.add(add(lanes, OperationType.SEARCH, 1));
+      binds.add(add(lanes, OperationType.BIND, 2));
+    }
+
+    // Binds have weight 3, reads have weight 1
+    assertThat(pollAll(lanes)).containsExactly(binds.get(0), binds.get(1), binds.get(2), reads.get(0),
+        binds.get(3), reads.get(1), reads.get(2), reads.get(3));
+    assertThat(lanes.poll()).isNull();
+  }
+
+  @Test
+  public void testConnectionsAreServedInTurnInALane()
+  {
+    final PriorityLanes lanes = new PriorityLanes(weights(1));
+    final Operation batch1 = add(lanes, OperationType.SEARCH, 1);
+    final Operation batch2 = add(lanes, OperationType.SEARCH, 1);
+    final Operation batch3 = add(lanes, OperationType.SEARCH, 1);
+    final Operation interactive = add(lanes, OperationType.SEARCH, 2);
+
+    assertThat(pollAll(lanes)).containsExactly(batch1, interactive, batch2, batch3);
+  }
+
+  @Test
+  public void testStatistics()
+  {
+    final PriorityLanes lanes = new PriorityLanes(weights(1));
+    add(lanes, OperationType.SEARCH, 1);
+    add(lanes, OperationType.SEARCH, 1);
+    add(lanes, OperationType.DELETE, 1);
+    assertThat(lanes.size()).isEqualTo(3);
+    assertThat(lanes.size(Lane.READ)).isEqualTo(2);
+    assertThat(lanes.poll().getOperationType()).isEqualTo(OperationType.DELETE);
+
+    for (LaneStatistics statistics : lanes.getStatistics())
+    {
+      switch (statistics.getLane())
+      {
+      case READ:
+        assertThat(statistics.getSubmitted()).isEqualTo(2);
+        assertThat(statistics.getBacklog()).isEqualTo(2);
+        break;
+      case WRITE:
+        assertThat(statistics.getSubmitted()).isEqualTo(1);
+        assertThat(statistics.getBacklog()).isEqualTo(0);
+        assertThat(statistics.getMaxBacklog()).isEqualTo(1);
+        break;
+      default:
+        assertThat(statistics.getSubmitted()).isEqualTo(0);
+        break;
+      }
+    }
+
+    assertThat(lanes.clear()).hasSize(2);
+    assertThat(lanes.size()).isEqualTo(0);
+    assertThat(lanes.poll()).isNull();
+  }
+
+  /** Returns weights giving 1 to all lanes but the bind lane. */
+  private static Map<Lane, Integer> weights(int bindWeight)
+  {
+    final Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+    for (Lane lane : Lane.values())
+    {
+      weights.put(lane, 1);
+    }
+    weights.put(Lane.BIND, bindWeight);
+    return weights;
+  }
+
+  private static Operation add(PriorityLanes lanes, OperationType type, long connectionID)
+  {
+    final Operation operation = newOperation(type, connectionID);
+    lanes.add(operation, PriorityLanes.classify(operation));
+    return operation;
+  }
+
+  private static Operation newOperation(OperationType type, long connectionID)
+  {
+    final Operation operation = mock(Operation.class);
+    final ClientConnection connection = mock(ClientConnection.class);
+    when(operation.getOperationType()).thenReturn(type);
+    when(operation.getClientConnection()).thenReturn(connection);
+    when(connection.getConnectionID()).thenReturn(connectionID);
+    return operation;
+  }
+
+  private static List<Operation> pollAll(PriorityLanes lanes)
+  {
+    final List<Operation> operations = new ArrayList<>();
+    Operation operation;
+    while ((operation = lanes.poll()) != null)
+    {
+      operations.add(operation);
+    }
+    return operations;
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.forgerock.opendj.server.config.server.PriorityWorkQueueCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.ClientConnection;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the priority work queue. */
+@SuppressWarnings("javadoc")
+public class PriorityWorkQueueTestCase extends ExtensionsTestCase
+{
+  private static final LocalizableMessage SHUTDOWN = LocalizableMessage.raw("shutdown");
+
+  /** The monitor of the server work queue, replaced by the monitor of the work queues created by the tests. */
+  private MonitorProvider<? extends MonitorProviderCfg> serverWorkQueueMonitor;
+  private CountDownLatch releaseOperations;
+  private AtomicInteger runningOperations;
+  private ExecutorService executor;
+  private PriorityWorkQueue workQueue;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @AfterClass
+  public void restoreServerWorkQueueMonitor()
+  {
+    executor.shutdownNow();
+    DirectoryServer.deregisterMonitorProvider(serverWorkQueueMonitor);
+    DirectoryServer.registerMonitorProvider(serverWorkQueueMonitor);
+  }
+
+  @BeforeMethod
+  public void setUp()
+  {
+    releaseOperations = new CountDownLatch(1);
+    runningOperations = new AtomicInteger();
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    releaseOperations.countDown();
+    if (workQueue != null)
+    {
+      workQueue.finalizeWorkQueue(SHUTDOWN);
+      workQueue = null;
+    }
+  }
+
+  @Test
+  public void testAdminLaneIsNotBoundedByCapacity() throws Exception
+  {
+    workQueue = newWorkQueue(1, 1);
+    workQueue.submitOperation(newBlockingOperation(releaseOperations));
+    waitForRunningOperations(1);
+    workQueue.submitOperation(newBlockingOperation(releaseOperations));
+    assertThat(workQueue.trySubmitOperation(newBlockingOperation(releaseOperations))).isFalse();
+
+    final Operation admin1 = newAdminOperation(releaseOperations);
+    final Operation admin2 = newAdminOperation(releaseOperations);
+    assertThat(workQueue.trySubmitOperation(admin1)).isTrue();
+    workQueue.submitOperation(admin2);
+    assertThat(workQueue.size()).isEqualTo(3);
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+
+    releaseOperations.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    verify(admin1).run();
+    verify(admin2).run();
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(4);
+  }
+
+  @Test
+  public void testSubmitBlocksWhileTrySubmitRejectsWhenQueueIsFull() throws Exception
+  {
+    workQueue = newWorkQueue(1, 1);
+    workQueue.submitOperation(newBlockingOperation(releaseOperations));
+    waitForRunningOperations(1);
+    workQueue.submitOperation(newBlockingOperation(releaseOperations));
+
+    assertThat(workQueue.trySubmitOperation(newBlockingOperation(releaseOperations))).isFalse();
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+
+    final Operation blocked = newBlockingOperation(releaseOperations);
+    final Future<Void> submission = executor.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws Exception
+      {
+        workQueue.submitOperation(blocked);
+        return null;
+      }
+    });
+    Thread.sleep(200);
+    assertThat(submission.isDone()).isFalse();
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(2);
+
+    releaseOperations.countDown();
+    submission.get(10, TimeUnit.SECONDS);
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    verify(blocked).run();
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(3);
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+  }
+
+  @Test
+  public void testFinalizeCancelsRunningAndAbortsPendingOperations() throws Exception
+  {
+    workQueue = newWorkQueue(1, 10);
+    final Operation running = newBlockingOperation(releaseOperations);
+    final Operation pending = newBlockingOperation(releaseOperations);
+    final Operation pendingAdmin = newAdminOperation(releaseOperations);
+    workQueue.submitOperation(running);
+    waitForRunningOperations(1);
+    workQueue.submitOperation(pending);
+    workQueue.submitOperation(pendingAdmin);
+
+    workQueue.finalizeWorkQueue(SHUTDOWN);
+    verify(running).cancel(any(CancelRequest.class));
+    verify(pending).abort(any(CancelRequest.class));
+    verify(pendingAdmin).abort(any(CancelRequest.class));
+    verify(pending, never()).run();
+    verify(pendingAdmin, never()).run();
+    assertThat(workQueue.size()).isEqualTo(0);
+
+    try
+    {
+      workQueue.submitOperation(newBlockingOperation(releaseOperations));
+      failBecauseExceptionWasNotThrown(DirectoryException.class);
+    }
+    catch (DirectoryException e)
+    {
+      assertThat(e.getResultCode()).isEqualTo(ResultCode.UNAVAILABLE);
+    }
+  }
+
+  @Test
+  public void testReducingNumWorkerThreadsBoundsConcurrency() throws Exception
+  {
+    workQueue = newWorkQueue(3, 10);
+    for (int i = 0; i < 3; i++)
+    {
+      workQueue.submitOperation(newBlockingOperation(releaseOperations));
+    }
+    waitForRunningOperations(3);
+
+    workQueue.applyConfigurationChange(newConfiguration(1, 10));
+    assertThat(workQueue.getNumWorkerThreads()).isEqualTo(1);
+
+    final CountDownLatch releaseNextOperations = new CountDownLatch(1);
+    try
+    {
+      final Operation[] operations = new Operation[3];
+      for (int i = 0; i < operations.length; i++)
+      {
+        operations[i] = newBlockingOperation(releaseNextOperations);
+        workQueue.submitOperation(operations[i]);
+      }
+
+      // The extra worker threads exit once their current operation is done
+      releaseOperations.countDown();
+      waitForRunningOperations(1);
+      Thread.sleep(200);
+      assertThat(runningOperations.get()).isEqualTo(1);
+      assertThat(workQueue.size()).isEqualTo(2);
+
+      releaseNextOperations.countDown();
+      assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+      for (Operation operation : operations)
+      {
+        verify(operation).run();
+      }
+    }
+    finally
+    {
+      releaseNextOperations.countDown();
+    }
+  }
+
+  private PriorityWorkQueue newWorkQueue(int numWorkerThreads, int maxCapacity) throws Exception
+  {
+    final PriorityWorkQueue queue = new PriorityWorkQueue();
+    queue.initializeWorkQueue(newConfiguration(numWorkerThreads, maxCapacity));
+    return queue;
+  }
+
+  private PriorityWorkQueueCfg newConfiguration(int numWorkerThreads, int maxCapacity)
+  {
+    final PriorityWorkQueueCfg configuration = mock(PriorityWorkQueueCfg.class);
+    when(configuration.getNumWorkerThreads()).thenReturn(numWorkerThreads);
+    when(configuration.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    when(configuration.getAdminLaneWeight()).thenReturn(1);
+    when(configuration.getReplicationLaneWeight()).thenReturn(1);
+    when(configuration.getBindLaneWeight()).thenReturn(1);
+    when(configuration.getWriteLaneWeight()).thenReturn(1);
+    when(configuration.getReadLaneWeight()).thenReturn(1);
+    return configuration;
+  }
+
+  /** Returns a search operation from an internal connection, which is classified in the administrative lane. */
+  private Operation newAdminOperation(CountDownLatch release)
+  {
+    final Operation operation = newBlockingOperation(release);
+    when(operation.getClientConnection().isInnerConnection()).thenReturn(true);
+    return operation;
+  }
+
+  /** Returns a search operation from a user connection, which runs until the provided latch is released. */
+  private Operation newBlockingOperation(final CountDownLatch release)
+  {
+    final Operation operation = mock(Operation.class);
+    final ClientConnection connection = mock(ClientConnection.class);
+    when(operation.getOperationType()).thenReturn(OperationType.SEARCH);
+    when(operation.getClientConnection()).thenReturn(connection);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        runningOperations.incrementAndGet();
+        try
+        {
+          release.await(10, TimeUnit.SECONDS);
+          return null;
+        }
+        finally
+        {
+          runningOperations.decrementAndGet();
+        }
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  private void waitForRunningOperations(int count) throws Exception
+  {
+    final long timeout = System.currentTimeMillis() + 10000;
+    while (runningOperations.get() != count && System.currentTimeMillis() < timeout)
+    {
+      Thread.sleep(10);
+    }
+    assertThat(runningOperations.get()).isEqualTo(count);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.extensions;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.forgerock.opendj.server.config.server.ThreadPerOperationWorkQueueCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Operation;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the thread per operation work queue. */
+@SuppressWarnings("javadoc")
+public class ThreadPerOperationWorkQueueTestCase extends ExtensionsTestCase
+{
+  private static final LocalizableMessage SHUTDOWN = LocalizableMessage.raw("shutdown");
+
+  /** The monitor of the server work queue, replaced by the monitor of the work queues created by the tests. */
+  private MonitorProvider<? extends MonitorProviderCfg> serverWorkQueueMonitor;
+  private CountDownLatch releaseOperations;
+  private ThreadPerOperationWorkQueue workQueue;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get("work queue");
+  }
+
+  @AfterClass
+  public void restoreServerWorkQueueMonitor()
+  {
+    DirectoryServer.deregisterMonitorProvider(serverWorkQueueMonitor);
+    DirectoryServer.registerMonitorProvider(serverWorkQueueMonitor);
+  }
+
+  @BeforeMethod
+  public void setUp()
+  {
+    releaseOperations = new CountDownLatch(1);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    releaseOperations.countDown();
+    if (workQueue != null)
+    {
+      workQueue.finalizeWorkQueue(SHUTDOWN);
+      workQueue = null;
+    }
+  }
+
+  @Test
+  public void testConcurrencyIsBounded() throws Exception
+  {
+    workQueue = newWorkQueue(2, 10);
+    final Operation[] operations = new Operation[4];
+    for (int i = 0; i < operations.length; i++)
+    {
+      operations[i] = newBlockingOperation();
+      workQueue.submitOperation(operations[i]);
+    }
+
+    waitForRunningOperations(2);
+    assertThat(workQueue.size()).isEqualTo(2);
+    assertThat(workQueue.isIdle()).isFalse();
+
+    releaseOperations.countDown();
+    assertThat(workQueue.waitUntilIdle(10000)).isTrue();
+    for (Operation operation : operations)
+    {
+      verify(operation).run();
+      verify(operation).operationCompleted();
+    }
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(4);
+    assertThat(workQueue.getMaxRunningOperations()).isEqualTo(2);
+  }
+
+  @Test
+  public void testTrySubmitRejectsWhenQueueIsFull() throws Exception
+  {
+    workQueue = newWorkQueue(1, 1);
+    workQueue.submitOperation(newBlockingOperation());
+    waitForRunningOperations(1);
+    assertThat(workQueue.trySubmitOperation(newBlockingOperation())).isTrue();
+
+    assertThat(workQueue.trySubmitOperation(newBlockingOperation())).isFalse();
+    assertThat(workQueue.getOpsRejectedDueToQueueFull()).isEqualTo(1);
+    assertThat(workQueue.getOpsSubmitted()).isEqualTo(2);
+  }
+
+  @Test
+  public void testIncreasingConcurrencyStartsPendingOperations() throws Exception
+  {
+    workQueue = newWorkQueue(1, 10);
+    workQueue.submitOperation(newBlockingOperation());
+    workQueue.submitOperation(newBlockingOperation());
+    waitForRunningOperations(1);
+    assertThat(workQueue.size()).isEqualTo(1);
+
+    workQueue.applyConfigurationChange(newConfiguration(2, 10));
+    waitForRunningOperations(2);
+    assertThat(workQueue.getNumWorkerThreads()).isEqualTo(2);
+  }
+
+  @Test
+  public void testFinalizeCancelsRunningAndAbortsPendingOperations() throws Exception
+  {
+    workQueue = newWorkQueue(1, 10);
+    final Operation running = newBlockingOperation();
+    final Operation pending = newBlockingOperation();
+    workQueue.submitOperation(running);
+    workQueue.submitOperation(pending);
+    waitForRunningOperations(1);
+
+    workQueue.finalizeWorkQueue(SHUTDOWN);
+    verify(running).cancel(any(CancelRequest.class));
+    verify(pending).abort(any(CancelRequest.class));
+    verify(pending, never()).run();
+    assertThat(workQueue.size()).isEqualTo(0);
+
+    try
+    {
+      workQueue.submitOperation(newBlockingOperation());
+      failBecauseExceptionWasNotThrown(DirectoryException.class);
+    }
+    catch (DirectoryException e)
+    {
+      assertThat(e.getResultCode()).isEqualTo(ResultCode.UNAVAILABLE);
+    }
+  }
+
+  private ThreadPerOperationWorkQueue newWorkQueue(int maxConcurrentOperations, int maxCapacity) throws Exception
+  {
+    final ThreadPerOperationWorkQueue queue = new ThreadPerOperationWorkQueue();
+    queue.initializeWorkQueue(newConfiguration(maxConcurrentOperations, maxCapacity));
+    return queue;
+  }
+
+  private ThreadPerOperationWorkQueueCfg newConfiguration(int maxConcurrentOperations, int maxCapacity)
+  {
+    final ThreadPerOperationWorkQueueCfg configuration = mock(ThreadPerOperationWorkQueueCfg.class);
+    when(configuration.getMaxConcurrentOperations()).thenReturn(maxConcurrentOperations);
+    when(configuration.getMaxWorkQueueCapacity()).thenReturn(maxCapacity);
+    return configuration;
+  }
+
+  /** Returns an operation which runs until the test releases the operations. */
+  private Operation newBlockingOperation()
+  {
+    final Operation operation = mock(Operation.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        releaseOperations.await(10, TimeUnit.SECONDS);
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+
+  private void waitForRunningOperations(int count) throws Exception
+  {
+    final long timeout = System.currentTimeMillis() + 10000;
+    while (workQueue.getRunningOperations() != count && System.currentTimeMillis() < timeout)
+    {
+      Thread.sleep(10);
+    }
+    assertThat(workQueue.getRunningOperations()).isEqualTo(count);
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Test class for CoalescingResponseWriter. */
+@SuppressWarnings("javadoc")
+public class CoalescingResponseWriterTestCase extends LdapTestCase
+{
+  /** Records the size of each write, and the bytes written. */
+  private static class RecordingChannel implements WritableByteChannel
+  {
+    private final List<Integer> writes = new ArrayList<>();
+    private final ByteStringBuilder bytes = new ByteStringBuilder();
+    private boolean open = true;
+
+    @Override
+    public int write(ByteBuffer src) throws IOException
+    {
+      if (!open)
+      {
+        throw new ClosedChannelException();
+      }
+      final int length = src.remaining();
+      bytes.appendBytes(src, length);
+      writes.add(length);
+      return length;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return open;
+    }
+
+    @Override
+    public void close()
+    {
+      open = false;
+    }
+  }
+
+  /** A channel whose writes block until it is released, like the channel of a client which does not read. */
+  private static final class StalledChannel extends RecordingChannel
+  {
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public int write(ByteBuffer src) throws IOException
+    {
+      try
+      {
+        release.await(10, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+        throw new ClosedByInterruptException();
+      }
+      return super.write(src);
+    }
+  }
+
+  private ScheduledExecutorService scheduler;
+  private ExecutorService flushExecutor;
+
+  @BeforeClass
+  public void createScheduler()
+  {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    flushExecutor = Executors.newCachedThreadPool();
+  }
+
+  @AfterClass
+  public void shutdownScheduler()
+  {
+    scheduler.shutdownNow();
+    flushExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testDeferredResponsesAreWrittenWithTheNextResponse() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+
+    writer.write(response(1, 10), true);
+    writer.write(response(2, 10), true);
+    assertThat(channel.writes).isEmpty();
+    assertThat(writer.getPendingBytes()).isEqualTo(20);
+
+    writer.write(response(3, 5), false);
+    assertThat(channel.writes).containsExactly(25);
+    assertThat(writer.getPendingBytes()).isEqualTo(0);
+    assertThat(channel.bytes.toByteString()).isEqualTo(
+        new ByteStringBuilder().appendBytes(response(1, 10)).appendBytes(response(2, 10))
+            .appendBytes(response(3, 5)).toByteString());
+  }
+
+  @Test
+  public void testDeferredResponsesAreWrittenWhenThresholdIsReached() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 25);
+
+    for (int i = 0; i < 6; i++)
+    {
+      writer.write(response(i, 10), true);
+    }
+    assertThat(channel.writes).containsExactly(30, 30);
+
+    // responses larger than the threshold are not copied
+    writer.write(response(7, 40), true);
+    assertThat(channel.writes).containsExactly(30, 30, 40);
+  }
+
+  @Test
+  public void testResponsesWhichCannotBeDeferredAreWrittenImmediately() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+
+    writer.write(response(1, 10), false);
+    writer.write(response(2, 10), false);
+    assertThat(channel.writes).containsExactly(10, 10);
+  }
+
+  @Test
+  public void testOldDeferredResponsesAreWrittenWithTheNextOneWhenTheFlushIsLate() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer =
+        new CoalescingResponseWriter(channel, 100, mock(ScheduledExecutorService.class), flushExecutor);
+
+    writer.write(response(1, 10), true);
+    Thread.sleep(CoalescingResponseWriter.MAX_DELAY_MILLIS + 10);
+    writer.write(response(2, 10), true);
+    assertThat(channel.writes).containsExactly(20);
+  }
+
+  @Test
+  public void testDeferredResponsesOfSlowSearchesAreWrittenAfterTheDelay() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+
+    writer.write(response(1, 10), true);
+    writer.write(response(2, 10), true);
+    waitForFlush(writer);
+    assertThat(channel.writes).containsExactly(20);
+
+    // The next entries of the search start a new burst
+    writer.write(response(3, 10), true);
+    assertThat(writer.getPendingBytes()).isEqualTo(10);
+    waitForFlush(writer);
+    writer.write(response(4, 5), false);
+    assertThat(channel.writes).containsExactly(20, 10, 5);
+  }
+
+  @Test
+  public void testAbandonedSearchesDoNotHoldTheBuffer() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+
+    // No response follows the entries of an abandoned search
+    writer.write(response(1, 10), true);
+    assertThat(writer.holdsBuffer()).isTrue();
+    waitForFlush(writer);
+    assertThat(writer.getPendingBytes()).isEqualTo(0);
+    assertThat(channel.writes).containsExactly(10);
+  }
+
+  @Test
+  public void testStalledClientDoesNotDelayTheFlushesOfOtherConnections() throws Exception
+  {
+    final StalledChannel stalledChannel = new StalledChannel();
+    final CoalescingResponseWriter stalledWriter = newWriter(stalledChannel, 100);
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+    try
+    {
+      stalledWriter.write(response(1, 10), true);
+      Thread.sleep(2 * CoalescingResponseWriter.MAX_DELAY_MILLIS);
+
+      // The scheduled flush of the stalled client is blocked writing
+      writer.write(response(2, 10), true);
+      waitForFlush(writer);
+      assertThat(channel.writes).containsExactly(10);
+      assertThat(stalledChannel.writes).isEmpty();
+    }
+    finally
+    {
+      stalledChannel.release.countDown();
+    }
+    waitForFlush(stalledWriter);
+    assertThat(stalledChannel.writes).containsExactly(10);
+  }
+
+  @Test
+  public void testDeferredResponsesAreDroppedWhenWriteFails() throws Exception
+  {
+    final RecordingChannel channel = new RecordingChannel();
+    final CoalescingResponseWriter writer = newWriter(channel, 100);
+
+    writer.write(response(1, 10), true);
+    channel.close();
+    try
+    {
+      writer.write(response(2, 10), false);
+      failBecauseExceptionWasNotThrown(ClosedChannelException.class);
+    }
+    catch (ClosedChannelException expected)
+    {
+      assertThat(writer.getPendingBytes()).isEqualTo(0);
+    }
+  }
+
+  private CoalescingResponseWriter newWriter(RecordingChannel channel, int flushThreshold)
+  {
+    return new CoalescingResponseWriter(channel, flushThreshold, scheduler, flushExecutor);
+  }
+
+  /** Waits until the scheduled flush has written the deferred responses and given the buffer back. */
+  private static void waitForFlush(CoalescingResponseWriter writer) throws Exception
+  {
+    final long timeout = System.currentTimeMillis() + 10000;
+    while (writer.holdsBuffer() && System.currentTimeMillis() < timeout)
+    {
+      Thread.sleep(CoalescingResponseWriter.MAX_DELAY_MILLIS);
+    }
+    assertThat(writer.holdsBuffer()).isFalse();
+  }
+
+  private static ByteStringBuilder response(int value, int length)
+  {
+    final ByteStringBuilder response = new ByteStringBuilder(length);
+    for (int i = 0; i < length; i++)
+    {
+      response.appendByte(value);
+    }
+    return response;
+  }
+}
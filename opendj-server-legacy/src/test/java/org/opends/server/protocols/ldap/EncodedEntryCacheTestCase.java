@@ -0,0 +1,297 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 Open Identity Platform Community.
+ */
+package org.opends.server.protocols.ldap;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.util.ServerConstants.*;
+
+import java.util.List;
+
+import org.forgerock.opendj.io.ASN1;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.Control;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchResultEntry;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/** Test class for EncodedEntryCache. */
+@SuppressWarnings("javadoc")
+public class EncodedEntryCacheTestCase extends LdapTestCase
+{
+  private static final List<String> ATTRIBUTES = asList("objectClass", "cn", "sn");
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    TestCaseUtils.initializeTestBackend(true);
+  }
+
+  @Test
+  public void testCachedEncodingIsTheRegularEncoding() throws Exception
+  {
+    final Entry entry = TestCaseUtils.makeEntry(
+        "dn: cn=cached,o=test",
+        "objectClass: person",
+        "cn: cached",
+        "sn: entry",
+        "description: an entry returned by several searches");
+    final SearchResultEntry searchEntry = new SearchResultEntry(entry);
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    final ByteString expected = encode(new SearchResultEntryProtocolOp(searchEntry));
+    assertThat(encode(cache.toProtocolOp(searchOperation(), searchEntry))).isEqualTo(expected);
+    assertThat(cache.getMisses()).isEqualTo(1);
+    assertThat(encode(cache.toProtocolOp(searchOperation(), searchEntry))).isEqualTo(expected);
+    assertThat(cache.getHits()).isEqualTo(1);
+  }
+
+  @Test
+  public void testEntriesOfPrivateBackendsAreNotCached() throws Exception
+  {
+    final SearchResultEntry searchEntry = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: cn=config",
+        "objectClass: top",
+        "objectClass: ds-cfg-root-config",
+        "cn: config"));
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    cache.toProtocolOp(searchOperation(), searchEntry);
+    assertThat(cache.getSize()).isEqualTo(0);
+    assertThat(cache.getMisses()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEntriesWithEffectiveRightsAreNotCached() throws Exception
+  {
+    final SearchResultEntry user1Entry = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: cn=rights,o=test",
+        "objectClass: person",
+        "cn: rights",
+        "sn: entry",
+        "aclRights;entryLevel: add:0,delete:0,read:1,write:0,proxy:0"));
+    final SearchResultEntry user2Entry = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: cn=rights,o=test",
+        "objectClass: person",
+        "cn: rights",
+        "sn: entry",
+        "aclRights;entryLevel: add:1,delete:1,read:1,write:1,proxy:0"));
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    // Two different requesters get their own rights on the same entry
+    final SearchOperation user1Search = searchOperation(new LDAPControl(OID_GET_EFFECTIVE_RIGHTS));
+    final SearchOperation user2Search = searchOperation(new LDAPControl(OID_GET_EFFECTIVE_RIGHTS));
+    assertThat(encode(cache.toProtocolOp(user1Search, user1Entry)))
+        .isEqualTo(encode(new SearchResultEntryProtocolOp(user1Entry)));
+    assertThat(encode(cache.toProtocolOp(user2Search, user2Entry)))
+        .isEqualTo(encode(new SearchResultEntryProtocolOp(user2Entry)));
+    assertThat(encode(cache.toProtocolOp(user1Search, user1Entry)))
+        .isEqualTo(encode(new SearchResultEntryProtocolOp(user1Entry)));
+    assertThat(cache.getSize()).isEqualTo(0);
+    assertThat(cache.getHits()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOnlyControlsLeavingEntriesUnchangedAreCached() throws Exception
+  {
+    final SearchResultEntry searchEntry = new SearchResultEntry(TestCaseUtils.makeEntry(
+        "dn: cn=controls,o=test",
+        "objectClass: person",
+        "cn: controls",
+        "sn: entry"));
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    cache.toProtocolOp(searchOperation(new LDAPControl("1.2.3.4")), searchEntry);
+    assertThat(cache.getSize()).isEqualTo(0);
+    cache.toProtocolOp(searchOperation(new LDAPControl(OID_PAGED_RESULTS_CONTROL)), searchEntry);
+    assertThat(cache.getMisses()).isEqualTo(1);
+    assertThat(cache.getSize()).isGreaterThan(0);
+  }
+
+  @Test
+  public void testEntriesAreCachedPerListOfAttributes() throws Exception
+  {
+    final DN dn = DN.valueOf("cn=variants,o=test");
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    cache.put(dn, ATTRIBUTES, false, content(1, 10), System.currentTimeMillis());
+    cache.put(dn, singletonList("cn"), false, content(2, 10), System.currentTimeMillis());
+    cache.put(dn, singletonList("cn"), true, content(3, 10), System.currentTimeMillis());
+
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isEqualTo(content(1, 10));
+    assertThat(cache.get(dn, singletonList("cn"), false)).isEqualTo(content(2, 10));
+    assertThat(cache.get(dn, singletonList("cn"), true)).isEqualTo(content(3, 10));
+    assertThat(cache.get(dn, singletonList("sn"), false)).isNull();
+
+    cache.invalidate(dn);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isNull();
+    assertThat(cache.getSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void testEntriesReadBeforeAChangeAreNotCached() throws Exception
+  {
+    final DN dn = DN.valueOf("cn=stale,o=test");
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+
+    final long searchStartTime = System.currentTimeMillis();
+    cache.invalidate(dn);
+    cache.put(dn, ATTRIBUTES, false, content(1, 10), searchStartTime);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isNull();
+
+    cache.put(dn, ATTRIBUTES, false, content(1, 10), System.currentTimeMillis() + 1);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isEqualTo(content(1, 10));
+  }
+
+  @Test
+  public void testOldestEntriesAreEvicted() throws Exception
+  {
+    final EncodedEntryCache cache = newCache(3 * 200);
+
+    for (int i = 0; i < 5; i++)
+    {
+      cache.put(DN.valueOf("cn=entry" + i + ",o=test"), ATTRIBUTES, false, content(i, 100),
+          System.currentTimeMillis());
+    }
+    assertThat(cache.getSize()).isLessThanOrEqualTo(3 * 200);
+    assertThat(cache.get(DN.valueOf("cn=entry0,o=test"), ATTRIBUTES, false)).isNull();
+    assertThat(cache.get(DN.valueOf("cn=entry4,o=test"), ATTRIBUTES, false)).isEqualTo(content(4, 100));
+  }
+
+  @Test
+  public void testChangedEntriesAreDiscarded() throws Exception
+  {
+    final Entry entry = TestCaseUtils.addEntry(
+        "dn: cn=changed,o=test",
+        "objectClass: person",
+        "cn: changed",
+        "sn: entry");
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+    cache.register();
+    try
+    {
+      cache.put(entry.getName(), ATTRIBUTES, false, content(1, 10), System.currentTimeMillis());
+      assertThat(cache.get(entry.getName(), ATTRIBUTES, false)).isNotNull();
+
+      TestCaseUtils.deleteEntry(entry);
+      assertThat(cache.get(entry.getName(), ATTRIBUTES, false)).isNull();
+    }
+    finally
+    {
+      cache.deregister();
+    }
+  }
+
+  @Test
+  public void testEntriesBeingChangedAreNeitherCachedNorReturned() throws Exception
+  {
+    final DN dn = DN.valueOf("cn=changing,o=test");
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+    cache.put(dn, ATTRIBUTES, false, content(1, 10), System.currentTimeMillis());
+
+    // Two concurrent changes of the entry
+    cache.beginChange(dn);
+    cache.beginChange(dn);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isNull();
+    cache.put(dn, ATTRIBUTES, false, content(2, 10), System.currentTimeMillis() + 1);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isNull();
+    assertThat(cache.getSize()).isEqualTo(0);
+
+    cache.endChange(dn);
+    cache.put(dn, ATTRIBUTES, false, content(3, 10), System.currentTimeMillis() + 1);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isNull();
+
+    cache.endChange(dn);
+    cache.put(dn, ATTRIBUTES, false, content(4, 10), System.currentTimeMillis() + 1);
+    assertThat(cache.get(dn, ATTRIBUTES, false)).isEqualTo(content(4, 10));
+  }
+
+  @Test
+  public void testEntriesAreCachedAgainAfterAChange() throws Exception
+  {
+    final Entry entry = TestCaseUtils.addEntry(
+        "dn: cn=modified,o=test",
+        "objectClass: person",
+        "cn: modified",
+        "sn: entry");
+    final EncodedEntryCache cache = newCache(1024 * 1024);
+    cache.register();
+    try
+    {
+      cache.put(entry.getName(), ATTRIBUTES, false, content(1, 10), System.currentTimeMillis());
+      assertThat(TestCaseUtils.applyModifications(false,
+          "dn: cn=modified,o=test",
+          "changetype: modify",
+          "replace: sn",
+          "sn: modified entry")).isEqualTo(0);
+      assertThat(cache.get(entry.getName(), ATTRIBUTES, false)).isNull();
+
+      // The change is over once the post-response plugins have run, possibly after the client got the response
+      final long timeout = System.currentTimeMillis() + 10000;
+      do
+      {
+        Thread.sleep(10);
+        cache.put(entry.getName(), ATTRIBUTES, false, content(2, 10), System.currentTimeMillis() + 1);
+      }
+      while (cache.get(entry.getName(), ATTRIBUTES, false) == null && System.currentTimeMillis() < timeout);
+      assertThat(cache.get(entry.getName(), ATTRIBUTES, false)).isEqualTo(content(2, 10));
+    }
+    finally
+    {
+      cache.deregister();
+      TestCaseUtils.deleteEntry(entry);
+    }
+  }
+
+  private static EncodedEntryCache newCache(long maxSize) throws Exception
+  {
+    return new EncodedEntryCache(
+        TestCaseUtils.getServerContext(), DN.valueOf("cn=Encoded Entry Cache Test,cn=config"), maxSize);
+  }
+
+  private static SearchOperation searchOperation(Control... requestControls)
+  {
+    final SearchOperation operation = mock(SearchOperation.class);
+    when(operation.getProcessingStartTime()).thenReturn(System.currentTimeMillis());
+    when(operation.getRequestControls()).thenReturn(asList(requestControls));
+    return operation;
+  }
+
+  private static ByteString encode(SearchResultEntryProtocolOp protocolOp) throws Exception
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    protocolOp.write(ASN1.getWriter(builder));
+    return builder.toByteString();
+  }
+
+  private static ByteString content(int value, int length)
+  {
+    final ByteStringBuilder content = new ByteStringBuilder(length);
+    for (int i = 0; i < length; i++)
+    {
+      content.appendByte(value);
+    }
+    return content.toByteString();
+  }
+}
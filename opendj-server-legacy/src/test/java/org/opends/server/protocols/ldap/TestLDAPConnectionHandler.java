@@ -29,7 +29,10 @@ import org.opends.server.TestCaseUtils;
 import org.forgerock.opendj.server.config.server.LDAPConnectionHandlerCfg;
 import org.opends.server.api.ClientConnection;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.core.AdaptiveWorkQueueStrategy;
 import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.QueueingStrategy;
+import org.opends.server.core.WorkQueueStrategy;
 import org.opends.server.types.Attribute;
 import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.opendj.ldap.schema.Schema;
@@ -313,4 +316,67 @@ public class TestLDAPConnectionHandler extends LdapTestCase {
     LDAPConnHandler.applyConfigurationChange(config);
     LDAPConnHandler.finalizeConnectionHandler(reasonMsg);
   }
+
+  @Test
+  public void testAdaptiveConcurrencyLimit() throws Exception
+  {
+    Entry handlerEntry = TestCaseUtils.makeEntry(
+        "dn: cn=LDAP Connection Handler,cn=Connection Handlers,cn=config",
+        "objectClass: top",
+        "objectClass: ds-cfg-connection-handler",
+        "objectClass: ds-cfg-ldap-connection-handler",
+        "cn: LDAP Connection Handler",
+        "ds-cfg-java-class: org.forgerock.opendj.reactive.LDAPConnectionHandler2",
+        "ds-cfg-enabled: true",
+        "ds-cfg-listen-address: 0.0.0.0",
+        "ds-cfg-use-ssl: false",
+        "ds-cfg-allow-start-tls: false",
+        "ds-cfg-adaptive-concurrency-limit: true");
+    LDAPConnectionHandler2 handler = getLDAPHandlerInstance(handlerEntry);
+    try
+    {
+      assertNull(handler.getAdaptiveQueueingStrategy());
+      QueueingStrategy strategy = handler.getQueueingStrategy();
+      assertTrue(strategy instanceof AdaptiveWorkQueueStrategy);
+      assertSame(handler.getAdaptiveQueueingStrategy(), strategy);
+      assertSame(handler.getQueueingStrategy(), strategy);
+
+      handlerEntry.replaceAttribute(Attributes.create("ds-cfg-adaptive-concurrency-limit", "false"));
+      handler.applyConfigurationChange(getConfiguration(handlerEntry));
+      assertNull(handler.getAdaptiveQueueingStrategy());
+      assertTrue(handler.getQueueingStrategy() instanceof WorkQueueStrategy);
+    }
+    finally
+    {
+      handler.finalizeConnectionHandler(reasonMsg);
+    }
+  }
+
+  @Test
+  public void testEncodedEntryCacheIsRejected() throws Exception
+  {
+    Entry handlerEntry = TestCaseUtils.makeEntry(
+        "dn: cn=LDAP Connection Handler,cn=Connection Handlers,cn=config",
+        "objectClass: top",
+        "objectClass: ds-cfg-connection-handler",
+        "objectClass: ds-cfg-ldap-connection-handler",
+        "cn: LDAP Connection Handler",
+        "ds-cfg-java-class: org.forgerock.opendj.reactive.LDAPConnectionHandler2",
+        "ds-cfg-enabled: true",
+        "ds-cfg-listen-address: 0.0.0.0",
+        "ds-cfg-use-ssl: false",
+        "ds-cfg-allow-start-tls: false");
+    LDAPConnectionHandler2 handler = getLDAPHandlerInstance(handlerEntry);
+    try
+    {
+      handlerEntry.addAttribute(Attributes.create("ds-cfg-encoded-entry-cache-size", "1 megabytes"), null);
+      List<LocalizableMessage> reasons = new LinkedList<>();
+      assertFalse(handler.isConfigurationChangeAcceptable(getConfiguration(handlerEntry), reasons));
+      assertEquals(reasons.size(), 1);
+    }
+    finally
+    {
+      handler.finalizeConnectionHandler(reasonMsg);
+    }
+  }
 }